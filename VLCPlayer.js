@@ -27,6 +27,22 @@ export default class VLCPlayer extends Component {
     this._onRecordingState = this._onRecordingState.bind(this);
     this._onSnapshot = this._onSnapshot.bind(this);
     this._onPictureInPictureStatusChanged = this._onPictureInPictureStatusChanged.bind(this);
+    this._onAudioLevels = this._onAudioLevels.bind(this);
+    this._onNetworkCachingChange = this._onNetworkCachingChange.bind(this);
+    this._onStall = this._onStall.bind(this);
+    this._onPlaybackSummary = this._onPlaybackSummary.bind(this);
+    this._onMirrorChange = this._onMirrorChange.bind(this);
+    this._onReconnecting = this._onReconnecting.bind(this);
+    this._onReconnected = this._onReconnected.bind(this);
+    this._onVisibilityTierChange = this._onVisibilityTierChange.bind(this);
+    this._onDecoderChange = this._onDecoderChange.bind(this);
+    this._onWallStats = this._onWallStats.bind(this);
+    this._onHandoff = this._onHandoff.bind(this);
+    this._onMemoryPressure = this._onMemoryPressure.bind(this);
+    this._onBackgroundAudioOnly = this._onBackgroundAudioOnly.bind(this);
+    this._onResize = this._onResize.bind(this);
+    this._onSubtitleCues = this._onSubtitleCues.bind(this);
+    this._onSeekComplete = this._onSeekComplete.bind(this);
     this.changeVideoAspectRatio = this.changeVideoAspectRatio.bind(this);
     this.enterPictureInPicture = this.enterPictureInPicture.bind(this);
     this.enterPictureInPictureV2 = this.enterPictureInPictureV2.bind(this);
@@ -92,6 +108,30 @@ export default class VLCPlayer extends Component {
     this.setNativeProps({ seek: pos });
   }
 
+  beginScrub() {
+    UIManager.dispatchViewManagerCommand(
+      ReactNative.findNodeHandle(this),
+      UIManager.getViewManagerConfig('RCTVLCPlayer').Commands.beginScrub,
+      []
+    );
+  }
+
+  scrub(pos) {
+    UIManager.dispatchViewManagerCommand(
+      ReactNative.findNodeHandle(this),
+      UIManager.getViewManagerConfig('RCTVLCPlayer').Commands.scrub,
+      [pos]
+    );
+  }
+
+  endScrub(pos) {
+    UIManager.dispatchViewManagerCommand(
+      ReactNative.findNodeHandle(this),
+      UIManager.getViewManagerConfig('RCTVLCPlayer').Commands.endScrub,
+      [pos == null ? null : pos]
+    );
+  }
+
   resume(isResume) {
     this.setNativeProps({ resume: isResume });
   }
@@ -192,6 +232,102 @@ export default class VLCPlayer extends Component {
     }
   }
 
+  _onAudioLevels(event) {
+    if (this.props.onAudioLevels) {
+      this.props.onAudioLevels(event.nativeEvent);
+    }
+  }
+
+  _onNetworkCachingChange(event) {
+    if (this.props.onNetworkCachingChange) {
+      this.props.onNetworkCachingChange(event.nativeEvent);
+    }
+  }
+
+  _onStall(event) {
+    if (this.props.onStall) {
+      this.props.onStall(event.nativeEvent);
+    }
+  }
+
+  _onPlaybackSummary(event) {
+    if (this.props.onPlaybackSummary) {
+      this.props.onPlaybackSummary(event.nativeEvent);
+    }
+  }
+
+  _onMirrorChange(event) {
+    if (this.props.onMirrorChange) {
+      this.props.onMirrorChange(event.nativeEvent);
+    }
+  }
+
+  _onReconnecting(event) {
+    if (this.props.onReconnecting) {
+      this.props.onReconnecting(event.nativeEvent);
+    }
+  }
+
+  _onReconnected(event) {
+    if (this.props.onReconnected) {
+      this.props.onReconnected(event.nativeEvent);
+    }
+  }
+
+  _onVisibilityTierChange(event) {
+    if (this.props.onVisibilityTierChange) {
+      this.props.onVisibilityTierChange(event.nativeEvent);
+    }
+  }
+
+  _onDecoderChange(event) {
+    if (this.props.onDecoderChange) {
+      this.props.onDecoderChange(event.nativeEvent);
+    }
+  }
+
+  _onWallStats(event) {
+    if (this.props.onWallStats) {
+      this.props.onWallStats(event.nativeEvent);
+    }
+  }
+
+  _onHandoff(event) {
+    if (this.props.onHandoff) {
+      this.props.onHandoff(event.nativeEvent);
+    }
+  }
+
+  _onMemoryPressure(event) {
+    if (this.props.onMemoryPressure) {
+      this.props.onMemoryPressure(event.nativeEvent);
+    }
+  }
+
+  _onBackgroundAudioOnly(event) {
+    if (this.props.onBackgroundAudioOnly) {
+      this.props.onBackgroundAudioOnly(event.nativeEvent);
+    }
+  }
+
+  _onResize(event) {
+    if (this.props.onResize) {
+      this.props.onResize(event.nativeEvent);
+    }
+  }
+
+  _onSubtitleCues(event) {
+    if (this.props.onSubtitleCues) {
+      this.props.onSubtitleCues(event.nativeEvent);
+    }
+  }
+
+  _onSeekComplete(event) {
+    if (this.props.onSeekComplete) {
+      this.props.onSeekComplete(event.nativeEvent);
+    }
+  }
+
   render() {
     /* const {
      source
@@ -250,7 +386,33 @@ export default class VLCPlayer extends Component {
       onRecordingState: this._onRecordingState,
       onSnapshot: this._onSnapshot,
       onPictureInPictureStatusChanged: this._onPictureInPictureStatusChanged,
+      onAudioLevels: this._onAudioLevels,
+      onNetworkCachingChange: this._onNetworkCachingChange,
+      onStall: this._onStall,
+      onPlaybackSummary: this._onPlaybackSummary,
+      onMirrorChange: this._onMirrorChange,
+      onReconnecting: this._onReconnecting,
+      onReconnected: this._onReconnected,
+      onVisibilityTierChange: this._onVisibilityTierChange,
+      onDecoderChange: this._onDecoderChange,
+      onWallStats: this._onWallStats,
+      onHandoff: this._onHandoff,
+      onMemoryPressure: this._onMemoryPressure,
+      onBackgroundAudioOnly: this._onBackgroundAudioOnly,
+      onResize: this._onResize,
+      onSubtitleCues: this._onSubtitleCues,
+      onSeekComplete: this._onSeekComplete,
       progressUpdateInterval: this.props.onProgress ? 250 : 0,
+      audioLevelsEnabled: !!this.props.onAudioLevels,
+      adaptiveNetworkCaching:
+        this.props.adaptiveNetworkCaching === true ? {} : this.props.adaptiveNetworkCaching || null,
+      localCacheProxy:
+        this.props.localCacheProxy === true ? {} : this.props.localCacheProxy || null,
+      reconnect: this.props.reconnect === true ? {} : this.props.reconnect || null,
+      virtualization: this.props.virtualization === true ? {} : this.props.virtualization || null,
+      decoderScheduling:
+        this.props.decoderScheduling === true ? {} : this.props.decoderScheduling || null,
+      wallMode: this.props.wallMode === true ? {} : this.props.wallMode || null,
     });
 
     return <RCTVLCPlayer ref={this._assignRoot} {...nativeProps} />;
@@ -280,6 +442,7 @@ VLCPlayer.propTypes = {
   acceptInvalidCertificates: PropTypes.bool,
   pictureInPictureEnabled: PropTypes.bool,
   playInPictureInPicture: PropTypes.bool,
+  autoEnterPictureInPicture: PropTypes.bool,
 
   onVideoLoadStart: PropTypes.func,
   onVideoError: PropTypes.func,
@@ -292,10 +455,41 @@ VLCPlayer.propTypes = {
   onVideoOpen: PropTypes.func,
   onVideoLoad: PropTypes.func,
   onPictureInPictureStatusChanged: PropTypes.func,
+  audioLevelsInterval: PropTypes.number,
+  mediaInfoCacheEnabled: PropTypes.bool,
+  resumePositionEnabled: PropTypes.bool,
+  adaptiveNetworkCaching: PropTypes.oneOfType([PropTypes.bool, PropTypes.object]),
+  localCacheProxy: PropTypes.oneOfType([PropTypes.bool, PropTypes.object]),
+  reconnect: PropTypes.oneOfType([PropTypes.bool, PropTypes.object]),
+  virtualization: PropTypes.oneOfType([PropTypes.bool, PropTypes.object]),
+  decoderScheduling: PropTypes.oneOfType([PropTypes.bool, PropTypes.object]),
+  wallMode: PropTypes.oneOfType([PropTypes.bool, PropTypes.object]),
+  handoffKey: PropTypes.string,
+  backgroundAudioOnly: PropTypes.bool,
+  sessionKey: PropTypes.string,
+  sessionGracePeriodMs: PropTypes.number,
+  autoDownscale: PropTypes.bool,
+  onAudioLevels: PropTypes.func,
+  onNetworkCachingChange: PropTypes.func,
+  onStall: PropTypes.func,
+  onPlaybackSummary: PropTypes.func,
+  onMirrorChange: PropTypes.func,
+  onReconnecting: PropTypes.func,
+  onReconnected: PropTypes.func,
+  onVisibilityTierChange: PropTypes.func,
+  onDecoderChange: PropTypes.func,
+  onWallStats: PropTypes.func,
+  onHandoff: PropTypes.func,
+  onMemoryPressure: PropTypes.func,
+  onBackgroundAudioOnly: PropTypes.func,
+  onResize: PropTypes.func,
+  onSubtitleCues: PropTypes.func,
+  onSeekComplete: PropTypes.func,
 
   /* Wrapper component */
   source: PropTypes.oneOfType([PropTypes.object, PropTypes.number]),
   subtitleUri: PropTypes.string,
+  subtitleMode: PropTypes.oneOf(['vlc', 'overlay', 'events']),
   autoplay: PropTypes.bool,
 
   onError: PropTypes.func,
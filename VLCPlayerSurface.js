@@ -28,6 +28,7 @@ export default class VLCPlayerSurface extends Component {
     this._onSnapshot = this._onSnapshot.bind(this);
     this._onPictureInPictureStatusChanged = this._onPictureInPictureStatusChanged.bind(this);
     this._onVideoStateChange = this._onVideoStateChange.bind(this);
+    this._onPipSurfaceSwitch = this._onPipSurfaceSwitch.bind(this);
     this.changeVideoAspectRatio = this.changeVideoAspectRatio.bind(this);
     this.enterPictureInPicture = this.enterPictureInPicture.bind(this);
   }
@@ -182,6 +183,12 @@ export default class VLCPlayerSurface extends Component {
     }
   }
 
+  _onPipSurfaceSwitch(event) {
+    if (this.props.onPipSurfaceSwitch) {
+      this.props.onPipSurfaceSwitch(event.nativeEvent);
+    }
+  }
+
   render() {
     const source = resolveAssetSource(this.props.source) || {};
 
@@ -238,6 +245,7 @@ export default class VLCPlayerSurface extends Component {
       onSnapshot: this._onSnapshot,
       onPictureInPictureStatusChanged: this._onPictureInPictureStatusChanged,
       onVideoStateChange: this._onVideoStateChange,
+      onPipSurfaceSwitch: this._onPipSurfaceSwitch,
       progressUpdateInterval: this.props.onProgress ? 250 : 0,
     });
 
@@ -266,6 +274,7 @@ VLCPlayerSurface.propTypes = {
   acceptInvalidCertificates: PropTypes.bool,
   pictureInPictureEnabled: PropTypes.bool,
   playInPictureInPicture: PropTypes.bool,
+  primaryPlayer: PropTypes.bool,
   onVideoLoadStart: PropTypes.func,
   onVideoError: PropTypes.func,
   onVideoProgress: PropTypes.func,
@@ -278,6 +287,7 @@ VLCPlayerSurface.propTypes = {
   onVideoLoad: PropTypes.func,
   onPictureInPictureStatusChanged: PropTypes.func,
   onVideoStateChange: PropTypes.func,
+  onPipSurfaceSwitch: PropTypes.func,
   source: PropTypes.oneOfType([PropTypes.object, PropTypes.number]),
   subtitleUri: PropTypes.string,
   autoplay: PropTypes.bool,
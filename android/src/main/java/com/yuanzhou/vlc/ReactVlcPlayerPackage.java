@@ -11,6 +11,10 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
+import com.yuanzhou.vlc.vlcplayer.ReactVlcAudioTapModule;
+import com.yuanzhou.vlc.vlcplayer.ReactVlcCacheProxyModule;
+import com.yuanzhou.vlc.vlcplayer.ReactVlcDecoderModule;
+import com.yuanzhou.vlc.vlcplayer.ReactVlcDownloadModule;
 import com.yuanzhou.vlc.vlcplayer.ReactVlcPlayerViewManager;
 import com.yuanzhou.vlc.vlcplayer.ReactVlcPlayerSurfaceViewManager;
 
@@ -18,7 +22,12 @@ public class ReactVlcPlayerPackage implements ReactPackage {
 
     @Override
     public List<NativeModule> createNativeModules(ReactApplicationContext reactContext) {
-        return Collections.emptyList();
+        return Arrays.<NativeModule>asList(
+            new ReactVlcAudioTapModule(reactContext),
+            new ReactVlcCacheProxyModule(reactContext),
+            new ReactVlcDecoderModule(reactContext),
+            new ReactVlcDownloadModule(reactContext)
+        );
     }
 
     // Deprecated RN 0.47
@@ -0,0 +1,64 @@
+package com.yuanzhou.vlc.vlcplayer;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import com.yuanzhou.vlc.vlcplayer.audio.AudioLevelTap;
+import com.yuanzhou.vlc.vlcplayer.audio.AudioTapRegistry;
+
+/**
+ * Exposes the raw PCM ring of a player's audio tap to JS.
+ * Players only have a tap while `onAudioLevels` is set on them.
+ */
+public class ReactVlcAudioTapModule extends ReactContextBaseJavaModule {
+
+    private static final String NAME = "RCTVLCAudioTap";
+
+    public ReactVlcAudioTapModule(ReactApplicationContext reactContext) {
+        super(reactContext);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    /**
+     * Read up to maxSamples of the most recent mono samples (-1..1), oldest first.
+     */
+    @ReactMethod
+    public void readSamples(int viewTag, int maxSamples, Promise promise) {
+        AudioLevelTap tap = AudioTapRegistry.get(viewTag);
+        if (tap == null) {
+            promise.reject("E_NO_TAP", "No audio tap for view " + viewTag);
+            return;
+        }
+        int size = Math.max(0, Math.min(maxSamples, tap.getRing().capacity()));
+        float[] samples = new float[size];
+        int read = tap.getRing().readLatest(samples, size);
+        WritableArray result = Arguments.createArray();
+        for (int i = 0; i < read; i++) {
+            result.pushDouble(samples[i]);
+        }
+        promise.resolve(result);
+    }
+
+    @ReactMethod
+    public void getInfo(int viewTag, Promise promise) {
+        AudioLevelTap tap = AudioTapRegistry.get(viewTag);
+        if (tap == null) {
+            promise.reject("E_NO_TAP", "No audio tap for view " + viewTag);
+            return;
+        }
+        WritableMap info = Arguments.createMap();
+        info.putInt("sampleRate", tap.getSamplingRateHz());
+        info.putInt("capacity", tap.getRing().capacity());
+        info.putDouble("totalSamples", tap.getRing().totalWritten());
+        promise.resolve(info);
+    }
+}
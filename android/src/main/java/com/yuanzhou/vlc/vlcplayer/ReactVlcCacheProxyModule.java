@@ -0,0 +1,50 @@
+package com.yuanzhou.vlc.vlcplayer;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.WritableMap;
+
+import com.yuanzhou.vlc.vlcplayer.proxy.LocalCachingProxy;
+import com.yuanzhou.vlc.vlcplayer.proxy.ProxyStats;
+
+/**
+ * Statistics and maintenance of the local caching proxy used by players with `localCacheProxy` set.
+ */
+public class ReactVlcCacheProxyModule extends ReactContextBaseJavaModule {
+
+    private static final String NAME = "RCTVLCCacheProxy";
+
+    public ReactVlcCacheProxyModule(ReactApplicationContext reactContext) {
+        super(reactContext);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @ReactMethod
+    public void getStats(Promise promise) {
+        ProxyStats stats = LocalCachingProxy.getInstance(getReactApplicationContext()).stats();
+        WritableMap map = Arguments.createMap();
+        map.putDouble("bytesFromCache", stats.getBytesFromCache());
+        map.putDouble("bytesFromNetwork", stats.getBytesFromNetwork());
+        map.putDouble("bytesSaved", stats.getBytesFromCache());
+        map.putDouble("hitRatio", stats.getHitRatio());
+        map.putDouble("cachedBytes", stats.getCachedBytes());
+        map.putDouble("maxBytes", stats.getMaxBytes());
+        promise.resolve(map);
+    }
+
+    /**
+     * Delete all cached blocks and reset the counters.
+     */
+    @ReactMethod
+    public void clear(Promise promise) {
+        LocalCachingProxy.getInstance(getReactApplicationContext()).clear();
+        promise.resolve(null);
+    }
+}
@@ -0,0 +1,120 @@
+package com.yuanzhou.vlc.vlcplayer;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import com.yuanzhou.vlc.vlcplayer.decoder.CodecCapability;
+import com.yuanzhou.vlc.vlcplayer.decoder.DecoderAssignment;
+import com.yuanzhou.vlc.vlcplayer.decoder.DecoderCapabilityProbe;
+import com.yuanzhou.vlc.vlcplayer.decoder.DeviceDecoderCapabilities;
+import com.yuanzhou.vlc.vlcplayer.decoder.FrameRateLimit;
+import com.yuanzhou.vlc.vlcplayer.decoder.HwDecoderScheduler;
+
+/**
+ * The device's video decoders as found by the capability probe, and the decoder players
+ * pick for a source when its `hwDecoderEnabled` is not set.
+ */
+public class ReactVlcDecoderModule extends ReactContextBaseJavaModule {
+
+    private static final String NAME = "RCTVLCDecoders";
+
+    public ReactVlcDecoderModule(ReactApplicationContext reactContext) {
+        super(reactContext);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public void initialize() {
+        super.initialize();
+        DecoderCapabilityProbe.start(getReactApplicationContext());
+    }
+
+    /**
+     * Resolves once the probe has finished (immediately if it was stored).
+     */
+    @ReactMethod
+    public void getCapabilities(Promise promise) {
+        DecoderCapabilityProbe.start(getReactApplicationContext());
+        DecoderCapabilityProbe.whenReady(() -> resolveCapabilities(promise));
+    }
+
+    /**
+     * Ignore the stored result and query the codecs again.
+     */
+    @ReactMethod
+    public void reprobe(Promise promise) {
+        DecoderCapabilityProbe.reprobe(getReactApplicationContext(), () -> resolveCapabilities(promise));
+    }
+
+    /**
+     * codec: a MediaCodec type ("video/hevc") or a libvlc fourcc ("hevc").
+     * format: { width?, height?, frameRate?, profile? }
+     * Resolves with "hardware" or "software".
+     */
+    @ReactMethod
+    public void getRecommendation(String codec, ReadableMap format, Promise promise) {
+        String mime = codec != null && codec.startsWith("video/") ? codec : HwDecoderScheduler.mimeForCodec(codec);
+        int width = format != null && format.hasKey("width") ? format.getInt("width") : 0;
+        int height = format != null && format.hasKey("height") ? format.getInt("height") : 0;
+        float frameRate = format != null && format.hasKey("frameRate") ? (float) format.getDouble("frameRate") : 0f;
+        int profile = format != null && format.hasKey("profile") ? format.getInt("profile") : -1;
+        DecoderCapabilityProbe.start(getReactApplicationContext());
+        DecoderCapabilityProbe.whenReady(() -> {
+            DecoderAssignment choice = DecoderCapabilityProbe.choose(mime, width, height, frameRate, profile);
+            if (choice == null) {
+                promise.reject("E_NO_PROBE", "Decoder capabilities are not available");
+                return;
+            }
+            promise.resolve(choice == DecoderAssignment.SOFTWARE ? "software" : "hardware");
+        });
+    }
+
+    private static void resolveCapabilities(Promise promise) {
+        DeviceDecoderCapabilities caps = DecoderCapabilityProbe.capabilities();
+        if (caps == null) {
+            promise.reject("E_NO_PROBE", "Decoder capabilities are not available");
+            return;
+        }
+        WritableArray codecs = Arguments.createArray();
+        for (CodecCapability codec : caps.getCodecs()) {
+            WritableArray profiles = Arguments.createArray();
+            for (Integer profile : codec.getProfiles()) {
+                profiles.pushInt(profile);
+            }
+            WritableMap map = Arguments.createMap();
+            map.putString("name", codec.getName());
+            map.putString("mimeType", codec.getMime());
+            map.putBoolean("hardware", codec.getHardware());
+            map.putArray("profiles", profiles);
+            map.putBoolean("tenBit", codec.getTenBit());
+            map.putInt("maxWidth", codec.getMaxWidth());
+            map.putInt("maxHeight", codec.getMaxHeight());
+            WritableArray limits = Arguments.createArray();
+            for (FrameRateLimit limit : codec.getFrameRateLimits()) {
+                WritableMap l = Arguments.createMap();
+                l.putInt("width", limit.getWidth());
+                l.putInt("height", limit.getHeight());
+                l.putInt("maxFrameRate", limit.getMaxFrameRate());
+                limits.pushMap(l);
+            }
+            map.putArray("frameRateLimits", limits);
+            map.putInt("maxInstances", codec.getMaxInstances());
+            codecs.pushMap(map);
+        }
+        WritableMap result = Arguments.createMap();
+        result.putString("fingerprint", caps.getFingerprint());
+        result.putDouble("probedAt", caps.getProbedAtMs());
+        result.putArray("codecs", codecs);
+        promise.resolve(result);
+    }
+}
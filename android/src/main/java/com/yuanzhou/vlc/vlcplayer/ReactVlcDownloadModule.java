@@ -0,0 +1,135 @@
+package com.yuanzhou.vlc.vlcplayer;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+
+import com.yuanzhou.vlc.vlcplayer.download.DownloadInfo;
+import com.yuanzhou.vlc.vlcplayer.download.DownloadListener;
+import com.yuanzhou.vlc.vlcplayer.download.VlcDownloadManager;
+
+import java.io.File;
+
+/**
+ * Offline downloads. Progress is sent as `VLCDownloadProgress` device events.
+ * Players open a completed download instead of its network URI automatically.
+ */
+public class ReactVlcDownloadModule extends ReactContextBaseJavaModule {
+
+    private static final String NAME = "RCTVLCDownloads";
+    private static final String EVENT_PROGRESS = "VLCDownloadProgress";
+
+    private final VlcDownloadManager manager;
+    private final DownloadListener listener = new DownloadListener() {
+        @Override
+        public void onDownloadProgress(DownloadInfo info) {
+            ReactApplicationContext context = getReactApplicationContext();
+            if (!context.hasActiveReactInstance()) return;
+            context.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                    .emit(EVENT_PROGRESS, toMap(info));
+        }
+    };
+
+    public ReactVlcDownloadModule(ReactApplicationContext reactContext) {
+        super(reactContext);
+        manager = VlcDownloadManager.getInstance(reactContext);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public void initialize() {
+        super.initialize();
+        manager.addListener(listener);
+    }
+
+    @Override
+    public void invalidate() {
+        manager.removeListener(listener);
+        super.invalidate();
+    }
+
+    /**
+     * options: { parallelism?: number }
+     */
+    @ReactMethod
+    public void start(String url, ReadableMap options, Promise promise) {
+        int parallelism = options != null && options.hasKey("parallelism")
+                ? options.getInt("parallelism") : VlcDownloadManager.DEFAULT_PARALLELISM;
+        promise.resolve(manager.start(url, parallelism));
+    }
+
+    @ReactMethod
+    public void pause(String id, Promise promise) {
+        manager.pause(id);
+        promise.resolve(null);
+    }
+
+    @ReactMethod
+    public void resume(String id, Promise promise) {
+        if (!manager.resume(id)) {
+            promise.reject("E_NO_DOWNLOAD", "No download " + id);
+            return;
+        }
+        promise.resolve(null);
+    }
+
+    @ReactMethod
+    public void remove(String id, Promise promise) {
+        manager.remove(id);
+        promise.resolve(null);
+    }
+
+    @ReactMethod
+    public void getDownloads(Promise promise) {
+        WritableArray result = Arguments.createArray();
+        for (DownloadInfo info : manager.list()) {
+            result.pushMap(toMap(info));
+        }
+        promise.resolve(result);
+    }
+
+    @ReactMethod
+    public void getLocalPath(String url, Promise promise) {
+        File file = manager.localFileFor(url);
+        promise.resolve(file != null ? file.getAbsolutePath() : null);
+    }
+
+    /**
+     * Bytes per second allowed to downloads while a player is playing.
+     */
+    @ReactMethod
+    public void setPlaybackThrottle(double bytesPerSecond) {
+        manager.setThrottledBytesPerSecond((long) bytesPerSecond);
+    }
+
+    // Required by NativeEventEmitter.
+    @ReactMethod
+    public void addListener(String eventName) {
+    }
+
+    @ReactMethod
+    public void removeListeners(double count) {
+    }
+
+    private static WritableMap toMap(DownloadInfo info) {
+        WritableMap map = Arguments.createMap();
+        map.putString("id", info.getId());
+        map.putString("url", info.getUrl());
+        map.putString("status", info.getStatus().name().toLowerCase());
+        map.putDouble("downloadedBytes", info.getDownloadedBytes());
+        map.putDouble("totalBytes", info.getTotalBytes());
+        map.putString("localPath", info.getLocalPath());
+        map.putString("error", info.getError());
+        return map;
+    }
+}
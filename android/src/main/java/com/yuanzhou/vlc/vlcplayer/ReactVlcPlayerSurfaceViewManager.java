@@ -130,6 +130,11 @@ public class ReactVlcPlayerSurfaceViewManager extends SimpleViewManager<ReactVlc
         videoView.setPlayInPictureInPicture(play);
     }
 
+    @ReactProp(name = "primaryPlayer", defaultBoolean = false)
+    public void setPrimaryPlayer(final ReactVlcPlayerViewSurface videoView, final boolean primary) {
+        videoView.setPrimaryPlayer(primary);
+    }
+
     @Override
     public Map<String, Integer> getCommandsMap() {
         MapBuilder.Builder<String, Integer> builder = MapBuilder.builder();
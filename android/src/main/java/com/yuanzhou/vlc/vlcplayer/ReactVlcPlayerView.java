@@ -14,9 +14,12 @@ import android.net.Uri;
 import android.os.Build;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
 import android.util.DisplayMetrics;
 import android.util.Log;
 import android.util.Rational;
+import android.util.Size;
 import android.view.Surface;
 import android.view.TextureView;
 import android.view.View;
@@ -42,8 +45,63 @@ import org.videolan.libvlc.Dialog;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.util.ArrayList;
-
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+import com.yuanzhou.vlc.vlcplayer.audio.AudioLevelTap;
+import com.yuanzhou.vlc.vlcplayer.audio.AudioTapRegistry;
+import com.yuanzhou.vlc.vlcplayer.cache.CachedMediaInfo;
+import com.yuanzhou.vlc.vlcplayer.cache.MediaInfoCache;
+import com.yuanzhou.vlc.vlcplayer.cache.ResumePositionStore;
+import com.yuanzhou.vlc.vlcplayer.core.TrackInfo;
+import com.yuanzhou.vlc.vlcplayer.decoder.DecoderAssignment;
+import com.yuanzhou.vlc.vlcplayer.decoder.DecoderAssignmentListener;
+import com.yuanzhou.vlc.vlcplayer.decoder.DecoderRequest;
+import com.yuanzhou.vlc.vlcplayer.decoder.DecoderCapabilityProbe;
+import com.yuanzhou.vlc.vlcplayer.decoder.HwDecoderScheduler;
+import com.yuanzhou.vlc.vlcplayer.decoder.OutputDownscaler;
+import com.yuanzhou.vlc.vlcplayer.download.VlcDownloadManager;
+import com.yuanzhou.vlc.vlcplayer.handoff.HandoffHost;
+import com.yuanzhou.vlc.vlcplayer.handoff.HandoffPlayer;
+import com.yuanzhou.vlc.vlcplayer.handoff.PlayerHandoff;
+import com.yuanzhou.vlc.vlcplayer.memory.MemoryPressureLevel;
+import com.yuanzhou.vlc.vlcplayer.memory.MemoryPressureListener;
+import com.yuanzhou.vlc.vlcplayer.memory.MemoryPressureMonitor;
+import com.yuanzhou.vlc.vlcplayer.network.AdaptiveCachingController;
+import com.yuanzhou.vlc.vlcplayer.network.CachingBounds;
+import com.yuanzhou.vlc.vlcplayer.network.CachingDecision;
+import com.yuanzhou.vlc.vlcplayer.network.CachingSession;
+import com.yuanzhou.vlc.vlcplayer.network.MirrorRaceCallback;
+import com.yuanzhou.vlc.vlcplayer.network.MirrorSelector;
+import com.yuanzhou.vlc.vlcplayer.network.PlaybackSnapshot;
+import com.yuanzhou.vlc.vlcplayer.network.ReconnectPolicy;
+import com.yuanzhou.vlc.vlcplayer.network.ReconnectSession;
+import com.yuanzhou.vlc.vlcplayer.proxy.LocalCachingProxy;
+import com.yuanzhou.vlc.vlcplayer.qoe.PlaybackQoeTracker;
+import com.yuanzhou.vlc.vlcplayer.qoe.QoeSummary;
+import com.yuanzhou.vlc.vlcplayer.qoe.StallListener;
+import com.yuanzhou.vlc.vlcplayer.seek.ScrubController;
+import com.yuanzhou.vlc.vlcplayer.subtitle.SubtitleCue;
+import com.yuanzhou.vlc.vlcplayer.subtitle.SubtitleCueIndex;
+import com.yuanzhou.vlc.vlcplayer.subtitle.SubtitleCueTracker;
+import com.yuanzhou.vlc.vlcplayer.subtitle.SubtitleOverlayDrawable;
+import com.yuanzhou.vlc.vlcplayer.subtitle.SubtitleParser;
+import com.yuanzhou.vlc.vlcplayer.pip.PipAutoEnterArbiter;
+import com.yuanzhou.vlc.vlcplayer.pip.PipEntryTimeline;
+import com.yuanzhou.vlc.vlcplayer.pip.PipEntryTiming;
 import com.yuanzhou.vlc.vlcplayer.pip.PipHostActivity;
+import com.yuanzhou.vlc.vlcplayer.pip.PipParamsBuilder;
+import com.yuanzhou.vlc.vlcplayer.view.ResizeCoordinator;
+import com.yuanzhou.vlc.vlcplayer.virtualization.PlayerVirtualizer;
+import com.yuanzhou.vlc.vlcplayer.virtualization.VirtualizationConfig;
+import com.yuanzhou.vlc.vlcplayer.virtualization.VirtualizedPlayer;
+import com.yuanzhou.vlc.vlcplayer.virtualization.VisibilityTier;
+import com.yuanzhou.vlc.vlcplayer.wall.TileStats;
+import com.yuanzhou.vlc.vlcplayer.wall.VideoWall;
+import com.yuanzhou.vlc.vlcplayer.wall.WallConfig;
+import com.yuanzhou.vlc.vlcplayer.wall.WallTile;
 
 
 @SuppressLint("ViewConstructor")
@@ -62,6 +120,41 @@ class ReactVlcPlayerView extends TextureView implements
     private boolean isSurfaceViewDestory;
     private String src;
     private String _subtitleUri;
+    private final ScrubController mScrub = new ScrubController(new ScrubController.Target() {
+        @Override
+        public void seekTo(float position, boolean fast) {
+            if (mMediaPlayer == null) return;
+            // Every scrub seek, fast ones included, refills the buffer: none of it is a stall.
+            if (mQoeTracker != null) {
+                mQoeTracker.onSeek(SystemClock.elapsedRealtime());
+            }
+            if (mCachingSession != null) {
+                mCachingSession.onSeek(SystemClock.elapsedRealtime());
+            }
+            mMediaPlayer.setPosition(position, fast);
+        }
+    }, this::onScrubSeekComplete);
+
+    private static final String SUBTITLE_MODE_VLC = "vlc";
+    private static final String SUBTITLE_MODE_OVERLAY = "overlay";
+    private static final String SUBTITLE_MODE_EVENTS = "events";
+    // "vlc" blends subtitleUri into the video; "overlay" and "events" index its cues instead.
+    private String mSubtitleMode = SUBTITLE_MODE_VLC;
+    private SubtitleCueIndex mSubtitleIndex = null;
+    private String mSubtitleIndexUri = null;
+    private SubtitleOverlayDrawable mSubtitleOverlay = null;
+    private List<SubtitleCue> mActiveCues = Collections.emptyList();
+    private final SubtitleCueTracker mSubtitleTracker = new SubtitleCueTracker(new SubtitleCueTracker.Clock() {
+        @Override
+        public long currentTimeMs() {
+            return mMediaPlayer != null ? mMediaPlayer.getTime() : -1;
+        }
+
+        @Override
+        public float rate() {
+            return mMediaPlayer != null ? mMediaPlayer.getRate() : 1f;
+        }
+    }, this::onActiveCuesChanged);
     private boolean netStrTag;
     private ReadableMap srcMap;
     private int mVideoHeight = 0;
@@ -92,8 +185,12 @@ class ReactVlcPlayerView extends TextureView implements
     private Handler mPipHandler = new Handler(Looper.getMainLooper());
     private long mLastPipApplyTime = 0;
     private static final long PIP_APPLY_DEBOUNCE_MS = 50;
-    private Runnable mPendingPipDimensionCheck = null;
-    private Runnable mPendingPipRestore = null;
+    private boolean mPipRestorePending = false;
+    private boolean mAutoEnterPip = false;
+    private boolean mAutoEnterArmed = false;
+    private final Runnable mPipParamsRetry = this::updatePipParams;
+    /** How long sizes are tracked every frame after entering or leaving PiP. */
+    private static final long PIP_SETTLE_MS = 1000;
     private ViewTreeObserver.OnGlobalLayoutListener mGlobalLayoutListener = null;
 
     private float mProgressUpdateInterval = 0;
@@ -101,9 +198,6 @@ class ReactVlcPlayerView extends TextureView implements
     private Runnable mProgressUpdateRunnable = null;
     
     private Handler mLayoutHandler = new Handler(Looper.getMainLooper());
-    private Runnable mLayoutRunnable = null;
-    private int mPendingWidth = 0;
-    private int mPendingHeight = 0;
 
     private final ThemedReactContext themedReactContext;
     private final AudioManager audioManager;
@@ -111,6 +205,90 @@ class ReactVlcPlayerView extends TextureView implements
     private WritableMap mVideoInfo = null;
     private String mVideoInfoHash = null;
 
+    private boolean mAudioLevelsEnabled = false;
+    private long mAudioLevelsIntervalMs = AudioLevelTap.DEFAULT_EMIT_INTERVAL_MS;
+    private int mAudioSessionId = 0;
+    private AudioLevelTap mAudioTap = null;
+
+    private final MediaInfoCache mMediaInfoCache;
+    private boolean mMediaInfoCacheEnabled = true;
+    private String mMediaInfoUri = null;
+    private CachedMediaInfo mCachedMediaInfo = null;
+
+    private boolean mResumePositionEnabled = false;
+    private String mResumeKey = null;
+
+    private CachingBounds mCachingBounds = null;
+    private CachingSession mCachingSession = null;
+    private long mLastStatsSampleMs = 0;
+
+    private PlaybackQoeTracker mQoeTracker = null;
+
+    private boolean mCacheProxyEnabled = false;
+    private long mCacheProxyMaxBytes = 0;
+
+    private final VlcDownloadManager mDownloadManager;
+
+    // Ranked mirrors of the current source (primary uri included); null for a single uri.
+    private List<String> mMirrors = null;
+    private int mMirrorIndex = 0;
+    private MirrorSelector.Race mMirrorRace = null;
+    private long mFailoverStartMs = 0;
+    private long mLastTimeMs = 0;
+    private long mLastLengthMs = 0;
+    private boolean mLastSeekable = false;
+
+    private ReconnectPolicy mReconnectPolicy = null;
+    private ReconnectSession mReconnect = null;
+    private boolean mAwaitingRecoveryPlayback = false;
+    private final Handler mReconnectHandler = new Handler(Looper.getMainLooper());
+    private final Runnable mReconnectRunnable = this::reopenMedia;
+
+    private VirtualizationConfig mVirtualizationConfig = null;
+    private VisibilityTier mVisibilityTier = VisibilityTier.ACTIVE;
+    // Position, tracks and rate to restore after the player was released while offscreen
+    // or reopened with another decoder.
+    private PlaybackSnapshot mRestoreSnapshot = null;
+
+    private boolean mDecoderSchedulingEnabled = false;
+    private boolean mDecoderFocused = false;
+    private DecoderAssignment mDecoderAssignment = DecoderAssignment.HARDWARE;
+    // Decoder the current media was opened with; null if the user's hw props apply unchanged.
+    private DecoderAssignment mOpenedDecoder = null;
+    private String mDecoderMime = null;
+    private int mDecoderWidth = 0;
+    private int mDecoderHeight = 0;
+    // Per source: whether the capability probe was consulted, and whether it chose software.
+    private boolean mProbeChecked = false;
+    private boolean mProbeSoftware = false;
+
+    private WallConfig mWallConfig = null;
+    // Group whose shared LibVLC this view holds, released instead of libvlc.
+    private String mWallGroup = null;
+    private int mWallLowres = 0;
+    private boolean mWallLowresChecked = false;
+
+    private String mHandoffKey = null;
+    private String mSessionKey = null;
+    private long mSessionGraceMs = PlayerHandoff.PARK_TIMEOUT_MS;
+
+    // Network caching of opens shortly after a memory pressure signal.
+    private static final int MEMORY_PRESSURE_CACHING_MS = 300;
+    // LibVLC's own default when nothing sets :network-caching.
+    private static final int DEFAULT_NETWORK_CACHING_MS = 1000;
+    private boolean mOutputDownscaled = false;
+
+    private static final long DOWNSCALE_CHECK_DELAY_MS = 500;
+    private boolean mAutoDownscale = false;
+    private int mDownscaleRung = 0;
+
+    private boolean mBackgroundAudioOnly = false;
+    private boolean mAudioOnlyActive = false;
+    private String mAudioOnlyVideoTrackId = null;
+    private long mAudioOnlyStartMs = 0;
+    private long mAudioOnlyCpuStartMs = 0;
+    private int mAudioOnlyDecodedStart = 0;
+
 
     public ReactVlcPlayerView(ThemedReactContext context) {
         super(context);
@@ -121,6 +299,9 @@ class ReactVlcPlayerView extends TextureView implements
         screenHeight = dm.heightPixels;
         screenWidth = dm.widthPixels;
         this.setSurfaceTextureListener(this);
+        this.mMediaInfoCache = MediaInfoCache.getInstance(context);
+        this.mDownloadManager = VlcDownloadManager.getInstance(context);
+        DecoderCapabilityProbe.start(context);
 
         this.addOnLayoutChangeListener(onLayoutChangeListener);
         context.addLifecycleEventListener(this);
@@ -151,15 +332,35 @@ class ReactVlcPlayerView extends TextureView implements
         if (mPictureInPictureEnabled) {
             registerPipCallbacks();
         }
+        if (mVirtualizationConfig != null) {
+            PlayerVirtualizer.register(this, mVirtualizationConfig, mVirtualizedPlayer);
+        }
+        String handoffKey = handoffKey();
+        if (handoffKey != null) {
+            PlayerHandoff.register(handoffKey, mHandoffHost);
+        }
+        MemoryPressureMonitor.addListener(getContext(), mMemoryPressureListener);
+        updateSubtitleOverlay();
     }
 
     @Override
     protected void onDetachedFromWindow() {
         super.onDetachedFromWindow();
+        removeSubtitleOverlay();
         cancelPendingPipCallbacks();
         unregisterPipCallbacks();
+        PlayerVirtualizer.unregister(this);
+        MemoryPressureMonitor.removeListener(mMemoryPressureListener);
         if (!mIsInPipMode) {
+            handOffPlayer();
+            if (mVirtualizationConfig != null && libvlc != null) {
+                // Recycled list cells come back where they left off.
+                mRestoreSnapshot = captureSnapshot();
+            }
             stopPlayback();
+            // Disarms auto-enter now that there is no player.
+            updatePipParams();
+            PipAutoEnterArbiter.release(getId());
         } else {
             Log.i(TAG, "Skipping stopPlayback during PiP mode");
         }
@@ -169,7 +370,11 @@ class ReactVlcPlayerView extends TextureView implements
 
     @Override
     public void onHostResume() {
-        if (mMediaPlayer != null && isSurfaceViewDestory && isHostPaused) {
+        if (mAudioOnlyActive) {
+            exitAudioOnly();
+            return;
+        }
+        if (mMediaPlayer != null && isSurfaceViewDestory && isHostPaused && canDecode()) {
             IVLCVout vlcOut = mMediaPlayer.getVLCVout();
             if (!vlcOut.areViewsAttached()) {
                 // vlcOut.setVideoSurface(this.getHolder().getSurface(), this.getHolder());
@@ -186,6 +391,12 @@ class ReactVlcPlayerView extends TextureView implements
     @Override
     public void onHostPause() {
         Log.i(TAG, "onHostPause: mIsInPipMode=" + mIsInPipMode + ", pipEnabled=" + mPictureInPictureEnabled);
+        // Before any early return: PiP and audio-only keep playing, and the process may be
+        // killed while in the background.
+        if (mMediaPlayer != null && libvlc != null) {
+            recordResumePosition(mMediaPlayer.getTime(), mMediaPlayer.getLength());
+        }
+        flushResumePosition();
         
         if (mIsInPipMode && mPlayInPictureInPicture) {
             Log.i(TAG, "Skipping pause - in PiP mode with playInPictureInPicture=true");
@@ -193,6 +404,16 @@ class ReactVlcPlayerView extends TextureView implements
         }
         
         if (mPictureInPictureEnabled) {
+            if (mAutoEnterArmed) {
+                PipEntryTimeline.markRequestedIfAbsent(getId(), PipEntryTimeline.PATH_AUTO);
+            }
+            Activity current = themedReactContext.getCurrentActivity();
+            if (current != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.N
+                    && current.isInPictureInPictureMode() && mPlayInPictureInPicture) {
+                // Auto-enter puts the activity in PiP before it pauses.
+                Log.i(TAG, "onHostPause: Skipping pause - already in PiP");
+                return;
+            }
             mPipHandler.postDelayed(() -> {
                 boolean inPipNow = false;
                 if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
@@ -207,11 +428,92 @@ class ReactVlcPlayerView extends TextureView implements
                     return;
                 }
                 
-                doPause();
+                PipEntryTimeline.cancel(getId());
+                pauseForBackground();
             }, 150);
         } else {
-            doPause();
+            pauseForBackground();
+        }
+    }
+
+    private void pauseForBackground() {
+        if (mBackgroundAudioOnly && !isPaused && libvlc != null && enterAudioOnly()) {
+            return;
+        }
+        doPause();
+    }
+
+    /**
+     * Keep playing audio in the background with the video ES unselected, so nothing is
+     * demuxed to or decoded by the video decoder, and the vout detached.
+     * @return false if there is no video to drop
+     */
+    private boolean enterAudioOnly() {
+        if (mAudioOnlyActive) return true;
+        IMedia.Track video = mMediaPlayer.getSelectedTrack(IMedia.Track.Type.Video);
+        if (video == null) return false;
+        mAudioOnlyVideoTrackId = video.id;
+        mMediaPlayer.unselectTrackType(IMedia.Track.Type.Video);
+        mMediaPlayer.getVLCVout().detachViews();
+        mAudioOnlyActive = true;
+        mAudioOnlyStartMs = SystemClock.elapsedRealtime();
+        mAudioOnlyCpuStartMs = Process.getElapsedCpuTime();
+        mAudioOnlyDecodedStart = decodedVideoFrames();
+        Log.i(TAG, "background: audio only");
+
+        WritableMap map = Arguments.createMap();
+        map.putBoolean("active", true);
+        eventEmitter.sendEvent(map, VideoEventEmitter.EVENT_ON_BACKGROUND_AUDIO_ONLY);
+        return true;
+    }
+
+    /**
+     * Reattach the vout and reselect video. The decoder would only resume at the next
+     * keyframe; a seek in place flushes and resyncs it at once.
+     */
+    private void exitAudioOnly() {
+        mAudioOnlyActive = false;
+        if (libvlc == null) return;
+        IVLCVout vout = mMediaPlayer.getVLCVout();
+        if (!vout.areViewsAttached() && getSurfaceTexture() != null) {
+            if (getWidth() > 0 && getHeight() > 0) {
+                vout.setWindowSize(getWidth(), getHeight());
+            }
+            vout.setVideoSurface(getSurfaceTexture());
+            vout.attachViews(onNewVideoLayoutListener);
+        }
+        if (mAudioOnlyVideoTrackId != null) {
+            mMediaPlayer.selectTrack(mAudioOnlyVideoTrackId);
         }
+        if (mMediaPlayer.isSeekable()) {
+            if (mCachingSession != null) {
+                mCachingSession.onSeek(SystemClock.elapsedRealtime());
+            }
+            mMediaPlayer.setTime(mMediaPlayer.getTime());
+        }
+        long durationMs = SystemClock.elapsedRealtime() - mAudioOnlyStartMs;
+        long cpuMs = Process.getElapsedCpuTime() - mAudioOnlyCpuStartMs;
+        Log.i(TAG, "foreground: video restored after " + durationMs + " ms, " + cpuMs + " ms CPU");
+
+        WritableMap map = Arguments.createMap();
+        map.putBoolean("active", false);
+        map.putDouble("durationMs", durationMs);
+        map.putDouble("cpuMs", cpuMs);
+        map.putDouble("cpuPercent", durationMs > 0 ? cpuMs * 100.0 / durationMs : 0);
+        map.putInt("decodedVideoFrames", Math.max(0, decodedVideoFrames() - mAudioOnlyDecodedStart));
+        eventEmitter.sendEvent(map, VideoEventEmitter.EVENT_ON_BACKGROUND_AUDIO_ONLY);
+    }
+
+    private int decodedVideoFrames() {
+        IMedia media = mMediaPlayer.getMedia();
+        if (media == null) return 0;
+        IMedia.Stats stats = media.getStats();
+        media.release();
+        return stats != null ? stats.decodedVideo : 0;
+    }
+
+    public void setBackgroundAudioOnly(boolean enabled) {
+        mBackgroundAudioOnly = enabled;
     }
     
     private void doPause() {
@@ -220,6 +522,7 @@ class ReactVlcPlayerView extends TextureView implements
             isPaused = true;
             isHostPaused = true;
             mMediaPlayer.pause();
+            flushResumePosition();
             WritableMap map = Arguments.createMap();
             map.putString("type", "Paused");
             eventEmitter.onVideoStateChange(map);
@@ -280,12 +583,13 @@ class ReactVlcPlayerView extends TextureView implements
      * Events  Listener
      *************/
 
-    private static final long LAYOUT_DEBOUNCE_MS = 100;
-    
     private View.OnLayoutChangeListener onLayoutChangeListener = new View.OnLayoutChangeListener() {
 
         @Override
         public void onLayoutChange(View view, int i, int i1, int i2, int i3, int i4, int i5, int i6, int i7) {
+            if (mSubtitleOverlay != null) {
+                mSubtitleOverlay.setBounds(i, i1, i2, i3);
+            }
             int w = view.getWidth();
             int h = view.getHeight();
             if (w <= 0 || h <= 0) return;
@@ -301,7 +605,7 @@ class ReactVlcPlayerView extends TextureView implements
                     Log.d(TAG, "onLayoutChange: detected PiP before callback, setting flag");
                     mIsInPipMode = true;
                     mPipTransitionInProgress = true;
-                    schedulePipDimensionCheck(0);
+                    mResizeCoordinator.track(PIP_SETTLE_MS);
                 }
                 
                 // In PiP mode, ignore React layout dimensions - trust GlobalLayoutListener
@@ -310,32 +614,93 @@ class ReactVlcPlayerView extends TextureView implements
                 return;
             }
             
-            mPendingWidth = w;
-            mPendingHeight = h;
-            
-            if (mLayoutRunnable != null) {
-                mLayoutHandler.removeCallbacks(mLayoutRunnable);
+            mResizeCoordinator.request();
+        }
+    };
+
+    private final ResizeCoordinator mResizeCoordinator = new ResizeCoordinator(new ResizeCoordinator.Callback() {
+        @Override
+        public Size measure() {
+            return measureOutputSize();
+        }
+
+        @Override
+        public boolean applySize(int width, int height) {
+            return applyOutputSize(width, height);
+        }
+
+        @Override
+        public void onTrackingFinished() {
+            mPipTransitionInProgress = false;
+            mPipRestorePending = false;
+            Log.i(TAG, "resize: transition complete");
+        }
+
+        @Override
+        public void onResizeRendered(int width, int height, long latencyMs) {
+            Log.d(TAG, "resize: " + width + "x" + height + " rendered after " + latencyMs + " ms");
+            WritableMap map = Arguments.createMap();
+            map.putInt("width", width);
+            map.putInt("height", height);
+            map.putDouble("latencyMs", latencyMs);
+            map.putBoolean("isInPictureInPicture", mIsInPipMode);
+            eventEmitter.sendEvent(map, VideoEventEmitter.EVENT_ON_RESIZE);
+        }
+    });
+
+    /**
+     * Size the video output should have now: the PiP window, the window being restored
+     * after PiP, or the view. Measured at most once per frame.
+     */
+    private Size measureOutputSize() {
+        Activity activity = themedReactContext.getCurrentActivity();
+        boolean hasMetrics = activity != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.R;
+        int w = getWidth();
+        int h = getHeight();
+        if (mIsInPipMode) {
+            if (hasMetrics && activity.isInPictureInPictureMode()) {
+                Rect bounds = activity.getWindowManager().getCurrentWindowMetrics().getBounds();
+                if (bounds.width() > 0 && bounds.width() < w) w = bounds.width();
+                if (bounds.height() > 0 && bounds.height() < h) h = bounds.height();
             }
-            
-            mLayoutRunnable = () -> {
-                if (mIsInPipMode) {
-                    Log.d(TAG, "onLayoutChange (debounced): skipped (PiP mode)");
-                    return;
-                }
-                if (mMediaPlayer != null && mPendingWidth > 0 && mPendingHeight > 0) {
-                    IVLCVout vlcOut = mMediaPlayer.getVLCVout();
-                    vlcOut.setWindowSize(mPendingWidth, mPendingHeight);
-                    updateLastFullscreenSize(mPendingWidth, mPendingHeight);
-                    Log.d(TAG, "onLayoutChange (debounced): setWindowSize(" + mPendingWidth + ", " + mPendingHeight + ")");
-                    if (autoAspectRatio) {
-                        mMediaPlayer.setAspectRatio(mPendingWidth + ":" + mPendingHeight);
-                    }
+            // While entering, the view keeps its full size for a few frames.
+            if (mPipTransitionInProgress && (w >= 1000 || h >= 800)) return null;
+        } else if (mPipRestorePending) {
+            if (hasMetrics && !activity.isInPictureInPictureMode()) {
+                Rect bounds = activity.getWindowManager().getCurrentWindowMetrics().getBounds();
+                if (bounds.width() > w) {
+                    w = bounds.width();
+                    h = bounds.height();
                 }
-            };
-            
-            mLayoutHandler.postDelayed(mLayoutRunnable, LAYOUT_DEBOUNCE_MS);
+            }
         }
-    };
+        return w > 0 && h > 0 ? new Size(w, h) : null;
+    }
+
+    private boolean applyOutputSize(int width, int height) {
+        if (mIsInPipMode) {
+            applyPipDimensionsImmediate(width, height);
+            return mMediaPlayer != null;
+        }
+        if (mMediaPlayer == null) return false;
+        if (mPipRestorePending) {
+            forceVideoReinit(width, height);
+            mMediaPlayer.setAspectRatio(null);
+            Log.i(TAG, "Post-PiP restore: forceVideoReinit(" + width + ", " + height + ")");
+            // A window this narrow is still animating out of PiP.
+            if (width >= 400) mPipRestorePending = false;
+            return true;
+        }
+        mMediaPlayer.getVLCVout().setWindowSize(width, height);
+        updateLastFullscreenSize(width, height);
+        Log.d(TAG, "resize: setWindowSize(" + width + ", " + height + ")");
+        if (autoAspectRatio) {
+            mMediaPlayer.setAspectRatio(width + ":" + height);
+        }
+        scheduleDownscaleCheck();
+        updatePipParams();
+        return true;
+    }
 
     /**
      * 播放过程中的时间事件监听
@@ -358,37 +723,87 @@ class ReactVlcPlayerView extends TextureView implements
 
             switch (event.type) {
                 case MediaPlayer.Event.EndReached:
+                    clearResumePosition();
+                    endCachingSession();
+                    endQoeSession("ended");
+                    mDownloadManager.setPlaybackActive(ReactVlcPlayerView.this, false);
+                    mSubtitleTracker.setPlaying(false);
                     map.putString("type", "Ended");
                     eventEmitter.sendEvent(map, VideoEventEmitter.EVENT_END);
                     break;
                 case MediaPlayer.Event.Playing:
+                    if (mCachingSession != null) {
+                        mCachingSession.onPlaying();
+                    }
+                    if (mQoeTracker != null) {
+                        mQoeTracker.onPlaying(SystemClock.elapsedRealtime());
+                    }
+                    mDownloadManager.setPlaybackActive(ReactVlcPlayerView.this, true);
+                    mSubtitleTracker.setPlaying(true);
                     map.putString("type", "Playing");
                     eventEmitter.sendEvent(map, VideoEventEmitter.EVENT_ON_IS_PLAYING);
+                    updatePipParams();
                     break;
                 case MediaPlayer.Event.Opening:
                     map.putString("type", "Opening");
                     eventEmitter.sendEvent(map, VideoEventEmitter.EVENT_ON_OPEN);
                     break;
                 case MediaPlayer.Event.Paused:
+                    flushResumePosition();
+                    if (mQoeTracker != null) {
+                        mQoeTracker.onPaused(SystemClock.elapsedRealtime());
+                    }
+                    mDownloadManager.setPlaybackActive(ReactVlcPlayerView.this, false);
+                    mSubtitleTracker.setPlaying(false);
                     map.putString("type", "Paused");
                     eventEmitter.sendEvent(map, VideoEventEmitter.EVENT_ON_PAUSED);
+                    updatePipParams();
                     break;
                 case MediaPlayer.Event.Buffering:
-
+                    trackCachingBuffering(event.getBuffering());
+                    if (mQoeTracker != null) {
+                        mQoeTracker.onBuffering(event.getBuffering(), SystemClock.elapsedRealtime());
+                    }
                     map.putDouble("bufferRate", event.getBuffering());
                     map.putString("type", "Buffering");
                     eventEmitter.sendEvent(map, VideoEventEmitter.EVENT_ON_VIDEO_BUFFERING);
                     break;
                 case MediaPlayer.Event.Stopped:
+                    flushResumePosition();
+                    if (mQoeTracker != null) {
+                        mQoeTracker.onPaused(SystemClock.elapsedRealtime());
+                    }
+                    mDownloadManager.setPlaybackActive(ReactVlcPlayerView.this, false);
+                    mSubtitleTracker.setPlaying(false);
                     map.putString("type", "Stopped");
                     eventEmitter.sendEvent(map, VideoEventEmitter.EVENT_ON_VIDEO_STOPPED);
                     break;
                 case MediaPlayer.Event.EncounteredError:
+                    if (failoverToNextMirror(mLastTimeMs) || scheduleReconnect()) {
+                        break;
+                    }
+                    endQoeSession("error");
+                    mDownloadManager.setPlaybackActive(ReactVlcPlayerView.this, false);
                     map.putString("type", "Error");
                     eventEmitter.sendEvent(map, VideoEventEmitter.EVENT_ON_ERROR);
 
                     break;
                 case MediaPlayer.Event.TimeChanged:
+                    if (mRestoreSnapshot != null) {
+                        restoreSnapshot();
+                    }
+                    recordResumePosition(currentTime, totalLength);
+                    mLastTimeMs = currentTime;
+                    mLastLengthMs = totalLength;
+                    mLastSeekable = mMediaPlayer.isSeekable();
+                    if (mAwaitingRecoveryPlayback) {
+                        finishRecovery();
+                    }
+                    sampleCachingStats();
+                    if (mSubtitleIndex != null) {
+                        mSubtitleTracker.sync();
+                    }
+                    mScrub.onTimeChanged(isPlaying, currentTime, totalLength);
                     map.putString("type", "TimeChanged");
                     eventEmitter.sendEvent(map, VideoEventEmitter.EVENT_SEEK);
                     break;
@@ -402,6 +817,12 @@ class ReactVlcPlayerView extends TextureView implements
                     }
                     eventEmitter.sendEvent(map, VideoEventEmitter.EVENT_RECORDING_STATE);
                     break;
+                case MediaPlayer.Event.ESSelected:
+                case MediaPlayer.Event.Vout:
+                    onVideoTrackChanged();
+                    map.putString("type", event.type + "");
+                    eventEmitter.onVideoStateChange(map);
+                    break;
                 default:
                     map.putString("type", event.type + "");
                     eventEmitter.onVideoStateChange(map);
@@ -423,6 +844,8 @@ class ReactVlcPlayerView extends TextureView implements
             mVideoVisibleHeight = visibleHeight;
             mSarNum = sarNum;
             mSarDen = sarDen;
+            checkWallLowres(width, height);
+            updatePipParams();
             WritableMap map = Arguments.createMap();
             map.putInt("mVideoWidth", mVideoWidth);
             map.putInt("mVideoHeight", mVideoHeight);
@@ -456,6 +879,7 @@ class ReactVlcPlayerView extends TextureView implements
     private void stopPlayback() {
         onStopPlayback();
         releasePlayer();
+        releaseDecoderSlot();
     }
 
     private void onStopPlayback() {
@@ -465,12 +889,28 @@ class ReactVlcPlayerView extends TextureView implements
 
     private void createPlayer(boolean autoplayResume, boolean isResume) {
         releasePlayer();
-        if (this.getSurfaceTexture() == null) {
+        if (this.getSurfaceTexture() == null || mMirrorRace != null || mVisibilityTier == VisibilityTier.RELEASED) {
+            // A mirror race creates the player once it has a winner; a released
+            // virtualized player once it scrolls back into view.
             return;
         }
         try {
             final ArrayList<String> cOptions = new ArrayList<>();
             String uriString = srcMap.hasKey("uri") ? srcMap.getString("uri") : null;
+            String handoffKey = handoffKey();
+            if (handoffKey != null) {
+                HandoffPlayer handoff = PlayerHandoff.claim(handoffKey, mHandoffHost, uriString);
+                if (handoff != null) {
+                    adoptPlayer(handoff);
+                    return;
+                }
+                if (PlayerHandoff.isHeldByNewer(handoffKey, mHandoffHost)) {
+                    // Comes back here when the newer view goes away.
+                    return;
+                }
+            }
+            // Caches and stores are keyed by the primary uri; only playback uses the mirror.
+            String playUri = mMirrors != null ? mMirrors.get(mMirrorIndex) : uriString;
             //String extension = srcMap.hasKey("type") ? srcMap.getString("type") : null;
             boolean isNetwork = srcMap.hasKey("isNetwork") ? srcMap.getBoolean("isNetwork") : false;
             boolean autoplay = srcMap.hasKey("autoplay") ? srcMap.getBoolean("autoplay") : true;
@@ -488,9 +928,15 @@ class ReactVlcPlayerView extends TextureView implements
                 }
             }
             // Create LibVLC
-            if (initType == 1) {
-                libvlc = new LibVLC(getContext());
+            ArrayList<String> nativeOptions = collectNativeInitOptions();
+            if (mWallConfig != null) {
+                // Tiles share their group's LibVLC; per-view init options do not apply.
+                libvlc = VideoWall.acquire(getContext(), mWallConfig.getGroup());
+                mWallGroup = mWallConfig.getGroup();
+            } else if (initType == 1) {
+                libvlc = nativeOptions.isEmpty() ? new LibVLC(getContext()) : new LibVLC(getContext(), nativeOptions);
             } else {
+                cOptions.addAll(nativeOptions);
                 libvlc = new LibVLC(getContext(), cOptions);
             }
             // Create media player
@@ -532,6 +978,12 @@ class ReactVlcPlayerView extends TextureView implements
             });
             //this.getHolder().setKeepScreenOn(true);
             IVLCVout vlcOut = mMediaPlayer.getVLCVout();
+            if (mOutputDownscaled) {
+                mOutputDownscaled = false;
+                if (getWidth() > 0 && getHeight() > 0) {
+                    getSurfaceTexture().setDefaultBufferSize(getWidth(), getHeight());
+                }
+            }
             if (mVideoWidth > 0 && mVideoHeight > 0 && !mIsInPipMode && !mPipTransitionInProgress) {
                 vlcOut.setWindowSize(mVideoWidth, mVideoHeight);
                 if (autoAspectRatio) {
@@ -549,38 +1001,58 @@ class ReactVlcPlayerView extends TextureView implements
             }
             DisplayMetrics dm = getResources().getDisplayMetrics();
             Media m = null;
-            if (isNetwork) {
-                Uri uri = Uri.parse(uriString);
+            File offlineCopy = isNetwork ? mDownloadManager.localFileFor(uriString) : null;
+            if (offlineCopy != null) {
+                Log.d(TAG, "createPlayer: using downloaded copy " + offlineCopy.getName());
+                m = new Media(libvlc, offlineCopy.getAbsolutePath());
+            } else if (isNetwork) {
+                Uri uri = Uri.parse(resolveProxiedUri(playUri));
                 m = new Media(libvlc, uri);
             } else {
                 m = new Media(libvlc, uriString);
             }
             m.setEventListener(mMediaListener);
-            if (hwDecoderEnabled != null && hwDecoderForced != null) {
-                boolean hmEnabled = false;
-                boolean hmForced = false;
-                if (hwDecoderEnabled >= 1) {
-                    hmEnabled = true;
-                }
-                if (hwDecoderForced >= 1) {
-                    hmForced = true;
-                }
-                m.setHWDecoderEnabled(hmEnabled, hmForced);
-            }
+            applyDecoderOptions(m, hwDecoderEnabled, hwDecoderForced);
+            applyWallOptions(m);
+            addDownscaleOptions(m);
             //添加media  option
+            boolean hasStartTime = false;
             if (mediaOptions != null) {
                 ArrayList options = mediaOptions.toArrayList();
                 for (int i = 0; i < options.size() - 1; i++) {
                     String option = (String) options.get(i);
                     m.addOption(option);
+                    hasStartTime |= option.startsWith(":start-time");
                 }
             }
+            if (isNetwork && offlineCopy == null) {
+                startCachingSession(playUri, m);
+                if (mCachingSession == null && MemoryPressureMonitor.recentLevel() != null) {
+                    m.addOption(":network-caching=" + MEMORY_PRESSURE_CACHING_MS);
+                }
+            }
+            if (mFailoverStartMs > 0) {
+                m.addOption(":start-time=" + (mFailoverStartMs / 1000.0));
+                hasStartTime = true;
+                mFailoverStartMs = 0;
+            }
+            if (!hasStartTime && mRestoreSnapshot != null && !mRestoreSnapshot.getLive()
+                    && mRestoreSnapshot.getPositionMs() > 0) {
+                m.addOption(":start-time=" + (mRestoreSnapshot.getPositionMs() / 1000.0));
+                hasStartTime = true;
+            }
+            mResumeKey = resolveResumeKey(uriString);
+            if (!hasStartTime) {
+                applyResumeStartTime(m);
+            }
             mVideoInfo = null;
             mVideoInfoHash = null;
+            startQoeSession();
             mMediaPlayer.setMedia(m);
             m.release();
             safeSetScale(0);
-            if (_subtitleUri != null) {
+            lookupCachedMediaInfo(uriString);
+            if (_subtitleUri != null && SUBTITLE_MODE_VLC.equals(mSubtitleMode)) {
                 mMediaPlayer.addSlave(Media.Slave.Type.Subtitle, _subtitleUri, true);
             }
 
@@ -595,7 +1067,15 @@ class ReactVlcPlayerView extends TextureView implements
                 //vlcOut.setVideoView(this);
                 //vlcOut.attachViews(onNewVideoLayoutListener);
             }
-            if (isResume) {
+            if (!canDecode()) {
+                // Opened but held until the virtualizer or decoder scheduler lets it run.
+                if (mVisibilityTier != VisibilityTier.ACTIVE) {
+                    vlcOut.detachViews();
+                }
+                if (!isResume && autoplay) {
+                    isPaused = false;
+                }
+            } else if (isResume) {
                 if (autoplayResume) {
                     mMediaPlayer.play();
                 }
@@ -607,8 +1087,13 @@ class ReactVlcPlayerView extends TextureView implements
             }
             
             eventEmitter.loadStart();
+            emitCachedMediaInfo();
 
             setProgressUpdateRunnable();
+            startAudioTap();
+            if (mWallConfig != null) {
+                VideoWall.addTile(mWallTile, mWallConfig.getStatsIntervalMs());
+            }
         } catch (Exception e) {
             e.printStackTrace();
             //Toast.makeText(getContext(), "Error creating player!", Toast.LENGTH_LONG).show();
@@ -618,13 +1103,39 @@ class ReactVlcPlayerView extends TextureView implements
     private void releasePlayer() {
         if (libvlc == null)
             return;
+
+        detachPlayer();
+        mSubtitleTracker.reset();
+        mScrub.cancel();
+        mMediaPlayer.release();
+        if (mWallGroup != null) {
+            VideoWall.release(mWallGroup);
+            mWallGroup = null;
+        } else {
+            libvlc.release();
+        }
+        libvlc = null;
+    }
+
+    /**
+     * Stop everything this view runs around the player and detach its video output,
+     * leaving the player itself running.
+     */
+    private void detachPlayer() {
+        mAudioOnlyActive = false;
+        // The next player's output starts at its own size.
+        mResizeCoordinator.invalidate();
+        stopAudioTap();
+        flushResumePosition();
+        endCachingSession();
+        endQoeSession("released");
+        cancelReconnect();
+        mDownloadManager.setPlaybackActive(this, false);
         
         final IVLCVout vout = mMediaPlayer.getVLCVout();
         vout.removeCallback(callback);
         vout.detachViews();
-        mMediaPlayer.release();
-        libvlc.release();
-        libvlc = null;
+        VideoWall.removeTile(mWallTile);
 
         if(mProgressUpdateRunnable != null){
             mProgressUpdateHandler.removeCallbacks(mProgressUpdateRunnable);
@@ -632,114 +1143,788 @@ class ReactVlcPlayerView extends TextureView implements
     }
 
     /**
-     * 视频进度调整
-     *
-     * @param position
+     * LibVLC options required by the native features enabled on this view.
+     * Applied on top of (or instead of, for initType 1) the JS initOptions.
      */
-    public void setPosition(float position) {
-        if (mMediaPlayer != null) {
-            if (position >= 0 && position <= 1) {
-                mMediaPlayer.setPosition(position);
+    private ArrayList<String> collectNativeInitOptions() {
+        ArrayList<String> options = new ArrayList<>();
+        if (mAudioLevelsEnabled) {
+            if (mAudioSessionId == 0) {
+                mAudioSessionId = audioManager.generateAudioSessionId();
             }
+            options.addAll(AudioLevelTap.libVlcOptions(mAudioSessionId));
         }
+        return options;
     }
 
-    public void setSubtitleUri(String subtitleUri) {
-        _subtitleUri = subtitleUri;
-        if (mMediaPlayer != null) {
-            mMediaPlayer.addSlave(Media.Slave.Type.Subtitle,  _subtitleUri, true);
+    /**
+     * On a parse cache hit, keep the info for an early onVideoLoad and seed the SAR and the
+     * decoder size with it. The vout is sized from the view in createPlayer either way.
+     */
+    private void lookupCachedMediaInfo(String uriString) {
+        mMediaInfoUri = uriString;
+        mCachedMediaInfo = null;
+        if (!mMediaInfoCacheEnabled || uriString == null) return;
+
+        CachedMediaInfo cached = mMediaInfoCache.get(uriString);
+        if (cached == null) return;
+        mMediaInfoCache.revalidateAsync(uriString);
+        mCachedMediaInfo = cached;
+
+        mSarNum = cached.getSarNum();
+        mSarDen = cached.getSarDen();
+        if (cached.getVideoWidth() > 0 && cached.getVideoHeight() > 0 && mDecoderMime == null) {
+            mDecoderWidth = cached.getVideoWidth();
+            mDecoderHeight = cached.getVideoHeight();
+        }
+        Log.d(TAG, "Media info cache hit: " + uriString);
+    }
+
+    private void emitCachedMediaInfo() {
+        CachedMediaInfo cached = mCachedMediaInfo;
+        if (cached == null) return;
+
+        WritableMap info = Arguments.createMap();
+        info.putDouble("duration", cached.getDurationMs());
+        if (!cached.getAudioTracks().isEmpty()) {
+            info.putArray("audioTracks", trackInfoArray(cached.getAudioTracks()));
+        }
+        if (!cached.getTextTracks().isEmpty()) {
+            info.putArray("textTracks", trackInfoArray(cached.getTextTracks()));
+        }
+        if (cached.getVideoWidth() > 0 && cached.getVideoHeight() > 0) {
+            WritableMap mapVideoSize = Arguments.createMap();
+            mapVideoSize.putInt("width", cached.getVideoWidth());
+            mapVideoSize.putInt("height", cached.getVideoHeight());
+            info.putMap("videoSize", mapVideoSize);
+        }
+        info.putBoolean("cached", true);
+
+        eventEmitter.sendEvent(info, VideoEventEmitter.EVENT_ON_LOAD);
+        // Same hash as updateVideoInfo() so an unchanged live parse is not re-emitted
+        mVideoInfo = info;
+        mVideoInfoHash = cached.getInfoHash();
+    }
+
+    private WritableArray trackInfoArray(List<TrackInfo> tracks) {
+        WritableArray array = new WritableNativeArray();
+        for (TrackInfo track : tracks) {
+            WritableMap trackMap = Arguments.createMap();
+            trackMap.putInt("id", track.getId());
+            trackMap.putString("name", track.getName());
+            array.pushMap(trackMap);
+        }
+        return array;
+    }
+
+    private void storeMediaInfo(String infoHash, IMedia.Track[] audioTracks, IMedia.Track[] spuTracks, IMedia.VideoTrack video) {
+        long duration = mMediaPlayer.getLength();
+        if (!mMediaInfoCacheEnabled || mMediaInfoUri == null || duration <= 0) return;
+
+        ArrayList<TrackInfo> audio = new ArrayList<>();
+        if (audioTracks != null) {
+            for (IMedia.Track track : audioTracks) {
+                audio.add(new TrackInfo(track.id.hashCode(), track.name != null ? track.name : ""));
+            }
+        }
+        ArrayList<TrackInfo> text = new ArrayList<>();
+        if (spuTracks != null) {
+            for (IMedia.Track track : spuTracks) {
+                text.add(new TrackInfo(track.id.hashCode(), track.name != null ? track.name : ""));
+            }
         }
+        mMediaInfoCache.put(mMediaInfoUri, new CachedMediaInfo(
+                duration,
+                video != null ? video.width : 0,
+                video != null ? video.height : 0,
+                mSarNum,
+                mSarDen,
+                audio,
+                text,
+                infoHash,
+                ""));
+    }
+
+    private String resolveResumeKey(String uriString) {
+        if (!mResumePositionEnabled || uriString == null) return null;
+        String key = srcMap.hasKey("resumeKey") ? srcMap.getString("resumeKey") : null;
+        return key != null ? key : MediaInfoCache.normalizeUri(uriString);
     }
 
     /**
-     * 设置资源路径
-     *
-     * @param uri
-     * @param isNetStr
+     * Open directly at the stored position instead of playing from zero and seeking.
      */
-    public void setSrc(String uri, boolean isNetStr, boolean autoplay) {
-        this.src = uri;
-        this.netStrTag = isNetStr;
-        createPlayer(autoplay, false);
+    private void applyResumeStartTime(Media m) {
+        if (mResumeKey == null) return;
+        long positionMs = ResumePositionStore.getInstance(getContext()).getPositionMs(mResumeKey);
+        if (positionMs > 0) {
+            m.addOption(":start-time=" + (positionMs / 1000.0));
+            Log.i(TAG, "Resuming " + mResumeKey + " at " + positionMs + "ms");
+        }
     }
 
-    public void setSrc(ReadableMap src) {
-        this.srcMap = src;
-        createPlayer(true, false);
+    private void recordResumePosition(long timeMs, long durationMs) {
+        if (mResumeKey == null) return;
+        ResumePositionStore.getInstance(getContext()).update(mResumeKey, timeMs, durationMs);
+    }
+
+    private void flushResumePosition() {
+        if (mResumeKey == null) return;
+        ResumePositionStore.getInstance(getContext()).flush(mResumeKey);
+    }
+
+    private void clearResumePosition() {
+        if (mResumeKey == null) return;
+        ResumePositionStore.getInstance(getContext()).clear(mResumeKey);
     }
 
     /**
-     * 改变播放速率
-     *
-     * @param rateModifier
+     * Open network media with the caching value the adaptive controller chose for its host.
+     * Added after the JS mediaOptions so it takes precedence over a static :network-caching.
      */
-    public void setRateModifier(float rateModifier) {
-        if (mMediaPlayer != null) {
-            mMediaPlayer.setRate(rateModifier);
+    private void startCachingSession(String uriString, Media m) {
+        mCachingSession = null;
+        if (mCachingBounds == null || uriString == null) return;
+        String host = Uri.parse(uriString).getHost();
+        if (host == null) return;
+        mCachingSession = AdaptiveCachingController.newSession(host, mCachingBounds);
+        m.addOption(":network-caching=" + cappedCachingMs(mCachingSession.getCachingMs()));
+        mLastStatsSampleMs = 0;
+    }
+
+    private void trackCachingBuffering(float percent) {
+        if (mCachingSession == null) return;
+        long now = SystemClock.elapsedRealtime();
+        sampleCachingStats();
+        if (mCachingSession.onBuffering(percent, now)) {
+            // A stall just ended: update the value for the next Media right away.
+            CachingDecision decision = AdaptiveCachingController.decide(mCachingSession);
+            if (decision.getPreviousMs() != decision.getCachingMs()) {
+                emitCachingDecision(decision, false);
+            }
         }
     }
 
-    public void setmProgressUpdateInterval(float interval) {
-        mProgressUpdateInterval = interval;
-        createPlayer(true, false);
+    private void sampleCachingStats() {
+        if (mCachingSession == null || mMediaPlayer == null) return;
+        long now = SystemClock.elapsedRealtime();
+        if (now - mLastStatsSampleMs < 1000) return;
+        mLastStatsSampleMs = now;
+        IMedia media = mMediaPlayer.getMedia();
+        if (media == null) return;
+        IMedia.Stats stats = media.getStats();
+        media.release();
+        if (stats != null) {
+            mCachingSession.onStats((long) stats.readBytes, stats.demuxBitrate, now);
+        }
+    }
+
+    private void endCachingSession() {
+        if (mCachingSession == null) return;
+        CachingDecision decision = AdaptiveCachingController.decide(mCachingSession);
+        mCachingSession = null;
+        emitCachingDecision(decision, true);
     }
 
+    private void emitCachingDecision(CachingDecision decision, boolean sessionEnded) {
+        WritableMap map = Arguments.createMap();
+        map.putString("host", decision.getHost());
+        map.putInt("previousCachingMs", decision.getPreviousMs());
+        map.putInt("cachingMs", decision.getCachingMs());
+        map.putInt("throughputKbps", decision.getThroughputKbps());
+        map.putInt("contentKbps", decision.getContentKbps());
+        map.putInt("stalls", decision.getStalls());
+        map.putString("reason", decision.getReason());
+        map.putBoolean("sessionEnded", sessionEnded);
+        eventEmitter.sendEvent(map, VideoEventEmitter.EVENT_ON_NETWORK_CACHING);
+    }
 
     /**
-     * 改变声音大小
-     *
-     * @param volumeModifier
+     * Route http(s) media through the local caching proxy when enabled. Caches keyed by the
+     * source (resume positions, media info, network caching) keep using the original URI.
      */
-    public void setVolumeModifier(int volumeModifier) {
-        if (mMediaPlayer != null) {
-            mMediaPlayer.setVolume(volumeModifier);
+    private String resolveProxiedUri(String uriString) {
+        if (!mCacheProxyEnabled) return uriString;
+        LocalCachingProxy proxy = LocalCachingProxy.getInstance(getContext());
+        if (mCacheProxyMaxBytes > 0) {
+            proxy.getStore().setMaxBytes(mCacheProxyMaxBytes);
         }
+        if (!proxy.start()) return uriString;
+        return proxy.proxyUrl(uriString);
+    }
+
+    private void startQoeSession() {
+        mQoeTracker = new PlaybackQoeTracker(SystemClock.elapsedRealtime());
+        mQoeTracker.setListener(new StallListener() {
+            @Override
+            public void onStallStarted(int stallCount) {
+                emitStall(true, stallCount, 0);
+            }
+
+            @Override
+            public void onStallEnded(int stallCount, long durationMs) {
+                emitStall(false, stallCount, durationMs);
+            }
+        });
+    }
+
+    private void emitStall(boolean stalled, int stallCount, long durationMs) {
+        WritableMap map = Arguments.createMap();
+        map.putBoolean("stalled", stalled);
+        map.putInt("stallCount", stallCount);
+        map.putDouble("durationMs", durationMs);
+        map.putDouble("currentTime", mMediaPlayer != null ? mMediaPlayer.getTime() : 0);
+        eventEmitter.sendEvent(map, VideoEventEmitter.EVENT_ON_STALL);
     }
 
     /**
-     * 改变静音状态
-     *
-     * @param muted
+     * Emit the session summary once; later calls for the same session are ignored.
      */
-    public void setMutedModifier(boolean muted) {
-        mMuted = muted;
-        if (mMediaPlayer != null) {
-            if (muted) {
-                this.preVolume = mMediaPlayer.getVolume();
-                mMediaPlayer.setVolume(0);
-            } else {
-                mMediaPlayer.setVolume(this.preVolume);
+    private void endQoeSession(String reason) {
+        if (mQoeTracker == null) return;
+        QoeSummary summary = mQoeTracker.finish(SystemClock.elapsedRealtime());
+        mQoeTracker = null;
+        WritableMap map = Arguments.createMap();
+        map.putString("reason", reason);
+        map.putDouble("sessionMs", summary.getSessionMs());
+        map.putDouble("startupMs", summary.getStartupMs());
+        map.putDouble("playingMs", summary.getPlayingMs());
+        map.putInt("rebufferCount", summary.getRebufferCount());
+        map.putDouble("rebufferMs", summary.getRebufferMs());
+        map.putDouble("longestRebufferMs", summary.getLongestRebufferMs());
+        map.putDouble("rebufferRatio", summary.getRebufferRatio());
+        map.putDouble("stallsPerMinute", summary.getStallsPerMinute());
+        map.putInt("seekCount", summary.getSeekCount());
+        map.putDouble("seekBufferingMs", summary.getSeekBufferingMs());
+        map.putInt("score", summary.getScore());
+        eventEmitter.sendEvent(map, VideoEventEmitter.EVENT_ON_PLAYBACK_SUMMARY);
+    }
+
+    private void startAudioTap() {
+        if (!mAudioLevelsEnabled || mAudioSessionId == 0 || mAudioTap != null) return;
+        AudioLevelTap tap = new AudioLevelTap(mAudioSessionId, AudioLevelTap.DEFAULT_SPECTRUM_BINS, mAudioLevelsIntervalMs);
+        tap.setListener((rms, peak, spectrum) -> {
+            WritableMap map = Arguments.createMap();
+            map.putDouble("rms", rms);
+            map.putDouble("peak", peak);
+            WritableArray bins = Arguments.createArray();
+            for (float bin : spectrum) {
+                bins.pushDouble(bin);
             }
+            map.putArray("spectrum", bins);
+            eventEmitter.sendEvent(map, VideoEventEmitter.EVENT_ON_AUDIO_LEVELS);
+        });
+        if (tap.start()) {
+            mAudioTap = tap;
+            AudioTapRegistry.register(getId(), tap);
         }
     }
 
+    private void stopAudioTap() {
+        if (mAudioTap == null) return;
+        AudioTapRegistry.unregister(getId(), mAudioTap);
+        mAudioTap.setListener(null);
+        mAudioTap.stop();
+        mAudioTap = null;
+    }
+
     /**
-     * 改变播放状态
+     * 视频进度调整
      *
-     * @param paused
+     * @param position
      */
-    public void setPausedModifier(boolean paused) {
-        Log.i("paused:", "" + paused + ":" + mMediaPlayer);
+    public void setPosition(float position) {
+        if (mScrub.isActive()) {
+            // The seek prop during a scrub session is one more drag update.
+            mScrub.update(position);
+            return;
+        }
         if (mMediaPlayer != null) {
-            if (paused) {
-                isPaused = true;
-                mMediaPlayer.pause();
-            } else {
-                isPaused = false;
-                mMediaPlayer.play();
-                Log.i("do play:", true + "");
+            if (position >= 0 && position <= 1) {
+                if (mQoeTracker != null) {
+                    mQoeTracker.onSeek(SystemClock.elapsedRealtime());
+                }
+                if (mCachingSession != null) {
+                    mCachingSession.onSeek(SystemClock.elapsedRealtime());
+                }
+                mMediaPlayer.setPosition(position);
             }
-        } else {
-            createPlayer(!paused, false);
         }
     }
 
-
     /**
-     * Take a screenshot of the current video frame
-     *
-     * @param path The file path where to save the screenshot
-     * @return boolean indicating if the screenshot was taken successfully
+     * Start coalescing seeks for a drag; see {@link ScrubController}.
+     */
+    public void beginScrub() {
+        mScrub.begin();
+    }
+
+    public void scrubTo(float position) {
+        mScrub.update(position);
+    }
+
+    /**
+     * Finish the drag with one precise seek to position, or to the last target if negative.
+     */
+    public void endScrub(float position) {
+        mScrub.end(position);
+    }
+
+    private void onScrubSeekComplete(float position, long latencyMs, int fastSeeks, int skippedUpdates) {
+        WritableMap map = Arguments.createMap();
+        map.putDouble("position", position);
+        map.putDouble("currentTime", mMediaPlayer != null ? mMediaPlayer.getTime() : 0);
+        map.putDouble("latencyMs", latencyMs);
+        map.putInt("fastSeeks", fastSeeks);
+        map.putInt("skippedUpdates", skippedUpdates);
+        eventEmitter.sendEvent(map, VideoEventEmitter.EVENT_ON_SEEK_COMPLETE);
+    }
+
+    public void setSubtitleUri(String subtitleUri) {
+        _subtitleUri = subtitleUri;
+        if (!SUBTITLE_MODE_VLC.equals(mSubtitleMode)) {
+            loadSubtitleCues();
+            return;
+        }
+        if (mMediaPlayer != null) {
+            mMediaPlayer.addSlave(Media.Slave.Type.Subtitle,  _subtitleUri, true);
+        }
+    }
+
+    /**
+     * "vlc" (default), "overlay" or "events". A running player with a subtitleUri is
+     * reopened at its position, since a blended subtitle cannot be removed from it.
+     */
+    public void setSubtitleMode(String mode) {
+        if (!SUBTITLE_MODE_OVERLAY.equals(mode) && !SUBTITLE_MODE_EVENTS.equals(mode)) {
+            mode = SUBTITLE_MODE_VLC;
+        }
+        if (mode.equals(mSubtitleMode)) return;
+        boolean wasVlc = SUBTITLE_MODE_VLC.equals(mSubtitleMode);
+        mSubtitleMode = mode;
+        boolean isVlc = SUBTITLE_MODE_VLC.equals(mode);
+        if (isVlc) {
+            mSubtitleIndex = null;
+            mSubtitleIndexUri = null;
+            mSubtitleTracker.setIndex(null);
+        } else {
+            loadSubtitleCues();
+        }
+        updateSubtitleOverlay();
+        if (wasVlc != isVlc && _subtitleUri != null && libvlc != null) {
+            mRestoreSnapshot = captureSnapshot();
+            createPlayer(!isPaused, true);
+        }
+    }
+
+    private void loadSubtitleCues() {
+        String uri = _subtitleUri;
+        if (uri == null || uri.isEmpty()) {
+            mSubtitleIndex = null;
+            mSubtitleIndexUri = null;
+            mSubtitleTracker.setIndex(null);
+            return;
+        }
+        if (uri.equals(mSubtitleIndexUri)) return;
+        mSubtitleIndexUri = uri;
+        SubtitleParser.load(getContext(), uri, (loadedUri, index) -> {
+            // A newer subtitleUri or mode may have replaced this one meanwhile.
+            if (!loadedUri.equals(mSubtitleIndexUri)) return;
+            mSubtitleIndex = index;
+            mSubtitleTracker.setIndex(index);
+        });
+    }
+
+    private void onActiveCuesChanged(List<SubtitleCue> cues, long timeMs) {
+        mActiveCues = cues;
+        if (mSubtitleOverlay != null) {
+            mSubtitleOverlay.setText(cueText(cues));
+        }
+        WritableArray array = Arguments.createArray();
+        for (SubtitleCue cue : cues) {
+            WritableMap item = Arguments.createMap();
+            item.putDouble("start", cue.getStartMs());
+            item.putDouble("end", cue.getEndMs());
+            item.putString("text", cue.getText());
+            array.pushMap(item);
+        }
+        WritableMap map = Arguments.createMap();
+        map.putArray("cues", array);
+        map.putDouble("currentTime", timeMs);
+        eventEmitter.sendEvent(map, VideoEventEmitter.EVENT_ON_SUBTITLE_CUES);
+    }
+
+    private static String cueText(List<SubtitleCue> cues) {
+        if (cues.isEmpty()) return null;
+        StringBuilder text = new StringBuilder();
+        for (SubtitleCue cue : cues) {
+            if (text.length() > 0) text.append('\n');
+            text.append(cue.getText());
+        }
+        return text.toString();
+    }
+
+    /**
+     * Add or remove the overlay drawing cues in "overlay" mode. It lives in the parent's
+     * ViewOverlay because a TextureView draws no overlay or foreground of its own.
+     */
+    private void updateSubtitleOverlay() {
+        if (!SUBTITLE_MODE_OVERLAY.equals(mSubtitleMode) || !isAttachedToWindow()) {
+            removeSubtitleOverlay();
+            return;
+        }
+        if (mSubtitleOverlay != null || !(getParent() instanceof ViewGroup)) return;
+        mSubtitleOverlay = new SubtitleOverlayDrawable();
+        ((ViewGroup) getParent()).getOverlay().add(mSubtitleOverlay);
+        mSubtitleOverlay.setBounds(getLeft(), getTop(), getRight(), getBottom());
+        mSubtitleOverlay.setText(cueText(mActiveCues));
+    }
+
+    private void removeSubtitleOverlay() {
+        if (mSubtitleOverlay == null) return;
+        if (getParent() instanceof ViewGroup) {
+            ((ViewGroup) getParent()).getOverlay().remove(mSubtitleOverlay);
+        }
+        mSubtitleOverlay = null;
+    }
+
+    /**
+     * 设置资源路径
+     *
+     * @param uri
+     * @param isNetStr
+     */
+    public void setSrc(String uri, boolean isNetStr, boolean autoplay) {
+        this.src = uri;
+        this.netStrTag = isNetStr;
+        createPlayer(autoplay, false);
+    }
+
+    public void setSrc(ReadableMap src) {
+        this.srcMap = src;
+        mRestoreSnapshot = null;
+        mDecoderMime = null;
+        mDecoderWidth = 0;
+        mDecoderHeight = 0;
+        mProbeChecked = false;
+        mProbeSoftware = false;
+        mWallLowresChecked = false;
+        if (mMirrorRace != null) {
+            mMirrorRace.cancel();
+            mMirrorRace = null;
+        }
+        mMirrors = collectMirrors(src);
+        mMirrorIndex = 0;
+        mFailoverStartMs = 0;
+        mLastTimeMs = 0;
+        if (mMirrors != null) {
+            startMirrorRace();
+        }
+        createPlayer(true, false);
+    }
+
+    /**
+     * Primary uri followed by source.mirrors, ranked by host latency; null without mirrors.
+     */
+    private List<String> collectMirrors(ReadableMap src) {
+        if (!src.hasKey("uri") || !src.hasKey("mirrors") || src.getArray("mirrors") == null) return null;
+        List<String> uris = new ArrayList<>();
+        uris.add(src.getString("uri"));
+        ReadableArray mirrors = src.getArray("mirrors");
+        for (int i = 0; i < mirrors.size(); i++) {
+            String mirror = mirrors.getString(i);
+            if (mirror != null && !uris.contains(mirror)) {
+                uris.add(mirror);
+            }
+        }
+        return uris.size() > 1 ? MirrorSelector.rank(uris) : null;
+    }
+
+    /**
+     * Race the top ranked http(s) mirrors and open the first that delivers data.
+     */
+    private void startMirrorRace() {
+        List<String> candidates = new ArrayList<>();
+        for (String uri : mMirrors) {
+            if (candidates.size() >= MirrorSelector.RACE_WIDTH) break;
+            if (MirrorSelector.isRaceable(uri)) candidates.add(uri);
+        }
+        if (candidates.size() < 2) return;
+        final List<String> mirrors = mMirrors;
+        mMirrorRace = MirrorSelector.race(candidates, new MirrorRaceCallback() {
+            @Override
+            public void onRaceFinished(final String winner, final long latencyMs) {
+                post(() -> {
+                    if (mirrors != mMirrors) return;
+                    mMirrorRace = null;
+                    if (winner != null) {
+                        mMirrorIndex = mirrors.indexOf(winner);
+                        emitMirrorChange("race", latencyMs, 0);
+                    }
+                    createPlayer(true, false);
+                });
+            }
+        });
+    }
+
+    /**
+     * On a playback error, reopen the next ranked mirror at the current position.
+     * @return false when there is no mirror left to try
+     */
+    private boolean failoverToNextMirror(long positionMs) {
+        if (mMirrors == null || mMirrorIndex + 1 >= mMirrors.size()) return false;
+        MirrorSelector.recordFailure(mMirrors.get(mMirrorIndex));
+        mMirrorIndex++;
+        mFailoverStartMs = positionMs > 0 ? positionMs : 0;
+        emitMirrorChange("failover", 0, mFailoverStartMs);
+        // Not from inside the player's own event callback.
+        post(() -> createPlayer(!isPaused, true));
+        return true;
+    }
+
+    /**
+     * Retry the failed media on the existing player after the policy's backoff delay.
+     * @return false when reconnect is disabled or retries are exhausted
+     */
+    private boolean scheduleReconnect() {
+        if (mReconnectPolicy == null || mMediaPlayer == null) return false;
+        mReconnectHandler.removeCallbacks(mReconnectRunnable);
+        mAwaitingRecoveryPlayback = false;
+        if (mReconnect == null) {
+            mReconnect = new ReconnectSession(mReconnectPolicy, captureSnapshot(), SystemClock.elapsedRealtime());
+        }
+        long delayMs = mReconnect.nextDelayMs();
+        if (delayMs < 0) {
+            Log.w(TAG, "reconnect: giving up after " + mReconnect.getAttempts() + " attempts");
+            mReconnect = null;
+            return false;
+        }
+        mReconnectHandler.postDelayed(mReconnectRunnable, delayMs);
+
+        PlaybackSnapshot snapshot = mReconnect.getSnapshot();
+        WritableMap map = Arguments.createMap();
+        map.putInt("attempt", mReconnect.getAttempts());
+        map.putDouble("delayMs", delayMs);
+        map.putDouble("positionMs", snapshot.getPositionMs());
+        map.putBoolean("live", snapshot.getLive());
+        eventEmitter.sendEvent(map, VideoEventEmitter.EVENT_ON_RECONNECTING);
+        return true;
+    }
+
+    private PlaybackSnapshot captureSnapshot() {
+        IMedia.Track audio = mMediaPlayer.getSelectedTrack(IMedia.Track.Type.Audio);
+        IMedia.Track text = mMediaPlayer.getSelectedTrack(IMedia.Track.Type.Text);
+        boolean live = mLastLengthMs <= 0 || !mLastSeekable;
+        return new PlaybackSnapshot(mLastTimeMs, live,
+                audio != null ? audio.id : null, text != null ? text.id : null,
+                mMediaPlayer.getRate(), isPaused);
+    }
+
+    /**
+     * Pick the decoder for a media about to be opened: the scheduler's assignment when
+     * scheduling is on, then the source's hwDecoder flags, then the capability probe.
+     */
+    private void applyDecoderOptions(Media m, Integer hwDecoderEnabled, Integer hwDecoderForced) {
+        mOpenedDecoder = null;
+        if (mDecoderSchedulingEnabled && !mProbeSoftware && (hwDecoderEnabled == null || hwDecoderEnabled >= 1)) {
+            DecoderAssignment assignment = HwDecoderScheduler.request(getId(), buildDecoderRequest(), mDecoderListener);
+            if (assignment != mDecoderAssignment) {
+                emitDecoderChange(mDecoderAssignment, assignment);
+                mDecoderAssignment = assignment;
+            }
+            mOpenedDecoder = mDecoderAssignment == DecoderAssignment.SOFTWARE
+                    ? DecoderAssignment.SOFTWARE : DecoderAssignment.HARDWARE;
+        }
+        if (mOpenedDecoder == DecoderAssignment.SOFTWARE) {
+            m.setHWDecoderEnabled(false, false);
+        } else if (hwDecoderEnabled != null && hwDecoderForced != null) {
+            m.setHWDecoderEnabled(hwDecoderEnabled >= 1, hwDecoderForced >= 1);
+        } else if (hwDecoderEnabled == null && mProbeSoftware) {
+            m.setHWDecoderEnabled(false, false);
+        }
+    }
+
+    /**
+     * Wall tiles may be forced to software decoding and decode at a reduced resolution.
+     */
+    private void applyWallOptions(Media m) {
+        if (mWallConfig == null) return;
+        if (!mWallConfig.getHwDecoding()) {
+            m.setHWDecoderEnabled(false, false);
+        }
+        if (!mWallLowresChecked) {
+            mWallLowres = VideoWall.lowresFor(mDecoderWidth, mDecoderHeight, getWidth(), getHeight());
+        }
+        for (String option : VideoWall.mediaOptions(mWallConfig, mWallLowres)) {
+            m.addOption(option);
+        }
+    }
+
+    /**
+     * Open the same media again without rebuilding LibVLC. VOD resumes at the saved position;
+     * live sources open without one and so rejoin at the live edge.
+     */
+    private void reopenMedia() {
+        if (mMediaPlayer == null || libvlc == null || mReconnect == null) return;
+        IMedia current = mMediaPlayer.getMedia();
+        if (current == null) return;
+        Uri uri = current.getUri();
+        current.release();
+
+        Media m = new Media(libvlc, uri);
+        m.setEventListener(mMediaListener);
+        Integer hwDecoderEnabled = srcMap != null && srcMap.hasKey("hwDecoderEnabled") ? srcMap.getInt("hwDecoderEnabled") : null;
+        Integer hwDecoderForced = srcMap != null && srcMap.hasKey("hwDecoderForced") ? srcMap.getInt("hwDecoderForced") : null;
+        applyDecoderOptions(m, hwDecoderEnabled, hwDecoderForced);
+        applyWallOptions(m);
+        ReadableArray mediaOptions = srcMap != null && srcMap.hasKey("mediaOptions") ? srcMap.getArray("mediaOptions") : null;
+        if (mediaOptions != null) {
+            ArrayList options = mediaOptions.toArrayList();
+            for (int i = 0; i < options.size() - 1; i++) {
+                String option = (String) options.get(i);
+                if (!option.startsWith(":start-time")) {
+                    m.addOption(option);
+                }
+            }
+        }
+        if (mCachingSession != null) {
+            m.addOption(":network-caching=" + cappedCachingMs(mCachingSession.getCachingMs()));
+        }
+        addDownscaleOptions(m);
+        PlaybackSnapshot snapshot = mReconnect.getSnapshot();
+        if (!snapshot.getLive() && snapshot.getPositionMs() > 0) {
+            m.addOption(":start-time=" + (snapshot.getPositionMs() / 1000.0));
+        }
+        Log.d(TAG, "reconnect: attempt " + mReconnect.getAttempts() + " at " + snapshot.getPositionMs() + " ms");
+        mAwaitingRecoveryPlayback = true;
+        mMediaPlayer.setMedia(m);
+        m.release();
+        mMediaPlayer.play();
+    }
+
+    /**
+     * First time update after a reopen: restore tracks, rate and paused state and report.
+     */
+    private void finishRecovery() {
+        mAwaitingRecoveryPlayback = false;
+        if (mReconnect == null) return;
+        PlaybackSnapshot snapshot = mReconnect.getSnapshot();
+        if (snapshot.getAudioTrackId() != null) {
+            mMediaPlayer.selectTrack(snapshot.getAudioTrackId());
+        }
+        if (snapshot.getTextTrackId() != null) {
+            mMediaPlayer.selectTrack(snapshot.getTextTrackId());
+        } else {
+            mMediaPlayer.unselectTrackType(IMedia.Track.Type.Text);
+        }
+        mMediaPlayer.setRate(snapshot.getRate());
+        if (snapshot.getPaused()) {
+            mMediaPlayer.pause();
+        }
+
+        WritableMap map = Arguments.createMap();
+        map.putInt("attempts", mReconnect.getAttempts());
+        map.putDouble("recoverMs", SystemClock.elapsedRealtime() - mReconnect.getStartedAtMs());
+        map.putDouble("positionMs", mMediaPlayer.getTime());
+        map.putBoolean("live", snapshot.getLive());
+        mReconnect = null;
+        eventEmitter.sendEvent(map, VideoEventEmitter.EVENT_ON_RECONNECTED);
+    }
+
+    private void cancelReconnect() {
+        mReconnectHandler.removeCallbacks(mReconnectRunnable);
+        mReconnect = null;
+        mAwaitingRecoveryPlayback = false;
+    }
+
+    private void emitMirrorChange(String reason, long latencyMs, long positionMs) {
+        String uri = mMirrors.get(mMirrorIndex);
+        WritableMap map = Arguments.createMap();
+        map.putString("uri", uri);
+        map.putString("host", Uri.parse(uri).getHost());
+        map.putInt("index", mMirrorIndex);
+        map.putString("reason", reason);
+        map.putDouble("latencyMs", latencyMs);
+        map.putDouble("positionMs", positionMs);
+        eventEmitter.sendEvent(map, VideoEventEmitter.EVENT_ON_MIRROR_CHANGE);
+    }
+
+    /**
+     * 改变播放速率
+     *
+     * @param rateModifier
+     */
+    public void setRateModifier(float rateModifier) {
+        if (mMediaPlayer != null) {
+            mMediaPlayer.setRate(rateModifier);
+        }
+    }
+
+    public void setmProgressUpdateInterval(float interval) {
+        mProgressUpdateInterval = interval;
+        createPlayer(true, false);
+    }
+
+
+    /**
+     * 改变声音大小
+     *
+     * @param volumeModifier
+     */
+    public void setVolumeModifier(int volumeModifier) {
+        if (mMediaPlayer != null) {
+            mMediaPlayer.setVolume(volumeModifier);
+        }
+    }
+
+    /**
+     * 改变静音状态
+     *
+     * @param muted
+     */
+    public void setMutedModifier(boolean muted) {
+        mMuted = muted;
+        if (mMediaPlayer != null) {
+            if (muted) {
+                this.preVolume = mMediaPlayer.getVolume();
+                mMediaPlayer.setVolume(0);
+            } else {
+                mMediaPlayer.setVolume(this.preVolume);
+            }
+        }
+    }
+
+    /**
+     * 改变播放状态
+     *
+     * @param paused
+     */
+    public void setPausedModifier(boolean paused) {
+        Log.i("paused:", "" + paused + ":" + mMediaPlayer);
+        if (mMediaPlayer != null) {
+            if (paused) {
+                isPaused = true;
+                mMediaPlayer.pause();
+            } else {
+                isPaused = false;
+                if (canDecode()) {
+                    mMediaPlayer.play();
+                }
+                Log.i("do play:", true + "");
+            }
+        } else if (mVisibilityTier == VisibilityTier.RELEASED) {
+            isPaused = paused;
+        } else {
+            createPlayer(!paused, false);
+        }
+    }
+
+
+    /**
+     * Take a screenshot of the current video frame
+     *
+     * @param path The file path where to save the screenshot
+     * @return boolean indicating if the screenshot was taken successfully
      */
     public boolean doSnapshot(String path) {
         if (mMediaPlayer != null) {
@@ -820,6 +2005,635 @@ class ReactVlcPlayerView extends TextureView implements
         autoAspectRatio = auto;
     }
 
+    public void setResumePositionEnabled(boolean enabled) {
+        mResumePositionEnabled = enabled;
+        if (!enabled) {
+            flushResumePosition();
+            mResumeKey = null;
+        }
+    }
+
+    public void setAdaptiveNetworkCaching(ReadableMap config) {
+        if (config == null || (config.hasKey("enabled") && !config.getBoolean("enabled"))) {
+            mCachingBounds = null;
+            return;
+        }
+        CachingBounds defaults = new CachingBounds();
+        int minMs = config.hasKey("minMs") ? config.getInt("minMs") : defaults.getMinMs();
+        int maxMs = config.hasKey("maxMs") ? config.getInt("maxMs") : defaults.getMaxMs();
+        int initialMs = config.hasKey("initialMs") ? config.getInt("initialMs") : defaults.getInitialMs();
+        mCachingBounds = new CachingBounds(minMs, Math.max(minMs, maxMs), initialMs);
+    }
+
+    public void setLocalCacheProxy(ReadableMap config) {
+        boolean enabled = config != null && !(config.hasKey("enabled") && !config.getBoolean("enabled"));
+        long maxBytes = enabled && config.hasKey("maxBytes") ? (long) config.getDouble("maxBytes") : 0;
+        mCacheProxyEnabled = enabled;
+        mCacheProxyMaxBytes = maxBytes;
+    }
+
+    public void setReconnect(ReadableMap config) {
+        if (config == null || (config.hasKey("enabled") && !config.getBoolean("enabled"))) {
+            mReconnectPolicy = null;
+            cancelReconnect();
+            return;
+        }
+        ReconnectPolicy defaults = new ReconnectPolicy();
+        mReconnectPolicy = new ReconnectPolicy(
+                config.hasKey("maxRetries") ? config.getInt("maxRetries") : defaults.getMaxRetries(),
+                config.hasKey("initialDelayMs") ? (long) config.getDouble("initialDelayMs") : defaults.getInitialDelayMs(),
+                config.hasKey("maxDelayMs") ? (long) config.getDouble("maxDelayMs") : defaults.getMaxDelayMs(),
+                config.hasKey("multiplier") ? config.getDouble("multiplier") : defaults.getMultiplier());
+    }
+
+    public void setVirtualization(ReadableMap config) {
+        if (config == null || (config.hasKey("enabled") && !config.getBoolean("enabled"))) {
+            mVirtualizationConfig = null;
+            PlayerVirtualizer.unregister(this);
+            applyVisibilityTier(VisibilityTier.ACTIVE, 1f);
+            return;
+        }
+        VirtualizationConfig defaults = new VirtualizationConfig();
+        mVirtualizationConfig = new VirtualizationConfig(
+                config.hasKey("maxActive") ? config.getInt("maxActive") : defaults.getMaxActive(),
+                config.hasKey("activeFraction") ? (float) config.getDouble("activeFraction") : defaults.getActiveFraction(),
+                config.hasKey("releaseDistance") ? (float) config.getDouble("releaseDistance") : defaults.getReleaseDistance());
+        if (isAttachedToWindow()) {
+            PlayerVirtualizer.register(this, mVirtualizationConfig, mVirtualizedPlayer);
+        }
+    }
+
+    private final VirtualizedPlayer mVirtualizedPlayer = new VirtualizedPlayer() {
+        @Override
+        public boolean isPinned() {
+            return mIsInPipMode || mPipTransitionInProgress;
+        }
+
+        @Override
+        public void onTierChanged(VisibilityTier tier, float visibleFraction) {
+            applyVisibilityTier(tier, visibleFraction);
+        }
+    };
+
+    /**
+     * ACTIVE decodes; PAUSED pauses and detaches the video output but keeps the player;
+     * RELEASED frees LibVLC after taking a snapshot that the next ACTIVE restores.
+     * The user's paused state ({@link #isPaused}) is kept across tiers.
+     */
+    private void applyVisibilityTier(VisibilityTier tier, float visibleFraction) {
+        if (tier == mVisibilityTier) return;
+        VisibilityTier previous = mVisibilityTier;
+        mVisibilityTier = tier;
+        switch (tier) {
+            case ACTIVE:
+                if (libvlc == null) {
+                    if (srcMap != null) {
+                        createPlayer(!isPaused, true);
+                    }
+                } else {
+                    IVLCVout vlcOut = mMediaPlayer.getVLCVout();
+                    if (!vlcOut.areViewsAttached() && getSurfaceTexture() != null) {
+                        if (getWidth() > 0 && getHeight() > 0) {
+                            vlcOut.setWindowSize(getWidth(), getHeight());
+                        }
+                        vlcOut.setVideoSurface(getSurfaceTexture());
+                        vlcOut.attachViews(onNewVideoLayoutListener);
+                    }
+                    if (!isPaused && canDecode()) {
+                        mMediaPlayer.play();
+                    }
+                }
+                break;
+            case PAUSED:
+                if (libvlc != null) {
+                    if (mMediaPlayer.isPlaying()) {
+                        mMediaPlayer.pause();
+                    }
+                    mMediaPlayer.getVLCVout().detachViews();
+                }
+                break;
+            case RELEASED:
+                if (libvlc != null) {
+                    mRestoreSnapshot = captureSnapshot();
+                    releasePlayer();
+                    mMediaPlayer = null;
+                }
+                releaseDecoderSlot();
+                break;
+        }
+        updateDecoderPriority();
+
+        WritableMap map = Arguments.createMap();
+        map.putString("tier", tier.name().toLowerCase(Locale.ROOT));
+        map.putString("previousTier", previous.name().toLowerCase(Locale.ROOT));
+        map.putDouble("visibleFraction", visibleFraction);
+        eventEmitter.sendEvent(map, VideoEventEmitter.EVENT_ON_VISIBILITY_TIER_CHANGE);
+    }
+
+    public void setDecoderScheduling(ReadableMap config) {
+        boolean enabled = config != null && !(config.hasKey("enabled") && !config.getBoolean("enabled"));
+        mDecoderFocused = enabled && config.hasKey("focused") && config.getBoolean("focused");
+        if (enabled == mDecoderSchedulingEnabled) {
+            updateDecoderPriority();
+            return;
+        }
+        mDecoderSchedulingEnabled = enabled;
+        if (!enabled) {
+            HwDecoderScheduler.release(getId());
+            onDecoderAssignment(DecoderAssignment.HARDWARE);
+            mOpenedDecoder = null;
+        } else if (libvlc != null && !(srcMap != null && srcMap.hasKey("hwDecoderEnabled")
+                && srcMap.getInt("hwDecoderEnabled") < 1)) {
+            // The running media was opened with the hw props; reopened if it gets no slot.
+            mOpenedDecoder = DecoderAssignment.HARDWARE;
+            onDecoderAssignment(HwDecoderScheduler.request(getId(), buildDecoderRequest(), mDecoderListener));
+        }
+    }
+
+    private boolean canDecode() {
+        return mVisibilityTier == VisibilityTier.ACTIVE && mDecoderAssignment != DecoderAssignment.PAUSED;
+    }
+
+    private int decoderPriority() {
+        if (mIsInPipMode || mPipTransitionInProgress) return HwDecoderScheduler.PRIORITY_PIP;
+        if (mDecoderFocused) return HwDecoderScheduler.PRIORITY_FOCUSED;
+        if (mVisibilityTier == VisibilityTier.ACTIVE && isShown()) return HwDecoderScheduler.PRIORITY_VISIBLE;
+        return HwDecoderScheduler.PRIORITY_HIDDEN;
+    }
+
+    private DecoderRequest buildDecoderRequest() {
+        String mime = mDecoderMime != null ? mDecoderMime : HwDecoderScheduler.mimeForCodec(null);
+        return new DecoderRequest(mime, mDecoderWidth, mDecoderHeight, decoderPriority());
+    }
+
+    /**
+     * Report a change in priority or format to the scheduler while holding a registration.
+     */
+    private void updateDecoderPriority() {
+        if (!mDecoderSchedulingEnabled || mOpenedDecoder == null || libvlc == null) return;
+        onDecoderAssignment(HwDecoderScheduler.request(getId(), buildDecoderRequest(), mDecoderListener));
+    }
+
+    private void updateDecoderFormat(String codec, int width, int height) {
+        String mime = HwDecoderScheduler.mimeForCodec(codec);
+        if (mime.equals(mDecoderMime) && width == mDecoderWidth && height == mDecoderHeight) return;
+        mDecoderMime = mime;
+        mDecoderWidth = width;
+        mDecoderHeight = height;
+        updateDecoderPriority();
+    }
+
+    /**
+     * Pick up the selected video track's format from player events, so decoder scheduling
+     * and the capability check do not depend on progress events being enabled.
+     */
+    private void onVideoTrackChanged() {
+        if (mMediaPlayer == null) return;
+        IMedia.Track track = mMediaPlayer.getSelectedTrack(IMedia.Track.Type.Video);
+        if (!(track instanceof IMedia.VideoTrack)) return;
+        IMedia.VideoTrack video = (IMedia.VideoTrack) track;
+        updateDecoderFormat(video.codec, video.width, video.height);
+        // The size may not be known yet when the track is selected; the check runs once.
+        if (video.width > 0 && video.height > 0) {
+            checkDecoderCapability(video);
+        }
+    }
+
+    /**
+     * Once per source without `hwDecoderEnabled`, ask the capability probe whether the
+     * device's hardware decoders cover the video track, and reopen in software if not.
+     */
+    private void checkDecoderCapability(IMedia.VideoTrack video) {
+        if (mProbeChecked || srcMap == null || srcMap.hasKey("hwDecoderEnabled")) return;
+        if (mOpenedDecoder == DecoderAssignment.SOFTWARE || (mWallConfig != null && !mWallConfig.getHwDecoding())) return;
+        float frameRate = video.frameRateDen > 0 ? (float) video.frameRateNum / video.frameRateDen : 0f;
+        DecoderAssignment choice = DecoderCapabilityProbe.choose(
+                HwDecoderScheduler.mimeForCodec(video.codec), video.width, video.height, frameRate, video.profile);
+        if (choice == null) return;
+        mProbeChecked = true;
+        if (choice != DecoderAssignment.SOFTWARE || libvlc == null) return;
+        Log.d(TAG, "decoder probe: no hardware decoder for " + video.codec + " " + video.width + "x" + video.height + ", reopening in software");
+        mProbeSoftware = true;
+        // Posted: this runs while the current player reports its tracks.
+        post(() -> {
+            if (!mProbeSoftware || libvlc == null) return;
+            releaseDecoderSlot();
+            mRestoreSnapshot = captureSnapshot();
+            createPlayer(!isPaused, true);
+        });
+    }
+
+    private void releaseDecoderSlot() {
+        if (mOpenedDecoder == null) return;
+        mOpenedDecoder = null;
+        HwDecoderScheduler.release(getId());
+    }
+
+    private final DecoderAssignmentListener mDecoderListener = this::onDecoderAssignment;
+
+    /**
+     * Apply a scheduler decision. Switching between hardware and software reopens the media
+     * at the current position; PAUSED only pauses the player.
+     */
+    private void onDecoderAssignment(DecoderAssignment assignment) {
+        if (assignment == mDecoderAssignment) return;
+        emitDecoderChange(mDecoderAssignment, assignment);
+        mDecoderAssignment = assignment;
+        if (libvlc == null) return;
+        if (assignment == DecoderAssignment.PAUSED) {
+            if (mMediaPlayer.isPlaying()) {
+                mMediaPlayer.pause();
+            }
+            return;
+        }
+        boolean hardware = assignment == DecoderAssignment.HARDWARE;
+        boolean openedHardware = mOpenedDecoder != DecoderAssignment.SOFTWARE;
+        if (hardware != openedHardware) {
+            mRestoreSnapshot = captureSnapshot();
+            createPlayer(!isPaused, true);
+        } else if (!isPaused && canDecode()) {
+            mMediaPlayer.play();
+        }
+    }
+
+    public void setWallMode(ReadableMap config) {
+        WallConfig wall = null;
+        if (config != null && !(config.hasKey("enabled") && !config.getBoolean("enabled"))) {
+            WallConfig defaults = new WallConfig();
+            wall = new WallConfig(
+                    config.hasKey("group") ? config.getString("group") : defaults.getGroup(),
+                    config.hasKey("maxFps") ? config.getInt("maxFps") : defaults.getMaxFps(),
+                    config.hasKey("skipNonRefFrames") ? config.getBoolean("skipNonRefFrames") : defaults.getSkipNonRefFrames(),
+                    config.hasKey("hwDecoding") ? config.getBoolean("hwDecoding") : defaults.getHwDecoding(),
+                    config.hasKey("audio") ? config.getBoolean("audio") : defaults.getAudio(),
+                    config.hasKey("statsInterval") ? (long) config.getDouble("statsInterval") : defaults.getStatsIntervalMs());
+        }
+        if (wall == null ? mWallConfig == null : wall.equals(mWallConfig)) return;
+        mWallConfig = wall;
+        mWallLowresChecked = false;
+        if (libvlc != null) {
+            mRestoreSnapshot = captureSnapshot();
+            createPlayer(!isPaused, true);
+        }
+    }
+
+    /**
+     * Once per source, compare the decode size against the tile and reopen with a better
+     * lowres if the guess made before the source size was known was off.
+     */
+    private void checkWallLowres(int decodedWidth, int decodedHeight) {
+        if (mWallConfig == null || mWallLowresChecked) return;
+        mWallLowresChecked = true;
+        int lowres = VideoWall.lowresFor(decodedWidth << mWallLowres, decodedHeight << mWallLowres, getWidth(), getHeight());
+        if (lowres == mWallLowres) return;
+        Log.d(TAG, "wall: lowres " + mWallLowres + " -> " + lowres);
+        mWallLowres = lowres;
+        mRestoreSnapshot = captureSnapshot();
+        // Not from inside the vout callback.
+        post(() -> createPlayer(!isPaused, true));
+    }
+
+    public void setAutoDownscale(boolean enabled) {
+        if (enabled == mAutoDownscale) return;
+        mAutoDownscale = enabled;
+        if (!enabled) {
+            mLayoutHandler.removeCallbacks(mDownscaleCheck);
+        }
+    }
+
+    private int outputWidth() {
+        return mIsInPipMode && mPipTargetWidth > 0 ? mPipTargetWidth : getWidth();
+    }
+
+    private int outputHeight() {
+        return mIsInPipMode && mPipTargetHeight > 0 ? mPipTargetHeight : getHeight();
+    }
+
+    /**
+     * Cap adaptive variants and cheapen decoding for the current output size. Wall tiles
+     * choose their own lowres.
+     */
+    private void addDownscaleOptions(Media m) {
+        mDownscaleRung = 0;
+        if (!mAutoDownscale || mWallConfig != null) return;
+        int width = outputWidth();
+        int height = outputHeight();
+        mDownscaleRung = OutputDownscaler.rungFor(width, height);
+        List<String> options = OutputDownscaler.mediaOptions(mDownscaleRung, width, height, mDecoderWidth, mDecoderHeight);
+        for (String option : options) {
+            m.addOption(option);
+        }
+        if (!options.isEmpty()) {
+            Log.d(TAG, "downscale: output " + width + "x" + height + " -> " + options);
+        }
+    }
+
+    /**
+     * A smaller output takes effect on the next open; a larger one reopens once the size has
+     * settled, so resize and PiP animations do not each reopen.
+     */
+    private void scheduleDownscaleCheck() {
+        if (!mAutoDownscale || mDownscaleRung <= 0) return;
+        mLayoutHandler.removeCallbacks(mDownscaleCheck);
+        mLayoutHandler.postDelayed(mDownscaleCheck, DOWNSCALE_CHECK_DELAY_MS);
+    }
+
+    private final Runnable mDownscaleCheck = () -> {
+        if (libvlc == null || !mAutoDownscale) return;
+        int width = outputWidth();
+        int height = outputHeight();
+        if (!OutputDownscaler.needsUpgrade(mDownscaleRung, width, height)) return;
+        Log.d(TAG, "downscale: output grew to " + width + "x" + height + ", reopening above rung " + mDownscaleRung);
+        mRestoreSnapshot = captureSnapshot();
+        createPlayer(!isPaused, true);
+    };
+
+    private final WallTile mWallTile = new WallTile() {
+        @Override
+        public IMedia.Stats readStats() {
+            if (mMediaPlayer == null || libvlc == null) return null;
+            IMedia media = mMediaPlayer.getMedia();
+            if (media == null) return null;
+            IMedia.Stats stats = media.getStats();
+            media.release();
+            return stats;
+        }
+
+        @Override
+        public long decodedPixels() {
+            return (long) mVideoWidth * mVideoHeight;
+        }
+
+        @Override
+        public int lowres() {
+            return mWallLowres;
+        }
+
+        @Override
+        public void onWallStats(TileStats stats) {
+            WritableMap map = Arguments.createMap();
+            map.putInt("decodedFrames", stats.getDecodedFrames());
+            map.putInt("displayedFrames", stats.getDisplayedFrames());
+            map.putInt("droppedFrames", stats.getDroppedFrames());
+            map.putDouble("decodeFps", stats.getDecodeFps());
+            map.putDouble("inputKbps", stats.getInputKbps());
+            map.putInt("lowres", stats.getLowres());
+            map.putDouble("cpuShare", stats.getCpuShare());
+            map.putDouble("processCpuPercent", stats.getProcessCpuPercent());
+            eventEmitter.sendEvent(map, VideoEventEmitter.EVENT_ON_WALL_STATS);
+        }
+    };
+
+    public void setHandoffKey(String key) {
+        String previous = handoffKey();
+        mHandoffKey = key;
+        updateHandoffRegistration(previous);
+    }
+
+    public void setSessionKey(String key) {
+        String previous = handoffKey();
+        mSessionKey = key;
+        updateHandoffRegistration(previous);
+    }
+
+    public void setSessionGracePeriodMs(long graceMs) {
+        mSessionGraceMs = graceMs > 0 ? graceMs : PlayerHandoff.PARK_TIMEOUT_MS;
+    }
+
+    /**
+     * Key under which this view's player is handed off. A session key is a handoff key in
+     * its own namespace, parked for the session grace period while no view shows it.
+     */
+    private String handoffKey() {
+        if (mHandoffKey != null) return mHandoffKey;
+        return mSessionKey != null ? "session:" + mSessionKey : null;
+    }
+
+    private void updateHandoffRegistration(String previous) {
+        String key = handoffKey();
+        if (Objects.equals(key, previous)) return;
+        if (previous != null) {
+            PlayerHandoff.unregister(previous, mHandoffHost, null);
+        }
+        if (key != null && isAttachedToWindow()) {
+            PlayerHandoff.register(key, mHandoffHost);
+        }
+    }
+
+    private String currentUri() {
+        return srcMap != null && srcMap.hasKey("uri") ? srcMap.getString("uri") : null;
+    }
+
+    /**
+     * Pass a running player on to another view with the same handoff key (or park it for
+     * one about to mount) instead of releasing it.
+     */
+    private void handOffPlayer() {
+        String key = handoffKey();
+        if (key == null) return;
+        long graceMs = mHandoffKey == null ? mSessionGraceMs : PlayerHandoff.PARK_TIMEOUT_MS;
+        PlayerHandoff.unregister(key, mHandoffHost, yieldPlayer(), graceMs);
+    }
+
+    private HandoffPlayer yieldPlayer() {
+        if (libvlc == null) return null;
+        detachPlayer();
+        mMediaPlayer.setEventListener(null);
+        HandoffPlayer handoff = new HandoffPlayer(libvlc, mMediaPlayer, currentUri(), mWallGroup);
+        libvlc = null;
+        mMediaPlayer = null;
+        mWallGroup = null;
+        releaseDecoderSlot();
+        return handoff;
+    }
+
+    /**
+     * Show a running player from another view: only the video output is attached here,
+     * so playback continues with its buffer, position and tracks.
+     */
+    private void adoptPlayer(HandoffPlayer handoff) {
+        releasePlayer();
+        libvlc = handoff.getLibvlc();
+        mMediaPlayer = handoff.getPlayer();
+        mWallGroup = handoff.getWallGroup();
+        mMediaPlayer.setEventListener(mPlayerListener);
+
+        IVLCVout vout = mMediaPlayer.getVLCVout();
+        if (getWidth() > 0 && getHeight() > 0) {
+            vout.setWindowSize(getWidth(), getHeight());
+        }
+        vout.addCallback(callback);
+        vout.setVideoSurface(getSurfaceTexture());
+        vout.attachViews(onNewVideoLayoutListener);
+
+        long now = SystemClock.elapsedRealtime();
+        // A player resumed from the park may not report playing yet.
+        isPaused = !mMediaPlayer.isPlaying() && !handoff.getPlayOnClaim();
+        mLastTimeMs = mMediaPlayer.getTime();
+        mLastLengthMs = mMediaPlayer.getLength();
+        mResumeKey = resolveResumeKey(handoff.getUri());
+        startQoeSession();
+        if (!isPaused) {
+            mQoeTracker.onPlaying(now);
+            mDownloadManager.setPlaybackActive(this, true);
+        }
+        if (mWallGroup != null && mWallConfig != null) {
+            VideoWall.addTile(mWallTile, mWallConfig.getStatsIntervalMs());
+        }
+        setProgressUpdateRunnable();
+
+        WritableMap map = Arguments.createMap();
+        map.putDouble("positionMs", mLastTimeMs);
+        map.putBoolean("isPlaying", !isPaused);
+        eventEmitter.sendEvent(map, VideoEventEmitter.EVENT_ON_HANDOFF);
+    }
+
+    private final HandoffHost mHandoffHost = new HandoffHost() {
+        @Override
+        public HandoffPlayer yieldPlayer() {
+            return ReactVlcPlayerView.this.yieldPlayer();
+        }
+
+        @Override
+        public boolean canAdopt(String uri) {
+            return libvlc == null && getSurfaceTexture() != null
+                    && mVisibilityTier != VisibilityTier.RELEASED && Objects.equals(uri, currentUri());
+        }
+
+        @Override
+        public void adoptPlayer(HandoffPlayer handoff) {
+            ReactVlcPlayerView.this.adoptPlayer(handoff);
+        }
+
+        @Override
+        public boolean hasPlayer() {
+            return libvlc != null;
+        }
+
+        @Override
+        public boolean holds(String uri) {
+            return libvlc != null && Objects.equals(uri, currentUri());
+        }
+    };
+
+    /**
+     * Network caching the next open of this source would use without the memory pressure cap.
+     */
+    private int uncappedCachingMs() {
+        if (mCachingSession != null) return mCachingSession.getCachingMs();
+        int cachingMs = DEFAULT_NETWORK_CACHING_MS;
+        ReadableArray mediaOptions = srcMap.hasKey("mediaOptions") ? srcMap.getArray("mediaOptions") : null;
+        if (mediaOptions != null) {
+            ArrayList options = mediaOptions.toArrayList();
+            for (int i = 0; i < options.size() - 1; i++) {
+                String option = (String) options.get(i);
+                if (option.startsWith(":network-caching=")) {
+                    try {
+                        cachingMs = Integer.parseInt(option.substring(":network-caching=".length()).trim());
+                    } catch (NumberFormatException e) {
+                        Log.w(TAG, "ignoring " + option);
+                    }
+                }
+            }
+        }
+        return cachingMs;
+    }
+
+    private int cappedCachingMs(int cachingMs) {
+        return MemoryPressureMonitor.recentLevel() != null ? Math.min(cachingMs, MEMORY_PRESSURE_CACHING_MS) : cachingMs;
+    }
+
+    private final MemoryPressureListener mMemoryPressureListener = this::onMemoryPressure;
+
+    /**
+     * Shed by level: network caching of new opens is capped from MODERATE on; LOW releases
+     * a paused player that is off screen, CRITICAL any paused player, into a snapshot that
+     * the next play restores; CRITICAL also halves the video output size. The cap is only
+     * reported for a running network player whose next open it actually lowers.
+     */
+    private void onMemoryPressure(MemoryPressureLevel level) {
+        WritableArray released = Arguments.createArray();
+        if (libvlc != null && srcMap != null && srcMap.hasKey("isNetwork") && srcMap.getBoolean("isNetwork")
+                && uncappedCachingMs() > MEMORY_PRESSURE_CACHING_MS) {
+            released.pushString("networkCaching");
+        }
+        boolean critical = level == MemoryPressureLevel.CRITICAL;
+        if (level != MemoryPressureLevel.MODERATE && libvlc != null && !mIsInPipMode && !mMediaPlayer.isPlaying()) {
+            boolean offscreen = mVisibilityTier != VisibilityTier.ACTIVE || !isShown() || !getGlobalVisibleRect(new Rect());
+            if (offscreen || critical) {
+                mRestoreSnapshot = captureSnapshot();
+                releasePlayer();
+                mMediaPlayer = null;
+                releaseDecoderSlot();
+                released.pushString("player");
+            }
+        }
+        if (critical && libvlc != null && !mIsInPipMode && !mOutputDownscaled) {
+            int w = getWidth() / 2;
+            int h = getHeight() / 2;
+            if (w > 0 && h > 0 && getSurfaceTexture() != null) {
+                // The TextureView scales the smaller buffers back up to its bounds.
+                getSurfaceTexture().setDefaultBufferSize(w, h);
+                mMediaPlayer.getVLCVout().setWindowSize(w, h);
+                mOutputDownscaled = true;
+                released.pushString("videoOutput");
+            }
+        }
+        Log.i(TAG, "memory pressure " + level + ", released " + released.size() + " resources");
+
+        WritableMap map = Arguments.createMap();
+        map.putString("level", level.name().toLowerCase(Locale.ROOT));
+        map.putArray("released", released);
+        eventEmitter.sendEvent(map, VideoEventEmitter.EVENT_ON_MEMORY_PRESSURE);
+    }
+
+    private void emitDecoderChange(DecoderAssignment previous, DecoderAssignment assignment) {
+        WritableMap map = Arguments.createMap();
+        map.putString("decoder", assignment.name().toLowerCase(Locale.ROOT));
+        map.putString("previousDecoder", previous.name().toLowerCase(Locale.ROOT));
+        map.putInt("priority", decoderPriority());
+        eventEmitter.sendEvent(map, VideoEventEmitter.EVENT_ON_DECODER_CHANGE);
+    }
+
+    /**
+     * First time update after reopening a player: restore its tracks and rate.
+     */
+    private void restoreSnapshot() {
+        PlaybackSnapshot snapshot = mRestoreSnapshot;
+        mRestoreSnapshot = null;
+        if (snapshot.getAudioTrackId() != null) {
+            mMediaPlayer.selectTrack(snapshot.getAudioTrackId());
+        }
+        if (snapshot.getTextTrackId() != null) {
+            mMediaPlayer.selectTrack(snapshot.getTextTrackId());
+        } else {
+            mMediaPlayer.unselectTrackType(IMedia.Track.Type.Text);
+        }
+        mMediaPlayer.setRate(snapshot.getRate());
+    }
+
+    public void setMediaInfoCacheEnabled(boolean enabled) {
+        mMediaInfoCacheEnabled = enabled;
+    }
+
+    public void setAudioLevelsEnabled(boolean enabled) {
+        if (enabled == mAudioLevelsEnabled) return;
+        mAudioLevelsEnabled = enabled;
+        if (!enabled) {
+            stopAudioTap();
+        } else if (mMediaPlayer != null) {
+            // The audio session id is a LibVLC init option, so the player has to be rebuilt.
+            createPlayer(!isPaused, true);
+        }
+    }
+
+    public void setAudioLevelsInterval(int intervalMs) {
+        mAudioLevelsIntervalMs = intervalMs > 0 ? intervalMs : AudioLevelTap.DEFAULT_EMIT_INTERVAL_MS;
+        if (mAudioTap != null) {
+            mAudioTap.setEmitIntervalMs(mAudioLevelsIntervalMs);
+        }
+    }
+
     private void safeSetScale(float scale) {
         if (mMediaPlayer == null) return;
         IVLCVout vout = mMediaPlayer.getVLCVout();
@@ -918,11 +2732,53 @@ class ReactVlcPlayerView extends TextureView implements
         } else if (!enabled && wasEnabled) {
             unregisterPipCallbacks();
         }
+        updatePipParams();
     }
     
     public void setPlayInPictureInPicture(boolean play) {
         Log.i(TAG, "setPlayInPictureInPicture: " + play);
         mPlayInPictureInPicture = play;
+        updatePipParams();
+    }
+
+    public void setAutoEnterPictureInPicture(boolean enabled) {
+        mAutoEnterPip = enabled;
+        updatePipParams();
+    }
+
+    /**
+     * Keep the host activity's PiP params current (Android 12+): aspect ratio, source rect
+     * and whether leaving the app enters PiP, which is armed only while playing. Params are
+     * only sent when they change, and only by the view {@link PipAutoEnterArbiter} lets own them.
+     */
+    private void updatePipParams() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.S) return;
+        if (!mAutoEnterPip && !mAutoEnterArmed) return;
+        Activity activity = themedReactContext.getCurrentActivity();
+        if (activity == null) return;
+        boolean arm = mAutoEnterPip && mPictureInPictureEnabled && mPlayInPictureInPicture
+                && isAttachedToWindow() && libvlc != null && !isPaused;
+        Rect sourceRect = getSourceRectHint();
+        String key = arm + ":" + mVideoVisibleWidth + "x" + mVideoVisibleHeight + ":" + sourceRect.toShortString();
+        // The params belong to the activity; another view may own them.
+        if (!PipAutoEnterArbiter.claim(getId(), arm, key, mPipParamsRetry)) {
+            if (!PipAutoEnterArbiter.isOwner(getId())) mAutoEnterArmed = false;
+            return;
+        }
+        try {
+            activity.setPictureInPictureParams(PipParamsBuilder.INSTANCE.build(
+                    getContext(),
+                    PipParamsBuilder.INSTANCE.calculateAspectRatio(mVideoVisibleWidth, mVideoVisibleHeight),
+                    !isPaused,
+                    sourceRect,
+                    getId(),
+                    arm,
+                    false));
+            PipAutoEnterArbiter.applied(getId(), key, arm);
+            mAutoEnterArmed = arm;
+        } catch (Exception e) {
+            Log.w(TAG, "updatePipParams failed: " + e.getMessage());
+        }
     }
     
     public boolean enterPictureInPicture() {
@@ -942,6 +2798,7 @@ class ReactVlcPlayerView extends TextureView implements
             return false;
         }
         
+        PipEntryTimeline.markRequested(getId(), PipEntryTimeline.PATH_HOST);
         try {
             PictureInPictureParams.Builder builder = new PictureInPictureParams.Builder()
                 .setAspectRatio(new Rational(16, 9));
@@ -1017,6 +2874,7 @@ class ReactVlcPlayerView extends TextureView implements
                 }
             }
             
+            // Memory pressure is handled through MemoryPressureMonitor, registered on attach.
             @Override
             public void onLowMemory() {}
             
@@ -1026,21 +2884,9 @@ class ReactVlcPlayerView extends TextureView implements
         
         activity.registerComponentCallbacks(mPipCallbacks);
         
+        // Window metrics are read by the resize coordinator once per frame, not per layout pass.
         mGlobalLayoutListener = () -> {
-            if (!mIsInPipMode) return;
-            
-            Activity act = themedReactContext.getCurrentActivity();
-            if (act == null || Build.VERSION.SDK_INT < Build.VERSION_CODES.R) return;
-            if (!act.isInPictureInPictureMode()) return;
-            
-            Rect bounds = act.getWindowManager().getCurrentWindowMetrics().getBounds();
-            int w = bounds.width();
-            int h = bounds.height();
-            
-            if (w > 0 && h > 0 && (w != mPipTargetWidth || h != mPipTargetHeight)) {
-                Log.d(TAG, "GlobalLayoutListener (PiP resize): " + mPipTargetWidth + "x" + mPipTargetHeight + " -> " + w + "x" + h);
-                applyPipDimensionsImmediate(w, h);
-            }
+            if (mIsInPipMode) mResizeCoordinator.request();
         };
         getViewTreeObserver().addOnGlobalLayoutListener(mGlobalLayoutListener);
     }
@@ -1068,74 +2914,24 @@ class ReactVlcPlayerView extends TextureView implements
         cancelPendingPipCallbacks();
         
         if (isInPip) {
+            PipEntryTimeline.markRequestedIfAbsent(getId(),
+                    mAutoEnterArmed ? PipEntryTimeline.PATH_AUTO : PipEntryTimeline.PATH_HOST);
+            PipEntryTimeline.markActivityCreated(getId());
             mPipTransitionInProgress = true;
-            schedulePipDimensionCheck(0);
+            mResizeCoordinator.track(PIP_SETTLE_MS);
         } else {
+            PipEntryTimeline.cancel(getId());
             mPipTransitionInProgress = false;
             clearPipDimensions();
         }
         
         emitPipStatusChanged(isInPip);
+        updateDecoderPriority();
     }
     
     private void cancelPendingPipCallbacks() {
-        if (mPendingPipDimensionCheck != null) {
-            mPipHandler.removeCallbacks(mPendingPipDimensionCheck);
-            mPendingPipDimensionCheck = null;
-        }
-        if (mPendingPipRestore != null) {
-            mPipHandler.removeCallbacks(mPendingPipRestore);
-            mPendingPipRestore = null;
-        }
-    }
-    
-    private void schedulePipDimensionCheck(int attempt) {
-        int delay = attempt == 0 ? 16 : (attempt == 1 ? 50 : (attempt == 2 ? 100 : 200));
-        
-        if (mPendingPipDimensionCheck != null) {
-            mPipHandler.removeCallbacks(mPendingPipDimensionCheck);
-        }
-        
-        mPendingPipDimensionCheck = () -> {
-            mPendingPipDimensionCheck = null;
-            
-            if (!mIsInPipMode) {
-                mPipTransitionInProgress = false;
-                return;
-            }
-            
-            int viewW = getWidth();
-            int viewH = getHeight();
-            
-            Activity activity = themedReactContext.getCurrentActivity();
-            int windowW = 0;
-            int windowH = 0;
-            if (activity != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
-                Rect bounds = activity.getWindowManager().getCurrentWindowMetrics().getBounds();
-                windowW = bounds.width();
-                windowH = bounds.height();
-            }
-            
-            Log.i(TAG, "PiP dimension check #" + attempt + ": view=" + viewW + "x" + viewH + ", window=" + windowW + "x" + windowH);
-            
-            int w = (windowW > 0 && windowW < viewW) ? windowW : viewW;
-            int h = (windowH > 0 && windowH < viewH) ? windowH : viewH;
-            
-            boolean dimensionsLookLikePip = (w > 0 && h > 0 && w < 1000 && h < 800);
-            
-            if (dimensionsLookLikePip) {
-                applyPipDimensionsImmediate(w, h);
-            }
-            
-            if (attempt < 6) {
-                schedulePipDimensionCheck(attempt + 1);
-            } else {
-                mPipTransitionInProgress = false;
-                Log.i(TAG, "PiP dimension check: transition complete");
-            }
-        };
-        
-        mPipHandler.postDelayed(mPendingPipDimensionCheck, delay);
+        mResizeCoordinator.cancel();
+        mPipRestorePending = false;
     }
     
     private int mLastFullscreenWidth = 0;
@@ -1193,6 +2989,10 @@ class ReactVlcPlayerView extends TextureView implements
         mPipTargetHeight = pipWindowHeight;
         
         if (mMediaPlayer == null) return;
+        scheduleDownscaleCheck();
+        if (mIsInPipMode) {
+            PipEntryTimeline.markSurfaceAttached(getId());
+        }
         
         Log.i(TAG, "PiP apply: " + pipWindowWidth + "x" + pipWindowHeight + ", significantChange=" + significantChange);
         
@@ -1211,51 +3011,8 @@ class ReactVlcPlayerView extends TextureView implements
         Log.i(TAG, "PiP: cleared transform");
     }
     
-    private void applyPipDimensionsWithRetry(int attempt) {
-        int delay = attempt == 0 ? 150 : (attempt == 1 ? 350 : 600);
-        
-        mPipHandler.postDelayed(() -> {
-            if (!mIsInPipMode) {
-                mPipTransitionInProgress = false;
-                return;
-            }
-            
-            Activity activity = themedReactContext.getCurrentActivity();
-            if (activity != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
-                Rect bounds = activity.getWindowManager().getCurrentWindowMetrics().getBounds();
-                int w = bounds.width();
-                int h = bounds.height();
-                Log.i(TAG, "PiP verify attempt " + attempt + ": " + w + "x" + h + " (current: " + mPipTargetWidth + "x" + mPipTargetHeight + ")");
-                if (w > 0 && h > 0 && (w != mPipTargetWidth || h != mPipTargetHeight)) {
-                    applyPipDimensionsImmediate(w, h);
-                }
-            }
-            
-            if (attempt < 2) {
-                applyPipDimensionsWithRetry(attempt + 1);
-            } else {
-                mPipTransitionInProgress = false;
-                Log.i(TAG, "PiP transition complete");
-            }
-        }, delay);
-    }
-    
     private void handlePipWindowResized() {
-        mPipHandler.postDelayed(() -> {
-            if (!mIsInPipMode) return;
-            
-            Activity activity = themedReactContext.getCurrentActivity();
-            if (activity != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
-                Rect bounds = activity.getWindowManager().getCurrentWindowMetrics().getBounds();
-                int w = bounds.width();
-                int h = bounds.height();
-                
-                if (w > 0 && h > 0 && (w != mPipTargetWidth || h != mPipTargetHeight)) {
-                    Log.i(TAG, "PiP window resized: " + mPipTargetWidth + "x" + mPipTargetHeight + " -> " + w + "x" + h);
-                    applyPipDimensionsImmediate(w, h);
-                }
-            }
-        }, 50);
+        mResizeCoordinator.request();
     }
     
     private void clearPipDimensions() {
@@ -1268,50 +3025,9 @@ class ReactVlcPlayerView extends TextureView implements
         
         emitPipStatusChanged(false);
         
-        restoreWindowSizeAfterPip(0);
-    }
-    
-    private void restoreWindowSizeAfterPip(int attempt) {
-        if (mPendingPipRestore != null) {
-            mPipHandler.removeCallbacks(mPendingPipRestore);
-        }
-        
-        mPendingPipRestore = () -> {
-            mPendingPipRestore = null;
-            
-            if (mIsInPipMode) {
-                Log.i(TAG, "Post-PiP restore: cancelled, back in PiP");
-                return;
-            }
-            
-            int w = getWidth();
-            int h = getHeight();
-            
-            Activity activity = themedReactContext.getCurrentActivity();
-            if (activity != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.R && !activity.isInPictureInPictureMode()) {
-                Rect bounds = activity.getWindowManager().getCurrentWindowMetrics().getBounds();
-                if (bounds.width() > w) {
-                    w = bounds.width();
-                    h = bounds.height();
-                }
-            }
-            
-            Log.i(TAG, "Post-PiP restore attempt " + attempt + ": size " + w + "x" + h);
-            
-            boolean needsRetry = (w <= 0 || h <= 0 || w < 400);
-            
-            if (mMediaPlayer != null && w > 0 && h > 0) {
-                forceVideoReinit(w, h);
-                mMediaPlayer.setAspectRatio(null);
-                Log.i(TAG, "Post-PiP restore: forceVideoReinit(" + w + ", " + h + ")");
-            }
-            
-            if (needsRetry && attempt < 5) {
-                restoreWindowSizeAfterPip(attempt + 1);
-            }
-        };
-        
-        mPipHandler.postDelayed(mPendingPipRestore, attempt == 0 ? 100 : 200);
+        mPipRestorePending = true;
+        mResizeCoordinator.invalidate();
+        mResizeCoordinator.track(PIP_SETTLE_MS);
     }
     
     private void emitPipStatusChanged(boolean isInPip) {
@@ -1397,6 +3113,12 @@ class ReactVlcPlayerView extends TextureView implements
         if (surfaceView != null) {
             surfaceView.removeOnLayoutChangeListener(onLayoutChangeListener);
         }
+        if (mMirrorRace != null) {
+            mMirrorRace.cancel();
+            mMirrorRace = null;
+        }
+        mMirrors = null;
+        handOffPlayer();
         stopPlayback();
     }
 
@@ -1475,7 +3197,14 @@ class ReactVlcPlayerView extends TextureView implements
 
     @Override
     public void onSurfaceTextureUpdated(SurfaceTexture surface) {
-        // Log.i("onSurfaceTextureUpdated", "onSurfaceTextureUpdated");
+        mResizeCoordinator.onFrameRendered();
+        mScrub.onFrameRendered();
+        if (mIsInPipMode) {
+            PipEntryTiming timing = PipEntryTimeline.markFirstFrame(getId());
+            if (timing != null) {
+                eventEmitter.onPipEntryCompleted(timing);
+            }
+        }
     }
 
     private final IMedia.EventListener mMediaListener = new IMedia.EventListener() {
@@ -1521,6 +3250,8 @@ class ReactVlcPlayerView extends TextureView implements
         IMedia.Track videoTrack = mMediaPlayer.getSelectedTrack(IMedia.Track.Type.Video);
         IMedia.VideoTrack video = (videoTrack instanceof IMedia.VideoTrack) ? (IMedia.VideoTrack) videoTrack : null;
         if (video != null) {
+            updateDecoderFormat(video.codec, video.width, video.height);
+            checkDecoderCapability(video);
             infoHash.append("videoSize:").append(video.width).append("x").append(video.height).append(";");
         }
         
@@ -1563,6 +3294,7 @@ class ReactVlcPlayerView extends TextureView implements
             eventEmitter.sendEvent(info, VideoEventEmitter.EVENT_ON_LOAD);
             mVideoInfo = info;
             mVideoInfoHash = currentHash;
+            storeMediaInfo(currentHash, audioTracks, spuTracks, video);
         }
     }
 
@@ -22,6 +22,7 @@ public class ReactVlcPlayerViewManager extends SimpleViewManager<ReactVlcPlayerV
     private static final String PROP_SRC = "source";
     private static final String PROP_SRC_URI = "uri";
     private static final String PROP_SUBTITLE_URI = "subtitleUri";
+    private static final String PROP_SUBTITLE_MODE = "subtitleMode";
     private static final String PROP_SRC_TYPE = "type";
     private static final String PROP_REPEAT = "repeat";
     private static final String PROP_PAUSED = "paused";
@@ -41,6 +42,22 @@ public class ReactVlcPlayerViewManager extends SimpleViewManager<ReactVlcPlayerV
     private static final String PROP_ACCEPT_INVALID_CERTIFICATES = "acceptInvalidCertificates";
     private static final String PROP_PICTURE_IN_PICTURE_ENABLED = "pictureInPictureEnabled";
     private static final String PROP_PLAY_IN_PICTURE_IN_PICTURE = "playInPictureInPicture";
+    private static final String PROP_AUTO_ENTER_PICTURE_IN_PICTURE = "autoEnterPictureInPicture";
+    private static final String PROP_AUDIO_LEVELS_ENABLED = "audioLevelsEnabled";
+    private static final String PROP_AUDIO_LEVELS_INTERVAL = "audioLevelsInterval";
+    private static final String PROP_MEDIA_INFO_CACHE_ENABLED = "mediaInfoCacheEnabled";
+    private static final String PROP_RESUME_POSITION_ENABLED = "resumePositionEnabled";
+    private static final String PROP_ADAPTIVE_NETWORK_CACHING = "adaptiveNetworkCaching";
+    private static final String PROP_LOCAL_CACHE_PROXY = "localCacheProxy";
+    private static final String PROP_RECONNECT = "reconnect";
+    private static final String PROP_VIRTUALIZATION = "virtualization";
+    private static final String PROP_DECODER_SCHEDULING = "decoderScheduling";
+    private static final String PROP_WALL_MODE = "wallMode";
+    private static final String PROP_HANDOFF_KEY = "handoffKey";
+    private static final String PROP_BACKGROUND_AUDIO_ONLY = "backgroundAudioOnly";
+    private static final String PROP_SESSION_KEY = "sessionKey";
+    private static final String PROP_AUTO_DOWNSCALE = "autoDownscale";
+    private static final String PROP_SESSION_GRACE_PERIOD_MS = "sessionGracePeriodMs";
 
 
     @Override
@@ -92,6 +109,11 @@ public class ReactVlcPlayerViewManager extends SimpleViewManager<ReactVlcPlayerV
         videoView.setSubtitleUri(subtitleUri);
     }
 
+    @ReactProp(name = PROP_SUBTITLE_MODE)
+    public void setSubtitleMode(final ReactVlcPlayerView videoView, final String mode) {
+        videoView.setSubtitleMode(mode);
+    }
+
     @ReactProp(name = PROP_REPEAT, defaultBoolean = false)
     public void setRepeat(final ReactVlcPlayerView videoView, final boolean repeat) {
         videoView.setRepeatModifier(repeat);
@@ -170,6 +192,86 @@ public class ReactVlcPlayerViewManager extends SimpleViewManager<ReactVlcPlayerV
         videoView.setPlayInPictureInPicture(play);
     }
 
+    @ReactProp(name = PROP_AUTO_ENTER_PICTURE_IN_PICTURE, defaultBoolean = false)
+    public void setAutoEnterPictureInPicture(final ReactVlcPlayerView videoView, final boolean enabled) {
+        videoView.setAutoEnterPictureInPicture(enabled);
+    }
+
+    @ReactProp(name = PROP_AUDIO_LEVELS_ENABLED, defaultBoolean = false)
+    public void setAudioLevelsEnabled(final ReactVlcPlayerView videoView, final boolean enabled) {
+        videoView.setAudioLevelsEnabled(enabled);
+    }
+
+    @ReactProp(name = PROP_AUDIO_LEVELS_INTERVAL, defaultInt = 0)
+    public void setAudioLevelsInterval(final ReactVlcPlayerView videoView, final int intervalMs) {
+        videoView.setAudioLevelsInterval(intervalMs);
+    }
+
+    @ReactProp(name = PROP_MEDIA_INFO_CACHE_ENABLED, defaultBoolean = true)
+    public void setMediaInfoCacheEnabled(final ReactVlcPlayerView videoView, final boolean enabled) {
+        videoView.setMediaInfoCacheEnabled(enabled);
+    }
+
+    @ReactProp(name = PROP_RESUME_POSITION_ENABLED, defaultBoolean = false)
+    public void setResumePositionEnabled(final ReactVlcPlayerView videoView, final boolean enabled) {
+        videoView.setResumePositionEnabled(enabled);
+    }
+
+    @ReactProp(name = PROP_ADAPTIVE_NETWORK_CACHING)
+    public void setAdaptiveNetworkCaching(final ReactVlcPlayerView videoView, @Nullable ReadableMap config) {
+        videoView.setAdaptiveNetworkCaching(config);
+    }
+
+    @ReactProp(name = PROP_LOCAL_CACHE_PROXY)
+    public void setLocalCacheProxy(final ReactVlcPlayerView videoView, @Nullable ReadableMap config) {
+        videoView.setLocalCacheProxy(config);
+    }
+
+    @ReactProp(name = PROP_RECONNECT)
+    public void setReconnect(final ReactVlcPlayerView videoView, @Nullable ReadableMap config) {
+        videoView.setReconnect(config);
+    }
+
+    @ReactProp(name = PROP_VIRTUALIZATION)
+    public void setVirtualization(final ReactVlcPlayerView videoView, @Nullable ReadableMap config) {
+        videoView.setVirtualization(config);
+    }
+
+    @ReactProp(name = PROP_DECODER_SCHEDULING)
+    public void setDecoderScheduling(final ReactVlcPlayerView videoView, @Nullable ReadableMap config) {
+        videoView.setDecoderScheduling(config);
+    }
+
+    @ReactProp(name = PROP_WALL_MODE)
+    public void setWallMode(final ReactVlcPlayerView videoView, @Nullable ReadableMap config) {
+        videoView.setWallMode(config);
+    }
+
+    @ReactProp(name = PROP_HANDOFF_KEY)
+    public void setHandoffKey(final ReactVlcPlayerView videoView, @Nullable String key) {
+        videoView.setHandoffKey(key);
+    }
+
+    @ReactProp(name = PROP_AUTO_DOWNSCALE, defaultBoolean = false)
+    public void setAutoDownscale(final ReactVlcPlayerView videoView, final boolean enabled) {
+        videoView.setAutoDownscale(enabled);
+    }
+
+    @ReactProp(name = PROP_SESSION_KEY)
+    public void setSessionKey(final ReactVlcPlayerView videoView, @Nullable String key) {
+        videoView.setSessionKey(key);
+    }
+
+    @ReactProp(name = PROP_SESSION_GRACE_PERIOD_MS, defaultInt = 0)
+    public void setSessionGracePeriodMs(final ReactVlcPlayerView videoView, final int graceMs) {
+        videoView.setSessionGracePeriodMs(graceMs);
+    }
+
+    @ReactProp(name = PROP_BACKGROUND_AUDIO_ONLY, defaultBoolean = false)
+    public void setBackgroundAudioOnly(final ReactVlcPlayerView videoView, final boolean enabled) {
+        videoView.setBackgroundAudioOnly(enabled);
+    }
+
     public void startRecording(final ReactVlcPlayerView videoView, final String recordingPath) {
         videoView.startRecording(recordingPath);
     }
@@ -197,6 +299,9 @@ public class ReactVlcPlayerViewManager extends SimpleViewManager<ReactVlcPlayerV
         builder.put("setPipWindowSize", 6);
         builder.put("enterPictureInPicture", 7);
         builder.put("enterPictureInPictureV2", 8);
+        builder.put("beginScrub", 9);
+        builder.put("scrub", 10);
+        builder.put("endScrub", 11);
         return builder.build();
     }
 
@@ -248,6 +353,21 @@ public class ReactVlcPlayerViewManager extends SimpleViewManager<ReactVlcPlayerV
                 root.enterPictureInPictureV2();
                 break;
 
+            case 9:
+                root.beginScrub();
+                break;
+
+            case 10:
+                if (args != null && args.size() > 0 && !args.isNull(0)) {
+                    root.scrubTo((float) args.getDouble(0));
+                }
+                break;
+
+            case 11:
+                float position = args != null && args.size() > 0 && !args.isNull(0) ? (float) args.getDouble(0) : -1f;
+                root.endScrub(position);
+                break;
+
             default:
                 break;
         }
@@ -46,6 +46,8 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.util.ArrayList;
 
+import com.yuanzhou.vlc.vlcplayer.pip.PipEntryTimeline;
+import com.yuanzhou.vlc.vlcplayer.pip.PipEntryTiming;
 import com.yuanzhou.vlc.vlcplayer.pip.PipHostActivity;
 
 @SuppressLint("ViewConstructor")
@@ -90,6 +92,7 @@ class ReactVlcPlayerViewSurface extends FrameLayout implements
     
     private boolean mPictureInPictureEnabled = false;
     private boolean mPlayInPictureInPicture = true;
+    private boolean mPrimaryPlayer = false;
     private boolean mIsInPipMode = false;
     private boolean mPipTransitionInProgress = false;
     private int mPipTargetWidth = 0;
@@ -171,14 +174,7 @@ class ReactVlcPlayerViewSurface extends FrameLayout implements
         // Check if we need to reattach after PiP exit instead of creating a new player
         if (mPendingSurfaceReattach && mMediaPlayer != null) {
             Log.i(TAG, "surfaceCreated: handling pending PiP surface reattachment");
-            IVLCVout vlcOut = mMediaPlayer.getVLCVout();
-            if (!vlcOut.areViewsAttached()) {
-                vlcOut.setVideoView(mSurfaceView);
-                vlcOut.attachViews(onNewVideoLayoutListener);
-                updateVideoSurfaces();
-                Log.i(TAG, "surfaceCreated: surface reattached after PiP exit");
-            }
-            mPendingSurfaceReattach = false;
+            reattachAfterPip();
             return;
         }
 
@@ -288,33 +284,43 @@ class ReactVlcPlayerViewSurface extends FrameLayout implements
         Log.i(TAG, "onPipSurfaceDetached: reattaching surface to player, surfaceReady=" + isSurfaceReady);
 
         if (mMediaPlayer != null && mSurfaceHolder != null && isSurfaceReady) {
-            IVLCVout vlcOut = mMediaPlayer.getVLCVout();
-            if (!vlcOut.areViewsAttached()) {
-                vlcOut.setVideoView(mSurfaceView);
-                vlcOut.attachViews(onNewVideoLayoutListener);
-                Log.i(TAG, "onPipSurfaceDetached: surface reattached immediately");
-                updateVideoSurfaces();
-                mPendingSurfaceReattach = false;
-            }
+            reattachAfterPip();
         } else {
-            // Surface not ready - flag for reattachment when surface is created
+            // surfaceCreated reattaches as soon as the surface exists.
             Log.i(TAG, "onPipSurfaceDetached: surface not ready, flagging for later reattachment");
             mPendingSurfaceReattach = true;
+        }
+    }
 
-            // Also try again after a short delay in case surface is being recreated
-            mPipHandler.postDelayed(() -> {
-                if (mPendingSurfaceReattach && mMediaPlayer != null && mSurfaceHolder != null && isSurfaceReady) {
-                    IVLCVout vlcOut = mMediaPlayer.getVLCVout();
-                    if (!vlcOut.areViewsAttached()) {
-                        vlcOut.setVideoView(mSurfaceView);
-                        vlcOut.attachViews(onNewVideoLayoutListener);
-                        Log.i(TAG, "onPipSurfaceDetached: surface reattached after delay");
-                        updateVideoSurfaces();
-                    }
-                    mPendingSurfaceReattach = false;
-                }
-            }, 200);
+    @Override
+    public void onSurfaceSwitched(boolean toPip, long gapMs) {
+        if (toPip) {
+            PipEntryTiming timing = PipEntryTimeline.markFirstFrame(getId());
+            if (timing != null) {
+                eventEmitter.onPipEntryCompleted(timing);
+            }
         }
+        WritableMap map = Arguments.createMap();
+        map.putBoolean("toPictureInPicture", toPip);
+        map.putDouble("gapMs", gapMs);
+        eventEmitter.sendEvent(map, VideoEventEmitter.EVENT_ON_PIP_SURFACE_SWITCH);
+    }
+
+    /**
+     * Give video back to this view's surface, sized before attaching so the vout opens
+     * once at the view size.
+     */
+    private void reattachAfterPip() {
+        mPendingSurfaceReattach = false;
+        IVLCVout vlcOut = mMediaPlayer.getVLCVout();
+        if (vlcOut.areViewsAttached()) return;
+        vlcOut.setVideoView(mSurfaceView);
+        if (getWidth() > 0 && getHeight() > 0) {
+            vlcOut.setWindowSize(getWidth(), getHeight());
+        }
+        vlcOut.attachViews(VlcPlayerBridge.INSTANCE.switchLayoutListener(getId(), onNewVideoLayoutListener));
+        updateVideoSurfaces();
+        Log.i(TAG, "reattachAfterPip: surface reattached");
     }
 
     private static final long LAYOUT_DEBOUNCE_MS = 100;
@@ -489,8 +495,10 @@ class ReactVlcPlayerViewSurface extends FrameLayout implements
             mMediaPlayer.setEventListener(mPlayerListener);
 
             // Register with VlcPlayerBridge for PiP support
-            VlcPlayerBridge.INSTANCE.registerPlayer(mMediaPlayer);
-            VlcPlayerBridge.INSTANCE.setListener(this);
+            VlcPlayerBridge.INSTANCE.registerPlayer(getId(), mMediaPlayer, this);
+            if (mPrimaryPlayer) {
+                VlcPlayerBridge.INSTANCE.setPrimary(getId());
+            }
 
             IVLCVout vlcOut = mMediaPlayer.getVLCVout();
             vlcOut.setVideoView(mSurfaceView);
@@ -543,8 +551,7 @@ class ReactVlcPlayerViewSurface extends FrameLayout implements
 
         // Unregister from VlcPlayerBridge before releasing
         if (mMediaPlayer != null) {
-            VlcPlayerBridge.INSTANCE.setListener(null);
-            VlcPlayerBridge.INSTANCE.unregisterPlayer(mMediaPlayer);
+            VlcPlayerBridge.INSTANCE.unregisterPlayer(getId(), mMediaPlayer);
         }
 
         final IVLCVout vout = mMediaPlayer.getVLCVout();
@@ -636,7 +643,7 @@ class ReactVlcPlayerViewSurface extends FrameLayout implements
                 mVideoSizeEmitted = true;
 
                 // Update VlcPlayerBridge with video dimensions for PiP
-                VlcPlayerBridge.INSTANCE.updateVideoSize(videoTrack.width, videoTrack.height);
+                VlcPlayerBridge.INSTANCE.updateVideoSize(getId(), videoTrack.width, videoTrack.height);
 
                 Log.i(TAG, "emitVideoSizeIfAvailable: " + videoTrack.width + "x" + videoTrack.height);
 
@@ -796,6 +803,16 @@ class ReactVlcPlayerViewSurface extends FrameLayout implements
         }
     }
     
+    /**
+     * Make this the player PiP and system media controls act on while several are mounted.
+     */
+    public void setPrimaryPlayer(boolean primary) {
+        mPrimaryPlayer = primary;
+        if (primary && mMediaPlayer != null) {
+            VlcPlayerBridge.INSTANCE.setPrimary(getId());
+        }
+    }
+
     public void setPlayInPictureInPicture(boolean play) {
         mPlayInPictureInPicture = play;
     }
@@ -9,6 +9,7 @@ import com.facebook.react.bridge.ReactContext;
 import com.facebook.react.bridge.WritableArray;
 import com.facebook.react.bridge.WritableMap;
 import com.facebook.react.uimanager.events.RCTEventEmitter;
+import com.yuanzhou.vlc.vlcplayer.pip.PipEntryTiming;
 
 
 import java.lang.annotation.Retention;
@@ -39,6 +40,23 @@ class VideoEventEmitter {
     public static final String EVENT_RECORDING_STATE = "onRecordingState";
     public static final String EVENT_ON_SNAPSHOT = "onSnapshot";
     public static final String EVENT_PIP_STATUS_CHANGED = "onPictureInPictureStatusChanged";
+    public static final String EVENT_ON_AUDIO_LEVELS = "onAudioLevels";
+    public static final String EVENT_ON_NETWORK_CACHING = "onNetworkCachingChange";
+    public static final String EVENT_ON_STALL = "onStall";
+    public static final String EVENT_ON_PLAYBACK_SUMMARY = "onPlaybackSummary";
+    public static final String EVENT_ON_MIRROR_CHANGE = "onMirrorChange";
+    public static final String EVENT_ON_RECONNECTING = "onReconnecting";
+    public static final String EVENT_ON_RECONNECTED = "onReconnected";
+    public static final String EVENT_ON_VISIBILITY_TIER_CHANGE = "onVisibilityTierChange";
+    public static final String EVENT_ON_DECODER_CHANGE = "onDecoderChange";
+    public static final String EVENT_ON_WALL_STATS = "onWallStats";
+    public static final String EVENT_ON_HANDOFF = "onHandoff";
+    public static final String EVENT_ON_MEMORY_PRESSURE = "onMemoryPressure";
+    public static final String EVENT_ON_BACKGROUND_AUDIO_ONLY = "onBackgroundAudioOnly";
+    public static final String EVENT_ON_RESIZE = "onResize";
+    public static final String EVENT_ON_PIP_SURFACE_SWITCH = "onPipSurfaceSwitch";
+    public static final String EVENT_ON_SUBTITLE_CUES = "onSubtitleCues";
+    public static final String EVENT_ON_SEEK_COMPLETE = "onSeekComplete";
 
     static final String[] Events = {
             EVENT_LOAD_START,
@@ -55,7 +73,24 @@ class VideoEventEmitter {
             EVENT_ON_LOAD,
             EVENT_RECORDING_STATE,
             EVENT_ON_SNAPSHOT,
-            EVENT_PIP_STATUS_CHANGED
+            EVENT_PIP_STATUS_CHANGED,
+            EVENT_ON_AUDIO_LEVELS,
+            EVENT_ON_NETWORK_CACHING,
+            EVENT_ON_STALL,
+            EVENT_ON_PLAYBACK_SUMMARY,
+            EVENT_ON_MIRROR_CHANGE,
+            EVENT_ON_RECONNECTING,
+            EVENT_ON_RECONNECTED,
+            EVENT_ON_VISIBILITY_TIER_CHANGE,
+            EVENT_ON_DECODER_CHANGE,
+            EVENT_ON_WALL_STATS,
+            EVENT_ON_HANDOFF,
+            EVENT_ON_MEMORY_PRESSURE,
+            EVENT_ON_BACKGROUND_AUDIO_ONLY,
+            EVENT_ON_RESIZE,
+            EVENT_ON_PIP_SURFACE_SWITCH,
+            EVENT_ON_SUBTITLE_CUES,
+            EVENT_ON_SEEK_COMPLETE
     };
 
     @Retention(RetentionPolicy.SOURCE)
@@ -74,7 +109,24 @@ class VideoEventEmitter {
             EVENT_ON_LOAD,
             EVENT_RECORDING_STATE,
             EVENT_ON_SNAPSHOT,
-            EVENT_PIP_STATUS_CHANGED
+            EVENT_PIP_STATUS_CHANGED,
+            EVENT_ON_AUDIO_LEVELS,
+            EVENT_ON_NETWORK_CACHING,
+            EVENT_ON_STALL,
+            EVENT_ON_PLAYBACK_SUMMARY,
+            EVENT_ON_MIRROR_CHANGE,
+            EVENT_ON_RECONNECTING,
+            EVENT_ON_RECONNECTED,
+            EVENT_ON_VISIBILITY_TIER_CHANGE,
+            EVENT_ON_DECODER_CHANGE,
+            EVENT_ON_WALL_STATS,
+            EVENT_ON_HANDOFF,
+            EVENT_ON_MEMORY_PRESSURE,
+            EVENT_ON_BACKGROUND_AUDIO_ONLY,
+            EVENT_ON_RESIZE,
+            EVENT_ON_PIP_SURFACE_SWITCH,
+            EVENT_ON_SUBTITLE_CUES,
+            EVENT_ON_SEEK_COMPLETE
     })
 
     @interface VideoEvents {
@@ -146,6 +198,24 @@ class VideoEventEmitter {
         receiveEvent(EVENT_PIP_STATUS_CHANGED, map);
     }
 
+    /**
+     * A second PiP status event once the first frame is shown in PiP, with the entry's
+     * milestones (elapsedRealtime ms) and total latency.
+     */
+    void onPipEntryCompleted(PipEntryTiming timing) {
+        WritableMap latency = Arguments.createMap();
+        latency.putString("path", timing.getPath());
+        latency.putDouble("requestedAt", timing.getRequestedAtMs());
+        latency.putDouble("activityCreatedAt", timing.getActivityCreatedAtMs());
+        latency.putDouble("surfaceAttachedAt", timing.getSurfaceAttachedAtMs());
+        latency.putDouble("firstFrameAt", timing.getFirstFrameAtMs());
+        latency.putDouble("totalMs", timing.getTotalMs());
+        WritableMap map = Arguments.createMap();
+        map.putBoolean("isInPictureInPicture", true);
+        map.putMap("entryLatency", latency);
+        receiveEvent(EVENT_PIP_STATUS_CHANGED, map);
+    }
+
     private void receiveEvent(@VideoEvents String type, WritableMap event) {
         eventEmitter.receiveEvent(viewId, type, event);
     }
@@ -1,21 +1,28 @@
 package com.yuanzhou.vlc.vlcplayer
 
 import android.content.Context
+import android.os.SystemClock
 import android.util.Log
 import android.view.SurfaceHolder
+import java.util.concurrent.ConcurrentHashMap
 import org.videolan.libvlc.MediaPlayer
 import org.videolan.libvlc.interfaces.IVLCVout
 import to.holepunch.modules.mediasession.PipBridge
 import to.holepunch.modules.mediasession.PipEntryHandler
+import com.yuanzhou.vlc.vlcplayer.pip.PipEntryTimeline
 import com.yuanzhou.vlc.vlcplayer.pip.PipHostActivity
 
 /**
- * Bridge singleton that holds reference to the active VLC MediaPlayer from ReactVlcPlayerView.
- * This allows PipHostActivity to attach its surface to the same player instance,
- * enabling seamless video handoff during PiP transitions.
+ * Notified by VlcPlayerBridge when the PiP surface of this listener's player is detached.
  */
 interface VlcPlayerBridgeListener {
     fun onPipSurfaceDetached()
+
+    /**
+     * Video moved to the PiP surface ([toPip]) or back, [gapMs] after the previous surface
+     * stopped receiving it.
+     */
+    fun onSurfaceSwitched(toPip: Boolean, gapMs: Long)
 }
 
 /**
@@ -34,55 +41,80 @@ private object VlcPipEntryHandler : PipEntryHandler {
             Log.d("VlcPipEntryHandler", "PiP already active, ignoring")
             return
         }
-        Log.d("VlcPipEntryHandler", "Launching PipHostActivity")
-        PipHostActivity.launch(context)
+        Log.d("VlcPipEntryHandler", "Launching PipHostActivity for primary player")
+        PipHostActivity.launch(context, VlcPlayerBridge.getPrimaryId())
     }
 }
 
-object VlcPlayerBridge {
-    private const val TAG = "VlcPlayerBridge"
-
+/**
+ * A player registered with [VlcPlayerBridge], keyed by its view id.
+ */
+class BridgePlayer internal constructor(
+    val playerId: Int,
+    val player: MediaPlayer,
+    internal val listener: VlcPlayerBridgeListener?
+) {
     @Volatile
-    private var activePlayer: MediaPlayer? = null
-    
+    var videoWidth: Int = 0
+        internal set
+
     @Volatile
-    private var videoWidth: Int = 0
-    
+    var videoHeight: Int = 0
+        internal set
+
     @Volatile
-    private var videoHeight: Int = 0
-    
+    var pipSurfaceAttached: Boolean = false
+        internal set
+
+    /** Start of the surface switch in progress, 0 if none. */
+    internal var switchStartMs = 0L
+    internal var switchToPip = false
+}
+
+/**
+ * Registry of the VLC MediaPlayers of mounted player views, keyed by view id.
+ * This allows PipHostActivity to attach its surface to a specific player instance,
+ * enabling seamless video handoff during PiP transitions.
+ *
+ * One player is the primary: the one PiP, media session and notification controls act on
+ * when no player id is given. The first registered player becomes primary, [setPrimary]
+ * changes it, and when the primary goes away a playing player (or any) takes over.
+ * Lookups read a ConcurrentHashMap and take no lock.
+ */
+object VlcPlayerBridge {
+    private const val TAG = "VlcPlayerBridge"
+    const val NO_PLAYER = -1
+
+    private val players = ConcurrentHashMap<Int, BridgePlayer>()
+
     @Volatile
-    private var pipSurfaceAttached: Boolean = false
-    
+    private var primaryId: Int = NO_PLAYER
+
     @Volatile
     private var pipV2Active: Boolean = false
-    
-    @Volatile
-    private var listener: VlcPlayerBridgeListener? = null
-    
-    fun setListener(l: VlcPlayerBridgeListener?) {
-        listener = l
-    }
-    
+
     fun setPipV2Active(active: Boolean) {
         pipV2Active = active
         Log.d(TAG, "setPipV2Active: $active")
     }
-    
+
     fun isPipV2Active(): Boolean = pipV2Active
-    
+
     /**
-     * Register the active MediaPlayer from ReactVlcPlayerView.
-     * Called when playback starts.
+     * Register the MediaPlayer of the view [playerId].
+     * Called when the player is created; replaces an earlier player of the same view.
      * Also registers VLC as the PiP handler with MediaSession's PipBridge.
      */
-    fun registerPlayer(player: MediaPlayer) {
-        val wasActive = activePlayer != null
-        Log.d(TAG, "registerPlayer: ${player.hashCode()}")
-        activePlayer = player
+    fun registerPlayer(playerId: Int, player: MediaPlayer, listener: VlcPlayerBridgeListener? = null) {
+        val wasEmpty = players.isEmpty()
+        Log.d(TAG, "registerPlayer: view $playerId, player ${player.hashCode()}")
+        players[playerId] = BridgePlayer(playerId, player, listener)
+        if (primaryId == NO_PLAYER || !players.containsKey(primaryId)) {
+            primaryId = playerId
+        }
 
         // Register VLC as the PiP handler if this is the first active player
-        if (!wasActive) {
+        if (wasEmpty) {
             Log.d(TAG, "Registering VlcPipEntryHandler with PipBridge")
             PipBridge.registerPipEntryHandler(VlcPipEntryHandler)
         }
@@ -90,154 +122,235 @@ object VlcPlayerBridge {
 
     /**
      * Unregister the MediaPlayer when playback stops or view is destroyed.
+     * Ignored if the view has registered a newer player since.
      * Also unregisters VLC from PipBridge if no more active players.
      */
-    fun unregisterPlayer(player: MediaPlayer) {
-        if (activePlayer === player) {
-            Log.d(TAG, "unregisterPlayer: ${player.hashCode()}")
-            activePlayer = null
-            videoWidth = 0
-            videoHeight = 0
-            pipSurfaceAttached = false
-
-            // Unregister from PipBridge since no active player
+    fun unregisterPlayer(playerId: Int, player: MediaPlayer) {
+        val entry = players[playerId] ?: return
+        if (entry.player !== player || !players.remove(playerId, entry)) return
+        Log.d(TAG, "unregisterPlayer: view $playerId, player ${player.hashCode()}")
+
+        if (primaryId == playerId) {
+            primaryId = players.values.firstOrNull { it.player.isPlaying }?.playerId
+                ?: players.keys.firstOrNull()
+                ?: NO_PLAYER
+            Log.d(TAG, "primary is now $primaryId")
+        }
+        if (players.isEmpty()) {
             Log.d(TAG, "Unregistering VlcPipEntryHandler from PipBridge")
             PipBridge.registerPipEntryHandler(null)
         }
     }
-    
+
+    /**
+     * Make [playerId] the target of PiP and system controls.
+     * @return false if no such player is registered
+     */
+    fun setPrimary(playerId: Int): Boolean {
+        if (!players.containsKey(playerId)) return false
+        primaryId = playerId
+        Log.d(TAG, "setPrimary: $playerId")
+        return true
+    }
+
+    fun getPrimaryId(): Int = primaryId
+
+    fun getPlayer(playerId: Int = primaryId): BridgePlayer? = players[playerId]
+
+    fun playerIds(): Set<Int> = players.keys.toSet()
+
     /**
-     * Update video dimensions (called from ReactVlcPlayerView's layout listener).
+     * Update video dimensions of [playerId] (called from the player view's layout listener).
      */
-    fun updateVideoSize(width: Int, height: Int) {
+    fun updateVideoSize(playerId: Int, width: Int, height: Int) {
+        val entry = players[playerId] ?: return
         if (width > 0 && height > 0) {
-            videoWidth = width
-            videoHeight = height
-            Log.d(TAG, "updateVideoSize: ${width}x${height}")
+            entry.videoWidth = width
+            entry.videoHeight = height
+            Log.d(TAG, "updateVideoSize: view $playerId ${width}x${height}")
         }
     }
-    
+
     /**
-     * Get the current video dimensions.
+     * Get the video dimensions of a player, 0x0 if unknown.
      */
-    fun getVideoSize(): Pair<Int, Int> = Pair(videoWidth, videoHeight)
-    
+    fun getVideoSize(playerId: Int = primaryId): Pair<Int, Int> {
+        val entry = players[playerId] ?: return Pair(0, 0)
+        return Pair(entry.videoWidth, entry.videoHeight)
+    }
+
     /**
-     * Check if a player is currently registered.
+     * Check if any player is currently registered.
      */
-    fun hasActivePlayer(): Boolean = activePlayer != null
-    
+    fun hasActivePlayer(): Boolean = players.isNotEmpty()
+
+    fun hasPlayer(playerId: Int): Boolean = players.containsKey(playerId)
+
     /**
      * Check if the player is currently playing.
      */
-    fun isPlaying(): Boolean = activePlayer?.isPlaying == true
-    
+    fun isPlaying(playerId: Int = primaryId): Boolean = players[playerId]?.player?.isPlaying == true
+
     /**
      * Get current playback position (0-1).
      */
-    fun getPosition(): Float = activePlayer?.position ?: 0f
-    
+    fun getPosition(playerId: Int = primaryId): Float = players[playerId]?.player?.position ?: 0f
+
     /**
      * Get current playback time in ms.
      */
-    fun getTime(): Long = activePlayer?.time ?: 0L
-    
+    fun getTime(playerId: Int = primaryId): Long = players[playerId]?.player?.time ?: 0L
+
     /**
      * Get total duration in ms.
      */
-    fun getDuration(): Long = activePlayer?.length ?: 0L
-    
+    fun getDuration(playerId: Int = primaryId): Long = players[playerId]?.player?.length ?: 0L
+
     /**
      * Play the media.
      */
-    fun play() {
-        activePlayer?.play()
-        Log.d(TAG, "play()")
+    fun play(playerId: Int = primaryId) {
+        players[playerId]?.player?.play()
+        Log.d(TAG, "play(): view $playerId")
     }
-    
+
     /**
      * Pause the media.
      */
-    fun pause() {
-        activePlayer?.pause()
-        Log.d(TAG, "pause()")
+    fun pause(playerId: Int = primaryId) {
+        players[playerId]?.player?.pause()
+        Log.d(TAG, "pause(): view $playerId")
     }
-    
+
     /**
      * Seek to position (0-1).
      */
-    fun seekTo(position: Float) {
-        activePlayer?.position = position.coerceIn(0f, 1f)
-        Log.d(TAG, "seekTo: $position")
+    fun seekTo(position: Float, playerId: Int = primaryId) {
+        players[playerId]?.player?.position = position.coerceIn(0f, 1f)
+        Log.d(TAG, "seekTo: $position, view $playerId")
     }
-    
+
     /**
-     * Attach a PiP surface to the active player.
-     * This detaches any existing surface and attaches the new one.
-     * 
-     * @param holder The SurfaceHolder from PipHostActivity
+     * Seek relative to the current time, clamped to the media.
+     */
+    fun seekByMs(deltaMs: Long, playerId: Int = primaryId) {
+        val player = players[playerId]?.player ?: return
+        val length = player.length
+        val target = (player.time + deltaMs).coerceAtLeast(0L)
+        player.time = if (length > 0) target.coerceAtMost(length) else target
+        Log.d(TAG, "seekByMs: $deltaMs, view $playerId")
+    }
+
+    /**
+     * Attach a PiP surface to a player.
+     *
+     * The vout can only change surfaces while detached, so the switch is made as short as
+     * possible: the PiP surface must already exist and have its size, the window size is set
+     * before attaching so the vout opens once at the right size, and detach and attach run
+     * back to back. The gap until the first video layout on the new surface is reported to
+     * the player's listener.
+     *
+     * @param holder The SurfaceHolder from PipHostActivity, with a created surface
+     * @param width Size of the PiP surface, 0 if unknown
      * @param layoutListener Optional layout listener for video size changes
      * @return true if attachment succeeded
      */
     fun attachPipSurface(
+        playerId: Int,
         holder: SurfaceHolder,
+        width: Int,
+        height: Int,
         layoutListener: IVLCVout.OnNewVideoLayoutListener? = null
     ): Boolean {
-        val player = activePlayer
-        if (player == null) {
-            Log.w(TAG, "attachPipSurface: no active player")
+        val entry = players[playerId]
+        if (entry == null) {
+            Log.w(TAG, "attachPipSurface: no player for view $playerId")
+            return false
+        }
+        if (!holder.surface.isValid) {
+            Log.w(TAG, "attachPipSurface: surface not ready")
             return false
         }
-        
-        val vlcVout = player.vlcVout
-        
-        // Detach existing views first
+
+        val vlcVout = entry.player.vlcVout
+        beginSwitch(entry, true)
         if (vlcVout.areViewsAttached()) {
-            Log.d(TAG, "attachPipSurface: detaching existing views")
             vlcVout.detachViews()
         }
-        
-        // Attach new PiP surface
         vlcVout.setVideoSurface(holder.surface, holder)
-        vlcVout.attachViews(layoutListener)
-        pipSurfaceAttached = true
-        
-        Log.d(TAG, "attachPipSurface: attached successfully")
+        if (width > 0 && height > 0) {
+            vlcVout.setWindowSize(width, height)
+        }
+        vlcVout.attachViews(switchLayoutListener(playerId, layoutListener))
+        entry.pipSurfaceAttached = true
+        PipEntryTimeline.markSurfaceAttached(playerId)
+
+        Log.d(TAG, "attachPipSurface: attached to view $playerId at ${width}x$height")
         return true
     }
-    
+
     /**
-     * Detach the PiP surface and restore original surface from ReactVlcPlayerView.
-     * Called when exiting PiP.
+     * Detach the PiP surface and let the player's view restore its own surface.
+     * Called when exiting PiP, while the PiP surface is still valid; later calls do nothing.
      */
-    fun detachPipSurface() {
-        val player = activePlayer
-        if (player == null) {
-            Log.w(TAG, "detachPipSurface: no active player")
+    fun detachPipSurface(playerId: Int) {
+        val entry = players[playerId]
+        if (entry == null) {
+            Log.w(TAG, "detachPipSurface: no player for view $playerId")
             return
         }
-        
-        val vlcVout = player.vlcVout
+        if (!entry.pipSurfaceAttached) return
+
+        beginSwitch(entry, false)
+        val vlcVout = entry.player.vlcVout
         if (vlcVout.areViewsAttached()) {
             Log.d(TAG, "detachPipSurface: detaching PiP surface")
             vlcVout.detachViews()
         }
-        
-        pipSurfaceAttached = false
-        
-        listener?.onPipSurfaceDetached()
+
+        entry.pipSurfaceAttached = false
+
+        entry.listener?.onPipSurfaceDetached()
     }
-    
+
     /**
-     * Check if PiP surface is currently attached.
+     * Wrap the layout listener a surface is attached with, so the first video layout on it
+     * ends the switch in progress.
      */
-    fun isPipSurfaceAttached(): Boolean = pipSurfaceAttached
-    
+    fun switchLayoutListener(
+        playerId: Int,
+        listener: IVLCVout.OnNewVideoLayoutListener?
+    ): IVLCVout.OnNewVideoLayoutListener {
+        return IVLCVout.OnNewVideoLayoutListener { vout, width, height, visibleWidth, visibleHeight, sarNum, sarDen ->
+            players[playerId]?.let { completeSwitch(it) }
+            listener?.onNewVideoLayout(vout, width, height, visibleWidth, visibleHeight, sarNum, sarDen)
+        }
+    }
+
+    private fun beginSwitch(entry: BridgePlayer, toPip: Boolean) {
+        entry.switchStartMs = SystemClock.elapsedRealtime()
+        entry.switchToPip = toPip
+    }
+
+    private fun completeSwitch(entry: BridgePlayer) {
+        val start = entry.switchStartMs
+        if (start == 0L) return
+        entry.switchStartMs = 0L
+        val gapMs = SystemClock.elapsedRealtime() - start
+        Log.d(TAG, "surface switch to ${if (entry.switchToPip) "PiP" else "view"}: ${gapMs} ms without video")
+        entry.listener?.onSurfaceSwitched(entry.switchToPip, gapMs)
+    }
+
+    /**
+     * Check if a PiP surface is currently attached to the player.
+     */
+    fun isPipSurfaceAttached(playerId: Int = primaryId): Boolean = players[playerId]?.pipSurfaceAttached == true
+
     /**
      * Set window size on the player (for proper video scaling).
      */
-    fun setWindowSize(width: Int, height: Int) {
-        val player = activePlayer ?: return
+    fun setWindowSize(playerId: Int, width: Int, height: Int) {
+        val player = players[playerId]?.player ?: return
         if (width > 0 && height > 0) {
             val vout = player.vlcVout
             vout.setWindowSize(width, height)
@@ -248,12 +361,12 @@ object VlcPlayerBridge {
                     Log.w(TAG, "setScale failed: ${e.message}")
                 }
             }
-            Log.d(TAG, "setWindowSize: ${width}x${height}")
+            Log.d(TAG, "setWindowSize: view $playerId ${width}x${height}")
         }
     }
-    
+
     /**
-     * Get the active VLCVout for direct manipulation if needed.
+     * Get the VLCVout of a player for direct manipulation if needed.
      */
-    fun getVlcVout(): IVLCVout? = activePlayer?.vlcVout
+    fun getVlcVout(playerId: Int = primaryId): IVLCVout? = players[playerId]?.player?.vlcVout
 }
@@ -0,0 +1,182 @@
+package com.yuanzhou.vlc.vlcplayer.audio
+
+import android.media.audiofx.Visualizer
+import android.os.SystemClock
+import android.util.Log
+import kotlin.math.exp
+import kotlin.math.ln
+import kotlin.math.max
+import kotlin.math.sqrt
+
+fun interface AudioLevelListener {
+    /**
+     * Called on the capture thread at most once per emit interval.
+     * [spectrum] is reused between calls; copy it if it must outlive the callback.
+     */
+    fun onAudioLevels(rms: Float, peak: Float, spectrum: FloatArray)
+}
+
+/**
+ * Taps the decoded audio of a libvlc player through a [Visualizer] bound to the player's
+ * AudioTrack session. libvlc's Java bindings do not expose the native audio callbacks, so the
+ * player is instead started with a known `--audiotrack-session-id` (see [libVlcOptions]).
+ *
+ * Waveform captures are copied into a [PcmRingBuffer] and reduced to RMS / peak levels and a
+ * log-spaced spectrum, all into preallocated arrays. Requires the RECORD_AUDIO permission.
+ */
+class AudioLevelTap(
+    private val audioSessionId: Int,
+    private val spectrumBins: Int = DEFAULT_SPECTRUM_BINS,
+    emitIntervalMs: Long = DEFAULT_EMIT_INTERVAL_MS
+) {
+
+    companion object {
+        private const val TAG = "AudioLevelTap"
+        const val DEFAULT_SPECTRUM_BINS = 16
+        const val DEFAULT_EMIT_INTERVAL_MS = 50L
+        private const val RING_SECONDS_AT_44K = 2 * 44_100
+        // Largest magnitude an 8-bit (re, im) pair can reach.
+        private const val FFT_MAX_MAGNITUDE = 181f
+
+        /**
+         * LibVLC options that route audio through AudioTrack on [audioSessionId].
+         */
+        @JvmStatic
+        fun libVlcOptions(audioSessionId: Int): List<String> = listOf(
+            "--aout=audiotrack",
+            "--audiotrack-session-id=$audioSessionId"
+        )
+    }
+
+    val ring = PcmRingBuffer(RING_SECONDS_AT_44K)
+
+    @Volatile
+    var samplingRateHz: Int = 0
+        private set
+
+    @Volatile
+    var emitIntervalMs: Long = emitIntervalMs
+        set(value) {
+            field = value.coerceAtLeast(16L)
+        }
+
+    @Volatile
+    var listener: AudioLevelListener? = null
+
+    private var visualizer: Visualizer? = null
+    private val spectrum = FloatArray(spectrumBins)
+    private val pendingSpectrum = FloatArray(spectrumBins)
+    private var bandEdges = IntArray(0)
+    private var windowPeak = 0f
+    private var windowSumSquares = 0.0
+    private var windowCount = 0L
+    private var lastEmitMs = 0L
+
+    private val captureListener = object : Visualizer.OnDataCaptureListener {
+        override fun onWaveFormDataCapture(v: Visualizer, waveform: ByteArray, samplingRate: Int) {
+            samplingRateHz = samplingRate / 1000
+            ring.writeUnsigned8(waveform, waveform.size)
+            accumulateLevels(waveform)
+            maybeEmit()
+        }
+
+        override fun onFftDataCapture(v: Visualizer, fft: ByteArray, samplingRate: Int) {
+            reduceSpectrum(fft)
+        }
+    }
+
+    /**
+     * Attach to the audio session and start capturing.
+     * @return false if the Visualizer could not be created (usually a missing permission)
+     */
+    fun start(): Boolean {
+        if (visualizer != null) return true
+        return try {
+            val v = Visualizer(audioSessionId)
+            val range = Visualizer.getCaptureSizeRange()
+            v.captureSize = range[1]
+            bandEdges = computeBandEdges(range[1] / 2, spectrumBins)
+            v.setDataCaptureListener(captureListener, Visualizer.getMaxCaptureRate(), true, true)
+            v.enabled = true
+            visualizer = v
+            Log.d(TAG, "start: session=$audioSessionId, captureSize=${range[1]}")
+            true
+        } catch (e: Exception) {
+            Log.w(TAG, "start failed for session $audioSessionId: ${e.message}")
+            false
+        }
+    }
+
+    fun stop() {
+        visualizer?.let { v ->
+            try {
+                v.enabled = false
+                v.release()
+            } catch (e: Exception) {
+                Log.w(TAG, "stop failed: ${e.message}")
+            }
+        }
+        visualizer = null
+        ring.clear()
+    }
+
+    private fun accumulateLevels(waveform: ByteArray) {
+        var peak = windowPeak
+        var sum = windowSumSquares
+        for (b in waveform) {
+            val s = ((b.toInt() and 0xFF) - 128) / 128f
+            val a = if (s < 0) -s else s
+            if (a > peak) peak = a
+            sum += (s * s).toDouble()
+        }
+        windowPeak = peak
+        windowSumSquares = sum
+        windowCount += waveform.size
+    }
+
+    private fun reduceSpectrum(fft: ByteArray) {
+        val edges = bandEdges
+        if (edges.size != spectrumBins + 1) return
+        val bins = fft.size / 2
+        for (band in 0 until spectrumBins) {
+            val from = edges[band]
+            val to = minOf(edges[band + 1], bins)
+            var acc = 0f
+            for (k in from until to) {
+                val re = fft[2 * k].toFloat()
+                val im = if (k == 0) 0f else fft[2 * k + 1].toFloat()
+                acc += sqrt(re * re + im * im)
+            }
+            val mean = if (to > from) acc / (to - from) else 0f
+            // Keep the loudest frame of the emit window so short transients still show.
+            pendingSpectrum[band] = max(pendingSpectrum[band], (mean / FFT_MAX_MAGNITUDE).coerceIn(0f, 1f))
+        }
+    }
+
+    private fun maybeEmit() {
+        val now = SystemClock.uptimeMillis()
+        if (now - lastEmitMs < emitIntervalMs || windowCount == 0L) return
+        lastEmitMs = now
+
+        val rms = sqrt(windowSumSquares / windowCount).toFloat()
+        val peak = windowPeak
+        System.arraycopy(pendingSpectrum, 0, spectrum, 0, spectrumBins)
+        pendingSpectrum.fill(0f)
+        windowPeak = 0f
+        windowSumSquares = 0.0
+        windowCount = 0L
+
+        listener?.onAudioLevels(rms, peak, spectrum)
+    }
+
+    private fun computeBandEdges(fftBins: Int, bands: Int): IntArray {
+        // Log-spaced so bass does not collapse into a single bar.
+        val edges = IntArray(bands + 1)
+        val maxLog = ln(fftBins.toDouble())
+        for (i in 0..bands) {
+            val edge = exp(maxLog * i / bands).toInt()
+            edges[i] = if (i == 0) 0 else max(edge, edges[i - 1] + 1).coerceAtMost(fftBins)
+        }
+        return edges
+    }
+}
@@ -0,0 +1,24 @@
+package com.yuanzhou.vlc.vlcplayer.audio
+
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Maps React view tags to their running [AudioLevelTap] so the native module can read
+ * the raw PCM ring of a specific player.
+ */
+object AudioTapRegistry {
+    private val taps = ConcurrentHashMap<Int, AudioLevelTap>()
+
+    @JvmStatic
+    fun register(viewTag: Int, tap: AudioLevelTap) {
+        taps[viewTag] = tap
+    }
+
+    @JvmStatic
+    fun unregister(viewTag: Int, tap: AudioLevelTap) {
+        taps.remove(viewTag, tap)
+    }
+
+    @JvmStatic
+    fun get(viewTag: Int): AudioLevelTap? = taps[viewTag]
+}
@@ -0,0 +1,58 @@
+package com.yuanzhou.vlc.vlcplayer.audio
+
+/**
+ * Single-producer ring of mono PCM samples normalised to [-1, 1].
+ *
+ * The producer (the Visualizer capture callback) never allocates. Writes, reads and [clear]
+ * take a short lock: readers only copy at the emit interval, so the producer rarely waits,
+ * and a reader never sees a batch half written.
+ */
+class PcmRingBuffer(minCapacity: Int) {
+
+    private val capacity: Int = Integer.highestOneBit((minCapacity - 1).coerceAtLeast(1)) shl 1
+    private val mask: Long = (capacity - 1).toLong()
+    private val samples = FloatArray(capacity)
+    private val lock = Any()
+
+    // Index up to which samples are complete and readable; guarded by lock.
+    private var writeIndex = 0L
+
+    fun capacity(): Int = capacity
+
+    fun totalWritten(): Long = synchronized(lock) { writeIndex }
+
+    /**
+     * Append unsigned 8-bit PCM (the Visualizer waveform format). Producer thread only.
+     */
+    fun writeUnsigned8(src: ByteArray, count: Int) {
+        val n = minOf(count, src.size)
+        synchronized(lock) {
+            var w = writeIndex
+            for (i in 0 until n) {
+                samples[(w and mask).toInt()] = ((src[i].toInt() and 0xFF) - 128) / 128f
+                w++
+            }
+            writeIndex = w
+        }
+    }
+
+    /**
+     * Copy up to [max] of the most recent samples into [dst], oldest first.
+     * @return the number of samples copied
+     */
+    fun readLatest(dst: FloatArray, max: Int): Int {
+        synchronized(lock) {
+            val end = writeIndex
+            val n = minOf(max.toLong(), dst.size.toLong(), end, capacity.toLong()).toInt()
+            val start = end - n
+            for (i in 0 until n) {
+                dst[i] = samples[((start + i) and mask).toInt()]
+            }
+            return n
+        }
+    }
+
+    fun clear() {
+        synchronized(lock) { writeIndex = 0 }
+    }
+}
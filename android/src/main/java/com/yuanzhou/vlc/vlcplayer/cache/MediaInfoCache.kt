@@ -0,0 +1,270 @@
+package com.yuanzhou.vlc.vlcplayer.cache
+
+import android.content.Context
+import android.net.Uri
+import android.util.Log
+import com.yuanzhou.vlc.vlcplayer.core.TrackInfo
+import java.io.BufferedInputStream
+import java.io.BufferedOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.io.FileInputStream
+import java.io.FileOutputStream
+import java.net.HttpURLConnection
+import java.net.URL
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+
+/**
+ * Parsed metadata of a media, as reported to JS in `onVideoLoad`.
+ *
+ * [validator] is the ETag / Last-Modified of a remote source or the mtime and size of a
+ * local file at the time it was parsed; an empty validator is never revalidated. A remote
+ * entry starts without one and gets it on its first revalidation.
+ */
+data class CachedMediaInfo(
+    val durationMs: Long,
+    val videoWidth: Int,
+    val videoHeight: Int,
+    val sarNum: Int,
+    val sarDen: Int,
+    val audioTracks: List<TrackInfo>,
+    val textTracks: List<TrackInfo>,
+    val infoHash: String,
+    val validator: String
+)
+
+/**
+ * Small persistent LRU of [CachedMediaInfo] keyed by normalized URI, so a revisited media can
+ * report `onVideoLoad` before libvlc has opened it.
+ *
+ * The whole index lives in memory and is rewritten to a single file on a background thread
+ * after each change. Local files are validated synchronously on lookup (a stat call); remote
+ * sources are served immediately and revalidated in the background.
+ */
+class MediaInfoCache private constructor(context: Context) {
+
+    companion object {
+        private const val TAG = "MediaInfoCache"
+        private const val FILE_NAME = "vlc_media_info.bin"
+        private const val FORMAT_VERSION = 1
+        private const val MAX_ENTRIES = 256
+        private const val HEAD_TIMEOUT_MS = 5_000
+        // Validator of a remote entry whose HEAD has not been made yet.
+        private const val VALIDATOR_PENDING = "pending"
+
+        @Volatile
+        private var instance: MediaInfoCache? = null
+
+        @JvmStatic
+        fun getInstance(context: Context): MediaInfoCache {
+            return instance ?: synchronized(this) {
+                instance ?: MediaInfoCache(context.applicationContext).also { instance = it }
+            }
+        }
+
+        /**
+         * Lowercases scheme and host, drops default ports and the fragment.
+         */
+        @JvmStatic
+        fun normalizeUri(uri: String): String {
+            val parsed = Uri.parse(uri.trim())
+            val scheme = parsed.scheme?.lowercase() ?: return uri.trim()
+            val builder = parsed.buildUpon().scheme(scheme).fragment(null)
+            val host = parsed.host
+            if (host != null) {
+                val port = parsed.port
+                val defaultPort = (scheme == "http" && port == 80) || (scheme == "https" && port == 443)
+                val authority = StringBuilder()
+                parsed.userInfo?.let { authority.append(it).append('@') }
+                authority.append(host.lowercase())
+                if (port != -1 && !defaultPort) authority.append(':').append(port)
+                builder.encodedAuthority(authority.toString())
+            }
+            return builder.build().toString()
+        }
+    }
+
+    private val file = File(context.cacheDir, FILE_NAME)
+    private val entries = object : LinkedHashMap<String, CachedMediaInfo>(64, 0.75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<String, CachedMediaInfo>?): Boolean {
+            return size > MAX_ENTRIES
+        }
+    }
+    private val executor: ExecutorService = Executors.newSingleThreadExecutor { r ->
+        Thread(r, "VlcMediaInfoCache").apply { isDaemon = true }
+    }
+
+    @Volatile
+    private var loaded = false
+
+    init {
+        executor.execute { load() }
+    }
+
+    /**
+     * @return the cached info for [uri], or null on a miss, a stale local file or while the
+     * index is still loading.
+     */
+    fun get(uri: String): CachedMediaInfo? {
+        if (!loaded) return null
+        val key = normalizeUri(uri)
+        val info = synchronized(entries) { entries[key] } ?: return null
+        if (isLocal(key) && info.validator != localValidator(key)) {
+            remove(key)
+            return null
+        }
+        return info
+    }
+
+    /**
+     * Revalidate a remote entry off the main thread and drop it if the source changed.
+     */
+    fun revalidateAsync(uri: String) {
+        val key = normalizeUri(uri)
+        if (isLocal(key)) return
+        executor.execute {
+            val info = synchronized(entries) { entries[key] } ?: return@execute
+            if (info.validator.isEmpty()) return@execute
+            val current = remoteValidator(key) ?: return@execute
+            if (info.validator == VALIDATOR_PENDING) {
+                synchronized(entries) {
+                    if (entries[key] === info) entries[key] = info.copy(validator = current)
+                }
+                persist()
+                return@execute
+            }
+            if (current != info.validator) {
+                Log.d(TAG, "revalidate: $key changed, evicting")
+                remove(key)
+            }
+        }
+    }
+
+    /**
+     * Store [info] for [uri] and persist the index in the background. Local files are stat'ed
+     * now; remote sources are not contacted here, their HEAD waits for [revalidateAsync].
+     */
+    fun put(uri: String, info: CachedMediaInfo) {
+        val key = normalizeUri(uri)
+        executor.execute {
+            val validator = when {
+                isLocal(key) -> localValidator(key)
+                key.startsWith("http:") || key.startsWith("https:") -> VALIDATOR_PENDING
+                else -> ""
+            }
+            synchronized(entries) { entries[key] = info.copy(validator = validator) }
+            persist()
+        }
+    }
+
+    fun remove(uri: String) {
+        val key = normalizeUri(uri)
+        synchronized(entries) { entries.remove(key) }
+        executor.execute { persist() }
+    }
+
+    private fun isLocal(key: String): Boolean = key.startsWith("file:") || key.startsWith("/")
+
+    private fun localValidator(key: String): String {
+        val path = if (key.startsWith("/")) key else Uri.parse(key).path ?: return ""
+        val f = File(path)
+        return if (f.exists()) "mtime:${f.lastModified()};size:${f.length()}" else ""
+    }
+
+    private fun remoteValidator(key: String): String? {
+        if (!key.startsWith("http:") && !key.startsWith("https:")) return ""
+        var connection: HttpURLConnection? = null
+        return try {
+            connection = (URL(key).openConnection() as HttpURLConnection).apply {
+                requestMethod = "HEAD"
+                connectTimeout = HEAD_TIMEOUT_MS
+                readTimeout = HEAD_TIMEOUT_MS
+            }
+            if (connection.responseCode !in 200..299) return null
+            connection.getHeaderField("ETag")?.let { return "etag:$it" }
+            connection.getHeaderField("Last-Modified")?.let { return "lm:$it" }
+            ""
+        } catch (e: Exception) {
+            Log.w(TAG, "HEAD $key failed: ${e.message}")
+            null
+        } finally {
+            connection?.disconnect()
+        }
+    }
+
+    private fun load() {
+        try {
+            if (!file.exists()) return
+            DataInputStream(BufferedInputStream(FileInputStream(file))).use { input ->
+                if (input.readInt() != FORMAT_VERSION) return
+                val count = input.readInt()
+                synchronized(entries) {
+                    repeat(count) {
+                        val key = input.readUTF()
+                        entries[key] = CachedMediaInfo(
+                            durationMs = input.readLong(),
+                            videoWidth = input.readInt(),
+                            videoHeight = input.readInt(),
+                            sarNum = input.readInt(),
+                            sarDen = input.readInt(),
+                            audioTracks = readTracks(input),
+                            textTracks = readTracks(input),
+                            infoHash = input.readUTF(),
+                            validator = input.readUTF()
+                        )
+                    }
+                }
+            }
+            Log.d(TAG, "loaded ${entries.size} entries")
+        } catch (e: Exception) {
+            Log.w(TAG, "load failed, starting empty: ${e.message}")
+            synchronized(entries) { entries.clear() }
+        } finally {
+            loaded = true
+        }
+    }
+
+    private fun persist() {
+        val snapshot = synchronized(entries) { ArrayList(entries.entries.map { it.key to it.value }) }
+        val tmp = File(file.parentFile, "$FILE_NAME.tmp")
+        try {
+            DataOutputStream(BufferedOutputStream(FileOutputStream(tmp))).use { out ->
+                out.writeInt(FORMAT_VERSION)
+                out.writeInt(snapshot.size)
+                for ((key, info) in snapshot) {
+                    out.writeUTF(key)
+                    out.writeLong(info.durationMs)
+                    out.writeInt(info.videoWidth)
+                    out.writeInt(info.videoHeight)
+                    out.writeInt(info.sarNum)
+                    out.writeInt(info.sarDen)
+                    writeTracks(out, info.audioTracks)
+                    writeTracks(out, info.textTracks)
+                    out.writeUTF(info.infoHash)
+                    out.writeUTF(info.validator)
+                }
+            }
+            if (!tmp.renameTo(file)) {
+                Log.w(TAG, "persist: rename failed")
+            }
+        } catch (e: Exception) {
+            Log.w(TAG, "persist failed: ${e.message}")
+            tmp.delete()
+        }
+    }
+
+    private fun readTracks(input: DataInputStream): List<TrackInfo> {
+        val count = input.readUnsignedShort()
+        return List(count) { TrackInfo(input.readInt(), input.readUTF()) }
+    }
+
+    private fun writeTracks(out: DataOutputStream, tracks: List<TrackInfo>) {
+        out.writeShort(tracks.size)
+        for (track in tracks) {
+            out.writeInt(track.id)
+            out.writeUTF(track.name)
+        }
+    }
+}
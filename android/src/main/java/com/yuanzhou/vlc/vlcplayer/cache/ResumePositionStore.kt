@@ -0,0 +1,249 @@
+package com.yuanzhou.vlc.vlcplayer.cache
+
+import android.content.Context
+import android.os.SystemClock
+import android.util.Log
+import java.io.File
+import java.io.RandomAccessFile
+import java.nio.MappedByteBuffer
+import java.nio.channels.FileChannel
+import java.util.zip.CRC32
+
+/**
+ * Per-media resume positions, written from the player's own time updates.
+ *
+ * Positions are appended to a memory-mapped journal, so a record is in the page cache as soon
+ * as it is written and survives the process being killed. Each record carries a CRC; a torn
+ * record at the tail is ignored on load. Writes are coalesced to one per [coalesceIntervalMs]
+ * per media, and the journal is compacted to the live set once it fills up. Compaction keeps
+ * at most [MAX_ENTRIES] positions, and no more than half the journal, dropping the least
+ * recently updated ones.
+ *
+ * Record layout: `int length | short keyLength | key | long positionMs | long durationMs |
+ * long updatedAt | int crc`. Records without `updatedAt` (older journals) still replay, as
+ * the oldest.
+ */
+class ResumePositionStore private constructor(context: Context) {
+
+    companion object {
+        private const val TAG = "ResumePositionStore"
+        private const val FILE_NAME = "vlc_resume.journal"
+        private const val JOURNAL_BYTES = 256 * 1024
+        private const val COMPACT_THRESHOLD = JOURNAL_BYTES * 3 / 4
+        private const val DEFAULT_COALESCE_MS = 5_000L
+        // Positions this close to the end are treated as finished.
+        private const val END_MARGIN_MS = 5_000L
+        private const val MIN_RESUME_MS = 3_000L
+        private const val TOMBSTONE = -1L
+        private const val FIXED_RECORD_BYTES = 4 + 2 + 8 + 8 + 8 + 4
+        private const val LEGACY_FIXED_RECORD_BYTES = 4 + 2 + 8 + 8 + 4
+        const val MAX_ENTRIES = 500
+        private const val MAX_LIVE_BYTES = JOURNAL_BYTES / 2
+
+        @Volatile
+        private var instance: ResumePositionStore? = null
+
+        @JvmStatic
+        fun getInstance(context: Context): ResumePositionStore {
+            return instance ?: synchronized(this) {
+                instance ?: ResumePositionStore(context.applicationContext).also { instance = it }
+            }
+        }
+    }
+
+    // updatedAt is wall clock time, so it orders entries across restarts.
+    private class Entry(var positionMs: Long, var durationMs: Long, var updatedAt: Long) {
+        var writtenPositionMs: Long = Long.MIN_VALUE
+        var lastWriteAt: Long = 0L
+    }
+
+    var coalesceIntervalMs: Long = DEFAULT_COALESCE_MS
+
+    private val file = File(context.filesDir, FILE_NAME)
+    private val entries = HashMap<String, Entry>()
+    private val crc = CRC32()
+    private var buffer: MappedByteBuffer? = null
+
+    init {
+        synchronized(this) { open() }
+    }
+
+    /**
+     * Stored position for [key], or 0 if none or if the media was watched to the end.
+     */
+    @Synchronized
+    fun getPositionMs(key: String): Long {
+        val entry = entries[key] ?: return 0L
+        return if (entry.positionMs >= MIN_RESUME_MS) entry.positionMs else 0L
+    }
+
+    /**
+     * Record a time update. Appends to the journal at most once per [coalesceIntervalMs] per key.
+     */
+    @Synchronized
+    fun update(key: String, positionMs: Long, durationMs: Long) {
+        if (positionMs < 0) return
+        val position = if (durationMs > 0 && positionMs >= durationMs - END_MARGIN_MS) TOMBSTONE else positionMs
+        val entry = entries.getOrPut(key) { Entry(position, durationMs, 0L) }
+        entry.positionMs = position
+        entry.durationMs = durationMs
+        entry.updatedAt = System.currentTimeMillis()
+        val now = SystemClock.elapsedRealtime()
+        if (now - entry.lastWriteAt >= coalesceIntervalMs) {
+            append(key, entry, now)
+        }
+    }
+
+    /**
+     * Write any pending position for [key] and force the journal to disk.
+     */
+    @Synchronized
+    fun flush(key: String) {
+        val entry = entries[key] ?: return
+        if (entry.writtenPositionMs != entry.positionMs) {
+            append(key, entry, SystemClock.elapsedRealtime())
+        }
+        try {
+            buffer?.force()
+        } catch (e: Exception) {
+            Log.w(TAG, "force failed: ${e.message}")
+        }
+    }
+
+    @Synchronized
+    fun clear(key: String) {
+        val entry = entries[key] ?: return
+        entry.positionMs = TOMBSTONE
+        flush(key)
+    }
+
+    private fun open() {
+        try {
+            buffer = map(file)
+            replay()
+        } catch (e: Exception) {
+            Log.w(TAG, "open failed, positions will not persist: ${e.message}")
+            buffer = null
+        }
+    }
+
+    private fun map(target: File): MappedByteBuffer {
+        RandomAccessFile(target, "rw").use { raf ->
+            if (raf.length() < JOURNAL_BYTES) raf.setLength(JOURNAL_BYTES.toLong())
+            // The mapping stays valid after the file is closed.
+            return raf.channel.map(FileChannel.MapMode.READ_WRITE, 0, JOURNAL_BYTES.toLong())
+        }
+    }
+
+    private fun replay() {
+        val buf = buffer ?: return
+        var offset = 0
+        while (offset + FIXED_RECORD_BYTES <= JOURNAL_BYTES) {
+            val length = buf.getInt(offset)
+            if (length < LEGACY_FIXED_RECORD_BYTES || offset + length > JOURNAL_BYTES) break
+            val keyLength = buf.getShort(offset + 4).toInt()
+            val legacy = keyLength == length - LEGACY_FIXED_RECORD_BYTES
+            if (!legacy && keyLength != length - FIXED_RECORD_BYTES) break
+            // A record that fails its CRC is a torn write; the next append overwrites it.
+            if (buf.getInt(offset + length - 4) != checksum(buf, offset, length - 4)) break
+            val keyBytes = ByteArray(keyLength)
+            for (i in 0 until keyLength) {
+                keyBytes[i] = buf.get(offset + 6 + i)
+            }
+            val updatedAt = if (legacy) 0L else buf.getLong(offset + 22 + keyLength)
+            val entry = Entry(buf.getLong(offset + 6 + keyLength), buf.getLong(offset + 14 + keyLength), updatedAt)
+            entry.writtenPositionMs = entry.positionMs
+            entries[String(keyBytes, Charsets.UTF_8)] = entry
+            offset += length
+        }
+        buf.position(offset)
+        entries.values.removeAll { it.positionMs == TOMBSTONE }
+        Log.d(TAG, "replayed ${entries.size} positions, journal at $offset bytes")
+    }
+
+    private fun append(key: String, entry: Entry, now: Long) {
+        val keyBytes = key.toByteArray(Charsets.UTF_8)
+        if (keyBytes.size > Short.MAX_VALUE) return
+        val length = FIXED_RECORD_BYTES + keyBytes.size
+        var buf = buffer ?: return
+        if (buf.position() + length > COMPACT_THRESHOLD) {
+            compact()
+            buf = buffer ?: return
+            if (buf.position() + length > JOURNAL_BYTES) {
+                Log.w(TAG, "journal full after compaction, dropping update for $key")
+                return
+            }
+        }
+        writeRecord(buf, keyBytes, entry)
+        entry.writtenPositionMs = entry.positionMs
+        entry.lastWriteAt = now
+    }
+
+    private fun writeRecord(buf: MappedByteBuffer, keyBytes: ByteArray, entry: Entry) {
+        val start = buf.position()
+        val length = FIXED_RECORD_BYTES + keyBytes.size
+        buf.putInt(length)
+        buf.putShort(keyBytes.size.toShort())
+        buf.put(keyBytes)
+        buf.putLong(entry.positionMs)
+        buf.putLong(entry.durationMs)
+        buf.putLong(entry.updatedAt)
+        buf.putInt(checksum(buf, start, length - 4))
+        // Terminate the log so older records behind this one are never replayed.
+        if (buf.remaining() >= 4) buf.putInt(buf.position(), 0)
+    }
+
+    /**
+     * Rewrite the live set into a fresh journal and swap it in with a rename, so a crash
+     * mid-compaction leaves the old journal intact.
+     */
+    private fun compact() {
+        entries.values.removeAll { it.positionMs == TOMBSTONE }
+        evictOldest()
+        val tmp = File(file.parentFile, "$FILE_NAME.tmp")
+        try {
+            tmp.delete()
+            val fresh = map(tmp)
+            for ((key, entry) in entries) {
+                writeRecord(fresh, key.toByteArray(Charsets.UTF_8), entry)
+                entry.writtenPositionMs = entry.positionMs
+            }
+            fresh.force()
+            if (!tmp.renameTo(file)) {
+                Log.w(TAG, "compact: rename failed")
+                return
+            }
+            buffer = fresh
+            Log.d(TAG, "compacted to ${entries.size} positions, ${fresh.position()} bytes")
+        } catch (e: Exception) {
+            Log.w(TAG, "compact failed: ${e.message}")
+        }
+    }
+
+    /**
+     * Keep the most recently updated entries within [MAX_ENTRIES] and [MAX_LIVE_BYTES], so
+     * the compacted journal always has room to grow.
+     */
+    private fun evictOldest() {
+        val newestFirst = entries.entries.sortedByDescending { it.value.updatedAt }
+        var bytes = 0
+        var kept = 0
+        for ((key, _) in newestFirst) {
+            bytes += FIXED_RECORD_BYTES + key.toByteArray(Charsets.UTF_8).size
+            if (kept < MAX_ENTRIES && bytes <= MAX_LIVE_BYTES) {
+                kept++
+            } else {
+                entries.remove(key)
+            }
+        }
+        if (kept < newestFirst.size) Log.d(TAG, "evicted ${newestFirst.size - kept} oldest positions")
+    }
+
+    private fun checksum(buf: MappedByteBuffer, offset: Int, length: Int): Int {
+        crc.reset()
+        for (i in offset until offset + length) {
+            crc.update(buf.get(i).toInt())
+        }
+        return crc.value.toInt()
+    }
+}
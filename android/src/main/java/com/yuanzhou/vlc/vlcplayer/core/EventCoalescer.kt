@@ -0,0 +1,152 @@
+package com.yuanzhou.vlc.vlcplayer.core
+
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicLongArray
+
+/**
+ * Counters of listener dispatch: libvlc events received, and main-thread passes that
+ * delivered them. Progress and buffering events between two passes are merged into one.
+ */
+data class DispatchStats(val events: Long, val dispatches: Long)
+
+/**
+ * Moves events posted on any thread to passes on one consumer thread.
+ *
+ * Discrete events are queued and delivered in order. Pending events are bit flags OR-ed
+ * together, so any number of posts of one flag between two passes costs one delivery; the
+ * consumer reads the latest values when delivered. Flags still pending when a [terminal]
+ * event comes up are delivered before it, so the last progress precedes an end or error.
+ * [post] runs a pass on the consumer thread and is called at most once until that pass starts.
+ *
+ * Discrete events go through a preallocated ring, so posting does not allocate unless more
+ * than [RING_SIZE] of them are waiting for the consumer; later ones then wait in a list.
+ */
+class EventCoalescer(
+    private val post: (Runnable) -> Unit,
+    private val terminal: Set<Int>,
+    private val sink: Sink
+) {
+
+    interface Sink {
+        fun onDiscrete(event: Int)
+
+        /** [flags] holds the pending flags posted since they were last delivered. */
+        fun onPending(flags: Int)
+
+        /** Called at the end of every pass. */
+        fun onPassEnd()
+    }
+
+    companion object {
+        const val RING_SIZE = 256
+        private const val MASK = RING_SIZE - 1L
+    }
+
+    private val pending = AtomicInteger(0)
+    // Slot i holds the event at position p when sequences[i] == p + 1, and is free for
+    // position p when sequences[i] == p. Producers claim positions from tail; head is the
+    // consumer's.
+    private val ring = IntArray(RING_SIZE)
+    private val sequences = AtomicLongArray(RING_SIZE).apply { for (i in 0 until RING_SIZE) set(i, i.toLong()) }
+    private val tail = AtomicLong(0)
+    private var head = 0L
+    @Volatile
+    private var discardBefore = 0L
+    // Used while the ring is full; events keep going here until it is drained, so a thread's
+    // events stay in order.
+    private val overflow = ArrayDeque<Int>()
+    @Volatile
+    private var overflowing = false
+    private val scheduled = AtomicBoolean(false)
+    private val eventCount = AtomicLong(0)
+    private val dispatchCount = AtomicLong(0)
+    private val pass = Runnable { dispatch() }
+
+    fun postPending(flag: Int) {
+        eventCount.incrementAndGet()
+        while (true) {
+            val current = pending.get()
+            if (current and flag != 0 || pending.compareAndSet(current, current or flag)) break
+        }
+        schedule()
+    }
+
+    fun postDiscrete(event: Int) {
+        eventCount.incrementAndGet()
+        if (overflowing || !offer(event)) {
+            synchronized(overflow) {
+                overflow.addLast(event)
+                overflowing = true
+            }
+        }
+        schedule()
+    }
+
+    /** Drop undelivered events. A pass already posted still runs and finds nothing. */
+    fun clear() {
+        discardBefore = tail.get()
+        synchronized(overflow) {
+            overflow.clear()
+            overflowing = false
+        }
+        pending.set(0)
+    }
+
+    fun stats(): DispatchStats = DispatchStats(eventCount.get(), dispatchCount.get())
+
+    private fun schedule() {
+        if (scheduled.compareAndSet(false, true)) post(pass)
+    }
+
+    private fun offer(event: Int): Boolean {
+        while (true) {
+            val position = tail.get()
+            val slot = (position and MASK).toInt()
+            val free = sequences.get(slot) - position
+            if (free < 0) return false
+            if (free == 0L && tail.compareAndSet(position, position + 1)) {
+                ring[slot] = event
+                sequences.set(slot, position + 1)
+                return true
+            }
+        }
+    }
+
+    private fun dispatch() {
+        // Cleared first: an event posted during the pass schedules another one.
+        scheduled.set(false)
+        dispatchCount.incrementAndGet()
+        while (true) {
+            val position = head
+            val slot = (position and MASK).toInt()
+            // Stops at a claimed slot not written yet; its producer schedules another pass.
+            if (sequences.get(slot) != position + 1) break
+            val event = ring[slot]
+            sequences.set(slot, position + RING_SIZE)
+            head = position + 1
+            if (position >= discardBefore) deliverDiscrete(event)
+        }
+        if (overflowing && head == tail.get()) {
+            while (true) {
+                val event = synchronized(overflow) {
+                    overflow.removeFirstOrNull().also { if (it == null) overflowing = false }
+                } ?: break
+                deliverDiscrete(event)
+            }
+        }
+        deliverPending()
+        sink.onPassEnd()
+    }
+
+    private fun deliverDiscrete(event: Int) {
+        if (event in terminal) deliverPending()
+        sink.onDiscrete(event)
+    }
+
+    private fun deliverPending() {
+        val flags = pending.getAndSet(0)
+        if (flags != 0) sink.onPending(flags)
+    }
+}
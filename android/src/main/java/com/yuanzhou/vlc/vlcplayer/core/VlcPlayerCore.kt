@@ -6,6 +6,10 @@ import android.os.Handler
 import android.os.Looper
 import android.util.Log
 import android.view.SurfaceHolder
+import com.yuanzhou.vlc.vlcplayer.decoder.OutputDownscaler
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.asStateFlow
 import org.videolan.libvlc.LibVLC
 import org.videolan.libvlc.Media
 import org.videolan.libvlc.MediaPlayer
@@ -16,6 +20,19 @@ class VlcPlayerCore private constructor(context: Context) {
     
     companion object {
         private const val TAG = "VlcPlayerCore"
+
+        // Coalesced events; only the latest state is delivered.
+        private const val PENDING_PROGRESS = 1
+        private const val PENDING_BUFFERING = 2
+        private const val PENDING_VIDEO_SIZE = 4
+
+        // Discrete events, delivered in order.
+        private const val EVENT_PLAYING = 0
+        private const val EVENT_PAUSED = 1
+        private const val EVENT_STOPPED = 2
+        private const val EVENT_ENDED = 3
+        private const val EVENT_ERROR = 4
+        private val TERMINAL_EVENTS = setOf(EVENT_STOPPED, EVENT_ENDED, EVENT_ERROR)
         
         @Volatile
         private var instance: VlcPlayerCore? = null
@@ -38,23 +55,92 @@ class VlcPlayerCore private constructor(context: Context) {
     private var currentMedia: Media? = null
     
     private val mainHandler = Handler(Looper.getMainLooper())
-    private val listeners = mutableSetOf<VlcPlayerCoreListener>()
-    
+
+    /**
+     * Replaced, never mutated, on add and remove; dispatch iterates whatever array it read,
+     * so listeners may be added or removed from a callback.
+     */
+    @Volatile
+    private var listeners: Array<VlcPlayerCoreListener> = emptyArray()
+    private val listenersLock = Any()
+
+    @Volatile
+    private var lastError: String = ""
+
+    private val stateFlow = MutableStateFlow(CorePlaybackState())
+
+    /**
+     * Delivers queued discrete events in order and the latest buffering, size and progress.
+     * Values are read when delivered, so a burst of TimeChanged costs one callback.
+     */
+    private val dispatcher = EventCoalescer({ mainHandler.post(it) }, TERMINAL_EVENTS, object : EventCoalescer.Sink {
+        override fun onDiscrete(event: Int) {
+            for (listener in listeners) {
+                when (event) {
+                    EVENT_PLAYING -> listener.onPlaybackStateChanged(true)
+                    EVENT_PAUSED -> listener.onPlaybackStateChanged(false)
+                    EVENT_STOPPED -> listener.onStopped()
+                    EVENT_ENDED -> listener.onEnded()
+                    EVENT_ERROR -> listener.onError(lastError)
+                }
+            }
+        }
+
+        override fun onPending(flags: Int) {
+            val targets = listeners
+            if (flags and PENDING_BUFFERING != 0) {
+                for (listener in targets) listener.onBuffering(buffering, bufferPercent)
+            }
+            if (flags and PENDING_VIDEO_SIZE != 0) {
+                for (listener in targets) listener.onVideoSizeChanged(videoWidth, videoHeight)
+            }
+            if (flags and PENDING_PROGRESS != 0) {
+                for (listener in targets) listener.onProgressChanged(currentPosition, currentTimeMs, durationMs)
+            }
+        }
+
+        override fun onPassEnd() {
+            // One snapshot per pass, only while the flow is collected.
+            if (stateFlow.subscriptionCount.value > 0) {
+                stateFlow.value = snapshot()
+            }
+        }
+    })
+
+    @Volatile
     var isPlaying: Boolean = false
         private set
+    @Volatile
     var isPaused: Boolean = true
         private set
+    @Volatile
     var currentPosition: Float = 0f
         private set
+    @Volatile
     var currentTimeMs: Long = 0L
         private set
+    @Volatile
     var durationMs: Long = 0L
         private set
+    @Volatile
     var videoWidth: Int = 0
         private set
+    @Volatile
     var videoHeight: Int = 0
         private set
-    
+    @Volatile
+    private var buffering: Boolean = false
+    @Volatile
+    private var bufferPercent: Float = 0f
+    
+    /**
+     * Pick adaptive variants and decode options for the surface size on each load; see
+     * [OutputDownscaler].
+     */
+    var autoDownscale: Boolean = false
+    private var outputWidth: Int = 0
+    private var outputHeight: Int = 0
+
     private var preVolume: Int = 100
     private var isMuted: Boolean = false
     
@@ -142,6 +228,13 @@ class VlcPlayerCore private constructor(context: Context) {
         mediaOptions?.forEach { option ->
             media.addOption(option)
         }
+
+        if (autoDownscale) {
+            val rung = OutputDownscaler.rungFor(outputWidth, outputHeight)
+            OutputDownscaler.mediaOptions(rung, outputWidth, outputHeight, videoWidth, videoHeight).forEach { option ->
+                media.addOption(option)
+            }
+        }
         
         currentMedia = media
         mediaPlayer?.media = media
@@ -249,6 +342,8 @@ class VlcPlayerCore private constructor(context: Context) {
     
     fun setWindowSize(width: Int, height: Int) {
         if (width > 0 && height > 0) {
+            outputWidth = width
+            outputHeight = height
             mediaPlayer?.let { player ->
                 val vout = player.vlcVout
                 vout.setWindowSize(width, height)
@@ -265,12 +360,29 @@ class VlcPlayerCore private constructor(context: Context) {
     }
     
     fun addListener(listener: VlcPlayerCoreListener) {
-        listeners.add(listener)
+        synchronized(listenersLock) {
+            if (listener !in listeners) listeners = listeners + listener
+        }
     }
     
     fun removeListener(listener: VlcPlayerCoreListener) {
-        listeners.remove(listener)
+        synchronized(listenersLock) {
+            val index = listeners.indexOf(listener)
+            if (index < 0) return
+            listeners = listeners.filterIndexed { i, _ -> i != index }.toTypedArray()
+        }
     }
+
+    /**
+     * Conflated playback state, for consumers that collect on their own dispatcher instead
+     * of registering a listener. Updated once per dispatch pass while collected.
+     */
+    fun playbackState(): StateFlow<CorePlaybackState> {
+        stateFlow.value = snapshot()
+        return stateFlow.asStateFlow()
+    }
+
+    fun dispatchStats(): DispatchStats = dispatcher.stats()
     
     private fun releaseMedia() {
         currentMedia?.release()
@@ -280,7 +392,10 @@ class VlcPlayerCore private constructor(context: Context) {
     private fun releaseInternal() {
         Log.d(TAG, "releaseInternal()")
         
-        listeners.clear()
+        synchronized(listenersLock) {
+            listeners = emptyArray()
+        }
+        dispatcher.clear()
         
         mediaPlayer?.let { player ->
             player.setEventListener(null)
@@ -305,49 +420,61 @@ class VlcPlayerCore private constructor(context: Context) {
         durationMs = 0L
         videoWidth = 0
         videoHeight = 0
+        buffering = false
+        bufferPercent = 0f
+        stateFlow.value = CorePlaybackState()
     }
     
     private fun notifyPlaybackStateChanged(playing: Boolean) {
-        mainHandler.post {
-            listeners.forEach { it.onPlaybackStateChanged(playing) }
-        }
+        postDiscrete(if (playing) EVENT_PLAYING else EVENT_PAUSED)
     }
     
     private fun notifyProgressChanged() {
-        mainHandler.post {
-            listeners.forEach { it.onProgressChanged(currentPosition, currentTimeMs, durationMs) }
-        }
+        postPending(PENDING_PROGRESS)
     }
     
     private fun notifyVideoSizeChanged(width: Int, height: Int) {
-        mainHandler.post {
-            listeners.forEach { it.onVideoSizeChanged(width, height) }
-        }
+        postPending(PENDING_VIDEO_SIZE)
     }
     
     private fun notifyBuffering(buffering: Boolean, percent: Float) {
-        mainHandler.post {
-            listeners.forEach { it.onBuffering(buffering, percent) }
-        }
+        this.buffering = buffering
+        bufferPercent = percent
+        postPending(PENDING_BUFFERING)
     }
     
     private fun notifyEnded() {
-        mainHandler.post {
-            listeners.forEach { it.onEnded() }
-        }
+        postDiscrete(EVENT_ENDED)
     }
     
     private fun notifyError(error: String) {
-        mainHandler.post {
-            listeners.forEach { it.onError(error) }
-        }
+        lastError = error
+        postDiscrete(EVENT_ERROR)
     }
     
     private fun notifyStopped() {
-        mainHandler.post {
-            listeners.forEach { it.onStopped() }
-        }
+        postDiscrete(EVENT_STOPPED)
     }
+
+    private fun postPending(flag: Int) {
+        dispatcher.postPending(flag)
+    }
+
+    private fun postDiscrete(event: Int) {
+        dispatcher.postDiscrete(event)
+    }
+
+    private fun snapshot() = CorePlaybackState(
+        isPlaying = isPlaying,
+        isPaused = isPaused,
+        position = currentPosition,
+        timeMs = currentTimeMs,
+        durationMs = durationMs,
+        videoWidth = videoWidth,
+        videoHeight = videoHeight,
+        buffering = buffering,
+        bufferPercent = bufferPercent
+    )
     
     fun getMediaInfo(): MediaInfo? {
         val player = mediaPlayer ?: return null
@@ -20,6 +20,21 @@ data class MediaInfo(
     val videoTracks: List<TrackInfo>
 )
 
+/**
+ * Playback state as seen by [VlcPlayerCore.playbackState] collectors.
+ */
+data class CorePlaybackState(
+    val isPlaying: Boolean = false,
+    val isPaused: Boolean = true,
+    val position: Float = 0f,
+    val timeMs: Long = 0L,
+    val durationMs: Long = 0L,
+    val videoWidth: Int = 0,
+    val videoHeight: Int = 0,
+    val buffering: Boolean = false,
+    val bufferPercent: Float = 0f
+)
+
 data class TrackInfo(
     val id: Int,
     val name: String
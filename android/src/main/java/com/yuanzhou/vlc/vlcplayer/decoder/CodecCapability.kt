@@ -0,0 +1,54 @@
+package com.yuanzhou.vlc.vlcplayer.decoder
+
+/**
+ * The highest frame rate a decoder reports at [width]x[height], 0 if it does not take that size.
+ */
+data class FrameRateLimit(val width: Int, val height: Int, val maxFrameRate: Int)
+
+/**
+ * One video decoder of the device. [maxWidth] and [maxHeight] are the largest dimensions it
+ * takes, not necessarily together; [frameRateLimits] are at [REFERENCE_SIZES]. [tenBit] is
+ * true if it advertises a 10-bit profile of [mime].
+ */
+data class CodecCapability(
+    val name: String,
+    val mime: String,
+    val hardware: Boolean,
+    val profiles: List<Int>,
+    val tenBit: Boolean,
+    val maxWidth: Int,
+    val maxHeight: Int,
+    val frameRateLimits: List<FrameRateLimit>,
+    val maxInstances: Int
+) {
+    companion object {
+        /** 720p, 1080p and 2160p, landscape; sources are matched in either orientation. */
+        @JvmField
+        val REFERENCE_SIZES = listOf(1280 to 720, 1920 to 1080, 3840 to 2160)
+    }
+
+    /**
+     * True if this decoder can take a [width]x[height] stream at [frameRate] fps (0 if
+     * unknown), in either orientation.
+     *
+     * Decoders are bound by pixel rate, so the rate at the smallest reference size covering
+     * the source is scaled to the source's size, or the rate at the largest reference for
+     * sources bigger than all of them. If the covering references report no rate, it is not
+     * checked.
+     */
+    fun handles(width: Int, height: Int, frameRate: Float, tenBitSource: Boolean): Boolean {
+        if (tenBitSource && !tenBit) return false
+        val longSide = maxOf(width, height)
+        val shortSide = minOf(width, height)
+        if (longSide > maxOf(maxWidth, maxHeight) || shortSide > minOf(maxWidth, maxHeight)) return false
+        if (frameRate <= 0f) return true
+        val covering = frameRateLimits.filter { longSide <= maxOf(it.width, it.height) && shortSide <= minOf(it.width, it.height) }
+        val limit = if (covering.isNotEmpty()) {
+            covering.filter { it.maxFrameRate > 0 }.minByOrNull { it.width.toLong() * it.height }
+        } else {
+            frameRateLimits.filter { it.maxFrameRate > 0 }.maxByOrNull { it.width.toLong() * it.height }
+        } ?: return true
+        val pixelRate = limit.maxFrameRate.toDouble() * limit.width * limit.height
+        return frameRate <= pixelRate / (longSide.toDouble() * shortSide) + 0.5
+    }
+}
@@ -0,0 +1,257 @@
+package com.yuanzhou.vlc.vlcplayer.decoder
+
+import android.content.Context
+import android.media.MediaCodecInfo
+import android.media.MediaCodecInfo.CodecProfileLevel
+import android.media.MediaCodecList
+import android.os.Build
+import android.util.Log
+import org.json.JSONArray
+import org.json.JSONObject
+import java.io.File
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+
+/**
+ * Video decoders of the device as probed for [fingerprint], at [probedAtMs] (wall clock).
+ */
+class DeviceDecoderCapabilities(
+    val fingerprint: String,
+    val probedAtMs: Long,
+    val codecs: List<CodecCapability>
+)
+
+/**
+ * Probes `MediaCodecList` once per device build, in the background, and keeps the result in
+ * a small file keyed by the build fingerprint, so later launches read it instead of querying
+ * every codec again. An OS update changes the fingerprint and triggers a new probe.
+ *
+ * [choose] turns the result into a per-source choice: hardware if a hardware decoder covers
+ * the codec, size, frame rate and bit depth, software if none does, and null (libvlc decides)
+ * until the probe has finished.
+ */
+object DecoderCapabilityProbe {
+    private const val TAG = "DecoderCapabilityProbe"
+    private const val FILE_NAME = "vlc_decoder_caps.json"
+    // 2: frame rates at reference sizes instead of one rate at the largest size.
+    private const val FORMAT_VERSION = 2
+
+    private val executor: ExecutorService = Executors.newSingleThreadExecutor { r ->
+        Thread(r, "VlcDecoderProbe").apply { isDaemon = true }
+    }
+
+    @Volatile
+    private var capabilities: DeviceDecoderCapabilities? = null
+    private var started = false
+
+    /** Load or run the probe in the background; later calls do nothing. */
+    @JvmStatic
+    @Synchronized
+    fun start(context: Context) {
+        if (started) return
+        started = true
+        val file = File(context.applicationContext.filesDir, FILE_NAME)
+        executor.execute { capabilities = load(file) ?: probe().also { save(file, it) } }
+    }
+
+    /** Probe again and replace the stored result; [callback] runs on the probe thread. */
+    @JvmStatic
+    fun reprobe(context: Context, callback: Runnable?) {
+        val file = File(context.applicationContext.filesDir, FILE_NAME)
+        synchronized(this) { started = true }
+        executor.execute {
+            capabilities = probe().also { save(file, it) }
+            callback?.run()
+        }
+    }
+
+    /** The probe result, or null while it is still running. */
+    @JvmStatic
+    fun capabilities(): DeviceDecoderCapabilities? = capabilities
+
+    /** Run [callback] on the probe thread once the result is available. */
+    @JvmStatic
+    fun whenReady(callback: Runnable) {
+        executor.execute(callback)
+    }
+
+    /**
+     * Hardware or software decoding for a source, or null if the probe has not finished.
+     * @param mime MediaCodec type, see [HwDecoderScheduler.mimeForCodec]
+     * @param profile the track's profile as reported by libvlc, -1 if unknown
+     */
+    @JvmStatic
+    fun choose(mime: String, width: Int, height: Int, frameRate: Float, profile: Int): DecoderAssignment? {
+        val caps = capabilities ?: return null
+        val tenBitSource = isTenBit(mime, profile)
+        val hardware = caps.codecs.filter { it.hardware && it.mime.equals(mime, ignoreCase = true) }
+        val assignment = when {
+            hardware.isEmpty() -> DecoderAssignment.SOFTWARE
+            width <= 0 || height <= 0 -> if (tenBitSource && hardware.none { it.tenBit }) DecoderAssignment.SOFTWARE else DecoderAssignment.HARDWARE
+            hardware.any { it.handles(width, height, frameRate, tenBitSource) } -> DecoderAssignment.HARDWARE
+            else -> DecoderAssignment.SOFTWARE
+        }
+        Log.d(TAG, "$mime ${width}x$height@$frameRate profile $profile: $assignment")
+        return assignment
+    }
+
+    /**
+     * True for 10-bit profiles as libvlc reports them (the bitstream's profile id).
+     */
+    private fun isTenBit(mime: String, profile: Int): Boolean = when (mime) {
+        "video/hevc" -> profile == 2
+        "video/x-vnd.on2.vp9" -> profile >= 2
+        "video/avc" -> profile == 110
+        else -> false
+    }
+
+    private fun probe(): DeviceDecoderCapabilities {
+        val start = System.currentTimeMillis()
+        val codecs = ArrayList<CodecCapability>()
+        val infos = try {
+            MediaCodecList(MediaCodecList.REGULAR_CODECS).codecInfos
+        } catch (e: RuntimeException) {
+            Log.w(TAG, "codec list unavailable: ${e.message}")
+            emptyArray<MediaCodecInfo>()
+        }
+        for (info in infos) {
+            if (info.isEncoder) continue
+            for (mime in info.supportedTypes) {
+                if (!mime.startsWith("video/")) continue
+                capabilityOf(info, mime)?.let { codecs.add(it) }
+            }
+        }
+        Log.d(TAG, "probed ${codecs.size} video decoders in ${System.currentTimeMillis() - start} ms")
+        return DeviceDecoderCapabilities(fingerprint(), start, codecs)
+    }
+
+    private fun capabilityOf(info: MediaCodecInfo, mime: String): CodecCapability? {
+        val caps = try {
+            info.getCapabilitiesForType(mime)
+        } catch (e: IllegalArgumentException) {
+            return null
+        }
+        val video = caps.videoCapabilities ?: return null
+        val frameRateLimits = CodecCapability.REFERENCE_SIZES.map { (width, height) ->
+            FrameRateLimit(width, height, maxFrameRateAt(video, width, height))
+        }
+        val profiles = caps.profileLevels.map { it.profile }.distinct()
+        return CodecCapability(
+            name = info.name,
+            mime = mime,
+            hardware = HwDecoderScheduler.isHardware(info),
+            profiles = profiles,
+            tenBit = profiles.any { it in tenBitProfiles(mime) },
+            maxWidth = video.supportedWidths.upper,
+            maxHeight = video.supportedHeights.upper,
+            frameRateLimits = frameRateLimits,
+            maxInstances = caps.maxSupportedInstances
+        )
+    }
+
+    /** In whichever orientation the decoder takes, 0 if neither. */
+    private fun maxFrameRateAt(video: MediaCodecInfo.VideoCapabilities, width: Int, height: Int): Int {
+        for ((w, h) in listOf(width to height, height to width)) {
+            if (!video.isSizeSupported(w, h)) continue
+            return try {
+                video.getSupportedFrameRatesFor(w, h).upper.toInt()
+            } catch (e: IllegalArgumentException) {
+                0
+            }
+        }
+        return 0
+    }
+
+    private fun tenBitProfiles(mime: String): Set<Int> = when (mime) {
+        "video/hevc" -> setOf(
+            CodecProfileLevel.HEVCProfileMain10,
+            CodecProfileLevel.HEVCProfileMain10HDR10,
+            CodecProfileLevel.HEVCProfileMain10HDR10Plus
+        )
+        "video/x-vnd.on2.vp9" -> setOf(
+            CodecProfileLevel.VP9Profile2,
+            CodecProfileLevel.VP9Profile3,
+            CodecProfileLevel.VP9Profile2HDR,
+            CodecProfileLevel.VP9Profile3HDR,
+            CodecProfileLevel.VP9Profile2HDR10Plus,
+            CodecProfileLevel.VP9Profile3HDR10Plus
+        )
+        "video/av01" -> setOf(
+            CodecProfileLevel.AV1ProfileMain10,
+            CodecProfileLevel.AV1ProfileMain10HDR10,
+            CodecProfileLevel.AV1ProfileMain10HDR10Plus
+        )
+        "video/avc" -> setOf(CodecProfileLevel.AVCProfileHigh10)
+        else -> emptySet()
+    }
+
+    private fun fingerprint(): String = "${Build.FINGERPRINT}/${Build.VERSION.SDK_INT}"
+
+    private fun load(file: File): DeviceDecoderCapabilities? {
+        if (!file.exists()) return null
+        return try {
+            val json = JSONObject(file.readText())
+            if (json.optInt("version") != FORMAT_VERSION || json.optString("fingerprint") != fingerprint()) {
+                Log.d(TAG, "stored probe is for another build, probing again")
+                return null
+            }
+            val array = json.getJSONArray("codecs")
+            val codecs = ArrayList<CodecCapability>(array.length())
+            for (i in 0 until array.length()) {
+                val c = array.getJSONObject(i)
+                val profiles = c.getJSONArray("profiles")
+                val limits = c.getJSONArray("frameRateLimits")
+                codecs.add(CodecCapability(
+                    name = c.getString("name"),
+                    mime = c.getString("mime"),
+                    hardware = c.getBoolean("hardware"),
+                    profiles = List(profiles.length()) { profiles.getInt(it) },
+                    tenBit = c.getBoolean("tenBit"),
+                    maxWidth = c.getInt("maxWidth"),
+                    maxHeight = c.getInt("maxHeight"),
+                    frameRateLimits = List(limits.length()) {
+                        val l = limits.getJSONObject(it)
+                        FrameRateLimit(l.getInt("width"), l.getInt("height"), l.getInt("maxFrameRate"))
+                    },
+                    maxInstances = c.getInt("maxInstances")
+                ))
+            }
+            DeviceDecoderCapabilities(json.getString("fingerprint"), json.getLong("probedAt"), codecs)
+        } catch (e: Exception) {
+            Log.w(TAG, "could not read stored probe: ${e.message}")
+            null
+        }
+    }
+
+    private fun save(file: File, caps: DeviceDecoderCapabilities) {
+        try {
+            val array = JSONArray()
+            for (c in caps.codecs) {
+                val limits = JSONArray()
+                for (l in c.frameRateLimits) {
+                    limits.put(JSONObject().put("width", l.width).put("height", l.height).put("maxFrameRate", l.maxFrameRate))
+                }
+                array.put(JSONObject()
+                    .put("name", c.name)
+                    .put("mime", c.mime)
+                    .put("hardware", c.hardware)
+                    .put("profiles", JSONArray(c.profiles))
+                    .put("tenBit", c.tenBit)
+                    .put("maxWidth", c.maxWidth)
+                    .put("maxHeight", c.maxHeight)
+                    .put("frameRateLimits", limits)
+                    .put("maxInstances", c.maxInstances))
+            }
+            val json = JSONObject()
+                .put("version", FORMAT_VERSION)
+                .put("fingerprint", caps.fingerprint)
+                .put("probedAt", caps.probedAtMs)
+                .put("codecs", array)
+            val tmp = File(file.parentFile, "$FILE_NAME.tmp")
+            tmp.writeText(json.toString())
+            if (!tmp.renameTo(file)) Log.w(TAG, "could not store probe")
+        } catch (e: Exception) {
+            Log.w(TAG, "could not store probe: ${e.message}")
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.yuanzhou.vlc.vlcplayer.decoder
+
+import android.media.MediaCodecInfo
+import android.os.Build
+import android.os.Handler
+import android.os.Looper
+import android.util.Log
+import java.util.concurrent.ConcurrentHashMap
+
+enum class DecoderAssignment {
+    /** MediaCodec, within the device's concurrent session budget. */
+    HARDWARE,
+
+    /** libavcodec; for visible players that did not get a hardware slot. */
+    SOFTWARE,
+
+    /** No decoding; for hidden players that did not get a hardware slot. */
+    PAUSED
+}
+
+fun interface DecoderAssignmentListener {
+    /** Called on the main thread when the scheduler changes the player's assignment. */
+    fun onDecoderAssignmentChanged(assignment: DecoderAssignment)
+}
+
+/**
+ * What a player wants to decode. [mime] is a MediaCodec type; size 0 means unknown.
+ */
+data class DecoderRequest(
+    val mime: String,
+    val width: Int,
+    val height: Int,
+    val priority: Int
+)
+
+/**
+ * Process-wide budget of hardware decoder sessions.
+ *
+ * Capacity is per codec and resolution: the max concurrent instances of the device's hardware
+ * decoder, limited by its frame rates at 30 fps per stream, both taken from
+ * [DecoderCapabilityProbe]. Until the probe has finished every player gets hardware, then all
+ * are rebalanced. A player at that resolution costs `1 / capacity` of the codec's budget. Slots go to the highest [DecoderRequest.priority]
+ * first, players already holding one winning ties, so equal players are not reshuffled.
+ */
+object HwDecoderScheduler {
+    private const val TAG = "HwDecoderScheduler"
+
+    const val PRIORITY_HIDDEN = 0
+    const val PRIORITY_VISIBLE = 1
+    const val PRIORITY_FOCUSED = 2
+    const val PRIORITY_PIP = 3
+
+    private const val DEFAULT_MIME = "video/avc"
+    private const val DEFAULT_WIDTH = 1920
+    private const val DEFAULT_HEIGHT = 1080
+    private const val FRAME_RATE = 30
+    // Before the probe result is in, libvlc decides as it would without the scheduler.
+    private const val UNKNOWN_CAPACITY = Int.MAX_VALUE
+
+    private class Client(
+        val id: Int,
+        var request: DecoderRequest,
+        val listener: DecoderAssignmentListener,
+        val order: Long
+    ) {
+        var assignment = DecoderAssignment.HARDWARE
+    }
+
+    private val clients = LinkedHashMap<Int, Client>()
+    private val capacities = ConcurrentHashMap<String, Int>()
+    @Volatile
+    private var capacitySource: DeviceDecoderCapabilities? = null
+    private var awaitingProbe = false
+    private val handler = Handler(Looper.getMainLooper())
+    private var nextOrder = 0L
+
+    /**
+     * Register or update player [id] and rebalance.
+     * @return the player's assignment; other players whose assignment changed are notified.
+     */
+    @JvmStatic
+    @Synchronized
+    fun request(id: Int, request: DecoderRequest, listener: DecoderAssignmentListener): DecoderAssignment {
+        val client = clients[id]
+        if (client == null) {
+            clients[id] = Client(id, request, listener, nextOrder++)
+        } else {
+            client.request = request
+        }
+        rebalance(id)
+        return clients.getValue(id).assignment
+    }
+
+    @JvmStatic
+    @Synchronized
+    fun release(id: Int) {
+        if (clients.remove(id) != null) rebalance(null)
+    }
+
+    /**
+     * Concurrent hardware sessions the device supports for [mime] at [width]x[height].
+     */
+    @JvmStatic
+    fun capacity(mime: String, width: Int, height: Int): Int {
+        val w = if (width > 0) width else DEFAULT_WIDTH
+        val h = if (height > 0) height else DEFAULT_HEIGHT
+        val caps = DecoderCapabilityProbe.capabilities()
+        if (caps == null) {
+            rebalanceWhenProbed()
+            return UNKNOWN_CAPACITY
+        }
+        if (caps !== capacitySource) {
+            // A reprobe replaced the result.
+            capacities.clear()
+            capacitySource = caps
+        }
+        return capacities.getOrPut("$mime:${w}x$h") { computeCapacity(caps, mime, w, h) }
+    }
+
+    /**
+     * MediaCodec type for a libvlc codec fourcc, defaulting to H.264.
+     */
+    @JvmStatic
+    fun mimeForCodec(codec: String?): String {
+        return when (codec?.trim()?.lowercase()) {
+            "h264", "avc1", "x264" -> "video/avc"
+            "hevc", "h265", "hev1", "hvc1" -> "video/hevc"
+            "vp80", "vp8" -> "video/x-vnd.on2.vp8"
+            "vp90", "vp9" -> "video/x-vnd.on2.vp9"
+            "av01", "av1" -> "video/av01"
+            "mp4v", "xvid", "divx" -> "video/mp4v-es"
+            "mpgv", "mp2v", "mpg2" -> "video/mpeg2"
+            "h263", "s263" -> "video/3gpp"
+            else -> DEFAULT_MIME
+        }
+    }
+
+    private fun rebalance(callerId: Int?) {
+        val load = HashMap<String, Double>()
+        val ranked = clients.values.sortedWith(
+            compareByDescending<Client> { it.request.priority }
+                .thenBy { if (it.assignment == DecoderAssignment.HARDWARE) 0 else 1 }
+                .thenBy { it.order }
+        )
+        for (client in ranked) {
+            val r = client.request
+            val capacity = capacity(r.mime, r.width, r.height)
+            val cost = if (capacity > 0) 1.0 / capacity else Double.MAX_VALUE
+            val used = load[r.mime] ?: 0.0
+            val assignment = when {
+                used + cost <= 1.0 + 1e-6 -> {
+                    load[r.mime] = used + cost
+                    DecoderAssignment.HARDWARE
+                }
+                r.priority >= PRIORITY_VISIBLE -> DecoderAssignment.SOFTWARE
+                else -> DecoderAssignment.PAUSED
+            }
+            if (assignment == client.assignment) continue
+            Log.d(TAG, "player ${client.id}: ${client.assignment} -> $assignment (${r.mime} ${r.width}x${r.height}, priority ${r.priority})")
+            client.assignment = assignment
+            if (client.id != callerId) notify(client)
+        }
+    }
+
+    @Synchronized
+    private fun rebalanceWhenProbed() {
+        if (awaitingProbe) return
+        awaitingProbe = true
+        DecoderCapabilityProbe.whenReady {
+            synchronized(this) {
+                awaitingProbe = false
+                // Not started yet: the next request arms this again.
+                if (DecoderCapabilityProbe.capabilities() != null) rebalance(null)
+            }
+        }
+    }
+
+    private fun notify(client: Client) {
+        // Posted so listeners never re-enter the scheduler; delivers the latest assignment.
+        handler.post {
+            val current = synchronized(this) { clients[client.id]?.takeIf { it === client }?.assignment }
+            if (current != null) client.listener.onDecoderAssignmentChanged(current)
+        }
+    }
+
+    private fun computeCapacity(caps: DeviceDecoderCapabilities, mime: String, width: Int, height: Int): Int {
+        var best = 0
+        for (codec in caps.codecs) {
+            if (!codec.hardware || !codec.mime.equals(mime, ignoreCase = true)) continue
+            if (!codec.handles(width, height, 0f, false)) continue
+            // n streams at 30 fps need the pixel rate of one stream at 30n fps.
+            var instances = codec.maxInstances
+            while (instances > 0 && !codec.handles(width, height, (FRAME_RATE * instances).toFloat(), false)) {
+                instances--
+            }
+            best = maxOf(best, instances)
+        }
+        Log.d(TAG, "capacity $mime ${width}x$height: $best")
+        return best
+    }
+
+    internal fun isHardware(info: MediaCodecInfo): Boolean {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) return info.isHardwareAccelerated
+        val name = info.name.lowercase()
+        return !name.startsWith("omx.google.") && !name.startsWith("c2.android.") && !name.contains(".sw.")
+    }
+}
@@ -0,0 +1,61 @@
+package com.yuanzhou.vlc.vlcplayer.decoder
+
+import com.yuanzhou.vlc.vlcplayer.wall.VideoWall
+
+/**
+ * Decode settings for the size a player is shown at. Outputs are bucketed into rungs by their
+ * long side; a rung caps adaptive streams (HLS/DASH) to variants no larger than it, and a
+ * known source well above the output gets cheaper software decoding.
+ *
+ * Rungs only go down on the next open. Going up reopens the media, so it waits until the
+ * output exceeds the opened rung by [UPGRADE_HYSTERESIS].
+ */
+object OutputDownscaler {
+    /** Long sides of 240p, 360p, 480p, 720p and 1080p; above the last, no cap. */
+    private val RUNGS = intArrayOf(426, 640, 854, 1280, 1920)
+
+    const val UPGRADE_HYSTERESIS = 1.25f
+
+    /**
+     * Smallest rung covering an output of [width]x[height], or 0 for no cap.
+     */
+    @JvmStatic
+    fun rungFor(width: Int, height: Int): Int {
+        val longSide = maxOf(width, height)
+        if (longSide <= 0) return 0
+        return RUNGS.firstOrNull { it >= longSide } ?: 0
+    }
+
+    /**
+     * True if an output of [width]x[height] has outgrown [openedRung] enough to reopen.
+     */
+    @JvmStatic
+    fun needsUpgrade(openedRung: Int, width: Int, height: Int): Boolean {
+        if (openedRung <= 0) return false
+        return maxOf(width, height) > openedRung * UPGRADE_HYSTERESIS
+    }
+
+    /**
+     * Media options for [rung] and an output of [outputWidth]x[outputHeight]. [videoWidth]
+     * and [videoHeight] are the size of the previous open, 0 if unknown; decode shortcuts
+     * are only taken when it is known to be at least twice the output.
+     */
+    @JvmStatic
+    fun mediaOptions(rung: Int, outputWidth: Int, outputHeight: Int, videoWidth: Int, videoHeight: Int): List<String> {
+        val options = ArrayList<String>()
+        if (rung > 0) {
+            options.add(":adaptive-maxwidth=$rung")
+            options.add(":adaptive-maxheight=$rung")
+        }
+        if (videoWidth > 0 && videoHeight > 0 && outputWidth > 0 && outputHeight > 0) {
+            val lowres = VideoWall.lowresFor(videoWidth, videoHeight, outputWidth, outputHeight)
+            if (lowres > 0) {
+                // libavcodec ignores lowres for codecs without it (e.g. H.264); the loop
+                // filter skip below is what those save on.
+                options.add(":avcodec-lowres=$lowres")
+                options.add(":avcodec-skiploopfilter=1")
+            }
+        }
+        return options
+    }
+}
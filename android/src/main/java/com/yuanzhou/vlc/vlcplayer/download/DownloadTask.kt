@@ -0,0 +1,337 @@
+package com.yuanzhou.vlc.vlcplayer.download
+
+import android.util.Log
+import java.io.BufferedInputStream
+import java.io.BufferedOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.io.FileInputStream
+import java.io.FileOutputStream
+import java.io.IOException
+import java.io.RandomAccessFile
+import java.net.HttpURLConnection
+import java.net.URL
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLongArray
+import java.util.concurrent.atomic.AtomicReference
+
+enum class DownloadStatus { QUEUED, RUNNING, PAUSED, COMPLETED, FAILED }
+
+data class DownloadInfo(
+    val id: String,
+    val url: String,
+    val status: DownloadStatus,
+    val downloadedBytes: Long,
+    val totalBytes: Long,
+    val localPath: String?,
+    val error: String?
+)
+
+/**
+ * One download: a preallocated `.part` file filled by parallel range requests, one chunk
+ * at a time per worker, and a `.state` file holding the bytes done per chunk.
+ *
+ * The state is saved about once a second after forcing the data to disk, so on restart
+ * every chunk resumes from a position whose bytes are known to be written. Resumed requests
+ * carry `If-Range` with the ETag / Last-Modified seen at the start; if the source changed,
+ * the download starts over.
+ */
+internal class DownloadTask(
+    val id: String,
+    val url: String,
+    private val dir: File,
+    val finalFile: File
+) {
+
+    companion object {
+        private const val TAG = "DownloadTask"
+        private const val STATE_VERSION = 1
+        const val CHUNK_BYTES = 4L * 1024 * 1024
+        private const val SAVE_INTERVAL_MS = 1_000L
+        private const val MAX_ATTEMPTS = 4
+        private const val TIMEOUT_MS = 20_000
+
+        fun load(stateFile: File, dir: File, finalFileFor: (String, String) -> File): DownloadTask? {
+            return try {
+                DataInputStream(BufferedInputStream(FileInputStream(stateFile))).use { input ->
+                    if (input.readInt() != STATE_VERSION) return null
+                    val id = input.readUTF()
+                    val url = input.readUTF()
+                    DownloadTask(id, url, dir, finalFileFor(id, url)).apply {
+                        status = DownloadStatus.values()[input.readInt()]
+                        totalBytes = input.readLong()
+                        validator = input.readUTF()
+                        rangeSupported = input.readBoolean()
+                        val count = input.readInt()
+                        syncedDone = LongArray(count) { input.readLong() }
+                        chunkDone = AtomicLongArray(syncedDone)
+                    }
+                }
+            } catch (e: Exception) {
+                Log.w(TAG, "unreadable state ${stateFile.name}: ${e.message}")
+                null
+            }
+        }
+    }
+
+    private class SourceChangedException : IOException("source changed")
+
+    @Volatile
+    var status = DownloadStatus.QUEUED
+
+    @Volatile
+    var error: String? = null
+
+    @Volatile
+    private var stopRequested = false
+
+    var totalBytes = -1L
+        private set
+    private var validator = ""
+    private var rangeSupported = false
+    private var chunkDone = AtomicLongArray(0)
+    // Counts known to be on disk; only these are persisted, so a resume never skips lost bytes.
+    @Volatile
+    private var syncedDone = LongArray(0)
+
+    private val partFile = File(dir, "$id.part")
+    val stateFile = File(dir, "$id.state")
+
+    val downloadedBytes: Long
+        get() {
+            if (status == DownloadStatus.COMPLETED) return totalBytes
+            var sum = 0L
+            for (i in 0 until chunkDone.length()) sum += chunkDone.get(i)
+            return sum
+        }
+
+    fun info(): DownloadInfo = DownloadInfo(
+        id, url, status, downloadedBytes, totalBytes,
+        if (status == DownloadStatus.COMPLETED) finalFile.absolutePath else null, error
+    )
+
+    val isStopRequested: Boolean
+        get() = stopRequested
+
+    fun requestStop() {
+        stopRequested = true
+    }
+
+    fun clearStop() {
+        stopRequested = false
+    }
+
+    /**
+     * Download until complete, stopped or failed. Blocks the calling thread; chunk workers
+     * run on threads of their own.
+     */
+    fun run(parallelism: Int, throttle: DownloadThrottle, onProgress: (DownloadTask) -> Unit) {
+        error = null
+        status = DownloadStatus.RUNNING
+        try {
+            if (totalBytes < 0 || chunkDone.length() == 0) probe()
+            RandomAccessFile(partFile, "rw").use { raf ->
+                if (totalBytes > 0 && raf.length() != totalBytes) raf.setLength(totalBytes)
+                val channel = raf.channel
+                try {
+                    fetchAll(channel, if (rangeSupported) parallelism else 1, throttle, onProgress)
+                } catch (e: SourceChangedException) {
+                    Log.d(TAG, "$id: source changed, restarting")
+                    reset()
+                    probe()
+                    if (totalBytes > 0) raf.setLength(totalBytes)
+                    fetchAll(channel, if (rangeSupported) parallelism else 1, throttle, onProgress)
+                }
+                syncProgress(channel, true)
+            }
+            if (stopRequested) {
+                status = DownloadStatus.PAUSED
+            } else {
+                if (totalBytes < 0) totalBytes = partFile.length()
+                if (!partFile.renameTo(finalFile)) throw IOException("rename to ${finalFile.name} failed")
+                status = DownloadStatus.COMPLETED
+                Log.d(TAG, "$id: completed, $totalBytes bytes")
+            }
+        } catch (e: Exception) {
+            Log.w(TAG, "$id failed: ${e.message}")
+            error = e.message
+            status = if (stopRequested) DownloadStatus.PAUSED else DownloadStatus.FAILED
+        }
+        save()
+        onProgress(this)
+    }
+
+    fun deleteFiles() {
+        partFile.delete()
+        stateFile.delete()
+        finalFile.delete()
+    }
+
+    /**
+     * Learn length, range support and validator with a one-byte range request, and lay out chunks.
+     */
+    private fun probe() {
+        val connection = open(0, 0, null)
+        try {
+            val code = connection.responseCode
+            if (code == 206) {
+                rangeSupported = true
+                totalBytes = connection.getHeaderField("Content-Range")?.substringAfterLast('/')?.toLongOrNull() ?: -1L
+            } else if (code == 200) {
+                rangeSupported = false
+                totalBytes = connection.getHeaderField("Content-Length")?.toLongOrNull() ?: -1L
+            } else {
+                throw IOException("HTTP $code")
+            }
+            validator = connection.getHeaderField("ETag") ?: connection.getHeaderField("Last-Modified") ?: ""
+        } finally {
+            connection.disconnect()
+        }
+        if (totalBytes < 0) rangeSupported = false
+        val chunks = if (rangeSupported) ((totalBytes + CHUNK_BYTES - 1) / CHUNK_BYTES).toInt() else 1
+        chunkDone = AtomicLongArray(chunks)
+        syncedDone = LongArray(chunks)
+        save()
+    }
+
+    private fun reset() {
+        totalBytes = -1
+        validator = ""
+        chunkDone = AtomicLongArray(0)
+        syncedDone = LongArray(0)
+    }
+
+    private fun chunkLength(index: Int): Long {
+        if (!rangeSupported) return if (totalBytes >= 0) totalBytes else Long.MAX_VALUE
+        return minOf(CHUNK_BYTES, totalBytes - index * CHUNK_BYTES)
+    }
+
+    private fun fetchAll(channel: FileChannel, parallelism: Int, throttle: DownloadThrottle, onProgress: (DownloadTask) -> Unit) {
+        if (!rangeSupported) chunkDone.set(0, 0)
+        val pending = ConcurrentLinkedQueue<Int>()
+        for (i in 0 until chunkDone.length()) {
+            if (chunkDone.get(i) < chunkLength(i)) pending.add(i)
+        }
+        val workers = minOf(parallelism.coerceAtLeast(1), pending.size)
+        if (workers == 0) return
+        val latch = CountDownLatch(workers)
+        val failure = AtomicReference<Exception?>(null)
+        repeat(workers) { n ->
+            Thread({
+                try {
+                    while (!stopRequested && failure.get() == null) {
+                        val index = pending.poll() ?: break
+                        fetchChunkWithRetry(channel, index, throttle)
+                    }
+                } catch (e: Exception) {
+                    failure.compareAndSet(null, e)
+                } finally {
+                    latch.countDown()
+                }
+            }, "VlcDownload-$id-$n").apply { isDaemon = true }.start()
+        }
+        while (!latch.await(SAVE_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+            syncProgress(channel, false)
+            save()
+            onProgress(this)
+        }
+        failure.get()?.let { throw it }
+    }
+
+    /** Flush written bytes, then mark the counts taken before the flush as durable. */
+    private fun syncProgress(channel: FileChannel, metadata: Boolean) {
+        val live = chunkDone
+        val done = LongArray(live.length()) { live.get(it) }
+        channel.force(metadata)
+        syncedDone = done
+    }
+
+    private fun fetchChunkWithRetry(channel: FileChannel, index: Int, throttle: DownloadThrottle) {
+        var attempt = 0
+        while (true) {
+            try {
+                fetchChunk(channel, index, throttle)
+                return
+            } catch (e: SourceChangedException) {
+                throw e
+            } catch (e: IOException) {
+                if (stopRequested || ++attempt >= MAX_ATTEMPTS) throw e
+                Log.d(TAG, "$id chunk $index attempt $attempt failed: ${e.message}")
+                Thread.sleep(500L shl attempt)
+            }
+        }
+    }
+
+    private fun fetchChunk(channel: FileChannel, index: Int, throttle: DownloadThrottle) {
+        val chunkStart = if (rangeSupported) index * CHUNK_BYTES else 0L
+        val length = chunkLength(index)
+        val from = chunkStart + chunkDone.get(index)
+        val connection = if (rangeSupported) {
+            open(from, chunkStart + length - 1, validator.ifEmpty { null })
+        } else {
+            open(-1, -1, null)
+        }
+        try {
+            val code = connection.responseCode
+            if (rangeSupported && code == 200) throw SourceChangedException()
+            if (code != 200 && code != 206) throw IOException("HTTP $code")
+            val buffer = ByteArray(64 * 1024)
+            var position = from
+            connection.inputStream.use { input ->
+                while (!stopRequested && position < chunkStart + length) {
+                    val n = input.read(buffer)
+                    if (n < 0) {
+                        if (!rangeSupported && totalBytes < 0) break
+                        throw IOException("connection ended at $position")
+                    }
+                    val bb = ByteBuffer.wrap(buffer, 0, n)
+                    while (bb.hasRemaining()) {
+                        position += channel.write(bb, position)
+                    }
+                    chunkDone.addAndGet(index, n.toLong())
+                    throttle.acquire(n)
+                }
+            }
+        } finally {
+            connection.disconnect()
+        }
+    }
+
+    private fun open(from: Long, to: Long, ifRange: String?): HttpURLConnection {
+        return (URL(url).openConnection() as HttpURLConnection).apply {
+            connectTimeout = TIMEOUT_MS
+            readTimeout = TIMEOUT_MS
+            setRequestProperty("Accept-Encoding", "identity")
+            if (from >= 0) setRequestProperty("Range", "bytes=$from-$to")
+            if (ifRange != null) setRequestProperty("If-Range", ifRange)
+        }
+    }
+
+    @Synchronized
+    fun save() {
+        val tmp = File(dir, "$id.state.tmp")
+        try {
+            DataOutputStream(BufferedOutputStream(FileOutputStream(tmp))).use { out ->
+                out.writeInt(STATE_VERSION)
+                out.writeUTF(id)
+                out.writeUTF(url)
+                // A running download is persisted as such so it resumes after process death.
+                out.writeInt(status.ordinal)
+                out.writeLong(totalBytes)
+                out.writeUTF(validator)
+                out.writeBoolean(rangeSupported)
+                val done = syncedDone
+                out.writeInt(done.size)
+                for (count in done) out.writeLong(count)
+            }
+            if (!tmp.renameTo(stateFile)) Log.w(TAG, "$id: state rename failed")
+        } catch (e: IOException) {
+            Log.w(TAG, "$id: save failed: ${e.message}")
+        }
+    }
+}
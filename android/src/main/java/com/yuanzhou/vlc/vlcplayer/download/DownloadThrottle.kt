@@ -0,0 +1,41 @@
+package com.yuanzhou.vlc.vlcplayer.download
+
+import android.os.SystemClock
+
+/**
+ * Token bucket shared by all download workers. Only limits while [active], i.e. while a
+ * player is playing in the foreground and should get the bandwidth.
+ */
+class DownloadThrottle(bytesPerSecond: Long) {
+
+    @Volatile
+    var active = false
+
+    @Volatile
+    var bytesPerSecond: Long = bytesPerSecond
+        set(value) {
+            field = value.coerceAtLeast(1L)
+        }
+
+    private var tokens = 0L
+    private var lastRefillMs = SystemClock.elapsedRealtime()
+
+    /**
+     * Account for [bytes] just read, sleeping if the bucket is in debt.
+     */
+    fun acquire(bytes: Int) {
+        if (!active) return
+        val waitMs = reserve(bytes)
+        if (waitMs > 0) Thread.sleep(waitMs)
+    }
+
+    @Synchronized
+    private fun reserve(bytes: Int): Long {
+        val rate = bytesPerSecond
+        val now = SystemClock.elapsedRealtime()
+        tokens = minOf(rate, tokens + (now - lastRefillMs) * rate / 1000)
+        lastRefillMs = now
+        tokens -= bytes
+        return if (tokens < 0) -tokens * 1000 / rate else 0L
+    }
+}
@@ -0,0 +1,211 @@
+package com.yuanzhou.vlc.vlcplayer.download
+
+import android.content.Context
+import android.net.Uri
+import android.util.Log
+import com.yuanzhou.vlc.vlcplayer.cache.MediaInfoCache
+import java.io.File
+import java.security.MessageDigest
+import java.util.Collections
+import java.util.IdentityHashMap
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CopyOnWriteArraySet
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+
+fun interface DownloadListener {
+    /**
+     * Called on a download thread about once a second while running and on every status change.
+     */
+    fun onDownloadProgress(info: DownloadInfo)
+}
+
+/**
+ * Offline copies of network sources, stored under `filesDir/vlc_downloads`.
+ *
+ * Downloads that were running when the process died are resumed when the manager is first
+ * used. While any player is playing, downloads are throttled to [throttledBytesPerSecond]
+ * so they do not compete with streaming. Once complete, [localFileFor] returns the copy,
+ * which the player views open instead of the network URI.
+ */
+class VlcDownloadManager private constructor(context: Context) {
+
+    companion object {
+        private const val TAG = "VlcDownloadManager"
+        const val DEFAULT_PARALLELISM = 4
+        const val DEFAULT_THROTTLED_BYTES_PER_SECOND = 256L * 1024
+
+        @Volatile
+        private var instance: VlcDownloadManager? = null
+
+        @JvmStatic
+        fun getInstance(context: Context): VlcDownloadManager {
+            return instance ?: synchronized(this) {
+                instance ?: VlcDownloadManager(context.applicationContext).also { instance = it }
+            }
+        }
+
+        /**
+         * Stable id of a source URL, shared by its state, partial and final files.
+         */
+        @JvmStatic
+        fun idFor(url: String): String {
+            val digest = MessageDigest.getInstance("SHA-1").digest(MediaInfoCache.normalizeUri(url).toByteArray())
+            return digest.take(12).joinToString("") { "%02x".format(it) }
+        }
+    }
+
+    private val dir = File(context.filesDir, "vlc_downloads").apply { mkdirs() }
+    private val tasks = ConcurrentHashMap<String, DownloadTask>()
+    private val parallelismById = ConcurrentHashMap<String, Int>()
+    // Resumed while a stop was still being noticed; relaunched when the worker returns.
+    private val resumeAfterStop = ConcurrentHashMap.newKeySet<String>()
+    private val listeners = CopyOnWriteArraySet<DownloadListener>()
+    private val activePlayers = Collections.newSetFromMap(IdentityHashMap<Any, Boolean>())
+    private val throttle = DownloadThrottle(DEFAULT_THROTTLED_BYTES_PER_SECOND)
+    private val executor: ExecutorService = Executors.newCachedThreadPool { r ->
+        Thread(r, "VlcDownloadManager").apply { isDaemon = true }
+    }
+
+    var throttledBytesPerSecond: Long
+        get() = throttle.bytesPerSecond
+        set(value) {
+            throttle.bytesPerSecond = value
+        }
+
+    init {
+        executor.execute { restore() }
+    }
+
+    fun addListener(listener: DownloadListener) {
+        listeners.add(listener)
+    }
+
+    fun removeListener(listener: DownloadListener) {
+        listeners.remove(listener)
+    }
+
+    /**
+     * Start (or resume) downloading [url].
+     * @return the download id
+     */
+    fun start(url: String, parallelism: Int = DEFAULT_PARALLELISM): String {
+        val id = idFor(url)
+        val task = tasks.getOrPut(id) { DownloadTask(id, url, dir, finalFileFor(id, url)) }
+        parallelismById[id] = parallelism.coerceIn(1, 16)
+        launch(task)
+        return id
+    }
+
+    fun pause(id: String) {
+        resumeAfterStop.remove(id)
+        tasks[id]?.requestStop()
+    }
+
+    fun resume(id: String): Boolean {
+        val task = tasks[id] ?: return false
+        launch(task)
+        return true
+    }
+
+    /**
+     * Stop the download if running and delete its files, including a completed copy.
+     */
+    fun remove(id: String) {
+        val task = tasks.remove(id) ?: return
+        resumeAfterStop.remove(id)
+        task.requestStop()
+        executor.execute {
+            // Let a running task notice the stop before its files go away.
+            synchronized(task) { task.deleteFiles() }
+        }
+    }
+
+    fun info(id: String): DownloadInfo? = tasks[id]?.info()
+
+    fun list(): List<DownloadInfo> = tasks.values.map { it.info() }
+
+    /**
+     * @return the completed local copy of [url], or null. Only a stat, safe on the main thread.
+     */
+    fun localFileFor(url: String): File? {
+        val id = idFor(url)
+        val file = tasks[id]?.finalFile ?: finalFileFor(id, url)
+        return if (file.exists()) file else null
+    }
+
+    /**
+     * Report whether [player] is playing; downloads are throttled while any player is.
+     */
+    fun setPlaybackActive(player: Any, active: Boolean) {
+        synchronized(activePlayers) {
+            if (active) activePlayers.add(player) else activePlayers.remove(player)
+            throttle.active = activePlayers.isNotEmpty()
+        }
+    }
+
+    @Synchronized
+    private fun launch(task: DownloadTask) {
+        when (task.status) {
+            DownloadStatus.COMPLETED -> return
+            DownloadStatus.QUEUED, DownloadStatus.RUNNING -> {
+                // Paused but the worker has not stopped yet: run again once it has.
+                if (task.isStopRequested) resumeAfterStop.add(task.id)
+                return
+            }
+            else -> task.status = DownloadStatus.QUEUED
+        }
+        task.clearStop()
+        executor.execute {
+            synchronized(task) {
+                if (tasks[task.id] === task && task.status == DownloadStatus.QUEUED) {
+                    task.run(parallelismById[task.id] ?: DEFAULT_PARALLELISM, throttle, ::notifyProgress)
+                }
+            }
+            relaunchIfResumed(task)
+        }
+    }
+
+    @Synchronized
+    private fun relaunchIfResumed(task: DownloadTask) {
+        if (resumeAfterStop.remove(task.id) && tasks[task.id] === task) launch(task)
+    }
+
+    private fun notifyProgress(task: DownloadTask) {
+        val info = task.info()
+        for (listener in listeners) {
+            try {
+                listener.onDownloadProgress(info)
+            } catch (e: Exception) {
+                Log.w(TAG, "listener failed: ${e.message}")
+            }
+        }
+    }
+
+    private fun restore() {
+        val states = dir.listFiles { f -> f.name.endsWith(".state") }.orEmpty()
+        for (stateFile in states) {
+            val task = DownloadTask.load(stateFile, dir, ::finalFileFor) ?: continue
+            if (tasks.putIfAbsent(task.id, task) != null) continue
+            if (task.status == DownloadStatus.COMPLETED && !task.finalFile.exists()) {
+                // The copy was deleted behind our back; forget it.
+                tasks.remove(task.id)
+                task.deleteFiles()
+                continue
+            }
+            if (task.status == DownloadStatus.RUNNING || task.status == DownloadStatus.QUEUED) {
+                Log.d(TAG, "resuming ${task.id} after restart")
+                task.status = DownloadStatus.PAUSED
+                launch(task)
+            }
+        }
+        Log.d(TAG, "restored ${tasks.size} downloads")
+    }
+
+    private fun finalFileFor(id: String, url: String): File {
+        val ext = Uri.parse(url).lastPathSegment
+            ?.substringAfterLast('.', "")
+            ?.takeIf { it.length in 1..5 && it.all(Char::isLetterOrDigit) }
+        return File(dir, if (ext != null) "$id.$ext" else "$id.media")
+    }
+}
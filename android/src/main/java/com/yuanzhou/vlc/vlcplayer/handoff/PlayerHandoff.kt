@@ -0,0 +1,175 @@
+package com.yuanzhou.vlc.vlcplayer.handoff
+
+import android.os.Handler
+import android.os.Looper
+import android.util.Log
+import com.yuanzhou.vlc.vlcplayer.wall.VideoWall
+import org.videolan.libvlc.LibVLC
+import org.videolan.libvlc.MediaPlayer
+
+/**
+ * A running player between two views. Its video output is detached; decoding, buffers,
+ * position and track selection are untouched. A parked player is paused so it is not heard,
+ * and [playOnClaim] records that it plays again when claimed.
+ *
+ * @param wallGroup the [VideoWall] group whose shared LibVLC this holds, or null if it owns [libvlc]
+ */
+class HandoffPlayer(
+    val libvlc: LibVLC,
+    val player: MediaPlayer,
+    val uri: String?,
+    val wallGroup: String?
+) {
+    var playOnClaim = false
+        internal set
+
+    fun release() {
+        player.release()
+        if (wallGroup != null) VideoWall.release(wallGroup) else libvlc.release()
+    }
+}
+
+interface HandoffHost {
+    /** Detach and give up the running player, or null if this host has none. */
+    fun yieldPlayer(): HandoffPlayer?
+
+    /** True if this host has no player and could show one playing [uri] right now. */
+    fun canAdopt(uri: String?): Boolean
+
+    fun adoptPlayer(handoff: HandoffPlayer)
+
+    fun hasPlayer(): Boolean
+
+    /** True if this host has a player opened on [uri]. */
+    fun holds(uri: String?): Boolean
+}
+
+/**
+ * Moves running players between views sharing a handoff key, e.g. from a list thumbnail to
+ * a fullscreen screen and back, so the new view does not open, buffer and start again.
+ *
+ * The newest view registered under a key takes the player from an older one when it would
+ * otherwise open the same uri. When the holder goes away, the player returns to the newest
+ * remaining view that can show it, or is parked for a grace period (by default
+ * [PARK_TIMEOUT_MS]) for a view that has not mounted yet. At most [MAX_PARKED] players are
+ * parked; parking another releases the least recently parked. All calls are on the main thread.
+ */
+object PlayerHandoff {
+    private const val TAG = "PlayerHandoff"
+    const val PARK_TIMEOUT_MS = 5_000L
+    const val MAX_PARKED = 3
+
+    private class Parked(val handoff: HandoffPlayer, val expiry: Runnable)
+
+    private val hosts = HashMap<String, MutableList<HandoffHost>>()
+    private val parked = LinkedHashMap<String, Parked>()
+    private val handler = Handler(Looper.getMainLooper())
+
+    @JvmStatic
+    fun register(key: String, host: HandoffHost) {
+        val list = hosts.getOrPut(key) { ArrayList() }
+        if (host !in list) list.add(host)
+    }
+
+    /**
+     * Remove [host], passing on [handoff] (the player it yielded, if any). If no registered
+     * view can take it, it is parked for [graceMs].
+     */
+    @JvmStatic
+    @JvmOverloads
+    fun unregister(key: String, host: HandoffHost, handoff: HandoffPlayer?, graceMs: Long = PARK_TIMEOUT_MS) {
+        val list = hosts[key]
+        list?.remove(host)
+        if (list != null && list.isEmpty()) hosts.remove(key)
+        if (handoff == null) return
+        val recipient = list?.lastOrNull { it.canAdopt(handoff.uri) }
+        if (recipient != null) {
+            Log.d(TAG, "$key: returned to previous view")
+            recipient.adoptPlayer(handoff)
+        } else {
+            park(key, handoff, graceMs)
+        }
+    }
+
+    /**
+     * A running player for [host] to show instead of opening [uri]: a parked one, or the
+     * one held by an older view under the same key.
+     */
+    @JvmStatic
+    fun claim(key: String, host: HandoffHost, uri: String?): HandoffPlayer? {
+        parked[key]?.let { entry ->
+            if (entry.handoff.uri != uri) return@let
+            parked.remove(key)
+            handler.removeCallbacks(entry.expiry)
+            Log.d(TAG, "$key: claimed parked player")
+            if (entry.handoff.playOnClaim) entry.handoff.player.play()
+            return entry.handoff
+        }
+        val list = hosts[key] ?: return null
+        val index = list.indexOf(host)
+        // Only a newer view takes over; an older one waits for the player to come back.
+        for (i in 0 until (if (index >= 0) index else list.size)) {
+            val holder = list[i]
+            if (holder === host || !holder.holds(uri)) continue
+            val handoff = holder.yieldPlayer() ?: continue
+            Log.d(TAG, "$key: taken from older view")
+            return handoff
+        }
+        return null
+    }
+
+    /**
+     * True if a newer view under [key] holds the player, so [host] should not open its own.
+     */
+    @JvmStatic
+    fun isHeldByNewer(key: String, host: HandoffHost): Boolean {
+        val list = hosts[key] ?: return false
+        val index = list.indexOf(host)
+        if (index < 0) return false
+        return list.subList(index + 1, list.size).any { it.hasPlayer() }
+    }
+
+    /**
+     * Release all parked players, e.g. under memory pressure.
+     * @return how many were released
+     */
+    @JvmStatic
+    fun releaseParked(): Int {
+        val entries = parked.values.toList()
+        parked.clear()
+        for (entry in entries) {
+            handler.removeCallbacks(entry.expiry)
+            entry.handoff.release()
+        }
+        if (entries.isNotEmpty()) Log.d(TAG, "released ${entries.size} parked players")
+        return entries.size
+    }
+
+    private fun park(key: String, handoff: HandoffPlayer, graceMs: Long) {
+        parked.remove(key)?.let {
+            handler.removeCallbacks(it.expiry)
+            it.handoff.release()
+        }
+        while (parked.size >= MAX_PARKED) {
+            val eldest = parked.entries.first()
+            parked.remove(eldest.key)
+            handler.removeCallbacks(eldest.value.expiry)
+            Log.d(TAG, "${eldest.key}: evicted parked player")
+            eldest.value.handoff.release()
+        }
+        if (handoff.player.isPlaying) {
+            handoff.player.pause()
+            handoff.playOnClaim = true
+        }
+        val expiry = Runnable {
+            if (parked[key]?.handoff === handoff) {
+                parked.remove(key)
+                Log.d(TAG, "$key: parked player expired")
+                handoff.release()
+            }
+        }
+        parked[key] = Parked(handoff, expiry)
+        handler.postDelayed(expiry, graceMs)
+        Log.d(TAG, "$key: parked for $graceMs ms")
+    }
+}
@@ -0,0 +1,125 @@
+package com.yuanzhou.vlc.vlcplayer.memory
+
+import android.content.ComponentCallbacks2
+import android.content.Context
+import android.content.res.Configuration
+import android.os.SystemClock
+import android.util.Log
+import com.yuanzhou.vlc.vlcplayer.handoff.PlayerHandoff
+import java.util.concurrent.CopyOnWriteArraySet
+
+/**
+ * How hard players should shed memory; each level includes the steps of the ones below.
+ */
+enum class MemoryPressureLevel {
+    /** Drop caches and shrink network caching of new opens. */
+    MODERATE,
+
+    /** Also release paused players that are off screen. */
+    LOW,
+
+    /** Also release every paused player and downscale video output. */
+    CRITICAL;
+
+    companion object {
+        /**
+         * Level for an `onTrimMemory` level, or null when nothing needs to be shed
+         * (e.g. UI_HIDDEN, which is only the app going to the background).
+         */
+        @JvmStatic
+        @Suppress("DEPRECATION")
+        fun fromTrimLevel(level: Int): MemoryPressureLevel? = when {
+            level >= ComponentCallbacks2.TRIM_MEMORY_COMPLETE -> CRITICAL
+            level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE -> LOW
+            level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND -> MODERATE
+            level == ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN -> null
+            level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL -> CRITICAL
+            level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW -> LOW
+            level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE -> MODERATE
+            else -> null
+        }
+    }
+}
+
+fun interface MemoryPressureListener {
+    /** Called on the main thread. */
+    fun onMemoryPressure(level: MemoryPressureLevel)
+}
+
+/**
+ * One process-wide [ComponentCallbacks2], registered while any player listens. Process-wide
+ * caches are shed here before listeners are told; [recentLevel] lets players keep a lower
+ * footprint for new opens for a while after the last signal.
+ */
+object MemoryPressureMonitor {
+    private const val TAG = "MemoryPressureMonitor"
+
+    /** How long after a signal new opens still use the reduced settings. */
+    const val RECENT_WINDOW_MS = 60_000L
+
+    private val listeners = CopyOnWriteArraySet<MemoryPressureListener>()
+    private var appContext: Context? = null
+
+    @Volatile
+    private var lastLevel: MemoryPressureLevel? = null
+
+    @Volatile
+    private var lastSignalMs = 0L
+
+    private val callbacks = object : ComponentCallbacks2 {
+        override fun onTrimMemory(level: Int) {
+            MemoryPressureLevel.fromTrimLevel(level)?.let { dispatch(it) }
+        }
+
+        @Deprecated("Deprecated in Java")
+        override fun onLowMemory() {
+            dispatch(MemoryPressureLevel.CRITICAL)
+        }
+
+        override fun onConfigurationChanged(newConfig: Configuration) {}
+    }
+
+    @JvmStatic
+    @Synchronized
+    fun addListener(context: Context, listener: MemoryPressureListener) {
+        listeners.add(listener)
+        if (appContext == null) {
+            appContext = context.applicationContext.also { it.registerComponentCallbacks(callbacks) }
+        }
+    }
+
+    @JvmStatic
+    @Synchronized
+    fun removeListener(listener: MemoryPressureListener) {
+        listeners.remove(listener)
+        if (listeners.isEmpty()) {
+            appContext?.unregisterComponentCallbacks(callbacks)
+            appContext = null
+        }
+    }
+
+    /**
+     * The last level signalled within [RECENT_WINDOW_MS], or null.
+     */
+    @JvmStatic
+    fun recentLevel(): MemoryPressureLevel? {
+        val level = lastLevel ?: return null
+        return if (SystemClock.elapsedRealtime() - lastSignalMs < RECENT_WINDOW_MS) level else null
+    }
+
+    private fun dispatch(level: MemoryPressureLevel) {
+        Log.w(TAG, "memory pressure: $level")
+        val previous = recentLevel()
+        lastLevel = if (previous != null && previous > level) previous else level
+        lastSignalMs = SystemClock.elapsedRealtime()
+        // Players parked for a handoff are paused and hold their buffers unseen; they go first.
+        PlayerHandoff.releaseParked()
+        for (listener in listeners) {
+            try {
+                listener.onMemoryPressure(level)
+            } catch (e: Exception) {
+                Log.w(TAG, "listener failed: ${e.message}")
+            }
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.yuanzhou.vlc.vlcplayer.network
+
+import android.util.Log
+import java.util.concurrent.ConcurrentHashMap
+import kotlin.math.roundToInt
+
+/**
+ * Bounds for the adaptive `:network-caching` value, in milliseconds.
+ */
+data class CachingBounds(
+    val minMs: Int = 300,
+    val maxMs: Int = 10_000,
+    val initialMs: Int = 1_500
+) {
+    fun clamp(ms: Int): Int = ms.coerceIn(minMs, maxMs)
+}
+
+/**
+ * A change of the caching value chosen for a host, reported to JS.
+ */
+data class CachingDecision(
+    val host: String,
+    val previousMs: Int,
+    val cachingMs: Int,
+    val throughputKbps: Int,
+    val contentKbps: Int,
+    val stalls: Int,
+    val reason: String
+)
+
+/**
+ * Observed network behaviour of one playback session. Fed from the view's player events,
+ * then handed to [AdaptiveCachingController.decide].
+ */
+class CachingSession internal constructor(
+    val host: String,
+    val bounds: CachingBounds,
+    val cachingMs: Int
+) {
+    companion object {
+        /** Buffering starting this long after a seek refills the new position, not a stall. */
+        const val SEEK_WINDOW_MS = 2_000L
+    }
+
+    var stalls: Int = 0
+        private set
+    var stallTimeMs: Long = 0
+        private set
+
+    private var started = false
+    private var buffering = false
+    private var stallStartMs = 0L
+    private var seekAtMs = -1L
+    private var lastReadBytes = -1L
+    private var lastSampleMs = 0L
+
+    // Stalls already folded into a decision; decide() runs mid-session and again at the end.
+    internal var decidedStalls: Int = 0
+    internal var decidedStallTimeMs: Long = 0
+
+    internal var throughputBps: Double = 0.0
+        private set
+    internal var contentBps: Double = 0.0
+        private set
+
+    fun onPlaying() {
+        started = true
+    }
+
+    fun onSeek(nowMs: Long) {
+        seekAtMs = nowMs
+    }
+
+    /**
+     * @return true when this event ended a mid-playback stall
+     */
+    fun onBuffering(percent: Float, nowMs: Long): Boolean {
+        if (percent < 100f) {
+            val afterSeek = seekAtMs >= 0 && nowMs - seekAtMs <= SEEK_WINDOW_MS
+            if (!buffering && started && !afterSeek) {
+                stallStartMs = nowMs
+                stalls++
+            }
+            buffering = true
+            return false
+        }
+        val endedStall = buffering && stallStartMs > 0
+        if (endedStall) {
+            stallTimeMs += nowMs - stallStartMs
+            stallStartMs = 0
+        }
+        buffering = false
+        return endedStall
+    }
+
+    /**
+     * Feed libvlc input statistics. [demuxBitrate] is libvlc's f_demux_bitrate (kB per ms).
+     */
+    fun onStats(readBytes: Long, demuxBitrate: Float, nowMs: Long) {
+        if (demuxBitrate > 0f) {
+            contentBps = demuxBitrate * 8_000_000.0
+        }
+        if (lastReadBytes >= 0 && nowMs - lastSampleMs >= 1_000) {
+            val sample = (readBytes - lastReadBytes) * 8_000.0 / (nowMs - lastSampleMs)
+            if (buffering || throughputBps == 0.0) {
+                // Input is only unthrottled while filling, so those samples reflect the link.
+                throughputBps = if (throughputBps == 0.0) sample else throughputBps * 0.7 + sample * 0.3
+            } else if (sample > throughputBps) {
+                // While steady, reads are paced by the content: only a lower bound.
+                throughputBps = sample
+            }
+        }
+        if (lastReadBytes < 0 || nowMs - lastSampleMs >= 1_000) {
+            lastReadBytes = readBytes
+            lastSampleMs = nowMs
+        }
+    }
+}
+
+/**
+ * Chooses `:network-caching` per host from observed stalls and throughput, so good links start
+ * quickly and bad links stop stalling. State is process-wide and applies to the next Media
+ * opened for the same host, including player rebuilds.
+ */
+object AdaptiveCachingController {
+    private const val TAG = "AdaptiveCaching"
+
+    private class HostState(var cachingMs: Int, var throughputBps: Double)
+
+    private val hosts = ConcurrentHashMap<String, HostState>()
+
+    @JvmStatic
+    fun cachingFor(host: String, bounds: CachingBounds): Int {
+        return bounds.clamp(hosts[host]?.cachingMs ?: bounds.initialMs)
+    }
+
+    @JvmStatic
+    fun newSession(host: String, bounds: CachingBounds): CachingSession {
+        return CachingSession(host, bounds, cachingFor(host, bounds))
+    }
+
+    /**
+     * Fold [session] into the host state and return the current estimate and decision.
+     * The caching value changed if [CachingDecision.previousMs] differs from [CachingDecision.cachingMs].
+     */
+    @JvmStatic
+    fun decide(session: CachingSession): CachingDecision {
+        val bounds = session.bounds
+        val state = hosts.getOrPut(session.host) { HostState(session.cachingMs, 0.0) }
+        if (session.throughputBps > 0) {
+            state.throughputBps = session.throughputBps
+        }
+        val previous = state.cachingMs
+        val ratio = if (session.contentBps > 0) state.throughputBps / session.contentBps else 0.0
+
+        val newStalls = session.stalls - session.decidedStalls
+        val newStallTimeMs = session.stallTimeMs - session.decidedStallTimeMs
+        session.decidedStalls = session.stalls
+        session.decidedStallTimeMs = session.stallTimeMs
+
+        val (target, reason) = when {
+            newStalls > 0 -> {
+                val avgStall = newStallTimeMs / newStalls
+                (previous * 1.5 + avgStall).roundToInt() to "stalls"
+            }
+            session.stalls > 0 -> previous to "steady"
+            ratio >= 2.0 -> (previous * 0.75).roundToInt() to "headroom"
+            ratio in 0.01..1.2 -> (previous * 1.25).roundToInt() to "low-throughput"
+            else -> previous to "steady"
+        }
+        val next = bounds.clamp(target)
+        if (next != previous) {
+            state.cachingMs = next
+            Log.d(TAG, "${session.host}: $previous -> $next ms ($reason, ratio=${"%.2f".format(ratio)})")
+        }
+        return CachingDecision(
+            host = session.host,
+            previousMs = previous,
+            cachingMs = next,
+            throughputKbps = (state.throughputBps / 1000).roundToInt(),
+            contentKbps = (session.contentBps / 1000).roundToInt(),
+            stalls = session.stalls,
+            reason = reason
+        )
+    }
+}
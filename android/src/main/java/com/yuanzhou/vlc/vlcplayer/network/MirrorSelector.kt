@@ -0,0 +1,141 @@
+package com.yuanzhou.vlc.vlcplayer.network
+
+import android.net.Uri
+import android.os.SystemClock
+import android.util.Log
+import java.net.HttpURLConnection
+import java.net.URL
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+
+fun interface MirrorRaceCallback {
+    /**
+     * Called once on a race thread with the first mirror that delivered data, or null
+     * if none did within the timeout.
+     */
+    fun onRaceFinished(winner: String?, latencyMs: Long)
+}
+
+/**
+ * Picks among the mirror URIs of a source. Hosts are ranked by a moving average of their
+ * time to first byte, with a penalty for recent failures; [race] opens the best few at once
+ * and keeps whichever delivers data first. Statistics are process-wide and shared by all
+ * players, like [AdaptiveCachingController].
+ */
+object MirrorSelector {
+    private const val TAG = "MirrorSelector"
+    const val RACE_WIDTH = 3
+    private const val RACE_TIMEOUT_MS = 8_000
+    private const val UNKNOWN_HOST_MS = 800.0
+    private const val FAILURE_PENALTY_MS = 3_000.0
+    private const val EWMA_WEIGHT = 0.3
+
+    private class HostStats(var latencyMs: Double, var failures: Int)
+
+    /** Cancels a race; results arriving afterwards are dropped. */
+    class Race internal constructor() {
+        internal val done = AtomicBoolean(false)
+        internal val connections = ConcurrentHashMap.newKeySet<HttpURLConnection>()
+
+        fun cancel() {
+            done.set(true)
+            for (c in connections) c.disconnect()
+        }
+    }
+
+    private val hosts = ConcurrentHashMap<String, HostStats>()
+    private val executor: ExecutorService = Executors.newCachedThreadPool { r ->
+        Thread(r, "VlcMirrorRace").apply { isDaemon = true }
+    }
+
+    /**
+     * [uris] reordered by expected latency. Unmeasured hosts keep their given order relative
+     * to each other and rank ahead of measured hosts slower than [UNKNOWN_HOST_MS].
+     */
+    @JvmStatic
+    fun rank(uris: List<String>): List<String> {
+        return uris.withIndex()
+            .sortedWith(compareBy({ expectedMs(it.value) }, { it.index }))
+            .map { it.value }
+    }
+
+    @JvmStatic
+    fun recordLatency(uri: String, latencyMs: Long) {
+        val host = hostOf(uri) ?: return
+        val stats = hosts.getOrPut(host) { HostStats(latencyMs.toDouble(), 0) }
+        synchronized(stats) {
+            stats.latencyMs = stats.latencyMs * (1 - EWMA_WEIGHT) + latencyMs * EWMA_WEIGHT
+            stats.failures = 0
+        }
+    }
+
+    @JvmStatic
+    fun recordFailure(uri: String) {
+        val host = hostOf(uri) ?: return
+        val stats = hosts.getOrPut(host) { HostStats(UNKNOWN_HOST_MS, 0) }
+        synchronized(stats) { stats.failures++ }
+        Log.d(TAG, "$host failed (${stats.failures} in a row)")
+    }
+
+    /**
+     * True if [uri] can be raced with an HTTP request; other schemes are taken in rank order.
+     */
+    @JvmStatic
+    fun isRaceable(uri: String): Boolean = uri.startsWith("http://") || uri.startsWith("https://")
+
+    /**
+     * Request the first bytes of each candidate in parallel and report the first to answer.
+     */
+    @JvmStatic
+    fun race(candidates: List<String>, callback: MirrorRaceCallback): Race {
+        val race = Race()
+        val remaining = AtomicInteger(candidates.size)
+        for (uri in candidates) {
+            executor.execute {
+                val started = SystemClock.elapsedRealtime()
+                val ok = probe(uri, race)
+                val latency = SystemClock.elapsedRealtime() - started
+                if (ok) recordLatency(uri, latency) else if (!race.done.get()) recordFailure(uri)
+                if (ok && race.done.compareAndSet(false, true)) {
+                    Log.d(TAG, "race won by ${hostOf(uri)} in $latency ms")
+                    race.cancel()
+                    callback.onRaceFinished(uri, latency)
+                } else if (remaining.decrementAndGet() == 0 && race.done.compareAndSet(false, true)) {
+                    callback.onRaceFinished(null, latency)
+                }
+            }
+        }
+        return race
+    }
+
+    private fun probe(uri: String, race: Race): Boolean {
+        var connection: HttpURLConnection? = null
+        return try {
+            connection = (URL(uri).openConnection() as HttpURLConnection).apply {
+                connectTimeout = RACE_TIMEOUT_MS
+                readTimeout = RACE_TIMEOUT_MS
+                setRequestProperty("Range", "bytes=0-1023")
+            }
+            race.connections.add(connection)
+            if (race.done.get()) return false
+            connection.responseCode in 200..299 && connection.inputStream.read() >= 0
+        } catch (e: Exception) {
+            false
+        } finally {
+            connection?.let {
+                race.connections.remove(it)
+                it.disconnect()
+            }
+        }
+    }
+
+    private fun expectedMs(uri: String): Double {
+        val stats = hostOf(uri)?.let { hosts[it] } ?: return UNKNOWN_HOST_MS
+        return synchronized(stats) { stats.latencyMs + stats.failures * FAILURE_PENALTY_MS }
+    }
+
+    private fun hostOf(uri: String): String? = Uri.parse(uri).host?.lowercase()
+}
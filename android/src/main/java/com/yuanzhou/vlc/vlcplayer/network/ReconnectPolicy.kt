@@ -0,0 +1,59 @@
+package com.yuanzhou.vlc.vlcplayer.network
+
+import kotlin.math.pow
+import kotlin.random.Random
+
+/**
+ * Retry schedule for reopening a media after a playback error: exponential backoff from
+ * [initialDelayMs] up to [maxDelayMs], with ±20% jitter so players sharing a failed host
+ * do not retry in lockstep.
+ */
+data class ReconnectPolicy(
+    val maxRetries: Int = 3,
+    val initialDelayMs: Long = 500,
+    val maxDelayMs: Long = 8_000,
+    val multiplier: Double = 2.0
+) {
+    /**
+     * Delay before retry number [attempt] (1-based), or -1 once retries are exhausted.
+     */
+    fun delayFor(attempt: Int): Long {
+        if (attempt > maxRetries) return -1
+        val base = (initialDelayMs * multiplier.pow(attempt - 1)).coerceAtMost(maxDelayMs.toDouble())
+        return (base * Random.nextDouble(0.8, 1.2)).toLong().coerceAtLeast(0)
+    }
+}
+
+/**
+ * Player state captured at the first error of a recovery, restored once the media plays again.
+ * [live] sources are reopened without a position so they rejoin at the live edge.
+ */
+data class PlaybackSnapshot(
+    val positionMs: Long,
+    val live: Boolean,
+    val audioTrackId: String?,
+    val textTrackId: String?,
+    val rate: Float,
+    val paused: Boolean
+)
+
+/**
+ * One recovery: from the first error until playback progresses again or retries run out.
+ */
+class ReconnectSession(
+    private val policy: ReconnectPolicy,
+    val snapshot: PlaybackSnapshot,
+    val startedAtMs: Long
+) {
+    var attempts: Int = 0
+        private set
+
+    /**
+     * Count a new attempt and return its delay, or -1 when the policy gives up.
+     */
+    fun nextDelayMs(): Long {
+        val delay = policy.delayFor(attempts + 1)
+        if (delay >= 0) attempts++
+        return delay
+    }
+}
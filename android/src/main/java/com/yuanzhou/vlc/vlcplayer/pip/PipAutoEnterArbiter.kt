@@ -0,0 +1,77 @@
+package com.yuanzhou.vlc.vlcplayer.pip
+
+import android.os.Handler
+import android.os.Looper
+import android.util.Log
+
+/**
+ * Decides which player view sets the host activity's PictureInPictureParams, which are
+ * shared by every view in it. One view owns them at a time. An armed owner keeps them until
+ * it disarms or goes away; an unarmed one gives way to the first view that wants to arm.
+ * Views turned away are asked to update again when the params become free.
+ */
+object PipAutoEnterArbiter {
+    private const val TAG = "PipAutoEnterArbiter"
+    private const val NO_OWNER = -1
+
+    private val handler = Handler(Looper.getMainLooper())
+    private var ownerId = NO_OWNER
+    private var ownerArmed = false
+    private var appliedKey: String? = null
+    private val waiting = LinkedHashMap<Int, Runnable>()
+
+    /**
+     * True if view [id] should set params described by [key] now: it may own them and they
+     * differ from the last ones set. A view wanting to [arm] that is turned away gets [retry]
+     * posted once the params are free.
+     */
+    @JvmStatic
+    @Synchronized
+    fun claim(id: Int, arm: Boolean, key: String, retry: Runnable): Boolean {
+        if (ownerId != NO_OWNER && ownerId != id && (ownerArmed || !arm)) {
+            if (arm) waiting[id] = retry
+            return false
+        }
+        waiting.remove(id)
+        if (ownerId != id) {
+            Log.d(TAG, "view $id takes over PiP params from $ownerId")
+            ownerId = id
+            appliedKey = null
+        }
+        return key != appliedKey
+    }
+
+    @JvmStatic
+    @Synchronized
+    fun isOwner(id: Int): Boolean = ownerId == id
+
+    /** Record that [id] set params described by [key], armed or not. */
+    @JvmStatic
+    @Synchronized
+    fun applied(id: Int, key: String, armed: Boolean) {
+        if (ownerId != id) return
+        appliedKey = key
+        ownerArmed = armed
+        if (!armed) wakeWaiting()
+    }
+
+    /** View [id] no longer sets params, e.g. after disarming on detach. */
+    @JvmStatic
+    @Synchronized
+    fun release(id: Int) {
+        waiting.remove(id)
+        if (ownerId != id) return
+        ownerId = NO_OWNER
+        ownerArmed = false
+        appliedKey = null
+        wakeWaiting()
+    }
+
+    private fun wakeWaiting() {
+        if (waiting.isEmpty()) return
+        val retries = ArrayList(waiting.values)
+        waiting.clear()
+        // Posted: the first to claim wins, and callers never re-enter here.
+        for (retry in retries) handler.post(retry)
+    }
+}
@@ -0,0 +1,94 @@
+package com.yuanzhou.vlc.vlcplayer.pip
+
+import android.os.SystemClock
+import android.util.Log
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Milestones of one PiP entry, in `SystemClock.elapsedRealtime()` ms; 0 if not reached.
+ *
+ * [activityCreatedAtMs] is when the activity showing the player was in PiP: PipHostActivity
+ * created for [PipEntryTimeline.PATH_ACTIVITY], the host activity reporting PiP mode otherwise.
+ * [surfaceAttachedAtMs] is when video was attached or sized to the PiP window.
+ */
+class PipEntryTiming(val path: String, val requestedAtMs: Long) {
+    var activityCreatedAtMs = 0L
+        internal set
+    var surfaceAttachedAtMs = 0L
+        internal set
+    var firstFrameAtMs = 0L
+        internal set
+
+    val totalMs: Long
+        get() = if (firstFrameAtMs > 0) firstFrameAtMs - requestedAtMs else 0L
+}
+
+/**
+ * Records how long PiP entry takes, per player view, from the request to the first frame
+ * drawn in the PiP window.
+ */
+object PipEntryTimeline {
+    private const val TAG = "PipEntryTimeline"
+
+    /** PiP entered automatically through `setAutoEnterEnabled` (Android 12+). */
+    const val PATH_AUTO = "auto"
+
+    /** The host activity entered PiP on request. */
+    const val PATH_HOST = "host"
+
+    /** PipHostActivity was launched to show the player. */
+    const val PATH_ACTIVITY = "activity"
+
+    /** Entries not completed within this time are replaced by the next request. */
+    private const val STALE_MS = 10_000L
+
+    private val entries = ConcurrentHashMap<Int, PipEntryTiming>()
+
+    @JvmStatic
+    fun markRequested(playerId: Int, path: String) {
+        entries[playerId] = PipEntryTiming(path, SystemClock.elapsedRealtime())
+    }
+
+    /**
+     * Start an entry unless one is in progress, for signals that may follow an explicit
+     * request (e.g. the host pausing while PiP is auto-entered).
+     */
+    @JvmStatic
+    fun markRequestedIfAbsent(playerId: Int, path: String) {
+        val now = SystemClock.elapsedRealtime()
+        val current = entries[playerId]
+        if (current != null && now - current.requestedAtMs < STALE_MS) return
+        entries[playerId] = PipEntryTiming(path, now)
+    }
+
+    @JvmStatic
+    fun markActivityCreated(playerId: Int) {
+        val entry = entries[playerId] ?: return
+        if (entry.activityCreatedAtMs == 0L) entry.activityCreatedAtMs = SystemClock.elapsedRealtime()
+    }
+
+    @JvmStatic
+    fun markSurfaceAttached(playerId: Int) {
+        val entry = entries[playerId] ?: return
+        if (entry.surfaceAttachedAtMs == 0L) entry.surfaceAttachedAtMs = SystemClock.elapsedRealtime()
+    }
+
+    /**
+     * Complete the entry of [playerId] with a frame drawn in PiP.
+     * @return the completed timing, or null if no entry had its surface attached yet
+     */
+    @JvmStatic
+    fun markFirstFrame(playerId: Int): PipEntryTiming? {
+        val entry = entries[playerId] ?: return null
+        if (entry.surfaceAttachedAtMs == 0L || !entries.remove(playerId, entry)) return null
+        entry.firstFrameAtMs = SystemClock.elapsedRealtime()
+        if (entry.activityCreatedAtMs == 0L) entry.activityCreatedAtMs = entry.surfaceAttachedAtMs
+        Log.d(TAG, "view $playerId entered PiP (${entry.path}) in ${entry.totalMs} ms")
+        return entry
+    }
+
+    @JvmStatic
+    fun cancel(playerId: Int) {
+        entries.remove(playerId)
+    }
+}
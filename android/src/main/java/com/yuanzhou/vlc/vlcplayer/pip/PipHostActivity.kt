@@ -31,15 +31,19 @@ class PipHostActivity : AppCompatActivity() {
         const val EXTRA_IS_IN_PIP = "isInPip"
         const val EXTRA_WIDTH = "width"
         const val EXTRA_HEIGHT = "height"
+        const val EXTRA_PLAYER_ID = "playerId"
         
         // Timestamp of last launch to debounce rapid entry attempts
         @Volatile
         private var lastLaunchTime: Long = 0
         private const val LAUNCH_DEBOUNCE_MS = 500L
 
-        fun launch(context: Context) {
-            if (!VlcPlayerBridge.hasActivePlayer()) {
-                Log.w(TAG, "launch: No active player registered, cannot enter PiP")
+        /**
+         * Show [playerId] (the primary player by default) in PiP.
+         */
+        fun launch(context: Context, playerId: Int = VlcPlayerBridge.getPrimaryId()) {
+            if (!VlcPlayerBridge.hasPlayer(playerId)) {
+                Log.w(TAG, "launch: No player registered for view $playerId, cannot enter PiP")
                 return
             }
 
@@ -56,6 +60,7 @@ class PipHostActivity : AppCompatActivity() {
                 return
             }
             lastLaunchTime = now
+            PipEntryTimeline.markRequested(playerId, PipEntryTimeline.PATH_ACTIVITY)
 
             val intent = Intent(context, PipHostActivity::class.java).apply {
                 // Use CLEAR_TOP + SINGLE_TOP to ensure only one instance exists
@@ -65,6 +70,7 @@ class PipHostActivity : AppCompatActivity() {
                         Intent.FLAG_ACTIVITY_CLEAR_TOP or
                         Intent.FLAG_ACTIVITY_SINGLE_TOP or
                         Intent.FLAG_ACTIVITY_NO_ANIMATION
+                putExtra(EXTRA_PLAYER_ID, playerId)
             }
             context.startActivity(intent)
         }
@@ -76,6 +82,7 @@ class PipHostActivity : AppCompatActivity() {
     private var lastWidth = 0
     private var lastHeight = 0
     private var surfaceReady = false
+    private var playerId = VlcPlayerBridge.NO_PLAYER
     
     private val serviceConnection = object : ServiceConnection {
         override fun onServiceConnected(name: ComponentName, binder: IBinder) {
@@ -102,8 +109,9 @@ class PipHostActivity : AppCompatActivity() {
         super.onCreate(savedInstanceState)
         Log.d(TAG, "onCreate, isPipV2Active=${VlcPlayerBridge.isPipV2Active()}")
 
-        if (!VlcPlayerBridge.hasActivePlayer()) {
-            Log.e(TAG, "onCreate: No active player, finishing")
+        playerId = intent.getIntExtra(EXTRA_PLAYER_ID, VlcPlayerBridge.getPrimaryId())
+        if (!VlcPlayerBridge.hasPlayer(playerId)) {
+            Log.e(TAG, "onCreate: No player for view $playerId, finishing")
             finish()
             return
         }
@@ -116,6 +124,7 @@ class PipHostActivity : AppCompatActivity() {
         }
 
         VlcPlayerBridge.setPipV2Active(true)
+        PipEntryTimeline.markActivityCreated(playerId)
         
         container = FrameLayout(this).apply {
             setBackgroundColor(0xFF000000.toInt())
@@ -138,7 +147,7 @@ class PipHostActivity : AppCompatActivity() {
                 lastWidth = width
                 lastHeight = height
                 if (surfaceReady) {
-                    VlcPlayerBridge.setWindowSize(width, height)
+                    VlcPlayerBridge.setWindowSize(playerId, width, height)
                 }
             }
         }
@@ -147,22 +156,24 @@ class PipHostActivity : AppCompatActivity() {
             override fun surfaceCreated(holder: SurfaceHolder) {
                 Log.d(TAG, "surfaceCreated")
                 surfaceReady = true
-                val attached = VlcPlayerBridge.attachPipSurface(holder, videoLayoutListener)
+                // Sized up front so the player opens its output once, at this size.
+                val frame = holder.surfaceFrame
+                val width = if (lastWidth > 0) lastWidth else frame.width()
+                val height = if (lastHeight > 0) lastHeight else frame.height()
+                val attached = VlcPlayerBridge.attachPipSurface(playerId, holder, width, height, videoLayoutListener)
                 Log.d(TAG, "Surface attached to bridge: $attached")
-                
-                if (lastWidth > 0 && lastHeight > 0) {
-                    VlcPlayerBridge.setWindowSize(lastWidth, lastHeight)
-                }
             }
             
             override fun surfaceChanged(holder: SurfaceHolder, format: Int, width: Int, height: Int) {
                 Log.d(TAG, "surfaceChanged: ${width}x${height}")
-                VlcPlayerBridge.setWindowSize(width, height)
+                VlcPlayerBridge.setWindowSize(playerId, width, height)
             }
             
             override fun surfaceDestroyed(holder: SurfaceHolder) {
                 Log.d(TAG, "surfaceDestroyed")
                 surfaceReady = false
+                // Hand video back before the surface it renders to is gone.
+                VlcPlayerBridge.detachPipSurface(playerId)
             }
         })
         
@@ -179,7 +190,7 @@ class PipHostActivity : AppCompatActivity() {
     
     override fun onUserLeaveHint() {
         super.onUserLeaveHint()
-        if (VlcPlayerBridge.isPlaying() && canEnterPip()) {
+        if (VlcPlayerBridge.isPlaying(playerId) && canEnterPip()) {
             if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
                 enterPipMode()
             }
@@ -201,6 +212,9 @@ class PipHostActivity : AppCompatActivity() {
         sendPipBroadcast(isInPipMode, width, height)
         
         if (!isInPipMode && !isFinishing) {
+            // Switch back while the PiP surface is still valid, so the view can take over
+            // without the player rendering into a destroyed surface.
+            VlcPlayerBridge.detachPipSurface(playerId)
             bringMainAppToFront()
             finish()
         }
@@ -234,7 +248,7 @@ class PipHostActivity : AppCompatActivity() {
     
     @RequiresApi(Build.VERSION_CODES.O)
     private fun buildPipParams(): PictureInPictureParams {
-        val (videoWidth, videoHeight) = VlcPlayerBridge.getVideoSize()
+        val (videoWidth, videoHeight) = VlcPlayerBridge.getVideoSize(playerId)
         val aspectRatio = if (videoWidth > 0 && videoHeight > 0) {
             Rational(videoWidth, videoHeight)
         } else {
@@ -244,8 +258,9 @@ class PipHostActivity : AppCompatActivity() {
         return PipParamsBuilder.build(
             context = this,
             aspectRatio = aspectRatio,
-            isPlaying = VlcPlayerBridge.isPlaying(),
-            sourceRect = getSourceRect()
+            isPlaying = VlcPlayerBridge.isPlaying(playerId),
+            sourceRect = getSourceRect(),
+            playerId = playerId
         )
     }
     
@@ -271,6 +286,7 @@ class PipHostActivity : AppCompatActivity() {
             putExtra(EXTRA_IS_IN_PIP, isInPip)
             putExtra(EXTRA_WIDTH, width)
             putExtra(EXTRA_HEIGHT, height)
+            putExtra(EXTRA_PLAYER_ID, playerId)
         }
         LocalBroadcastManager.getInstance(this).sendBroadcast(intent)
     }
@@ -278,7 +294,7 @@ class PipHostActivity : AppCompatActivity() {
     override fun onDestroy() {
         Log.d(TAG, "onDestroy")
         VlcPlayerBridge.setPipV2Active(false)
-        VlcPlayerBridge.detachPipSurface()
+        VlcPlayerBridge.detachPipSurface(playerId)
         try {
             unbindService(serviceConnection)
         } catch (e: Exception) {
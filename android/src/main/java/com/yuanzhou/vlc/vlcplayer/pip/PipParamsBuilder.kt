@@ -12,12 +12,20 @@ import com.yuanzhou.vlc.vlcplayer.service.PipActionReceiver
 
 object PipParamsBuilder {
     
+    /**
+     * @param autoEnter enter PiP when the user leaves the app (Android 12+)
+     * @param withActions add play/pause and seek actions; they reach [playerId] through
+     * VlcPlayerBridge, so views not registered there should not add them
+     */
     @RequiresApi(Build.VERSION_CODES.O)
     fun build(
         context: Context,
         aspectRatio: Rational?,
         isPlaying: Boolean,
-        sourceRect: Rect?
+        sourceRect: Rect?,
+        playerId: Int = PipActionReceiver.NO_PLAYER,
+        autoEnter: Boolean = false,
+        withActions: Boolean = true
     ): PictureInPictureParams {
         
         val builder = PictureInPictureParams.Builder()
@@ -28,18 +36,20 @@ object PipParamsBuilder {
         
         sourceRect?.let { builder.setSourceRectHint(it) }
         
-        val actions = buildActions(context, isPlaying)
-        builder.setActions(actions)
+        if (withActions) {
+            builder.setActions(buildActions(context, isPlaying, playerId))
+        }
         
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
             builder.setSeamlessResizeEnabled(false)
+            builder.setAutoEnterEnabled(autoEnter)
         }
         
         return builder.build()
     }
     
     @RequiresApi(Build.VERSION_CODES.O)
-    private fun buildActions(context: Context, isPlaying: Boolean): List<RemoteAction> {
+    private fun buildActions(context: Context, isPlaying: Boolean, playerId: Int): List<RemoteAction> {
         val actions = mutableListOf<RemoteAction>()
         
         val rewindIcon = Icon.createWithResource(context, android.R.drawable.ic_media_rew)
@@ -47,7 +57,7 @@ object PipParamsBuilder {
             rewindIcon,
             "Rewind",
             "Rewind 10 seconds",
-            PipActionReceiver.createRewindIntent(context)
+            PipActionReceiver.createRewindIntent(context, playerId)
         ))
         
         if (isPlaying) {
@@ -56,7 +66,7 @@ object PipParamsBuilder {
                 pauseIcon,
                 "Pause",
                 "Pause playback",
-                PipActionReceiver.createPauseIntent(context)
+                PipActionReceiver.createPauseIntent(context, playerId)
             ))
         } else {
             val playIcon = Icon.createWithResource(context, android.R.drawable.ic_media_play)
@@ -64,7 +74,7 @@ object PipParamsBuilder {
                 playIcon,
                 "Play",
                 "Resume playback",
-                PipActionReceiver.createPlayIntent(context)
+                PipActionReceiver.createPlayIntent(context, playerId)
             ))
         }
         
@@ -73,7 +83,7 @@ object PipParamsBuilder {
             forwardIcon,
             "Forward",
             "Forward 10 seconds",
-            PipActionReceiver.createForwardIntent(context)
+            PipActionReceiver.createForwardIntent(context, playerId)
         ))
         
         return actions
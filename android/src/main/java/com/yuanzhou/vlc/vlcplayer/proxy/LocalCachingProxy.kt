@@ -0,0 +1,469 @@
+package com.yuanzhou.vlc.vlcplayer.proxy
+
+import android.content.Context
+import android.util.Log
+import java.io.File
+import java.io.IOException
+import java.io.InputStream
+import java.io.OutputStream
+import java.io.RandomAccessFile
+import java.net.HttpURLConnection
+import java.net.InetAddress
+import java.net.InetSocketAddress
+import java.net.URL
+import java.nio.ByteBuffer
+import java.nio.channels.Channels
+import java.nio.channels.ServerSocketChannel
+import java.nio.channels.SocketChannel
+import java.security.MessageDigest
+import java.util.Base64
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Hit counters of [LocalCachingProxy]. Bytes saved are the bytes served from disk.
+ */
+data class ProxyStats(
+    val bytesFromCache: Long,
+    val bytesFromNetwork: Long,
+    val cachedBytes: Long,
+    val maxBytes: Long
+) {
+    val hitRatio: Double
+        get() {
+            val total = bytesFromCache + bytesFromNetwork
+            return if (total > 0) bytesFromCache.toDouble() / total else 0.0
+        }
+}
+
+/**
+ * In-process HTTP proxy on the loopback interface that caches what the player downloads.
+ *
+ * [proxyUrl] maps `https://cdn.example/a/b.m3u8?x` to `http://127.0.0.1:<port>/<origin token>/a/b.m3u8?x`,
+ * keeping the path so relative segment URLs in HLS playlists resolve through the proxy too;
+ * absolute and root-relative URLs in playlists are rewritten. Playlists and manifests are
+ * always fetched from the origin. Everything else with a known length is served in
+ * [ProxyCacheStore] blocks: hits go from the block file to the socket with
+ * `FileChannel.transferTo`, misses are streamed to the player while being stored.
+ * Responses without a length (live streams) are passed through uncached, from the requested
+ * offset.
+ */
+class LocalCachingProxy(cacheDir: File, maxBytes: Long) {
+
+    companion object {
+        private const val TAG = "LocalCachingProxy"
+        const val DEFAULT_MAX_BYTES = 256L * 1024 * 1024
+        private const val TIMEOUT_MS = 15_000
+        private val FORWARDED_HEADERS = setOf("user-agent", "referer", "cookie", "authorization")
+        private val BLOCK = ProxyCacheStore.BLOCK_BYTES.toLong()
+
+        @Volatile
+        private var instance: LocalCachingProxy? = null
+
+        @JvmStatic
+        fun getInstance(context: Context): LocalCachingProxy {
+            return instance ?: synchronized(this) {
+                instance ?: LocalCachingProxy(File(context.cacheDir, "vlc_proxy"), DEFAULT_MAX_BYTES)
+                    .also { instance = it }
+            }
+        }
+    }
+
+    private class Request(val method: String, val target: String, val headers: Map<String, String>)
+
+    private class Upstream(val connection: HttpURLConnection, val input: InputStream, var position: Long) {
+        fun close() {
+            try {
+                input.close()
+            } catch (e: IOException) {
+            }
+            connection.disconnect()
+        }
+    }
+
+    val store = ProxyCacheStore(cacheDir, maxBytes)
+
+    private val bytesFromCache = AtomicLong()
+    private val bytesFromNetwork = AtomicLong()
+    private val workers: ExecutorService = Executors.newCachedThreadPool { r ->
+        Thread(r, "VlcCachingProxy").apply { isDaemon = true }
+    }
+    private var server: ServerSocketChannel? = null
+
+    @Volatile
+    var port: Int = -1
+        private set
+
+    /**
+     * Bind the loopback socket if not done yet.
+     * @return false if the proxy cannot run; callers should then use the original URL
+     */
+    @Synchronized
+    fun start(): Boolean {
+        if (server != null) return true
+        return try {
+            val channel = ServerSocketChannel.open()
+            channel.socket().bind(InetSocketAddress(InetAddress.getByName("127.0.0.1"), 0))
+            server = channel
+            port = channel.socket().localPort
+            workers.execute { acceptLoop(channel) }
+            Log.d(TAG, "listening on 127.0.0.1:$port")
+            true
+        } catch (e: IOException) {
+            Log.w(TAG, "start failed: ${e.message}")
+            false
+        }
+    }
+
+    /**
+     * @return [url] routed through the proxy, or [url] itself if it is not http(s) or the
+     * proxy is not running
+     */
+    fun proxyUrl(url: String): String {
+        if (port < 0) return url
+        val parsed = try {
+            URL(url)
+        } catch (e: Exception) {
+            return url
+        }
+        if (parsed.protocol != "http" && parsed.protocol != "https") return url
+        val origin = "${parsed.protocol}://${parsed.authority}"
+        val token = Base64.getUrlEncoder().withoutPadding().encodeToString(origin.toByteArray())
+        val file = parsed.file.ifEmpty { "/" }
+        return "http://127.0.0.1:$port/$token$file"
+    }
+
+    fun stats(): ProxyStats = ProxyStats(bytesFromCache.get(), bytesFromNetwork.get(), store.sizeBytes, store.maxBytes)
+
+    fun clear() {
+        store.clear()
+        bytesFromCache.set(0)
+        bytesFromNetwork.set(0)
+    }
+
+    private fun acceptLoop(channel: ServerSocketChannel) {
+        while (channel.isOpen) {
+            val client = try {
+                channel.accept()
+            } catch (e: IOException) {
+                Log.w(TAG, "accept failed: ${e.message}")
+                break
+            }
+            workers.execute { handle(client) }
+        }
+    }
+
+    private fun handle(client: SocketChannel) {
+        try {
+            client.socket().soTimeout = TIMEOUT_MS
+            val request = readRequest(client.socket().getInputStream()) ?: return
+            val out = Channels.newOutputStream(client)
+            val origin = originUrl(request.target)
+            if (origin == null || request.method != "GET") {
+                writeHead(out, if (origin == null) "400 Bad Request" else "501 Not Implemented", mapOf("Content-Length" to "0"))
+                return
+            }
+            serve(client, out, origin, request)
+        } catch (e: IOException) {
+            // Players drop connections on every seek; not worth more than a debug line.
+            Log.d(TAG, "connection closed: ${e.message}")
+        } catch (e: Exception) {
+            Log.w(TAG, "request failed: ${e.message}")
+        } finally {
+            try {
+                client.close()
+            } catch (e: IOException) {
+            }
+        }
+    }
+
+    private fun serve(client: SocketChannel, out: OutputStream, origin: String, request: Request) {
+        val key = keyFor(origin)
+        val range = parseRange(request.headers["range"])
+        var upstream: Upstream? = null
+        var meta = store.meta(key)
+        try {
+            if (meta == null) {
+                val opened = openUpstream(origin, range?.first?.let { it / BLOCK * BLOCK } ?: 0L, request) ?: run {
+                    writeHead(out, "502 Bad Gateway", mapOf("Content-Length" to "0"))
+                    return
+                }
+                upstream = opened.first
+                val contentType = upstream.connection.contentType ?: "application/octet-stream"
+                if (isPlaylist(origin, contentType)) {
+                    relayPlaylist(out, upstream, origin, contentType)
+                    return
+                }
+                if (opened.second < 0) {
+                    relayUncached(out, upstream, contentType, range)
+                    return
+                }
+                meta = ResourceMeta(opened.second, contentType)
+                store.putMeta(key, meta)
+            }
+
+            val length = meta.length
+            val start = range?.first ?: 0L
+            val end = minOf(range?.second ?: (length - 1), length - 1)
+            if (start >= length || start > end) {
+                writeHead(out, "416 Range Not Satisfiable", mapOf("Content-Range" to "bytes */$length", "Content-Length" to "0"))
+                return
+            }
+            val headers = linkedMapOf(
+                "Content-Type" to meta.contentType,
+                "Accept-Ranges" to "bytes",
+                "Content-Length" to (end - start + 1).toString()
+            )
+            if (range != null) headers["Content-Range"] = "bytes $start-$end/$length"
+            writeHead(out, if (range != null) "206 Partial Content" else "200 OK", headers)
+
+            var pos = start
+            var buffer: ByteArray? = null
+            while (pos <= end) {
+                val index = pos / BLOCK
+                val blockStart = index * BLOCK
+                val blockLength = minOf(BLOCK, length - blockStart).toInt()
+                val sendUntil = minOf(end + 1, blockStart + blockLength)
+                val cached = store.block(key, index)
+                if (cached != null && sendFromBlock(client, cached, pos - blockStart, sendUntil - pos)) {
+                    bytesFromCache.addAndGet(sendUntil - pos)
+                    pos = sendUntil
+                    continue
+                }
+                if (upstream == null || upstream.position != blockStart) {
+                    upstream?.close()
+                    upstream = openUpstream(origin, blockStart, request)?.first ?: throw IOException("upstream unavailable")
+                }
+                val buf = buffer ?: ByteArray(ProxyCacheStore.BLOCK_BYTES).also { buffer = it }
+                pos = fetchBlock(upstream, buf, blockLength, blockStart, pos, sendUntil, out)
+                store.putBlock(key, index, buf, blockLength)
+            }
+            out.flush()
+        } finally {
+            upstream?.close()
+        }
+    }
+
+    /**
+     * Read one whole block from [upstream] into [buf], forwarding bytes in `[pos, sendUntil)`
+     * to the player as they arrive.
+     * @return the new send position
+     */
+    private fun fetchBlock(
+        upstream: Upstream, buf: ByteArray, blockLength: Int, blockStart: Long,
+        pos: Long, sendUntil: Long, out: OutputStream
+    ): Long {
+        var filled = 0
+        var sent = pos
+        while (filled < blockLength) {
+            val n = upstream.input.read(buf, filled, blockLength - filled)
+            if (n < 0) throw IOException("upstream ended at ${blockStart + filled}")
+            filled += n
+            upstream.position += n
+            bytesFromNetwork.addAndGet(n.toLong())
+            val available = minOf(blockStart + filled, sendUntil)
+            if (available > sent) {
+                out.write(buf, (sent - blockStart).toInt(), (available - sent).toInt())
+                sent = available
+            }
+        }
+        return sent
+    }
+
+    private fun sendFromBlock(client: SocketChannel, file: File, offset: Long, count: Long): Boolean {
+        return try {
+            RandomAccessFile(file, "r").use { raf ->
+                val channel = raf.channel
+                var done = 0L
+                while (done < count) {
+                    val n = channel.transferTo(offset + done, count - done, client)
+                    if (n <= 0) break
+                    done += n
+                }
+                done == count
+            }
+        } catch (e: IOException) {
+            // The block may have been evicted between lookup and open.
+            if (!file.exists()) false else throw e
+        }
+    }
+
+    /**
+     * @return the connection positioned at [from] and the full resource length (-1 if unknown)
+     */
+    private fun openUpstream(origin: String, from: Long, request: Request): Pair<Upstream, Long>? {
+        val connection = (URL(origin).openConnection() as HttpURLConnection).apply {
+            connectTimeout = TIMEOUT_MS
+            readTimeout = TIMEOUT_MS
+            setRequestProperty("Accept-Encoding", "identity")
+            if (from > 0) setRequestProperty("Range", "bytes=$from-")
+            for ((name, value) in request.headers) {
+                if (name in FORWARDED_HEADERS) setRequestProperty(name, value)
+            }
+        }
+        val code = connection.responseCode
+        if (code != 200 && code != 206) {
+            Log.w(TAG, "upstream $code for $origin")
+            connection.disconnect()
+            return null
+        }
+        val input = connection.inputStream
+        val length: Long
+        if (code == 206) {
+            length = connection.getHeaderField("Content-Range")?.substringAfterLast('/')?.toLongOrNull() ?: -1L
+        } else {
+            length = connection.getHeaderField("Content-Length")?.toLongOrNull() ?: -1L
+            // Origin ignored the range: skip to the requested offset ourselves.
+            var skipped = 0L
+            while (skipped < from) {
+                val n = input.skip(from - skipped)
+                if (n <= 0) break
+                skipped += n
+            }
+        }
+        return Upstream(connection, input, from) to length
+    }
+
+    /**
+     * Pass a response of unknown length through. [upstream] was opened at the block boundary
+     * below the requested offset, so the bytes before it are skipped. A ranged reply needs the
+     * end of the upstream range; without one only a request from offset 0 can be served.
+     */
+    private fun relayUncached(out: OutputStream, upstream: Upstream, contentType: String, range: Pair<Long, Long?>?) {
+        val start = range?.first ?: 0L
+        val upstreamEnd = upstream.connection.getHeaderField("Content-Range")
+            ?.substringAfter('-', "")?.substringBefore('/')?.trim()?.toLongOrNull()
+        val end = upstreamEnd?.let { minOf(range?.second ?: it, it) }
+        if ((end == null && start > 0) || (end != null && start > end)) {
+            writeHead(out, "416 Range Not Satisfiable", mapOf("Content-Range" to "bytes */*", "Content-Length" to "0"))
+            return
+        }
+        val buf = ByteArray(64 * 1024)
+        while (upstream.position < start) {
+            val n = upstream.input.read(buf, 0, minOf(buf.size.toLong(), start - upstream.position).toInt())
+            if (n < 0) throw IOException("upstream ended at ${upstream.position}")
+            upstream.position += n
+            bytesFromNetwork.addAndGet(n.toLong())
+        }
+        var remaining = Long.MAX_VALUE
+        if (end != null) {
+            remaining = end - start + 1
+            writeHead(out, "206 Partial Content", mapOf(
+                "Content-Type" to contentType,
+                "Content-Range" to "bytes $start-$end/*",
+                "Content-Length" to remaining.toString()
+            ))
+        } else {
+            writeHead(out, "200 OK", mapOf("Content-Type" to contentType))
+        }
+        while (remaining > 0) {
+            val n = upstream.input.read(buf, 0, minOf(buf.size.toLong(), remaining).toInt())
+            if (n < 0) break
+            remaining -= n
+            bytesFromNetwork.addAndGet(n.toLong())
+            out.write(buf, 0, n)
+        }
+        out.flush()
+    }
+
+    private fun relayPlaylist(out: OutputStream, upstream: Upstream, origin: String, contentType: String) {
+        val raw = upstream.input.readBytes()
+        bytesFromNetwork.addAndGet(raw.size.toLong())
+        val body = rewritePlaylist(String(raw, Charsets.UTF_8), origin).toByteArray(Charsets.UTF_8)
+        writeHead(out, "200 OK", mapOf("Content-Type" to contentType, "Content-Length" to body.size.toString()))
+        out.write(body)
+        out.flush()
+    }
+
+    private fun rewritePlaylist(text: String, origin: String): String {
+        val root = URL(origin).let { "${it.protocol}://${it.authority}" }
+        if (text.trimStart().startsWith("<")) {
+            // DASH: only BaseURL elements carry absolute locations that must stay proxied.
+            return Regex("(<BaseURL[^>]*>)\\s*([^<]+?)\\s*(</BaseURL>)").replace(text) { m ->
+                m.groupValues[1] + rewriteUri(m.groupValues[2], root) + m.groupValues[3]
+            }
+        }
+        return text.lineSequence().joinToString("\n") { line ->
+            when {
+                line.isBlank() -> line
+                line.startsWith("#") -> Regex("URI=\"([^\"]+)\"").replace(line) { m ->
+                    "URI=\"${rewriteUri(m.groupValues[1], root)}\""
+                }
+                else -> rewriteUri(line.trim(), root)
+            }
+        }
+    }
+
+    private fun rewriteUri(uri: String, root: String): String = when {
+        uri.startsWith("http://") || uri.startsWith("https://") -> proxyUrl(uri)
+        uri.startsWith("/") && !uri.startsWith("//") -> proxyUrl(root + uri)
+        else -> uri
+    }
+
+    private fun isPlaylist(origin: String, contentType: String): Boolean {
+        val path = origin.substringBefore('?').lowercase()
+        val type = contentType.lowercase()
+        return path.endsWith(".m3u8") || path.endsWith(".m3u") || path.endsWith(".mpd") ||
+            type.contains("mpegurl") || type.contains("dash+xml")
+    }
+
+    private fun originUrl(target: String): String? {
+        if (!target.startsWith("/")) return null
+        val slash = target.indexOf('/', 1).let { if (it < 0) target.length else it }
+        val origin = try {
+            String(Base64.getUrlDecoder().decode(target.substring(1, slash)))
+        } catch (e: IllegalArgumentException) {
+            return null
+        }
+        if (!origin.startsWith("http://") && !origin.startsWith("https://")) return null
+        return origin + target.substring(slash).ifEmpty { "/" }
+    }
+
+    private fun keyFor(origin: String): String {
+        val digest = MessageDigest.getInstance("SHA-1").digest(origin.toByteArray())
+        return digest.joinToString("") { "%02x".format(it) }
+    }
+
+    /**
+     * Parses `bytes=a-` and `bytes=a-b`; suffix and multi-ranges are served as a full response.
+     */
+    private fun parseRange(header: String?): Pair<Long, Long?>? {
+        val spec = header?.trim()?.removePrefix("bytes=") ?: return null
+        if (spec.contains(',')) return null
+        val start = spec.substringBefore('-').trim().toLongOrNull() ?: return null
+        return start to spec.substringAfter('-').trim().toLongOrNull()
+    }
+
+    private fun readRequest(input: InputStream): Request? {
+        val requestLine = readLine(input) ?: return null
+        val parts = requestLine.split(' ')
+        if (parts.size < 2) return null
+        val headers = HashMap<String, String>()
+        while (true) {
+            val line = readLine(input) ?: return null
+            if (line.isEmpty()) break
+            val colon = line.indexOf(':')
+            if (colon > 0) headers[line.substring(0, colon).trim().lowercase()] = line.substring(colon + 1).trim()
+        }
+        return Request(parts[0], parts[1], headers)
+    }
+
+    private fun readLine(input: InputStream): String? {
+        val sb = StringBuilder()
+        while (true) {
+            val c = input.read()
+            if (c < 0) return if (sb.isEmpty()) null else sb.toString()
+            if (c == '\n'.code) return sb.toString().trimEnd('\r')
+            if (sb.length > 8192) throw IOException("header line too long")
+            sb.append(c.toChar())
+        }
+    }
+
+    private fun writeHead(out: OutputStream, status: String, headers: Map<String, String>) {
+        val head = StringBuilder("HTTP/1.1 ").append(status).append("\r\n")
+        for ((name, value) in headers) head.append(name).append(": ").append(value).append("\r\n")
+        head.append("Connection: close\r\n\r\n")
+        out.write(head.toString().toByteArray(Charsets.ISO_8859_1))
+    }
+}
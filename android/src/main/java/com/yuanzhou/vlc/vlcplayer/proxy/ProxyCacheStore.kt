@@ -0,0 +1,152 @@
+package com.yuanzhou.vlc.vlcplayer.proxy
+
+import android.util.Log
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.io.FileInputStream
+import java.io.FileOutputStream
+
+/**
+ * Length and content type of a proxied resource, stored next to its blocks.
+ */
+data class ResourceMeta(val length: Long, val contentType: String)
+
+/**
+ * Size-bounded LRU of fixed-size blocks of proxied resources on disk.
+ *
+ * A resource is identified by a key derived from its URL; block `i` holds bytes
+ * `[i * BLOCK_BYTES, (i + 1) * BLOCK_BYTES)`, the last one possibly shorter. Blocks are written
+ * to a temp file and renamed, so a block file that exists is always complete. Resources are
+ * assumed immutable under a given URL. Meta files share the LRU and the size bound with the
+ * blocks; a resource whose meta was evicted is fetched again from its first request.
+ */
+class ProxyCacheStore(private val dir: File, maxBytes: Long) {
+
+    companion object {
+        private const val TAG = "ProxyCacheStore"
+        const val BLOCK_BYTES = 256 * 1024
+        private const val BLOCK_SUFFIX = ".blk"
+        private const val META_SUFFIX = ".meta"
+    }
+
+    @Volatile
+    var maxBytes: Long = maxBytes
+        set(value) {
+            field = value
+            synchronized(this) { evict() }
+        }
+
+    // File name to size, blocks and metas alike, in access order.
+    private val files = LinkedHashMap<String, Long>(256, 0.75f, true)
+    private val metas = HashMap<String, ResourceMeta>()
+    private var totalBytes = 0L
+
+    init {
+        dir.mkdirs()
+        val existing = dir.listFiles { f -> f.name.endsWith(BLOCK_SUFFIX) || f.name.endsWith(META_SUFFIX) }.orEmpty()
+        existing.sortBy { it.lastModified() }
+        for (f in existing) {
+            files[f.name] = f.length()
+            totalBytes += f.length()
+        }
+        dir.listFiles { f -> f.name.endsWith(".tmp") }?.forEach { it.delete() }
+        Log.d(TAG, "opened with ${files.size} files, $totalBytes bytes")
+    }
+
+    val sizeBytes: Long
+        @Synchronized get() = totalBytes
+
+    @Synchronized
+    fun meta(key: String): ResourceMeta? {
+        val name = key + META_SUFFIX
+        if (files[name] == null) return null
+        metas[key]?.let { return it }
+        val f = File(dir, name)
+        if (!f.exists()) {
+            totalBytes -= files.remove(name) ?: 0L
+            return null
+        }
+        return try {
+            DataInputStream(FileInputStream(f)).use { ResourceMeta(it.readLong(), it.readUTF()) }
+                .also { metas[key] = it }
+        } catch (e: Exception) {
+            Log.w(TAG, "meta $key unreadable: ${e.message}")
+            f.delete()
+            totalBytes -= files.remove(name) ?: 0L
+            null
+        }
+    }
+
+    @Synchronized
+    fun putMeta(key: String, meta: ResourceMeta) {
+        val name = key + META_SUFFIX
+        val f = File(dir, name)
+        try {
+            DataOutputStream(FileOutputStream(f)).use {
+                it.writeLong(meta.length)
+                it.writeUTF(meta.contentType)
+            }
+            metas[key] = meta
+            totalBytes += f.length() - (files.put(name, f.length()) ?: 0L)
+            evict()
+        } catch (e: Exception) {
+            Log.w(TAG, "putMeta $key failed: ${e.message}")
+        }
+    }
+
+    /**
+     * @return the block file, marking it as recently used, or null if it is not cached
+     */
+    @Synchronized
+    fun block(key: String, index: Long): File? {
+        val name = blockName(key, index)
+        if (files[name] == null) return null
+        val f = File(dir, name)
+        if (!f.exists()) {
+            totalBytes -= files.remove(name) ?: 0L
+            return null
+        }
+        return f
+    }
+
+    fun putBlock(key: String, index: Long, data: ByteArray, length: Int) {
+        val name = blockName(key, index)
+        try {
+            // Written outside the lock; concurrent writers of the same block each use their own temp file.
+            val tmp = File.createTempFile(name, ".tmp", dir)
+            FileOutputStream(tmp).use { it.write(data, 0, length) }
+            synchronized(this) {
+                if (!tmp.renameTo(File(dir, name))) {
+                    tmp.delete()
+                    return
+                }
+                totalBytes += length - (files.put(name, length.toLong()) ?: 0L)
+                evict()
+            }
+        } catch (e: Exception) {
+            Log.w(TAG, "putBlock $name failed: ${e.message}")
+        }
+    }
+
+    @Synchronized
+    fun clear() {
+        dir.listFiles()?.forEach { it.delete() }
+        files.clear()
+        metas.clear()
+        totalBytes = 0
+    }
+
+    private fun evict() {
+        val it = files.entries.iterator()
+        while (totalBytes > maxBytes && it.hasNext()) {
+            val eldest = it.next()
+            File(dir, eldest.key).delete()
+            if (eldest.key.endsWith(META_SUFFIX)) metas.remove(eldest.key.removeSuffix(META_SUFFIX))
+            totalBytes -= eldest.value
+            it.remove()
+        }
+    }
+
+    private fun blockName(key: String, index: Long) = "$key.$index$BLOCK_SUFFIX"
+}
@@ -0,0 +1,171 @@
+package com.yuanzhou.vlc.vlcplayer.qoe
+
+import kotlin.math.min
+import kotlin.math.roundToInt
+
+enum class BufferingKind { STARTUP, SEEK, REBUFFER }
+
+interface StallListener {
+    fun onStallStarted(stallCount: Int)
+    fun onStallEnded(stallCount: Int, durationMs: Long)
+}
+
+/**
+ * End-of-session quality summary. [startupMs] is -1 if playback never started.
+ */
+data class QoeSummary(
+    val sessionMs: Long,
+    val startupMs: Long,
+    val playingMs: Long,
+    val rebufferCount: Int,
+    val rebufferMs: Long,
+    val longestRebufferMs: Long,
+    val rebufferRatio: Double,
+    val stallsPerMinute: Double,
+    val seekCount: Int,
+    val seekBufferingMs: Long,
+    val score: Int
+)
+
+/**
+ * Classifies the buffering episodes of one playback session as startup, seek or rebuffer
+ * and accumulates their durations. Driven by the player's events with explicit timestamps,
+ * so it can be replayed from a recorded event sequence.
+ *
+ * An episode starts on a Buffering event below 100% and ends at 100%. Buffering right after
+ * [onSeek] is a seek fill; any other buffering while playing is a rebuffer (a stall).
+ */
+class PlaybackQoeTracker(private val startMs: Long) {
+
+    companion object {
+        // Buffering that starts this long after a seek is no longer attributed to it.
+        const val SEEK_WINDOW_MS = 2_000L
+    }
+
+    var listener: StallListener? = null
+
+    private var playing = false
+    private var sawPlaying = false
+    private var startupMs = -1L
+    private var episode: BufferingKind? = null
+    private var episodeStartMs = 0L
+    private var seekAtMs = -1L
+
+    private var playingMs = 0L
+    private var lastTickMs = startMs
+    private var rebufferCount = 0
+    private var rebufferMs = 0L
+    private var longestRebufferMs = 0L
+    private var seekCount = 0
+    private var seekBufferingMs = 0L
+
+    val isStalled: Boolean
+        get() = episode == BufferingKind.REBUFFER
+
+    fun onPlaying(nowMs: Long) {
+        tick(nowMs)
+        playing = true
+        sawPlaying = true
+        if (startupMs < 0 && episode == null) {
+            startupMs = nowMs - startMs
+        }
+    }
+
+    fun onPaused(nowMs: Long) {
+        tick(nowMs)
+        playing = false
+        // The user is no longer waiting on a stall they paused through.
+        if (episode == BufferingKind.REBUFFER) endEpisode(nowMs)
+    }
+
+    fun onSeek(nowMs: Long) {
+        tick(nowMs)
+        seekAtMs = nowMs
+        seekCount++
+    }
+
+    fun onBuffering(percent: Float, nowMs: Long) {
+        tick(nowMs)
+        if (percent >= 100f) {
+            if (episode != null) endEpisode(nowMs)
+            if (startupMs < 0 && sawPlaying) startupMs = nowMs - startMs
+            return
+        }
+        if (episode != null) return
+        val kind = when {
+            startupMs < 0 -> BufferingKind.STARTUP
+            seekAtMs >= 0 && nowMs - seekAtMs <= SEEK_WINDOW_MS -> BufferingKind.SEEK
+            playing -> BufferingKind.REBUFFER
+            else -> return
+        }
+        episode = kind
+        episodeStartMs = nowMs
+        if (kind == BufferingKind.REBUFFER) {
+            rebufferCount++
+            listener?.onStallStarted(rebufferCount)
+        }
+    }
+
+    /**
+     * Close any open episode and compute the session summary.
+     */
+    fun finish(nowMs: Long): QoeSummary {
+        tick(nowMs)
+        if (episode != null) endEpisode(nowMs)
+        playing = false
+
+        val stalledAndPlaying = playingMs + rebufferMs
+        val rebufferRatio = if (stalledAndPlaying > 0) rebufferMs.toDouble() / stalledAndPlaying else 0.0
+        val stallsPerMinute = if (playingMs > 0) rebufferCount * 60_000.0 / playingMs else 0.0
+        return QoeSummary(
+            sessionMs = nowMs - startMs,
+            startupMs = startupMs,
+            playingMs = playingMs,
+            rebufferCount = rebufferCount,
+            rebufferMs = rebufferMs,
+            longestRebufferMs = longestRebufferMs,
+            rebufferRatio = rebufferRatio,
+            stallsPerMinute = stallsPerMinute,
+            seekCount = seekCount,
+            seekBufferingMs = seekBufferingMs,
+            score = score(rebufferRatio, stallsPerMinute)
+        )
+    }
+
+    /**
+     * 100 minus penalties for slow startup (up to 20), time spent stalled (up to 50)
+     * and stall frequency (up to 30). A session that never started scores 0.
+     */
+    private fun score(rebufferRatio: Double, stallsPerMinute: Double): Int {
+        if (startupMs < 0) return 0
+        val startupPenalty = min(20.0, startupMs / 1000.0 * 4)
+        val rebufferPenalty = min(50.0, rebufferRatio * 500)
+        val frequencyPenalty = min(30.0, stallsPerMinute * 10)
+        return (100 - startupPenalty - rebufferPenalty - frequencyPenalty).roundToInt().coerceIn(0, 100)
+    }
+
+    private fun tick(nowMs: Long) {
+        if (playing && episode == null && startupMs >= 0) {
+            playingMs += (nowMs - lastTickMs).coerceAtLeast(0)
+        }
+        lastTickMs = nowMs
+    }
+
+    private fun endEpisode(nowMs: Long) {
+        val duration = (nowMs - episodeStartMs).coerceAtLeast(0)
+        when (episode) {
+            BufferingKind.REBUFFER -> {
+                rebufferMs += duration
+                if (duration > longestRebufferMs) longestRebufferMs = duration
+                listener?.onStallEnded(rebufferCount, duration)
+            }
+            BufferingKind.SEEK -> {
+                seekBufferingMs += duration
+                seekAtMs = -1
+            }
+            BufferingKind.STARTUP -> if (sawPlaying) startupMs = nowMs - startMs
+            null -> Unit
+        }
+        episode = null
+    }
+}
@@ -0,0 +1,187 @@
+package com.yuanzhou.vlc.vlcplayer.seek
+
+import android.os.Handler
+import android.os.Looper
+import android.os.SystemClock
+import android.util.Log
+
+/**
+ * Coalesces the seeks of a drag. While a session is active only the latest target is kept,
+ * and it is applied as a fast (keyframe) seek at most once per [intervalMs]; updates in
+ * between replace the pending target without seeking. Ending the session makes one precise
+ * seek, and [Listener.onSeekComplete] reports the time from that seek to the first frame
+ * drawn after the player's clock reached its target.
+ *
+ * Every [end] gets exactly one report. Position -1 means no seek was shown: there was no
+ * session or target (reported at once, without seeking), the seek was dropped by [cancel] or
+ * [begin], or neither the clock nor a frame got there within [SETTLE_TIMEOUT_MS]. If the
+ * clock got there but no frame followed (e.g. audio only), the timeout completes the seek.
+ * All calls are on the main thread.
+ */
+class ScrubController(private val target: Target, private val listener: Listener) {
+
+    interface Target {
+        /** Seek to [position] (0..1); [fast] seeks to the nearest keyframe. */
+        fun seekTo(position: Float, fast: Boolean)
+    }
+
+    fun interface Listener {
+        fun onSeekComplete(position: Float, latencyMs: Long, fastSeeks: Int, skippedUpdates: Int)
+    }
+
+    var intervalMs = DEFAULT_INTERVAL_MS
+
+    private val handler = Handler(Looper.getMainLooper())
+    private val pendingSeek = Runnable { applyPending() }
+    private val settleTimeout = Runnable { onSettleTimeout() }
+    private var active = false
+    private var pendingPosition = -1f
+    private var lastPosition = -1f
+    private var lastSeekAtMs = 0L
+    private var updates = 0
+    private var fastSeeks = 0
+
+    // Precise seek awaiting its first frame.
+    private var settlingPosition = -1f
+    private var settlingSinceMs = 0L
+    private var settlingTimeSeen = false
+    private var settlingFastSeeks = 0
+    private var settlingSkipped = 0
+
+    fun isActive(): Boolean = active
+
+    fun begin() {
+        cancel()
+        active = true
+    }
+
+    fun update(position: Float) {
+        if (!active || position < 0f || position > 1f) return
+        updates++
+        pendingPosition = position
+        val wait = lastSeekAtMs + intervalMs - SystemClock.uptimeMillis()
+        if (wait <= 0) {
+            applyPending()
+        } else {
+            handler.removeCallbacks(pendingSeek)
+            handler.postDelayed(pendingSeek, wait)
+        }
+    }
+
+    /**
+     * End the drag with a precise seek to [position], or to the last target if it is negative.
+     * With neither, no seek is made and the listener gets position -1.
+     */
+    fun end(position: Float) {
+        if (!active) {
+            Log.d(TAG, "scrub ended without a session")
+            listener.onSeekComplete(-1f, 0, 0, 0)
+            return
+        }
+        handler.removeCallbacks(pendingSeek)
+        active = false
+        val finalPosition = when {
+            position in 0f..1f -> position
+            pendingPosition >= 0f -> pendingPosition
+            else -> lastPosition
+        }
+        if (finalPosition < 0f) {
+            Log.d(TAG, "scrub ended without a target")
+            listener.onSeekComplete(-1f, 0, fastSeeks, updates - fastSeeks)
+            return
+        }
+        settlingPosition = finalPosition
+        settlingSinceMs = SystemClock.uptimeMillis()
+        settlingTimeSeen = false
+        settlingFastSeeks = fastSeeks
+        settlingSkipped = updates - fastSeeks
+        handler.postDelayed(settleTimeout, SETTLE_TIMEOUT_MS)
+        target.seekTo(finalPosition, false)
+    }
+
+    /**
+     * Drop the session and any seek awaiting completion, e.g. when the player is released.
+     * A dropped seek is reported with position -1.
+     */
+    fun cancel() {
+        handler.removeCallbacks(pendingSeek)
+        handler.removeCallbacks(settleTimeout)
+        active = false
+        pendingPosition = -1f
+        lastPosition = -1f
+        lastSeekAtMs = 0L
+        updates = 0
+        fastSeeks = 0
+        if (settlingPosition >= 0f) {
+            settlingPosition = -1f
+            Log.d(TAG, "settling seek dropped")
+            listener.onSeekComplete(-1f, SystemClock.uptimeMillis() - settlingSinceMs, settlingFastSeeks, settlingSkipped)
+        }
+    }
+
+    /**
+     * The player reported a new time. Only a time at the precise seek's target counts; earlier
+     * reports may still be from before the seek. When paused no frame may follow, so this
+     * completes the seek.
+     * @param lengthMs media length, or 0 or less if unknown; then any time counts
+     */
+    fun onTimeChanged(playing: Boolean, timeMs: Long, lengthMs: Long) {
+        if (settlingPosition < 0f) return
+        if (lengthMs > 0) {
+            val targetMs = (settlingPosition.toDouble() * lengthMs).toLong()
+            if (timeMs < targetMs - EARLY_TOLERANCE_MS || timeMs > targetMs + LATE_TOLERANCE_MS) return
+        }
+        settlingTimeSeen = true
+        if (!playing) complete()
+    }
+
+    fun onFrameRendered() {
+        if (settlingPosition >= 0f && settlingTimeSeen) complete()
+    }
+
+    private fun applyPending() {
+        val position = pendingPosition
+        if (!active || position < 0f) return
+        pendingPosition = -1f
+        lastPosition = position
+        lastSeekAtMs = SystemClock.uptimeMillis()
+        fastSeeks++
+        target.seekTo(position, true)
+    }
+
+    private fun onSettleTimeout() {
+        if (settlingPosition < 0f) return
+        if (settlingTimeSeen) {
+            complete()
+            return
+        }
+        val latency = SystemClock.uptimeMillis() - settlingSinceMs
+        Log.w(TAG, "scrub to $settlingPosition not shown after $latency ms")
+        settlingPosition = -1f
+        listener.onSeekComplete(-1f, latency, settlingFastSeeks, settlingSkipped)
+    }
+
+    private fun complete() {
+        handler.removeCallbacks(settleTimeout)
+        val latency = SystemClock.uptimeMillis() - settlingSinceMs
+        val position = settlingPosition
+        settlingPosition = -1f
+        Log.d(TAG, "scrub to $position settled in $latency ms ($settlingFastSeeks fast seeks, $settlingSkipped updates skipped)")
+        listener.onSeekComplete(position, latency, settlingFastSeeks, settlingSkipped)
+    }
+
+    companion object {
+        private const val TAG = "ScrubController"
+
+        /** About the rate a mid-range device decodes a keyframe after a fast seek. */
+        const val DEFAULT_INTERVAL_MS = 100L
+
+        /** Longest wait for a precise seek to be shown before it is reported anyway. */
+        const val SETTLE_TIMEOUT_MS = 5_000L
+
+        // A precise seek may land on the frame just before its target, and playback moves
+        // on before the first time report.
+        private const val EARLY_TOLERANCE_MS = 100L
+        private const val LATE_TOLERANCE_MS = 2_000L
+    }
+}
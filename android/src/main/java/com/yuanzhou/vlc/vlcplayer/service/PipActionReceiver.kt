@@ -6,6 +6,7 @@ import android.content.Context
 import android.content.Intent
 import android.os.Build
 import android.util.Log
+import com.yuanzhou.vlc.vlcplayer.VlcPlayerBridge
 import com.yuanzhou.vlc.vlcplayer.core.VlcPlayerCore
 
 class PipActionReceiver : BroadcastReceiver() {
@@ -17,31 +18,54 @@ class PipActionReceiver : BroadcastReceiver() {
         const val ACTION_PAUSE = "com.yuanzhou.vlc.ACTION_PAUSE"
         const val ACTION_FORWARD = "com.yuanzhou.vlc.ACTION_FORWARD"
         const val ACTION_REWIND = "com.yuanzhou.vlc.ACTION_REWIND"
+        const val EXTRA_PLAYER_ID = "playerId"
+        const val NO_PLAYER = VlcPlayerBridge.NO_PLAYER
         
         private const val SKIP_INTERVAL_MS = 10_000L
         
-        private fun createPendingIntent(context: Context, action: String): PendingIntent {
+        private fun createPendingIntent(context: Context, action: String, playerId: Int): PendingIntent {
             val intent = Intent(context, PipActionReceiver::class.java).apply {
                 this.action = action
+                putExtra(EXTRA_PLAYER_ID, playerId)
             }
             val flags = if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
                 PendingIntent.FLAG_UPDATE_CURRENT or PendingIntent.FLAG_IMMUTABLE
             } else {
                 PendingIntent.FLAG_UPDATE_CURRENT
             }
-            return PendingIntent.getBroadcast(context, action.hashCode(), intent, flags)
+            // One PendingIntent per action and player, so extras of another player are not reused.
+            return PendingIntent.getBroadcast(context, action.hashCode() * 31 + playerId, intent, flags)
         }
         
-        fun createPlayIntent(context: Context): PendingIntent = createPendingIntent(context, ACTION_PLAY)
-        fun createPauseIntent(context: Context): PendingIntent = createPendingIntent(context, ACTION_PAUSE)
-        fun createForwardIntent(context: Context): PendingIntent = createPendingIntent(context, ACTION_FORWARD)
-        fun createRewindIntent(context: Context): PendingIntent = createPendingIntent(context, ACTION_REWIND)
+        /*
+         * With a playerId the action targets that VlcPlayerBridge player; without one,
+         * the VlcPlayerCore player.
+         */
+        fun createPlayIntent(context: Context, playerId: Int = NO_PLAYER): PendingIntent =
+            createPendingIntent(context, ACTION_PLAY, playerId)
+        fun createPauseIntent(context: Context, playerId: Int = NO_PLAYER): PendingIntent =
+            createPendingIntent(context, ACTION_PAUSE, playerId)
+        fun createForwardIntent(context: Context, playerId: Int = NO_PLAYER): PendingIntent =
+            createPendingIntent(context, ACTION_FORWARD, playerId)
+        fun createRewindIntent(context: Context, playerId: Int = NO_PLAYER): PendingIntent =
+            createPendingIntent(context, ACTION_REWIND, playerId)
     }
     
     override fun onReceive(context: Context, intent: Intent) {
         val action = intent.action ?: return
         Log.d(TAG, "onReceive: $action")
-        
+
+        val playerId = intent.getIntExtra(EXTRA_PLAYER_ID, NO_PLAYER)
+        if (playerId != NO_PLAYER && VlcPlayerBridge.hasPlayer(playerId)) {
+            when (action) {
+                ACTION_PLAY -> VlcPlayerBridge.play(playerId)
+                ACTION_PAUSE -> VlcPlayerBridge.pause(playerId)
+                ACTION_FORWARD -> VlcPlayerBridge.seekByMs(SKIP_INTERVAL_MS, playerId)
+                ACTION_REWIND -> VlcPlayerBridge.seekByMs(-SKIP_INTERVAL_MS, playerId)
+            }
+            return
+        }
+
         val playerCore = VlcPlayerCore.getInstance(context)
         
         when (action) {
@@ -0,0 +1,80 @@
+package com.yuanzhou.vlc.vlcplayer.subtitle
+
+/**
+ * A cue shown from [startMs] (inclusive) to [endMs] (exclusive). [id] is its position in
+ * start order within its [SubtitleCueIndex].
+ */
+class SubtitleCue(val id: Int, val startMs: Long, val endMs: Long, val text: String)
+
+/**
+ * Static interval tree over the cues of one subtitle file.
+ *
+ * Cues are sorted by start and the tree is implicit: the node of a range is its middle cue,
+ * and [maxEnd] holds the latest end within that range, so a lookup skips every subtree that
+ * ended before the time asked for. Finding the active cues costs O(log n + k), and the next
+ * time the active set can change is a binary search over the sorted cue boundaries.
+ */
+class SubtitleCueIndex(cues: List<SubtitleCue>) {
+    private val cues: Array<SubtitleCue>
+    private val maxEnd: LongArray
+    private val boundaries: LongArray
+
+    init {
+        val sorted = cues.filter { it.endMs > it.startMs }.sortedWith(compareBy({ it.startMs }, { it.endMs }))
+        this.cues = Array(sorted.size) { SubtitleCue(it, sorted[it].startMs, sorted[it].endMs, sorted[it].text) }
+        maxEnd = LongArray(sorted.size)
+        build(0, sorted.size)
+        val times = LongArray(sorted.size * 2)
+        for (i in sorted.indices) {
+            times[2 * i] = sorted[i].startMs
+            times[2 * i + 1] = sorted[i].endMs
+        }
+        times.sort()
+        var unique = 0
+        for (i in times.indices) {
+            if (i == 0 || times[i] != times[unique - 1]) times[unique++] = times[i]
+        }
+        boundaries = times.copyOf(unique)
+    }
+
+    val size: Int
+        get() = cues.size
+
+    /** Cues active at [timeMs], in start order. */
+    fun activeAt(timeMs: Long): List<SubtitleCue> {
+        val out = ArrayList<SubtitleCue>(2)
+        collect(0, cues.size, timeMs, out)
+        return out
+    }
+
+    /** The first cue start or end after [timeMs], or -1 if there is none. */
+    fun nextBoundaryAfter(timeMs: Long): Long {
+        var lo = 0
+        var hi = boundaries.size
+        while (lo < hi) {
+            val mid = (lo + hi) ushr 1
+            if (boundaries[mid] <= timeMs) lo = mid + 1 else hi = mid
+        }
+        return if (lo < boundaries.size) boundaries[lo] else -1L
+    }
+
+    private fun build(lo: Int, hi: Int): Long {
+        if (lo >= hi) return Long.MIN_VALUE
+        val mid = (lo + hi) ushr 1
+        val end = maxOf(cues[mid].endMs, build(lo, mid), build(mid + 1, hi))
+        maxEnd[mid] = end
+        return end
+    }
+
+    private fun collect(lo: Int, hi: Int, timeMs: Long, out: MutableList<SubtitleCue>) {
+        if (lo >= hi) return
+        val mid = (lo + hi) ushr 1
+        if (maxEnd[mid] <= timeMs) return
+        collect(lo, mid, timeMs, out)
+        val cue = cues[mid]
+        // Cues right of mid start no earlier, so none of them is active either.
+        if (cue.startMs > timeMs) return
+        if (timeMs < cue.endMs) out.add(cue)
+        collect(mid + 1, hi, timeMs, out)
+    }
+}
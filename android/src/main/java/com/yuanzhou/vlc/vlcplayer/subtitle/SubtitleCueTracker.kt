@@ -0,0 +1,98 @@
+package com.yuanzhou.vlc.vlcplayer.subtitle
+
+import android.os.Handler
+import android.os.Looper
+
+/**
+ * Follows the player clock through a [SubtitleCueIndex] and reports the active cues when
+ * they change.
+ *
+ * Nothing polls: after each look-up, a wake-up is posted for the next cue boundary, scaled by
+ * the playback rate, and the clock is read again there, so drift never accumulates. If the
+ * clock has not reached the boundary yet, the retry comes after half the remaining gap, at
+ * least a frame. Time updates and seeks call [sync] to re-anchor. All calls are on the main
+ * thread.
+ */
+class SubtitleCueTracker(private val clock: Clock, private val listener: Listener) {
+
+    interface Clock {
+        /** Current playback time in ms, or -1 if unknown. */
+        fun currentTimeMs(): Long
+
+        fun rate(): Float
+    }
+
+    fun interface Listener {
+        fun onActiveCuesChanged(cues: List<SubtitleCue>, timeMs: Long)
+    }
+
+    private val handler = Handler(Looper.getMainLooper())
+    private val wakeUp = Runnable { sync(true) }
+    private var index: SubtitleCueIndex? = null
+    private var active: List<SubtitleCue> = emptyList()
+    private var playing = false
+    private var scheduledBoundary = -1L
+
+    fun setIndex(index: SubtitleCueIndex?) {
+        this.index = index
+        sync()
+    }
+
+    fun setPlaying(playing: Boolean) {
+        this.playing = playing
+        sync()
+    }
+
+    /** Re-read the clock, report a changed active set and reschedule. */
+    fun sync() {
+        sync(false)
+    }
+
+    private fun sync(woke: Boolean) {
+        handler.removeCallbacks(wakeUp)
+        val boundary = scheduledBoundary
+        scheduledBoundary = -1L
+        val cues = index
+        val time = clock.currentTimeMs()
+        if (cues == null || time < 0) {
+            update(emptyList(), time)
+            return
+        }
+        update(cues.activeAt(time), time)
+        if (!playing) return
+        val next = cues.nextBoundaryAfter(time)
+        if (next < 0) return
+        val rate = clock.rate()
+        val gap = ((next - time) / (if (rate > 0f) rate else 1f)).toLong()
+        // Woken for this boundary before the clock got there: it lags the wall clock.
+        val delay = if (woke && next == boundary) maxOf(gap / 2, FRAME_MS) else maxOf(gap, 1L)
+        scheduledBoundary = next
+        handler.postDelayed(wakeUp, delay)
+    }
+
+    /** Stop scheduling and clear the active cues. */
+    fun reset() {
+        handler.removeCallbacks(wakeUp)
+        scheduledBoundary = -1L
+        playing = false
+        update(emptyList(), -1)
+    }
+
+    private fun update(cues: List<SubtitleCue>, timeMs: Long) {
+        if (sameCues(cues, active)) return
+        active = cues
+        listener.onActiveCuesChanged(cues, timeMs)
+    }
+
+    private fun sameCues(a: List<SubtitleCue>, b: List<SubtitleCue>): Boolean {
+        if (a.size != b.size) return false
+        for (i in a.indices) {
+            if (a[i] !== b[i]) return false
+        }
+        return true
+    }
+
+    private companion object {
+        const val FRAME_MS = 16L
+    }
+}
@@ -0,0 +1,86 @@
+package com.yuanzhou.vlc.vlcplayer.subtitle
+
+import android.graphics.Canvas
+import android.graphics.Color
+import android.graphics.ColorFilter
+import android.graphics.Paint
+import android.graphics.PixelFormat
+import android.graphics.Rect
+import android.graphics.RectF
+import android.graphics.drawable.Drawable
+import android.text.Layout
+import android.text.StaticLayout
+import android.text.TextPaint
+
+/**
+ * Draws subtitle text centered near the bottom of its bounds, on a translucent box. Meant
+ * for the parent's [android.view.ViewOverlay], since a TextureView draws no overlay of its
+ * own; the bounds are the player's rect in the parent.
+ *
+ * The text layout is only rebuilt when the text or width changes.
+ */
+class SubtitleOverlayDrawable : Drawable() {
+    private val textPaint = TextPaint(Paint.ANTI_ALIAS_FLAG).apply { color = Color.WHITE }
+    private val boxPaint = Paint(Paint.ANTI_ALIAS_FLAG).apply { color = 0xA0000000.toInt() }
+    private val box = RectF()
+    private var text: String? = null
+    private var layout: StaticLayout? = null
+
+    fun setText(text: String?) {
+        if (text == this.text) return
+        this.text = text
+        layout = null
+        invalidateSelf()
+    }
+
+    override fun draw(canvas: Canvas) {
+        val b = bounds
+        if (text.isNullOrEmpty() || b.width() <= 0 || b.height() <= 0) return
+        val textLayout = layout ?: buildLayout(b.width()).also { layout = it }
+        val padding = textPaint.textSize * 0.3f
+        val bottomMargin = b.height() * BOTTOM_MARGIN
+        val top = b.bottom - bottomMargin - textLayout.height
+        var lineWidth = 0f
+        for (i in 0 until textLayout.lineCount) lineWidth = maxOf(lineWidth, textLayout.getLineWidth(i))
+        box.set(b.exactCenterX() - lineWidth / 2 - padding, top - padding,
+            b.exactCenterX() + lineWidth / 2 + padding, top + textLayout.height + padding)
+        canvas.drawRoundRect(box, padding, padding, boxPaint)
+        canvas.save()
+        canvas.translate(b.left + (b.width() - textLayout.width) / 2f, top)
+        textLayout.draw(canvas)
+        canvas.restore()
+    }
+
+    override fun onBoundsChange(bounds: Rect) {
+        layout = null
+    }
+
+    private fun buildLayout(width: Int): StaticLayout {
+        textPaint.textSize = maxOf(bounds.height() * TEXT_SIZE, MIN_TEXT_PX)
+        val textWidth = (width * 0.9f).toInt().coerceAtLeast(1)
+        val value = text.orEmpty()
+        return StaticLayout.Builder.obtain(value, 0, value.length, textPaint, textWidth)
+            .setAlignment(Layout.Alignment.ALIGN_CENTER)
+            .build()
+    }
+
+    override fun setAlpha(alpha: Int) {
+        textPaint.alpha = alpha
+        invalidateSelf()
+    }
+
+    override fun setColorFilter(colorFilter: ColorFilter?) {
+        textPaint.colorFilter = colorFilter
+        invalidateSelf()
+    }
+
+    @Deprecated("Deprecated in Java")
+    override fun getOpacity(): Int = PixelFormat.TRANSLUCENT
+
+    private companion object {
+        // Relative to the player's height, so subtitles scale with it (including in PiP).
+        const val TEXT_SIZE = 0.05f
+        const val BOTTOM_MARGIN = 0.06f
+        const val MIN_TEXT_PX = 18f
+    }
+}
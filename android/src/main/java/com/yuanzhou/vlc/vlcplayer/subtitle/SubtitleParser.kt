@@ -0,0 +1,155 @@
+package com.yuanzhou.vlc.vlcplayer.subtitle
+
+import android.content.Context
+import android.net.Uri
+import android.os.Handler
+import android.os.Looper
+import android.util.Log
+import java.io.File
+import java.io.InputStream
+import java.net.HttpURLConnection
+import java.net.URL
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+
+fun interface SubtitleLoadCallback {
+    /** Called on the main thread; [index] is null if the file could not be read. */
+    fun onSubtitlesLoaded(uri: String, index: SubtitleCueIndex?)
+}
+
+/**
+ * Parses SRT, WebVTT and ASS/SSA text subtitles into cues. Markup is dropped: HTML-like tags
+ * of SRT/VTT and ASS override blocks; ASS line breaks become newlines.
+ */
+object SubtitleParser {
+    private const val TAG = "SubtitleParser"
+    private const val TIMEOUT_MS = 10_000
+
+    private val TIMESTAMP = Regex("""(?:(\d+):)?(\d{1,2}):(\d{2})[,.](\d{1,3})""")
+    private val TAG_PATTERN = Regex("<[^>]*>")
+    private val ASS_OVERRIDE = Regex("""\{[^}]*\}""")
+
+    private val executor: ExecutorService = Executors.newSingleThreadExecutor { r ->
+        Thread(r, "VlcSubtitleParser").apply { isDaemon = true }
+    }
+    private val handler = Handler(Looper.getMainLooper())
+
+    /**
+     * Read and index [uri] (a path, file://, content:// or http(s) URL) in the background.
+     */
+    @JvmStatic
+    fun load(context: Context, uri: String, callback: SubtitleLoadCallback) {
+        val appContext = context.applicationContext
+        executor.execute {
+            val index = try {
+                val start = System.currentTimeMillis()
+                val text = open(appContext, uri).use { it.readBytes() }.toString(Charsets.UTF_8).removePrefix("\uFEFF")
+                SubtitleCueIndex(parse(text)).also {
+                    Log.d(TAG, "indexed ${it.size} cues in ${System.currentTimeMillis() - start} ms")
+                }
+            } catch (e: Exception) {
+                Log.w(TAG, "could not load $uri: ${e.message}")
+                null
+            }
+            handler.post { callback.onSubtitlesLoaded(uri, index) }
+        }
+    }
+
+    @JvmStatic
+    fun parse(text: String): List<SubtitleCue> {
+        val normalized = text.replace("\r\n", "\n").replace('\r', '\n')
+        val head = normalized.trimStart()
+        return when {
+            head.startsWith("[Script Info]", ignoreCase = true) || normalized.contains("\nDialogue:") -> parseAss(normalized)
+            else -> parseSrtOrVtt(normalized)
+        }
+    }
+
+    /**
+     * SRT and WebVTT share their cue layout: an optional identifier, a `start --> end` line
+     * (VTT may add settings after it) and text up to a blank line. Blocks without a timing
+     * line (the WEBVTT header, NOTE, STYLE, REGION) are skipped.
+     */
+    private fun parseSrtOrVtt(text: String): List<SubtitleCue> {
+        val cues = ArrayList<SubtitleCue>()
+        for (block in text.split(Regex("\n[ \t]*\n"))) {
+            val lines = block.trim('\n').split('\n')
+            val timing = lines.indexOfFirst { it.contains("-->") }
+            if (timing < 0) continue
+            val parts = lines[timing].split("-->", limit = 2)
+            val start = parseTime(parts[0]) ?: continue
+            val end = parseTime(parts[1]) ?: continue
+            val body = lines.subList(timing + 1, lines.size)
+                .joinToString("\n") { TAG_PATTERN.replace(it, "").trim() }
+                .trim()
+            if (body.isNotEmpty()) cues.add(SubtitleCue(cues.size, start, end, body))
+        }
+        return cues
+    }
+
+    private fun parseAss(text: String): List<SubtitleCue> {
+        val cues = ArrayList<SubtitleCue>()
+        var inEvents = false
+        var startField = 1
+        var endField = 2
+        var textField = 9
+        var fieldCount = 10
+        for (line in text.split('\n')) {
+            val trimmed = line.trim()
+            if (trimmed.startsWith("[")) {
+                inEvents = trimmed.equals("[Events]", ignoreCase = true)
+                continue
+            }
+            if (!inEvents) continue
+            if (trimmed.startsWith("Format:", ignoreCase = true)) {
+                val fields = trimmed.substring(7).split(',').map { it.trim().lowercase() }
+                startField = fields.indexOf("start")
+                endField = fields.indexOf("end")
+                textField = fields.indexOf("text")
+                fieldCount = fields.size
+            } else if (trimmed.startsWith("Dialogue:", ignoreCase = true)) {
+                if (startField < 0 || endField < 0 || textField < 0) continue
+                // Text is the last field and may itself contain commas.
+                val values = trimmed.substring(9).split(',', limit = fieldCount)
+                if (values.size < fieldCount) continue
+                val start = parseTime(values[startField]) ?: continue
+                val end = parseTime(values[endField]) ?: continue
+                val body = ASS_OVERRIDE.replace(values[textField], "")
+                    .replace("\\N", "\n")
+                    .replace("\\n", "\n")
+                    .replace("\\h", " ")
+                    .trim()
+                if (body.isNotEmpty()) cues.add(SubtitleCue(cues.size, start, end, body))
+            }
+        }
+        return cues
+    }
+
+    /**
+     * `[h:]mm:ss,mmm` (SRT), `[hh:]mm:ss.mmm` (VTT) or `h:mm:ss.cc` (ASS) in ms.
+     */
+    private fun parseTime(value: String): Long? {
+        val match = TIMESTAMP.find(value) ?: return null
+        val (h, m, s, fraction) = match.destructured
+        val hours = if (h.isEmpty()) 0L else h.toLong()
+        // The fraction is in its own unit: ".5" and ".50" are both half a second.
+        val millis = (fraction + "00").substring(0, 3).toLong()
+        return ((hours * 60 + m.toLong()) * 60 + s.toLong()) * 1000 + millis
+    }
+
+    private fun open(context: Context, uri: String): InputStream {
+        val parsed = Uri.parse(uri)
+        return when (parsed.scheme?.lowercase()) {
+            "content", "android.resource" -> context.contentResolver.openInputStream(parsed)
+                ?: throw IllegalStateException("no content for $uri")
+            "http", "https" -> {
+                val connection = URL(uri).openConnection() as HttpURLConnection
+                connection.connectTimeout = TIMEOUT_MS
+                connection.readTimeout = TIMEOUT_MS
+                connection.inputStream
+            }
+            "file" -> File(parsed.path ?: uri).inputStream()
+            else -> File(uri).inputStream()
+        }
+    }
+}
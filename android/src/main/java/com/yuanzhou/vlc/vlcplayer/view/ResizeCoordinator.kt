@@ -0,0 +1,102 @@
+package com.yuanzhou.vlc.vlcplayer.view
+
+import android.os.SystemClock
+import android.util.Size
+import android.view.Choreographer
+
+/**
+ * Applies video output sizes in step with vsync. Requests mark the size dirty; on the next
+ * frame the size is measured once and applied only if it changed, however many layout passes
+ * or callbacks requested it. While [track]ing (e.g. a PiP animation) it is measured every frame.
+ *
+ * The latency reported to [Callback.onResizeRendered] runs from the first request of a
+ * change to the first frame drawn after applying it. All calls are on the main thread.
+ */
+class ResizeCoordinator(private val callback: Callback) : Choreographer.FrameCallback {
+
+    interface Callback {
+        /** The size to show now, or null if unknown yet. */
+        fun measure(): Size?
+
+        /** @return false if the size could not be applied, so it is tried again on change */
+        fun applySize(width: Int, height: Int): Boolean
+
+        /** A [track] window ended. */
+        fun onTrackingFinished()
+
+        fun onResizeRendered(width: Int, height: Int, latencyMs: Long)
+    }
+
+    private val choreographer = Choreographer.getInstance()
+    private var posted = false
+    private var requestedAtMs = 0L
+    private var trackUntilMs = 0L
+    private var appliedWidth = 0
+    private var appliedHeight = 0
+    private var renderStartMs = 0L
+
+    /** Measure on the next frame. */
+    fun request() {
+        if (requestedAtMs == 0L) requestedAtMs = SystemClock.uptimeMillis()
+        post()
+    }
+
+    /** Measure every frame for [durationMs], for sizes that settle over an animation. */
+    fun track(durationMs: Long) {
+        trackUntilMs = SystemClock.uptimeMillis() + durationMs
+        request()
+    }
+
+    fun isTracking(): Boolean = trackUntilMs > 0
+
+    /** Forget the applied size, e.g. after the video output was recreated at another size. */
+    fun invalidate() {
+        appliedWidth = 0
+        appliedHeight = 0
+    }
+
+    fun cancel() {
+        if (posted) choreographer.removeFrameCallback(this)
+        posted = false
+        requestedAtMs = 0L
+        trackUntilMs = 0L
+        renderStartMs = 0L
+    }
+
+    /** Call when a frame reached the surface. */
+    fun onFrameRendered() {
+        if (renderStartMs == 0L) return
+        val latency = SystemClock.uptimeMillis() - renderStartMs
+        renderStartMs = 0L
+        callback.onResizeRendered(appliedWidth, appliedHeight, latency)
+    }
+
+    override fun doFrame(frameTimeNanos: Long) {
+        posted = false
+        val now = SystemClock.uptimeMillis()
+        val size = callback.measure()
+        if (size != null && size.width > 0 && size.height > 0 &&
+            (size.width != appliedWidth || size.height != appliedHeight) &&
+            callback.applySize(size.width, size.height)
+        ) {
+            appliedWidth = size.width
+            appliedHeight = size.height
+            renderStartMs = if (requestedAtMs > 0) requestedAtMs else now
+        }
+        requestedAtMs = 0L
+        if (trackUntilMs > 0) {
+            if (now < trackUntilMs) {
+                post()
+            } else {
+                trackUntilMs = 0L
+                callback.onTrackingFinished()
+            }
+        }
+    }
+
+    private fun post() {
+        if (posted) return
+        posted = true
+        choreographer.postFrameCallback(this)
+    }
+}
@@ -0,0 +1,212 @@
+package com.yuanzhou.vlc.vlcplayer.virtualization
+
+import android.graphics.Rect
+import android.os.Handler
+import android.os.Looper
+import android.util.Log
+import android.view.View
+import android.view.ViewTreeObserver
+
+/**
+ * How much of its native state a virtualized player keeps.
+ */
+enum class VisibilityTier {
+    /** Decoding and rendering. */
+    ACTIVE,
+
+    /** Player kept, but paused with its video output detached. */
+    PAUSED,
+
+    /** LibVLC and the player released; only a snapshot to restore from is kept. */
+    RELEASED
+}
+
+/**
+ * @param maxActive players per window allowed to decode at once
+ * @param activeFraction visible fraction of its area a player needs to be made active
+ * @param releaseDistance distance off screen, in viewport heights (or widths), beyond which
+ * a player is released
+ */
+data class VirtualizationConfig(
+    val maxActive: Int = 2,
+    val activeFraction: Float = 0.5f,
+    val releaseDistance: Float = 1.0f
+)
+
+interface VirtualizedPlayer {
+    /** Pinned players (e.g. in PiP) stay active whatever their position. */
+    fun isPinned(): Boolean
+
+    /** Called on the main thread when the player's tier changes. */
+    fun onTierChanged(tier: VisibilityTier, visibleFraction: Float)
+}
+
+/**
+ * Assigns a [VisibilityTier] to every registered player view from its on-screen geometry.
+ * Players are grouped by window; in each, the [VirtualizationConfig.maxActive] most visible
+ * players above [VirtualizationConfig.activeFraction] are active, the others within
+ * [VirtualizationConfig.releaseDistance] are paused and the rest are released.
+ *
+ * Updates run on layout and scroll, coalesced to one pass per main-loop turn.
+ */
+object PlayerVirtualizer {
+    private const val TAG = "PlayerVirtualizer"
+
+    /** An active player stays a candidate until it drops this far below the threshold. */
+    private const val HYSTERESIS = 0.1f
+
+    private class Member(
+        val view: View,
+        var config: VirtualizationConfig,
+        val player: VirtualizedPlayer,
+        val order: Long
+    ) {
+        var tier = VisibilityTier.ACTIVE
+        var fraction = 0f
+        var distance = 0f
+        var observer: ViewTreeObserver? = null
+    }
+
+    private val members = LinkedHashMap<View, Member>()
+    private val handler = Handler(Looper.getMainLooper())
+    private val rect = Rect()
+    private val viewport = Rect()
+    private val location = IntArray(2)
+    private var nextOrder = 0L
+    private var updatePending = false
+
+    private val scrollListener = ViewTreeObserver.OnScrollChangedListener { requestUpdate() }
+    private val layoutListener = ViewTreeObserver.OnGlobalLayoutListener { requestUpdate() }
+    private val updateRunnable = Runnable {
+        updatePending = false
+        update()
+    }
+
+    /**
+     * Start managing [view], or update its config if already registered. Main thread only.
+     */
+    @JvmStatic
+    fun register(view: View, config: VirtualizationConfig, player: VirtualizedPlayer) {
+        val existing = members[view]
+        if (existing != null) {
+            existing.config = config
+        } else {
+            val member = Member(view, config, player, nextOrder++)
+            members[view] = member
+            attachObserver(member)
+        }
+        requestUpdate()
+    }
+
+    @JvmStatic
+    fun unregister(view: View) {
+        val member = members.remove(view) ?: return
+        detachObserver(member)
+        requestUpdate()
+    }
+
+    @JvmStatic
+    fun requestUpdate() {
+        if (updatePending) return
+        updatePending = true
+        handler.post(updateRunnable)
+    }
+
+    private fun update() {
+        for (member in members.values) {
+            // The tree observer is replaced when a view moves to another window.
+            if (member.observer?.isAlive != true || member.observer !== member.view.viewTreeObserver) {
+                detachObserver(member)
+                attachObserver(member)
+            }
+            measure(member)
+        }
+        for (group in members.values.groupBy { it.view.rootView }.values) {
+            assign(group)
+        }
+    }
+
+    private fun assign(group: List<Member>) {
+        var budget = group.minOf { it.config.maxActive }.coerceAtLeast(0)
+        val tiers = HashMap<Member, VisibilityTier>()
+        for (member in group) {
+            if (member.player.isPinned()) {
+                tiers[member] = VisibilityTier.ACTIVE
+                budget--
+            }
+        }
+        val candidates = group.filter { member ->
+            val threshold = member.config.activeFraction -
+                    if (member.tier == VisibilityTier.ACTIVE) HYSTERESIS else 0f
+            member !in tiers && member.fraction > 0f && member.fraction >= threshold
+        }.sortedWith(compareByDescending<Member> { it.fraction }.thenBy { it.order })
+        for (member in candidates) {
+            if (budget <= 0) break
+            tiers[member] = VisibilityTier.ACTIVE
+            budget--
+        }
+        for (member in group) {
+            val tier = tiers[member] ?: if (member.distance <= member.config.releaseDistance) {
+                VisibilityTier.PAUSED
+            } else {
+                VisibilityTier.RELEASED
+            }
+            if (tier != member.tier) {
+                Log.d(TAG, "${member.view.id}: ${member.tier} -> $tier (visible ${member.fraction})")
+                member.tier = tier
+                member.player.onTierChanged(tier, member.fraction)
+            }
+        }
+    }
+
+    /**
+     * Visible fraction of the view's area, and its distance from the window's visible frame
+     * in frame heights or widths (0 when at least partly on screen).
+     */
+    private fun measure(member: Member) {
+        val view = member.view
+        val area = view.width.toLong() * view.height
+        if (!view.isAttachedToWindow || area <= 0) {
+            member.fraction = 0f
+            member.distance = Float.MAX_VALUE
+            return
+        }
+        member.fraction = if (view.isShown && view.getGlobalVisibleRect(rect)) {
+            (rect.width().toLong() * rect.height() / area.toFloat()).coerceIn(0f, 1f)
+        } else {
+            0f
+        }
+        view.getWindowVisibleDisplayFrame(viewport)
+        view.getLocationOnScreen(location)
+        if (viewport.isEmpty) {
+            member.distance = 0f
+            return
+        }
+        val left = location[0]
+        val top = location[1]
+        val dy = maxOf(viewport.top - (top + view.height), top - viewport.bottom, 0)
+        val dx = maxOf(viewport.left - (left + view.width), left - viewport.right, 0)
+        member.distance = maxOf(dy / viewport.height().toFloat(), dx / viewport.width().toFloat())
+    }
+
+    private fun attachObserver(member: Member) {
+        val observer = member.view.viewTreeObserver
+        if (!observer.isAlive) return
+        val shared = members.values.any { it.observer === observer }
+        member.observer = observer
+        if (shared) return
+        observer.addOnScrollChangedListener(scrollListener)
+        observer.addOnGlobalLayoutListener(layoutListener)
+    }
+
+    private fun detachObserver(member: Member) {
+        val observer = member.observer ?: return
+        member.observer = null
+        // Other members may share this observer; keep it while any still uses it.
+        if (members.values.any { it.observer === observer }) return
+        if (observer.isAlive) {
+            observer.removeOnScrollChangedListener(scrollListener)
+            observer.removeOnGlobalLayoutListener(layoutListener)
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.yuanzhou.vlc.vlcplayer.wall
+
+import android.content.Context
+import android.os.Handler
+import android.os.Looper
+import android.os.Process
+import android.os.SystemClock
+import android.util.Log
+import org.videolan.libvlc.LibVLC
+import org.videolan.libvlc.interfaces.IMedia
+
+/**
+ * Settings of a tile in a video wall.
+ *
+ * @param group tiles with the same group share one LibVLC
+ * @param maxFps frame rate limit per tile, 0 for the source rate
+ * @param skipNonRefFrames skip decoding of non-reference frames and their loop filter
+ * @param hwDecoding use MediaCodec; off by default since walls usually exceed its session budget
+ * @param audio decode audio; CCTV walls usually do not need it
+ * @param statsIntervalMs interval of `onWallStats`, 0 to disable
+ */
+data class WallConfig(
+    val group: String = "default",
+    val maxFps: Int = 0,
+    val skipNonRefFrames: Boolean = true,
+    val hwDecoding: Boolean = false,
+    val audio: Boolean = false,
+    val statsIntervalMs: Long = 2_000
+)
+
+/**
+ * Statistics of one tile over the last interval. [cpuShare] is the tile's estimated share of
+ * the process CPU time, apportioned by decoded pixels; [processCpuPercent] is the process CPU
+ * usage over all cores.
+ */
+data class TileStats(
+    val decodedFrames: Int,
+    val displayedFrames: Int,
+    val droppedFrames: Int,
+    val decodeFps: Double,
+    val inputKbps: Double,
+    val lowres: Int,
+    val cpuShare: Double,
+    val processCpuPercent: Double
+)
+
+interface WallTile {
+    /** Statistics of the current media, or null if none. Main thread. */
+    fun readStats(): IMedia.Stats?
+
+    /** Pixels of a decoded frame, after lowres. */
+    fun decodedPixels(): Long
+
+    fun lowres(): Int
+
+    /** Called on the main thread every [WallConfig.statsIntervalMs]. */
+    fun onWallStats(stats: TileStats)
+}
+
+/**
+ * Shared state of video walls: one ref-counted [LibVLC] per group, configured for many small
+ * low-memory decodes, and a single stats loop over all tiles.
+ */
+object VideoWall {
+    private const val TAG = "VideoWall"
+
+    /** Largest lowres shift; avcodec decodes at 1/2^n of the source size. */
+    private const val MAX_LOWRES = 2
+    private const val ASSUMED_WIDTH = 1920
+    private const val ASSUMED_HEIGHT = 1080
+
+    private class SharedLibVlc(val libvlc: LibVLC) {
+        var refs = 0
+    }
+
+    private class TileState(val tile: WallTile, val intervalMs: Long) {
+        var lastSampleMs = 0L
+        var decoded = 0
+        var displayed = 0
+        var lost = 0
+        var readBytes = 0L
+    }
+
+    private val libraries = HashMap<String, SharedLibVlc>()
+    private val tiles = LinkedHashMap<WallTile, TileState>()
+    private val handler = Handler(Looper.getMainLooper())
+    private var lastCpuMs = 0L
+    private var lastCpuSampleMs = 0L
+    private var processCpuPercent = 0.0
+
+    /**
+     * Options for a LibVLC shared by many tiles: one decoder thread per tile so frame
+     * threading does not multiply the picture pool, and no OSD or subtitle rendering.
+     */
+    private val LIBVLC_OPTIONS = arrayListOf(
+        "--avcodec-threads=1",
+        "--no-osd",
+        "--no-spu",
+        "--no-sub-autodetect-file",
+        "--no-snapshot-preview"
+    )
+
+    private val sampler = object : Runnable {
+        override fun run() {
+            sample()
+            if (tiles.isNotEmpty()) handler.postDelayed(this, tickMs())
+        }
+    }
+
+    @JvmStatic
+    fun acquire(context: Context, group: String): LibVLC {
+        val shared = libraries.getOrPut(group) {
+            Log.d(TAG, "creating LibVLC for wall '$group'")
+            SharedLibVlc(LibVLC(context.applicationContext, LIBVLC_OPTIONS))
+        }
+        shared.refs++
+        return shared.libvlc
+    }
+
+    @JvmStatic
+    fun release(group: String) {
+        val shared = libraries[group] ?: return
+        if (--shared.refs > 0) return
+        libraries.remove(group)
+        shared.libvlc.release()
+        Log.d(TAG, "released LibVLC of wall '$group'")
+    }
+
+    /**
+     * Media options of a tile decoding at 1/2^[lowres] of the source size.
+     */
+    @JvmStatic
+    fun mediaOptions(config: WallConfig, lowres: Int): List<String> {
+        val options = ArrayList<String>()
+        if (lowres > 0) options.add(":avcodec-lowres=$lowres")
+        if (config.skipNonRefFrames) {
+            options.add(":avcodec-skip-frame=1")
+            options.add(":avcodec-skiploopfilter=1")
+            options.add(":avcodec-hurry-up")
+        }
+        if (config.maxFps > 0) {
+            options.add(":video-filter=fps")
+            options.add(":fps-fps=${config.maxFps}")
+        }
+        if (!config.audio) options.add(":no-audio")
+        return options
+    }
+
+    /**
+     * Largest lowres shift that still decodes at least the tile's size. An unknown source
+     * size is assumed to be 1080p.
+     */
+    @JvmStatic
+    fun lowresFor(videoWidth: Int, videoHeight: Int, tileWidth: Int, tileHeight: Int): Int {
+        if (tileWidth <= 0 || tileHeight <= 0) return 0
+        val w = if (videoWidth > 0) videoWidth else ASSUMED_WIDTH
+        val h = if (videoHeight > 0) videoHeight else ASSUMED_HEIGHT
+        var lowres = 0
+        while (lowres < MAX_LOWRES && (w shr (lowres + 1)) >= tileWidth && (h shr (lowres + 1)) >= tileHeight) {
+            lowres++
+        }
+        return lowres
+    }
+
+    @JvmStatic
+    fun addTile(tile: WallTile, statsIntervalMs: Long) {
+        if (statsIntervalMs <= 0) return
+        val wasEmpty = tiles.isEmpty()
+        tiles[tile] = TileState(tile, statsIntervalMs)
+        if (wasEmpty) {
+            lastCpuMs = Process.getElapsedCpuTime()
+            lastCpuSampleMs = SystemClock.elapsedRealtime()
+            handler.postDelayed(sampler, tickMs())
+        }
+    }
+
+    @JvmStatic
+    fun removeTile(tile: WallTile) {
+        tiles.remove(tile)
+        if (tiles.isEmpty()) handler.removeCallbacks(sampler)
+    }
+
+    private fun tickMs(): Long = tiles.values.minOfOrNull { it.intervalMs } ?: 1_000L
+
+    private fun sample() {
+        val now = SystemClock.elapsedRealtime()
+        val cpuMs = Process.getElapsedCpuTime()
+        if (now > lastCpuSampleMs) {
+            val cores = Runtime.getRuntime().availableProcessors().coerceAtLeast(1)
+            processCpuPercent = (cpuMs - lastCpuMs) * 100.0 / ((now - lastCpuSampleMs) * cores)
+        }
+        lastCpuMs = cpuMs
+        lastCpuSampleMs = now
+
+        // Estimated decode cost of every tile since its last sample, to apportion the CPU.
+        val costs = HashMap<TileState, Double>()
+        val deltas = HashMap<TileState, IMedia.Stats>()
+        for (state in tiles.values) {
+            val stats = state.tile.readStats() ?: continue
+            deltas[state] = stats
+            costs[state] = (stats.decodedVideo - state.decoded).coerceAtLeast(0) * state.tile.decodedPixels().toDouble()
+        }
+        val totalCost = costs.values.sum()
+
+        for ((state, stats) in deltas) {
+            val elapsed = now - state.lastSampleMs
+            if (state.lastSampleMs > 0 && elapsed < state.intervalMs) continue
+            if (state.lastSampleMs > 0) {
+                val decoded = (stats.decodedVideo - state.decoded).coerceAtLeast(0)
+                val bytes = (stats.readBytes.toLong() - state.readBytes).coerceAtLeast(0)
+                state.tile.onWallStats(
+                    TileStats(
+                        decodedFrames = decoded,
+                        displayedFrames = (stats.displayedPictures - state.displayed).coerceAtLeast(0),
+                        droppedFrames = (stats.lostPictures - state.lost).coerceAtLeast(0),
+                        decodeFps = decoded * 1000.0 / elapsed,
+                        inputKbps = bytes * 8.0 / elapsed,
+                        lowres = state.tile.lowres(),
+                        cpuShare = if (totalCost > 0) (costs[state] ?: 0.0) / totalCost else 0.0,
+                        processCpuPercent = processCpuPercent
+                    )
+                )
+            }
+            state.lastSampleMs = now
+            state.decoded = stats.decodedVideo
+            state.displayed = stats.displayedPictures
+            state.lost = stats.lostPictures
+            state.readBytes = stats.readBytes.toLong()
+        }
+    }
+}
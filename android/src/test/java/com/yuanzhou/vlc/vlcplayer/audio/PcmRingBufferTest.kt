@@ -0,0 +1,45 @@
+package com.yuanzhou.vlc.vlcplayer.audio
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class PcmRingBufferTest {
+
+    @Test
+    fun readsTheMostRecentSamplesOldestFirst() {
+        val ring = PcmRingBuffer(8)
+        ring.writeUnsigned8(byteArrayOf(128.toByte(), 192.toByte(), 0), 3)
+        ring.writeUnsigned8(byteArrayOf(255.toByte()), 1)
+        val dst = FloatArray(3)
+        assertEquals(3, ring.readLatest(dst, 3))
+        assertEquals(0.5f, dst[0], 0f)
+        assertEquals(-1f, dst[1], 0f)
+        assertEquals(127f / 128f, dst[2], 0f)
+    }
+
+    @Test
+    fun readerNeverSeesATornBatch() {
+        // Every batch is one constant value; a copy mixing two batches would show two values.
+        val ring = PcmRingBuffer(1024)
+        val batch = ByteArray(ring.capacity())
+        val producer = Thread {
+            for (round in 0 until 2_000) {
+                batch.fill((round % 256).toByte())
+                ring.writeUnsigned8(batch, batch.size)
+            }
+        }
+        producer.start()
+        val dst = FloatArray(ring.capacity())
+        var reads = 0
+        while (producer.isAlive || reads == 0) {
+            val n = ring.readLatest(dst, dst.size)
+            if (n == dst.size) {
+                for (i in 1 until n) assertEquals(dst[0], dst[i], 0f)
+                reads++
+            }
+        }
+        producer.join()
+        assertTrue(reads > 0)
+    }
+}
@@ -0,0 +1,79 @@
+package com.yuanzhou.vlc.vlcplayer.core
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.lang.management.ManagementFactory
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicReference
+
+/**
+ * Cost of posting: bytes allocated per event, and ns per event with a consumer on another
+ * thread. Timings are printed, not asserted.
+ */
+class EventCoalescerBenchmarkTest {
+
+    private companion object {
+        const val EVENTS = 1_000_000
+        const val PROGRESS = 1
+        const val PLAYING = 0
+        const val ENDED = 3
+    }
+
+    private class CountingSink : EventCoalescer.Sink {
+        var discrete = 0L
+
+        override fun onDiscrete(event: Int) {
+            discrete++
+        }
+
+        override fun onPending(flags: Int) {}
+
+        override fun onPassEnd() {}
+    }
+
+    private val threads = ManagementFactory.getThreadMXBean() as com.sun.management.ThreadMXBean
+
+    @Test
+    fun postingDoesNotAllocate() {
+        // Passes run inline, so the ring never fills and only posting is measured.
+        val coalescer = EventCoalescer({ it.run() }, setOf(ENDED), CountingSink())
+        postBurst(coalescer, EVENTS / 10)
+        val thread = Thread.currentThread().id
+        val bytesBefore = threads.getThreadAllocatedBytes(thread)
+        postBurst(coalescer, EVENTS)
+        val allocated = threads.getThreadAllocatedBytes(thread) - bytesBefore
+        // Slack for the measurement itself; a queue node per discrete event would be 1.5 MB.
+        assertTrue("allocated $allocated bytes", allocated < 4 * 1024)
+    }
+
+    @Test
+    fun throughputUnderLoad() {
+        val sink = CountingSink()
+        val posted = AtomicReference<Runnable?>(null)
+        val coalescer = EventCoalescer({ posted.set(it) }, setOf(ENDED), sink)
+        val running = AtomicBoolean(true)
+        val consumer = Thread {
+            while (running.get() || posted.get() != null) posted.getAndSet(null)?.run() ?: Thread.onSpinWait()
+        }
+        consumer.start()
+        postBurst(coalescer, EVENTS / 10)
+        val thread = Thread.currentThread().id
+        val bytesBefore = threads.getThreadAllocatedBytes(thread)
+        val start = System.nanoTime()
+        postBurst(coalescer, EVENTS)
+        val elapsed = System.nanoTime() - start
+        val allocated = threads.getThreadAllocatedBytes(thread) - bytesBefore
+        running.set(false)
+        consumer.join()
+        println("EventCoalescer: ${elapsed / EVENTS} ns/event, $allocated bytes allocated for $EVENTS events")
+
+        assertEquals((EVENTS / 10 + EVENTS) / 16L, sink.discrete)
+    }
+
+    private fun postBurst(coalescer: EventCoalescer, count: Int) {
+        for (i in 0 until count) {
+            if (i % 16 == 0) coalescer.postDiscrete(if (i % 32 == 0) PLAYING else ENDED) else coalescer.postPending(PROGRESS)
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.yuanzhou.vlc.vlcplayer.core
+
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.util.Collections
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+class EventCoalescerTest {
+
+    private companion object {
+        const val PROGRESS = 1
+        const val BUFFERING = 2
+        const val PLAYING = 0
+        const val ENDED = 3
+    }
+
+    private class Recorder : EventCoalescer.Sink {
+        val delivered: MutableList<String> = Collections.synchronizedList(ArrayList())
+        @Volatile
+        var passes = 0
+
+        override fun onDiscrete(event: Int) {
+            delivered.add("event:$event")
+        }
+
+        override fun onPending(flags: Int) {
+            delivered.add("flags:$flags")
+        }
+
+        override fun onPassEnd() {
+            passes++
+        }
+    }
+
+    // Stand in for the main thread: a real one, and a queue run by the test itself.
+    private val consumer = Executors.newSingleThreadExecutor()
+    private val deferred = ArrayList<Runnable>()
+
+    @After
+    fun tearDown() {
+        consumer.shutdownNow()
+    }
+
+    @Test
+    fun burstFromAnotherThreadIsDeliveredOnce() {
+        val recorder = Recorder()
+        val gate = CountDownLatch(1)
+        // Hold the consumer until the producer is done, as a busy main thread would.
+        consumer.execute { gate.await() }
+        val coalescer = EventCoalescer({ consumer.execute(it) }, setOf(ENDED), recorder)
+
+        val producer = Thread {
+            repeat(10_000) {
+                coalescer.postPending(PROGRESS)
+                if (it % 100 == 0) coalescer.postPending(BUFFERING)
+            }
+        }
+        producer.start()
+        producer.join()
+        gate.countDown()
+        drain()
+
+        assertEquals(listOf("flags:${PROGRESS or BUFFERING}"), recorder.delivered)
+        assertEquals(DispatchStats(10_100, 1), coalescer.stats())
+    }
+
+    @Test
+    fun concurrentPostsKeepDiscreteOrderAndCoalescePending() {
+        val recorder = Recorder()
+        val coalescer = EventCoalescer({ consumer.execute(it) }, setOf(ENDED), recorder)
+
+        val producer = Thread {
+            repeat(2_000) {
+                coalescer.postDiscrete(if (it % 2 == 0) PLAYING else ENDED)
+                repeat(20) { coalescer.postPending(PROGRESS) }
+            }
+        }
+        producer.start()
+        producer.join()
+        drain()
+
+        val events = recorder.delivered.filter { it.startsWith("event:") }
+        assertEquals(List(2_000) { "event:${if (it % 2 == 0) PLAYING else ENDED}" }, events)
+        val progress = recorder.delivered.count { it == "flags:$PROGRESS" }
+        val stats = coalescer.stats()
+        assertEquals(42_000L, stats.events)
+        assertEquals(stats.dispatches, recorder.passes.toLong())
+        // At most one progress delivery per pass plus one before each ENDED.
+        assertTrue(progress <= stats.dispatches + 1_000)
+        assertTrue(progress < 40_000)
+    }
+
+    @Test
+    fun pendingProgressIsFlushedBeforeATerminalEvent() {
+        val recorder = Recorder()
+        val coalescer = EventCoalescer({ r: Runnable -> deferred.add(r) }, setOf(ENDED), recorder)
+        coalescer.postDiscrete(PLAYING)
+        coalescer.postPending(PROGRESS)
+        coalescer.postDiscrete(ENDED)
+        runDeferred()
+
+        assertEquals(listOf("event:$PLAYING", "flags:$PROGRESS", "event:$ENDED"), recorder.delivered)
+    }
+
+    @Test
+    fun pendingIsDeliveredAfterNonTerminalEvents() {
+        val recorder = Recorder()
+        val coalescer = EventCoalescer({ r: Runnable -> deferred.add(r) }, setOf(ENDED), recorder)
+        coalescer.postPending(PROGRESS)
+        coalescer.postDiscrete(PLAYING)
+        runDeferred()
+
+        assertEquals(listOf("event:$PLAYING", "flags:$PROGRESS"), recorder.delivered)
+    }
+
+    @Test
+    fun eventsBeyondTheRingKeepTheirOrder() {
+        val recorder = Recorder()
+        val coalescer = EventCoalescer({ r: Runnable -> deferred.add(r) }, setOf(ENDED), recorder)
+        val count = EventCoalescer.RING_SIZE + 10
+        repeat(count) { coalescer.postDiscrete(it) }
+        runDeferred()
+        coalescer.postDiscrete(PLAYING)
+        runDeferred()
+
+        assertEquals(List(count) { "event:$it" } + "event:$PLAYING", recorder.delivered)
+    }
+
+    @Test
+    fun clearDropsUndeliveredEvents() {
+        val recorder = Recorder()
+        val coalescer = EventCoalescer({ r: Runnable -> deferred.add(r) }, setOf(ENDED), recorder)
+        coalescer.postPending(PROGRESS)
+        coalescer.postDiscrete(ENDED)
+        coalescer.clear()
+        runDeferred()
+
+        assertTrue(recorder.delivered.isEmpty())
+        coalescer.postDiscrete(PLAYING)
+        runDeferred()
+        assertEquals(listOf("event:$PLAYING"), recorder.delivered)
+    }
+
+    private fun runDeferred() {
+        while (deferred.isNotEmpty()) deferred.removeAt(0).run()
+    }
+
+    /** Wait until the consumer has run every pass posted so far. */
+    private fun drain() {
+        consumer.submit {}.get(10, TimeUnit.SECONDS)
+    }
+}
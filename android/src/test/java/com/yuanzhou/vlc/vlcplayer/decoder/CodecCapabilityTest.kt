@@ -0,0 +1,74 @@
+package com.yuanzhou.vlc.vlcplayer.decoder
+
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class CodecCapabilityTest {
+
+    // A typical mid-range HEVC decoder: 4K only at 30 fps, 1080p at 120.
+    private val hevc = CodecCapability(
+        name = "c2.vendor.hevc.decoder",
+        mime = "video/hevc",
+        hardware = true,
+        profiles = listOf(1, 2),
+        tenBit = true,
+        maxWidth = 4096,
+        maxHeight = 2304,
+        frameRateLimits = listOf(
+            FrameRateLimit(1280, 720, 240),
+            FrameRateLimit(1920, 1080, 120),
+            FrameRateLimit(3840, 2160, 30)
+        ),
+        maxInstances = 8
+    )
+
+    @Test
+    fun rateIsCheckedAtTheSourceSizeNotTheLargestSize() {
+        // Only 30 fps at the largest size; that must not rule out 1080p60.
+        assertTrue(hevc.handles(1920, 1080, 60f, false))
+        assertTrue(hevc.handles(1920, 1080, 119.88f, false))
+        assertFalse(hevc.handles(1920, 1080, 144f, false))
+    }
+
+    @Test
+    fun rateBetweenReferenceSizesScalesWithPixelCount() {
+        // 2560x1440 is covered by 2160p: 30 fps at 2.25x the pixels allows ~67 fps.
+        assertTrue(hevc.handles(2560, 1440, 60f, false))
+        assertFalse(hevc.handles(2560, 1440, 90f, false))
+        assertTrue(hevc.handles(3840, 2160, 29.97f, false))
+        assertFalse(hevc.handles(3840, 2160, 60f, false))
+    }
+
+    @Test
+    fun portraitSourcesMatchLandscapeLimits() {
+        assertTrue(hevc.handles(1080, 1920, 60f, false))
+        assertFalse(hevc.handles(2160, 3840, 60f, false))
+    }
+
+    @Test
+    fun sizeBeyondTheDecoderIsRejected() {
+        assertFalse(hevc.handles(7680, 4320, 0f, false))
+        // Wider than any reference but within the decoder: scaled from 2160p30.
+        assertFalse(hevc.handles(4096, 2160, 60f, false))
+        assertTrue(hevc.handles(4096, 2160, 24f, false))
+    }
+
+    @Test
+    fun unknownRateOrUnsupportedReferenceSkipsTheRateCheck() {
+        assertTrue(hevc.handles(3840, 2160, 0f, false))
+        val small = hevc.copy(
+            maxWidth = 1920, maxHeight = 1088,
+            frameRateLimits = listOf(FrameRateLimit(1280, 720, 60), FrameRateLimit(1920, 1080, 0), FrameRateLimit(3840, 2160, 0))
+        )
+        // 1080p itself is not reported, so only the size bound applies.
+        assertTrue(small.handles(1920, 1080, 30f, false))
+        assertFalse(small.handles(1280, 720, 120f, false))
+    }
+
+    @Test
+    fun tenBitSourceNeedsATenBitDecoder() {
+        assertTrue(hevc.handles(1920, 1080, 30f, true))
+        assertFalse(hevc.copy(tenBit = false).handles(1920, 1080, 30f, true))
+    }
+}
@@ -0,0 +1,118 @@
+package com.yuanzhou.vlc.vlcplayer.proxy
+
+import com.sun.net.httpserver.HttpExchange
+import com.sun.net.httpserver.HttpServer
+import org.junit.After
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import java.io.File
+import java.net.HttpURLConnection
+import java.net.InetAddress
+import java.net.InetSocketAddress
+import java.net.URL
+import java.nio.file.Files
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicInteger
+
+class LocalCachingProxyTest {
+
+    private class Reply(val code: Int, val headers: Map<String, String>, val body: ByteArray)
+
+    // Not a multiple of the block size, so the last block is short.
+    private val data = ByteArray(3 * ProxyCacheStore.BLOCK_BYTES + 12_345) { (it * 31 + it / 7).toByte() }
+    private val originRequests = ConcurrentHashMap<String, AtomicInteger>()
+    private lateinit var origin: HttpServer
+    private lateinit var cacheDir: File
+    private lateinit var proxy: LocalCachingProxy
+
+    @Before
+    fun setUp() {
+        origin = HttpServer.create(InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0)
+        origin.createContext("/file") { serveOrigin(it, knownLength = true) }
+        origin.createContext("/live") { serveOrigin(it, knownLength = false) }
+        origin.start()
+        cacheDir = Files.createTempDirectory("proxy").toFile()
+        proxy = LocalCachingProxy(cacheDir, LocalCachingProxy.DEFAULT_MAX_BYTES)
+        assertTrue(proxy.start())
+    }
+
+    @After
+    fun tearDown() {
+        origin.stop(0)
+        cacheDir.deleteRecursively()
+    }
+
+    @Test
+    fun fullResponseHasTheWholeBody() {
+        val reply = get("/file", null)
+        assertEquals(200, reply.code)
+        assertEquals(data.size.toString(), reply.headers["content-length"])
+        assertArrayEquals(data, reply.body)
+    }
+
+    @Test
+    fun rangedResponseStartsAtTheRequestedOffset() {
+        val reply = get("/file", "bytes=300000-400000")
+        assertEquals(206, reply.code)
+        assertEquals("bytes 300000-400000/${data.size}", reply.headers["content-range"])
+        assertArrayEquals(data.copyOfRange(300_000, 400_001), reply.body)
+    }
+
+    @Test
+    fun secondRequestIsServedFromTheCache() {
+        get("/file", null)
+        val before = originRequests["/file"]!!.get()
+        val reply = get("/file", "bytes=100-")
+        assertEquals(206, reply.code)
+        assertArrayEquals(data.copyOfRange(100, data.size), reply.body)
+        assertEquals(before, originRequests["/file"]!!.get())
+        assertEquals((data.size - 100).toLong(), proxy.stats().bytesFromCache)
+    }
+
+    @Test
+    fun unknownLengthIsRelayedWhole() {
+        val reply = get("/live", null)
+        assertEquals(200, reply.code)
+        assertArrayEquals(data, reply.body)
+    }
+
+    @Test
+    fun unknownLengthRangeStartsAtTheRequestedOffset() {
+        // Not block aligned: the proxy opens the origin at the block boundary below it.
+        val reply = get("/live", "bytes=300000-")
+        assertEquals(206, reply.code)
+        assertEquals("bytes 300000-${data.size - 1}/*", reply.headers["content-range"])
+        assertArrayEquals(data.copyOfRange(300_000, data.size), reply.body)
+    }
+
+    private fun get(path: String, range: String?): Reply {
+        val url = proxy.proxyUrl("http://127.0.0.1:${origin.address.port}$path")
+        val connection = URL(url).openConnection() as HttpURLConnection
+        if (range != null) connection.setRequestProperty("Range", range)
+        try {
+            val code = connection.responseCode
+            val headers = connection.headerFields.filterKeys { it != null }
+                .map { (name, values) -> name.lowercase() to values.first() }.toMap()
+            val body = (if (code >= 400) connection.errorStream else connection.inputStream)?.use { it.readBytes() } ?: ByteArray(0)
+            return Reply(code, headers, body)
+        } finally {
+            connection.disconnect()
+        }
+    }
+
+    /** Honours `bytes=a-`; without [knownLength] the body is chunked and the total is `*`. */
+    private fun serveOrigin(exchange: HttpExchange, knownLength: Boolean) {
+        originRequests.getOrPut(exchange.requestURI.path) { AtomicInteger() }.incrementAndGet()
+        val from = exchange.requestHeaders.getFirst("Range")
+            ?.removePrefix("bytes=")?.substringBefore('-')?.toIntOrNull() ?: 0
+        val body = data.copyOfRange(from, data.size)
+        val total = if (knownLength) data.size.toString() else "*"
+        if (from > 0) exchange.responseHeaders.add("Content-Range", "bytes $from-${data.size - 1}/$total")
+        exchange.responseHeaders.add("Content-Type", "video/mp4")
+        exchange.sendResponseHeaders(if (from > 0) 206 else 200, if (knownLength) body.size.toLong() else 0L)
+        exchange.responseBody.use { it.write(body) }
+    }
+}
@@ -0,0 +1,50 @@
+package com.yuanzhou.vlc.vlcplayer.proxy
+
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import java.io.File
+import java.nio.file.Files
+
+class ProxyCacheStoreTest {
+
+    private lateinit var dir: File
+
+    @Before
+    fun setUp() {
+        dir = Files.createTempDirectory("store").toFile()
+    }
+
+    @After
+    fun tearDown() {
+        dir.deleteRecursively()
+    }
+
+    @Test
+    fun metaFilesCountTowardTheSize() {
+        val store = ProxyCacheStore(dir, Long.MAX_VALUE)
+        store.putMeta("a", ResourceMeta(1_000, "video/mp4"))
+        val metaBytes = File(dir, "a.meta").length()
+        assertTrue(metaBytes > 0)
+        assertEquals(metaBytes, store.sizeBytes)
+        assertEquals(metaBytes, ProxyCacheStore(dir, Long.MAX_VALUE).sizeBytes)
+    }
+
+    @Test
+    fun leastRecentlyUsedMetaIsEvicted() {
+        val block = ByteArray(ProxyCacheStore.BLOCK_BYTES)
+        val store = ProxyCacheStore(dir, ProxyCacheStore.BLOCK_BYTES.toLong())
+        store.putMeta("a", ResourceMeta(1_000, "video/mp4"))
+        store.putBlock("b", 0, block, block.size)
+
+        assertNull(store.meta("a"))
+        assertFalse(File(dir, "a.meta").exists())
+        assertNotNull(store.block("b", 0))
+        assertEquals(ProxyCacheStore.BLOCK_BYTES.toLong(), store.sizeBytes)
+    }
+}
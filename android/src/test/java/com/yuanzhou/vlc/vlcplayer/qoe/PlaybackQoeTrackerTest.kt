@@ -0,0 +1,131 @@
+package com.yuanzhou.vlc.vlcplayer.qoe
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class PlaybackQoeTrackerTest {
+
+    private class RecordingListener : StallListener {
+        val events = ArrayList<String>()
+
+        override fun onStallStarted(stallCount: Int) {
+            events.add("start:$stallCount")
+        }
+
+        override fun onStallEnded(stallCount: Int, durationMs: Long) {
+            events.add("end:$stallCount:$durationMs")
+        }
+    }
+
+    @Test
+    fun startupRunsFromOpenToTheEndOfInitialBuffering() {
+        val tracker = PlaybackQoeTracker(1_000)
+        tracker.onBuffering(0f, 1_100)
+        tracker.onPlaying(1_300)
+        tracker.onBuffering(100f, 1_800)
+        val summary = tracker.finish(11_800)
+
+        assertEquals(800L, summary.startupMs)
+        assertEquals(10_000L, summary.playingMs)
+        assertEquals(0, summary.rebufferCount)
+        assertEquals(97, summary.score)
+    }
+
+    @Test
+    fun startupWithoutBufferingEventsEndsAtPlaying() {
+        val tracker = PlaybackQoeTracker(0)
+        tracker.onPlaying(400)
+        assertEquals(400L, tracker.finish(1_400).startupMs)
+    }
+
+    @Test
+    fun bufferingWhilePlayingIsAStall() {
+        val listener = RecordingListener()
+        val tracker = PlaybackQoeTracker(0)
+        tracker.listener = listener
+        tracker.onPlaying(500)
+        tracker.onBuffering(50f, 10_500)
+        assertTrue(tracker.isStalled)
+        tracker.onBuffering(80f, 11_000)
+        tracker.onBuffering(100f, 12_500)
+        assertFalse(tracker.isStalled)
+        val summary = tracker.finish(22_500)
+
+        assertEquals(listOf("start:1", "end:1:2000"), listener.events)
+        assertEquals(1, summary.rebufferCount)
+        assertEquals(2_000L, summary.rebufferMs)
+        assertEquals(2_000L, summary.longestRebufferMs)
+        assertEquals(20_000L, summary.playingMs)
+        assertEquals(2_000.0 / 22_000.0, summary.rebufferRatio, 1e-9)
+        assertEquals(3.0, summary.stallsPerMinute, 1e-9)
+        assertEquals(23, summary.score)
+    }
+
+    @Test
+    fun pausingEndsAStall() {
+        val listener = RecordingListener()
+        val tracker = PlaybackQoeTracker(0)
+        tracker.listener = listener
+        tracker.onPlaying(0)
+        tracker.onBuffering(10f, 1_000)
+        tracker.onPaused(1_500)
+        assertFalse(tracker.isStalled)
+        assertEquals(listOf("start:1", "end:1:500"), listener.events)
+    }
+
+    @Test
+    fun bufferingRightAfterASeekIsNotAStall() {
+        val listener = RecordingListener()
+        val tracker = PlaybackQoeTracker(0)
+        tracker.listener = listener
+        tracker.onPlaying(0)
+        tracker.onSeek(5_000)
+        tracker.onBuffering(20f, 5_100)
+        assertFalse(tracker.isStalled)
+        tracker.onBuffering(100f, 5_600)
+        val summary = tracker.finish(10_000)
+
+        assertTrue(listener.events.isEmpty())
+        assertEquals(1, summary.seekCount)
+        assertEquals(500L, summary.seekBufferingMs)
+        assertEquals(0, summary.rebufferCount)
+    }
+
+    @Test
+    fun bufferingLongAfterASeekIsAStall() {
+        val tracker = PlaybackQoeTracker(0)
+        tracker.onPlaying(0)
+        tracker.onSeek(5_000)
+        tracker.onBuffering(20f, 5_000 + PlaybackQoeTracker.SEEK_WINDOW_MS + 1)
+        assertTrue(tracker.isStalled)
+        assertEquals(1, tracker.finish(9_000).rebufferCount)
+    }
+
+    @Test
+    fun finishClosesAnOpenStall() {
+        val listener = RecordingListener()
+        val tracker = PlaybackQoeTracker(0)
+        tracker.listener = listener
+        tracker.onPlaying(0)
+        tracker.onBuffering(10f, 1_000)
+        val summary = tracker.finish(4_000)
+
+        assertEquals(4_000L, summary.sessionMs)
+        assertEquals(1_000L, summary.playingMs)
+        assertEquals(3_000L, summary.rebufferMs)
+        assertEquals(listOf("start:1", "end:1:3000"), listener.events)
+    }
+
+    @Test
+    fun sessionThatNeverStartedScoresZero() {
+        val tracker = PlaybackQoeTracker(0)
+        tracker.onBuffering(0f, 100)
+        val summary = tracker.finish(5_000)
+
+        assertEquals(-1L, summary.startupMs)
+        assertEquals(0L, summary.playingMs)
+        assertEquals(0, summary.score)
+    }
+}
@@ -0,0 +1,66 @@
+package com.yuanzhou.vlc.vlcplayer.subtitle
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.util.Random
+
+class SubtitleCueIndexTest {
+
+    private fun cue(startMs: Long, endMs: Long, text: String = "$startMs-$endMs") = SubtitleCue(0, startMs, endMs, text)
+
+    private fun texts(cues: List<SubtitleCue>) = cues.map { it.text }
+
+    @Test
+    fun startIsInclusiveAndEndExclusive() {
+        val index = SubtitleCueIndex(listOf(cue(1_000, 2_000, "a")))
+        assertTrue(index.activeAt(999).isEmpty())
+        assertEquals(listOf("a"), texts(index.activeAt(1_000)))
+        assertEquals(listOf("a"), texts(index.activeAt(1_999)))
+        assertTrue(index.activeAt(2_000).isEmpty())
+    }
+
+    @Test
+    fun overlappingCuesComeInStartOrder() {
+        // Given out of order, with a long cue spanning the others.
+        val index = SubtitleCueIndex(listOf(cue(3_000, 4_000, "c"), cue(0, 10_000, "long"), cue(2_500, 3_500, "b")))
+        assertEquals(listOf("long", "b", "c"), texts(index.activeAt(3_200)))
+        assertEquals(listOf("long"), texts(index.activeAt(5_000)))
+        assertEquals(listOf(0, 1, 2), index.activeAt(3_200).map { it.id })
+    }
+
+    @Test
+    fun emptyCuesAreDropped() {
+        val index = SubtitleCueIndex(listOf(cue(1_000, 1_000), cue(2_000, 1_500), cue(3_000, 3_100)))
+        assertEquals(1, index.size)
+        assertTrue(index.activeAt(1_000).isEmpty())
+    }
+
+    @Test
+    fun nextBoundaryIsTheFirstStartOrEndAfterTheTime() {
+        val index = SubtitleCueIndex(listOf(cue(1_000, 2_000), cue(1_500, 3_000)))
+        assertEquals(1_000L, index.nextBoundaryAfter(0))
+        assertEquals(1_500L, index.nextBoundaryAfter(1_000))
+        assertEquals(2_000L, index.nextBoundaryAfter(1_500))
+        assertEquals(3_000L, index.nextBoundaryAfter(2_999))
+        assertEquals(-1L, index.nextBoundaryAfter(3_000))
+        assertEquals(-1L, SubtitleCueIndex(emptyList()).nextBoundaryAfter(0))
+    }
+
+    @Test
+    fun matchesALinearScan() {
+        val random = Random(42)
+        val cues = List(500) {
+            val start = random.nextInt(600_000).toLong()
+            cue(start, start + 200 + random.nextInt(8_000), "cue$it")
+        }
+        val index = SubtitleCueIndex(cues)
+        repeat(2_000) {
+            val time = random.nextInt(610_000).toLong()
+            val expected = cues.filter { time >= it.startMs && time < it.endMs }
+            assertEquals(texts(expected).sorted(), texts(index.activeAt(time)).sorted())
+            val starts = index.activeAt(time).map { it.startMs }
+            assertEquals(starts.sorted(), starts)
+        }
+    }
+}
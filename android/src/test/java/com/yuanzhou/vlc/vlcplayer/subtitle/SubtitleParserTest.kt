@@ -0,0 +1,40 @@
+package com.yuanzhou.vlc.vlcplayer.subtitle
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class SubtitleParserTest {
+
+    private fun times(text: String) = SubtitleParser.parse(text).map { it.startMs to it.endMs }
+
+    @Test
+    fun srtTimestampsWithCommaMillis() {
+        val cues = SubtitleParser.parse("1\n00:00:01,500 --> 00:00:03,250\nHello\n\n2\n01:02:03,004 --> 01:02:04,000\n<i>World</i>\n")
+        assertEquals(listOf(1_500L to 3_250L, 3_723_004L to 3_724_000L), cues.map { it.startMs to it.endMs })
+        assertEquals(listOf("Hello", "World"), cues.map { it.text })
+    }
+
+    @Test
+    fun vttTimestampsWithoutHoursAndWithSettings() {
+        val text = "WEBVTT\n\nNOTE a comment\n\n00:01.000 --> 00:02.500 align:start\nOne\n\nid\n00:00:10.000 --> 00:00:11.000\nTwo\n"
+        assertEquals(listOf(1_000L to 2_500L, 10_000L to 11_000L), times(text))
+    }
+
+    @Test
+    fun fractionIsReadInItsOwnUnit() {
+        // ASS uses centiseconds; a short fraction is still a fraction of a second.
+        val ass = "[Script Info]\nTitle: t\n\n[Events]\nFormat: Layer, Start, End, Style, Name, MarginL, MarginR, MarginV, Effect, Text\n" +
+            "Dialogue: 0,0:00:01.50,0:00:02.05,Default,,0,0,0,,{\\i1}Hi, there\\Nnext\n"
+        val cues = SubtitleParser.parse(ass)
+        assertEquals(listOf(1_500L to 2_050L), cues.map { it.startMs to it.endMs })
+        assertEquals("Hi, there\nnext", cues[0].text)
+        assertEquals(listOf(5_500L to 6_000L), times("00:00:05.5 --> 00:00:06.0\nx\n"))
+    }
+
+    @Test
+    fun blocksWithoutValidTimingAreSkipped() {
+        assertTrue(SubtitleParser.parse("1\n00:00:xx,000 --> 00:00:02,000\nBad\n").isEmpty())
+        assertEquals(listOf(0L to 1_000L), times("\r\n1\r\n00:00:00,000 --> 00:00:01,000\r\nOk\r\n\r\n2\r\n00:00:02,000 --> 00:00:03,000\r\n\r\n"))
+    }
+}
@@ -43,6 +43,19 @@ export interface VLCPlayerSource {
    * @default []
    */
   initOptions?: string[];
+  /**
+   * Key under which the resume position is stored when `resumePositionEnabled` is set.
+   * Defaults to the normalized `uri`.
+   */
+  resumeKey?: string;
+  /**
+   * Alternative URIs of the same media, in order of preference after `uri`.
+   * The fastest mirrors are raced at open, and playback fails over to the next
+   * mirror at the current position on error. See `onMirrorChange`.
+   *
+   * @platform android
+   */
+  mirrors?: string[];
 }
 
 /**
@@ -88,6 +101,14 @@ export type VideoInfo = {
    * List of playback text tracks
    */
   textTracks: Track[];
+
+  /**
+   * `true` when the info was served from the persistent parse cache at load time,
+   * before the media was opened. A fresh parse is re-emitted only if it differs.
+   *
+   * @platform android
+   */
+  cached?: boolean;
 };
 
 type OnPlayingEventProps = Pick<VideoInfo, "duration" | "target"> & {
@@ -198,9 +219,315 @@ export type VLCPlayerCallbackProps = {
     isInPictureInPicture: boolean;
     width: number;
     height: number;
+    /**
+     * Sent in a second event once the first frame is drawn in PiP. Milestones are
+     * `SystemClock.elapsedRealtime()` ms; `path` is `auto` (auto-enter), `host` (the host
+     * activity entered PiP) or `activity` (a dedicated PiP activity was launched).
+     */
+    entryLatency?: {
+      path: 'auto' | 'host' | 'activity';
+      requestedAt: number;
+      activityCreatedAt: number;
+      surfaceAttachedAt: number;
+      firstFrameAt: number;
+      totalMs: number;
+    };
+  }) => void;
+
+  /**
+   * Called with decoded audio levels while playing. Setting this callback enables the
+   * native audio tap, which requires the `RECORD_AUDIO` permission.
+   *
+   * `rms` and `peak` are linear (0-1), `spectrum` holds log-spaced bins (0-1).
+   *
+   * @param event - Event properties
+   * @platform android
+   */
+  onAudioLevels?: (event: AudioLevels) => void;
+
+  /**
+   * Called when `adaptiveNetworkCaching` picks a new caching value for a host, and once
+   * at the end of every adaptive session with `sessionEnded: true`.
+   *
+   * @param event - Event properties
+   * @platform android
+   */
+  onNetworkCachingChange?: (event: NetworkCachingChange) => void;
+
+  /**
+   * Called when playback stalls to rebuffer (`stalled: true`) and when it recovers
+   * (`stalled: false`, with the stall duration). Startup and seek fills are not stalls.
+   *
+   * @param event - Event properties
+   * @platform android
+   */
+  onStall?: (event: {
+    stalled: boolean;
+    stallCount: number;
+    durationMs: number;
+    currentTime: number;
+  }) => void;
+
+  /**
+   * Called once per playback session, when the media ends, fails or the player is released.
+   *
+   * @param event - Event properties
+   * @platform android
+   */
+  onPlaybackSummary?: (event: PlaybackSummary) => void;
+
+  /**
+   * Called when playback uses a mirror other than the one it was on: the winner of the
+   * open race (`reason: "race"`) or the next mirror after an error (`reason: "failover"`).
+   * `onError` only fires once no mirror is left.
+   *
+   * @param event - Event properties
+   * @platform android
+   */
+  onMirrorChange?: (event: {
+    uri: string;
+    host: string;
+    /** Rank of the mirror in the latency-ordered list */
+    index: number;
+    reason: "race" | "failover";
+    /** Time to first byte of the race winner, 0 for failover */
+    latencyMs: number;
+    /** Position playback resumes at, 0 for race */
+    positionMs: number;
+  }) => void;
+
+  /**
+   * Called when `reconnect` schedules a retry after a playback error. `onError` is only
+   * called once the retries are exhausted.
+   *
+   * @param event - Event properties
+   * @platform android
+   */
+  onReconnecting?: (event: {
+    attempt: number;
+    delayMs: number;
+    positionMs: number;
+    live: boolean;
+  }) => void;
+
+  /**
+   * Called when playback progresses again after a reconnect, with the time from the
+   * first error to recovery.
+   *
+   * @param event - Event properties
+   * @platform android
+   */
+  onReconnected?: (event: {
+    attempts: number;
+    recoverMs: number;
+    positionMs: number;
+    live: boolean;
+  }) => void;
+
+  /**
+   * Called when `virtualization` moves the player to another tier.
+   *
+   * @param event - Event properties
+   * @platform android
+   */
+  onVisibilityTierChange?: (event: {
+    tier: VisibilityTier;
+    previousTier: VisibilityTier;
+    visibleFraction: number;
+  }) => void;
+
+  /**
+   * Called when `decoderScheduling` changes the player's decoder.
+   *
+   * @param event - Event properties
+   * @platform android
+   */
+  onDecoderChange?: (event: {
+    decoder: DecoderAssignment;
+    previousDecoder: DecoderAssignment;
+    /** 0 hidden, 1 visible, 2 focused, 3 in PiP */
+    priority: number;
+  }) => void;
+
+  /**
+   * Called every `wallMode.statsInterval` ms with the tile's decode statistics.
+   *
+   * @param event - Event properties
+   * @platform android
+   */
+  onWallStats?: (event: WallStats) => void;
+
+  /**
+   * Called when this view takes over a running player through `handoffKey` or
+   * `sessionKey`.
+   *
+   * @param event - Event properties
+   * @platform android
+   */
+  onHandoff?: (event: { positionMs: number; isPlaying: boolean }) => void;
+
+  /**
+   * Called when the system signals memory pressure, with what this player shed:
+   * `networkCaching` (reported while a network player is open: its next open, e.g. a
+   * reconnect, uses 300 ms instead of a larger value for a minute), `player` (released into a
+   * snapshot; the next play resumes at its position) and `videoOutput` (rendered at half
+   * size until the next open).
+   *
+   * @param event - Event properties
+   * @platform android
+   */
+  onMemoryPressure?: (event: {
+    level: "moderate" | "low" | "critical";
+    released: Array<"networkCaching" | "player" | "videoOutput">;
+  }) => void;
+
+  /**
+   * Called when a new video output size (view resize, rotation, PiP window) has been
+   * applied and the first frame at it drawn, with the time from the size change to
+   * that frame.
+   *
+   * @param event - Event properties
+   * @platform android
+   */
+  onResize?: (event: {
+    width: number;
+    height: number;
+    latencyMs: number;
+    isInPictureInPicture: boolean;
+  }) => void;
+
+  /**
+   * Called when the precise seek ending a scrub session (`endScrub`) is shown. Every `endScrub`
+   * gets one call. `position` is -1 if no seek was shown: `endScrub` came without a session or
+   * any position (called at once, no seek is made), the seek was dropped by a new
+   * `beginScrub` or the player being released, or it was not shown within 5 s.
+   *
+   * @param event - Event properties
+   * @platform android
+   */
+  onSeekComplete?: (event: {
+    position: number;
+    currentTime: number;
+    /** From the precise seek to the first frame shown after it, or to when it was dropped */
+    latencyMs: number;
+    fastSeeks: number;
+    /** Scrub updates replaced by a later one before being applied */
+    skippedUpdates: number;
+  }) => void;
+
+  /**
+   * Called when the active cues of `subtitleUri` change, in `subtitleMode` "overlay" or
+   * "events". Times are in ms; `cues` is empty between cues.
+   *
+   * @param event - Event properties
+   * @platform android
+   */
+  onSubtitleCues?: (event: {
+    cues: { start: number; end: number; text: string }[];
+    currentTime: number;
+  }) => void;
+
+  /**
+   * Called when `backgroundAudioOnly` drops video on background (`active: true`) and when
+   * it restores it on foreground, with the CPU time used and video frames decoded
+   * (normally 0) while in the background.
+   *
+   * @param event - Event properties
+   * @platform android
+   */
+  onBackgroundAudioOnly?: (event: {
+    active: boolean;
+    durationMs?: number;
+    cpuMs?: number;
+    cpuPercent?: number;
+    decodedVideoFrames?: number;
   }) => void;
 };
 
+/**
+ * `active` decodes, `paused` keeps the player paused without video output, `released`
+ * frees the native player and keeps only a snapshot to resume from.
+ */
+export type VisibilityTier = "active" | "paused" | "released";
+
+/**
+ * Decoder given by `decoderScheduling`: a hardware slot, software decoding, or none.
+ */
+export type DecoderAssignment = "hardware" | "software" | "paused";
+
+/**
+ * Decode statistics of a `wallMode` tile over the last interval
+ */
+export type WallStats = {
+  decodedFrames: number;
+  displayedFrames: number;
+  droppedFrames: number;
+  decodeFps: number;
+  inputKbps: number;
+  /** Decode size is the source size divided by 2^lowres */
+  lowres: number;
+  /** Estimated share of the process CPU time, by decoded pixels (0..1) */
+  cpuShare: number;
+  /** Process CPU usage over all cores, in percent */
+  processCpuPercent: number;
+};
+
+/**
+ * Audio levels reported by `onAudioLevels`
+ */
+export type AudioLevels = {
+  rms: number;
+  peak: number;
+  spectrum: number[];
+};
+
+/**
+ * Decision reported by `onNetworkCachingChange`
+ */
+export type NetworkCachingChange = {
+  host: string;
+  previousCachingMs: number;
+  cachingMs: number;
+  /** Estimated link throughput, 0 if unknown */
+  throughputKbps: number;
+  /** Demuxed content bitrate, 0 if unknown */
+  contentKbps: number;
+  /** Mid-playback stalls in this session */
+  stalls: number;
+  reason: "stalls" | "headroom" | "low-throughput" | "steady";
+  sessionEnded: boolean;
+};
+
+/**
+ * Session quality reported by `onPlaybackSummary`. Durations are in ms.
+ */
+export type PlaybackSummary = {
+  reason: "ended" | "error" | "released";
+  sessionMs: number;
+  /** Time to first playback, -1 if playback never started */
+  startupMs: number;
+  playingMs: number;
+  rebufferCount: number;
+  rebufferMs: number;
+  longestRebufferMs: number;
+  /** Stalled time over stalled + playing time */
+  rebufferRatio: number;
+  stallsPerMinute: number;
+  seekCount: number;
+  seekBufferingMs: number;
+  /** 0-100, penalizing slow startup, time stalled and stall frequency */
+  score: number;
+};
+
+/**
+ * Bounds for `adaptiveNetworkCaching`, in ms
+ */
+export type AdaptiveNetworkCaching = {
+  minMs?: number;
+  maxMs?: number;
+  initialMs?: number;
+};
+
 export type VLCPlayerProps = VLCPlayerCallbackProps & {
   /**
    * Object that contains the uri of a video or song to play eg
@@ -214,6 +541,17 @@ export type VLCPlayerProps = VLCPlayerCallbackProps & {
    */
   subtitleUri?: string;
 
+  /**
+   * How `subtitleUri` is shown. "vlc" blends it into the video. "overlay" parses the
+   * SRT/VTT/ASS file natively and draws its text over the player; "events" only reports
+   * cues through `onSubtitleCues`, for rendering in React. Styling markup is dropped in
+   * both. Changing the mode reopens a playing source at its position.
+   *
+   * @platform android
+   * @default "vlc"
+   */
+  subtitleMode?: "vlc" | "overlay" | "events";
+
   /**
    * Set to `true` or `false` to pause or play the media
    * @default false
@@ -317,6 +655,174 @@ export type VLCPlayerProps = VLCPlayerCallbackProps & {
    * @default true
    */
   playInPictureInPicture?: boolean;
+
+  /**
+   * Enter PiP when the user leaves the app while the video plays, animating from the
+   * player's bounds (Android 12+). Requires `pictureInPictureEnabled`.
+   *
+   * @platform android
+   * @default false
+   */
+  autoEnterPictureInPicture?: boolean;
+
+  /**
+   * Minimum interval in ms between `onAudioLevels` events.
+   *
+   * @platform android
+   * @default 50
+   */
+  audioLevelsInterval?: number;
+
+  /**
+   * Remember parsed media info (duration, tracks, video size) on disk so `onLoad`
+   * fires immediately when the same source is opened again.
+   *
+   * @platform android
+   * @default true
+   */
+  mediaInfoCacheEnabled?: boolean;
+
+  /**
+   * Store the playback position natively and start at it the next time the same
+   * source (or `source.resumeKey`) is opened. Finished media start from the beginning.
+   *
+   * @platform android
+   * @default false
+   */
+  resumePositionEnabled?: boolean;
+
+  /**
+   * Pick `:network-caching` per host from observed stalls and throughput instead of a
+   * fixed value. Overrides a `:network-caching` given in `mediaOptions`.
+   * `true` uses the default bounds (300-10000 ms, starting at 1500 ms).
+   *
+   * @platform android
+   * @default false
+   */
+  adaptiveNetworkCaching?: boolean | AdaptiveNetworkCaching;
+
+  /**
+   * Play http(s) sources through an in-process caching proxy, so replays and backward
+   * seeks are served from disk. HLS/DASH segments are cached, playlists are not.
+   * `maxBytes` bounds the shared disk cache (default 256 MB). See `VLCCacheProxy`.
+   *
+   * @platform android
+   * @default false
+   */
+  localCacheProxy?: boolean | { maxBytes?: number };
+
+  /**
+   * Reopen the media on the same player after a playback error, with exponential backoff.
+   * Position, selected tracks, rate and paused state are restored; live sources rejoin at
+   * the live edge. With `source.mirrors`, the remaining mirrors are tried first.
+   * `true` uses 3 retries starting at 500 ms, doubling up to 8000 ms.
+   *
+   * @platform android
+   * @default false
+   */
+  reconnect?:
+    | boolean
+    | { maxRetries?: number; initialDelayMs?: number; maxDelayMs?: number; multiplier?: number };
+
+  /**
+   * Manage the player by its visibility, for players in scrolling lists. Per window, only
+   * the `maxActive` most visible players showing at least `activeFraction` of their area
+   * decode. Others within `releaseDistance` viewport heights of the screen are paused with
+   * their video output detached; players further away are released and restored at their
+   * position when they scroll back. `true` uses `{ maxActive: 2, activeFraction: 0.5,
+   * releaseDistance: 1 }`.
+   *
+   * @platform android
+   * @default false
+   */
+  virtualization?:
+    | boolean
+    | { maxActive?: number; activeFraction?: number; releaseDistance?: number };
+
+  /**
+   * Share the device's hardware decoder sessions among all players. Capacity is probed per
+   * codec and resolution; slots go to players in PiP first, then `focused`, then visible
+   * ones. Visible players left without a slot decode in software, hidden ones pause.
+   * Ignored when `source.hwDecoderEnabled` is 0.
+   *
+   * @platform android
+   * @default false
+   */
+  decoderScheduling?: boolean | { focused?: boolean };
+
+  /**
+   * Video wall tile, for showing many feeds at once. Tiles of a `group` share one LibVLC
+   * with single-threaded decoders. Each tile decodes at a reduced size (avcodec lowres)
+   * chosen from its on-screen size, skips non-reference frames, and can be limited to
+   * `maxFps`. Hardware decoding and audio are off unless enabled. `source.initOptions`
+   * are ignored.
+   *
+   * @platform android
+   * @default false
+   */
+  wallMode?:
+    | boolean
+    | {
+        group?: string;
+        maxFps?: number;
+        skipNonRefFrames?: boolean;
+        hwDecoding?: boolean;
+        audio?: boolean;
+        /** Interval of `onWallStats` in ms, 0 to disable. Default 2000 */
+        statsInterval?: number;
+      };
+
+  /**
+   * Views with the same key pass a running player between them instead of reopening the
+   * source, e.g. from a list thumbnail to a fullscreen screen and back. A newly mounted view
+   * with the same `source.uri` takes over the player of an older one; when it unmounts, the
+   * player returns to the older view. A player whose view unmounts is kept for 5 s for a
+   * view about to mount.
+   *
+   * @platform android
+   */
+  handoffKey?: string;
+
+  /**
+   * When the app goes to the background without entering PiP, keep playing audio only:
+   * the video track is unselected, so it is neither decoded nor rendered, instead of
+   * pausing. Video is reselected and resynced on return.
+   *
+   * @platform android
+   * @default false
+   */
+  backgroundAudioOnly?: boolean;
+
+  /**
+   * Key of the logical player this view shows. When the view unmounts, its player keeps
+   * running, detached, for `sessionGracePeriodMs`; a view mounting with the same key and
+   * source re-attaches to it instead of opening the stream again. Up to 3 detached
+   * sessions are kept, the least recently detached being released first. `handoffKey`
+   * takes precedence when both are set.
+   *
+   * @platform android
+   */
+  sessionKey?: string;
+
+  /**
+   * How long a detached `sessionKey` session is kept, in milliseconds.
+   *
+   * @platform android
+   * @default 5000
+   */
+  sessionGracePeriodMs?: number;
+
+  /**
+   * Open media for the size the view (or PiP window) is shown at: adaptive streams are
+   * capped to the smallest variant covering it, and software decoding of a source at least
+   * twice its size skips work that would not be visible. A smaller view takes effect on the
+   * next open; a view that grows 25% past the chosen variant reopens at its position.
+   * Ignored in `wallMode`, which downscales on its own.
+   *
+   * @platform android
+   * @default false
+   */
+  autoDownscale?: boolean;
 };
 
 declare class PlaybackMethods<T> extends Component<T> {
@@ -350,6 +856,30 @@ declare class PlaybackMethods<T> extends Component<T> {
    */
   seek(pos: number);
 
+  /**
+   * Start a scrub session for a drag. Until `endScrub`, `scrub` (and `seek`) only keep the
+   * latest position, applied as a fast keyframe seek at most every 100 ms.
+   *
+   * @platform android
+   */
+  beginScrub();
+
+  /**
+   * Move the scrub target
+   *
+   * @param pos Position (0..1)
+   * @platform android
+   */
+  scrub(pos: number);
+
+  /**
+   * End the scrub session with one precise seek; `onSeekComplete` follows once it is shown.
+   *
+   * @param pos Final position (0..1); the last `scrub` position if omitted
+   * @platform android
+   */
+  endScrub(pos?: number);
+
   /**
    * Resume playback
    */
@@ -378,6 +908,114 @@ declare class PlaybackMethods<T> extends Component<T> {
   enterPictureInPicture(): void;
 }
 
+/**
+ * Raw access to the PCM ring of a player with `onAudioLevels` set.
+ * `viewTag` is the player's `findNodeHandle` result.
+ *
+ * @platform android
+ */
+export declare const VLCAudioTap: {
+  /**
+   * Read up to `maxSamples` of the most recent mono samples (-1..1), oldest first.
+   */
+  readSamples(viewTag: number, maxSamples: number): Promise<number[]>;
+  getInfo(viewTag: number): Promise<{ sampleRate: number; capacity: number; totalSamples: number }>;
+};
+
+/**
+ * Counters of the caching proxy shared by players with `localCacheProxy` set.
+ *
+ * @platform android
+ */
+export declare const VLCCacheProxy: {
+  getStats(): Promise<{
+    bytesFromCache: number;
+    bytesFromNetwork: number;
+    bytesSaved: number;
+    /** bytesFromCache over all bytes served */
+    hitRatio: number;
+    cachedBytes: number;
+    maxBytes: number;
+  }>;
+  /** Delete all cached data and reset the counters */
+  clear(): Promise<void>;
+};
+
+/**
+ * A video decoder of the device
+ */
+export type DecoderCapability = {
+  name: string;
+  mimeType: string;
+  hardware: boolean;
+  /** MediaCodecInfo.CodecProfileLevel profile constants */
+  profiles: number[];
+  /** Advertises a 10-bit profile */
+  tenBit: boolean;
+  /** Largest dimensions, not necessarily supported together */
+  maxWidth: number;
+  maxHeight: number;
+  /** Highest frame rate at 1280x720, 1920x1080 and 3840x2160; 0 if the size is not supported */
+  frameRateLimits: Array<{ width: number; height: number; maxFrameRate: number }>;
+  maxInstances: number;
+};
+
+/**
+ * Video decoders found by a one-time probe, stored per device build. Players whose source
+ * does not set `hwDecoderEnabled` use it to decode in software when no hardware decoder
+ * covers the video's codec, size, frame rate or bit depth.
+ *
+ * @platform android
+ */
+export declare const VLCDecoders: {
+  getCapabilities(): Promise<{ fingerprint: string; probedAt: number; codecs: DecoderCapability[] }>;
+  /** Query the codecs again instead of using the stored result */
+  reprobe(): Promise<{ fingerprint: string; probedAt: number; codecs: DecoderCapability[] }>;
+  /**
+   * The decoder a player would pick. `codec` is a MediaCodec type (`video/hevc`) or a
+   * libvlc fourcc (`hevc`); `profile` is the bitstream's profile id.
+   */
+  getRecommendation(
+    codec: string,
+    format?: { width?: number; height?: number; frameRate?: number; profile?: number }
+  ): Promise<"hardware" | "software">;
+};
+
+/**
+ * State of an offline download
+ */
+export type DownloadInfo = {
+  id: string;
+  url: string;
+  status: "queued" | "running" | "paused" | "completed" | "failed";
+  downloadedBytes: number;
+  /** -1 if the server did not report a length */
+  totalBytes: number;
+  localPath: string | null;
+  error: string | null;
+};
+
+/**
+ * Offline downloads of network sources. A player given the url of a completed download
+ * plays the local copy. Downloads are throttled while a player is playing and resume
+ * after the app restarts. Progress is emitted as `VLCDownloadProgress` events
+ * (use `new NativeEventEmitter(VLCDownloads)`).
+ *
+ * @platform android
+ */
+export declare const VLCDownloads: {
+  /** Start or resume a download; resolves with its id */
+  start(url: string, options?: { parallelism?: number }): Promise<string>;
+  pause(id: string): Promise<void>;
+  resume(id: string): Promise<void>;
+  /** Stop the download and delete its data, including a completed copy */
+  remove(id: string): Promise<void>;
+  getDownloads(): Promise<DownloadInfo[]>;
+  getLocalPath(url: string): Promise<string | null>;
+  /** Bytes per second allowed to downloads while a player is playing (default 256 KB/s) */
+  setPlaybackThrottle(bytesPerSecond: number): void;
+};
+
 /**
  * A component that can be used to show a playback
  */
@@ -1,8 +1,14 @@
 
+import { NativeModules } from "react-native";
+
 const VLCPlayerControl = {
   VLCPlayer: require('./VLCPlayer').default,
   VLCPlayerSurface: require('./VLCPlayerSurface').default,
   VlCPlayerView: require('./playerView/index').default,
+  VLCAudioTap: NativeModules.RCTVLCAudioTap,
+  VLCCacheProxy: NativeModules.RCTVLCCacheProxy,
+  VLCDecoders: NativeModules.RCTVLCDecoders,
+  VLCDownloads: NativeModules.RCTVLCDownloads,
 }
 
 module.exports = VLCPlayerControl;
\ No newline at end of file